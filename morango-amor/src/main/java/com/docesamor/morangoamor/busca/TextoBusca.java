@@ -0,0 +1,67 @@
+package com.docesamor.morangoamor.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Normalização de texto e trigramas compartilhados pelas buscas (catálogo, clientes e colunas *_busca),
+// para que índice em memória, colunas gravadas e termos consultados sejam sempre dobrados do mesmo jeito.
+public final class TextoBusca {
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    private TextoBusca() {
+    }
+
+    // Minúsculas (Locale.ROOT), sem acentos e com pontuação/espaços repetidos reduzidos a um espaço
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        String normalizado = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+            .replaceAll("")
+            .toLowerCase(Locale.ROOT);
+        return SEPARADORES.matcher(normalizado).replaceAll(" ").trim();
+    }
+
+    // Padrão LIKE "contém" com %, _ e \ do termo escapados (caractere de escape \)
+    public static String parcial(String termo) {
+        if (termo == null) {
+            return null;
+        }
+        String escapado = termo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escapado + "%";
+    }
+
+    public static List<String> palavras(String texto) {
+        String normalizado = normalizar(texto);
+        if (normalizado == null || normalizado.isEmpty()) {
+            return List.of();
+        }
+        return List.of(normalizado.split(" "));
+    }
+
+    // Trigramas de cada palavra de um texto já normalizado, com preenchimento nas bordas como no pg_trgm
+    // ("  ab" / "ab "), favorecendo o início da palavra
+    public static Set<String> trigramas(String normalizado) {
+        Set<String> resultado = new HashSet<>();
+        if (normalizado == null) {
+            return resultado;
+        }
+        for (String palavra : normalizado.split(" ")) {
+            if (palavra.isEmpty()) {
+                continue;
+            }
+            String preenchida = "  " + palavra + " ";
+            for (int i = 0; i + 3 <= preenchida.length(); i++) {
+                resultado.add(preenchida.substring(i, i + 3));
+            }
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,21 @@
+package com.docesamor.morangoamor.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Virtual threads: chamadas lentas ao gateway não prendem threads de plataforma.
+    // O limite de concorrência fica no CheckoutPagamentoService (semáforo), para não bloquear quem submete.
+    @Bean
+    public TaskExecutor pagamentoExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("pagamento-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
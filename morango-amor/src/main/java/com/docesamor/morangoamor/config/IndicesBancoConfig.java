@@ -0,0 +1,77 @@
+package com.docesamor.morangoamor.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Índices que o ddl-auto do Hibernate não sabe criar (expressões, extensões do PostgreSQL).
+// Idempotentes; uma falha só é registrada, as consultas continuam funcionando sem o índice.
+// CREATE INDEX CONCURRENTLY que falha no meio deixa um índice INVALID que o IF NOT EXISTS pularia
+// para sempre: índices inválidos são removidos e recriados.
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class IndicesBancoConfig {
+
+    private static final List<String> INDICES = List.of(
+        // Busca de cliente por email sem diferenciar maiúsculas (ClienteRepository.findPorEmailNormalizado)
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clientes_email_lower ON clientes (LOWER(email))",
+        // Busca de clientes por trecho (BuscaClientesService): LIKE '%termo%' e similaridade de palavras
+        "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clientes_nome_busca_trgm ON clientes USING gin (nome_busca gin_trgm_ops)",
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clientes_email_trgm ON clientes USING gin (LOWER(email) gin_trgm_ops)",
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clientes_alergias_busca_trgm ON clientes USING gin (alergias_busca gin_trgm_ops)",
+        "CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_clientes_preferencias_busca_trgm " +
+            "ON clientes USING gin (preferencias_busca gin_trgm_ops)"
+    );
+
+    private static final Pattern CONCORRENTE = Pattern.compile("CREATE INDEX CONCURRENTLY IF NOT EXISTS (\\w+)");
+    // Sem linha = índice não existe
+    private static final String INDICE_VALIDO =
+        "SELECT i.indisvalid FROM pg_index i WHERE i.indexrelid = to_regclass(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Antes dos demais ouvintes de startup, que podem depender dos índices ou da extensão
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void criarIndices() {
+        for (String ddl : INDICES) {
+            Matcher concorrente = CONCORRENTE.matcher(ddl);
+            String indice = concorrente.lookingAt() ? concorrente.group(1) : null;
+            try {
+                if (indice != null) {
+                    removerSeInvalido(indice);
+                }
+                jdbcTemplate.execute(ddl);
+            } catch (DataAccessException e) {
+                log.warn("Não foi possível criar índice ({}): {}", ddl, e.getMessage());
+                if (indice != null) {
+                    removerSeInvalido(indice);
+                }
+            }
+        }
+    }
+
+    private void removerSeInvalido(String indice) {
+        try {
+            List<Boolean> valido = jdbcTemplate.queryForList(INDICE_VALIDO, Boolean.class, indice);
+            if (!valido.isEmpty() && !valido.get(0)) {
+                log.warn("Índice {} inválido (criação concorrente interrompida); removendo para recriar", indice);
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indice);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Não foi possível verificar/remover índice inválido {}: {}", indice, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.docesamor.morangoamor.controller;
+
+import com.docesamor.morangoamor.dto.LinhaAnaliseDTO;
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.service.CuboVendasService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Consultas analíticas de vendas (pedidos entregues) respondidas pelo cubo em memória.
+// Ex.: ?dimensoes=HORA_DO_DIA equivale a getVendasPorHora; ?dimensoes=TIPO a getVendasPorTipoDoce;
+// ?dimensoes=DOCE&inicio=...&fim=... a getReceitaPorDocePorPeriodo.
+@RestController
+@RequestMapping("/admin/analises")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminAnaliseController {
+
+    private static final int LIMITE_MAXIMO = 10_000;
+
+    private final CuboVendasService cuboVendasService;
+
+    @GetMapping
+    public ResponseEntity<List<LinhaAnaliseDTO>> consultar(
+            @RequestParam(defaultValue = "DOCE") List<CuboVendasService.Dimensao> dimensoes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fim,
+            @RequestParam(required = false) Long doceId,
+            @RequestParam(required = false) TipoDoce tipo,
+            @RequestParam(required = false) SaborMorango sabor,
+            @RequestParam(required = false) FormaPagamento formaPagamento,
+            @RequestParam(defaultValue = "100") int limite) {
+        
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("Consulta analítica - dimensões: {}, período: {} a {}, doce: {}, tipo: {}, sabor: {}, pagamento: {}", 
+            dimensoes, inicio, fim, doceId, tipo, sabor, formaPagamento);
+        
+        List<LinhaAnaliseDTO> linhas = cuboVendasService.consultar(new CuboVendasService.Consulta(
+            dimensoes, inicio, fim, doceId, tipo, sabor, formaPagamento, limite));
+        
+        return ResponseEntity.ok(linhas);
+    }
+}
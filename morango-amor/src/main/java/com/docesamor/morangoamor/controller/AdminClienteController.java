@@ -0,0 +1,151 @@
+package com.docesamor.morangoamor.controller;
+
+import com.docesamor.morangoamor.dto.ClienteDTO;
+import com.docesamor.morangoamor.dto.FormatoExportacao;
+import com.docesamor.morangoamor.dto.PaginaCursorDTO;
+import com.docesamor.morangoamor.dto.ResultadoImportacaoDTO;
+import com.docesamor.morangoamor.entity.SegmentoRfm;
+import com.docesamor.morangoamor.mapper.ClienteMapper;
+import com.docesamor.morangoamor.service.BuscaClientesService;
+import com.docesamor.morangoamor.service.ClienteService;
+import com.docesamor.morangoamor.service.ImportacaoClientesService;
+import com.docesamor.morangoamor.service.SegmentacaoClientesService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/clientes")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminClienteController {
+
+    private final ClienteService clienteService;
+    private final SegmentacaoClientesService segmentacaoClientesService;
+    private final ImportacaoClientesService importacaoClientesService;
+    private final ClienteMapper clienteMapper;
+    private final ObjectMapper objectMapper;
+
+    private static final int TAMANHO_LOTE = 500;
+    private static final int TAMANHO_MAXIMO_PAGINA = 200;
+
+    // Busca para o atendimento: texto livre sobre o nome (ranqueado por similaridade, sem acentos)
+    // combinado com os demais filtros; paginada por cursor
+    @GetMapping
+    public ResponseEntity<PaginaCursorDTO<ClienteDTO>> buscarClientes(
+            @RequestParam(required = false) String texto,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String alergia,
+            @RequestParam(required = false) String preferencia,
+            @RequestParam(required = false) String cidade,
+            @RequestParam(required = false) String estado,
+            @RequestParam(required = false) Boolean clienteVip,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamanho) {
+        
+        if (tamanho < 1 || tamanho > TAMANHO_MAXIMO_PAGINA) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("Busca administrativa de clientes - texto: {}, email: {}, alergia: {}, preferência: {}, " +
+            "cidade: {}, estado: {}, VIP: {}", texto, email, alergia, preferencia, cidade, estado, clienteVip);
+        
+        return ResponseEntity.ok(clienteService.filtrarClientes(
+            new BuscaClientesService.Filtro(texto, email, alergia, preferencia, cidade, estado, clienteVip),
+            cursor, tamanho));
+    }
+
+    // Público de campanha em NDJSON (um cliente por linha), lido em lotes a partir do calendário em memória.
+    // Sem mês: aniversariantes de hoje, ou só a faixa de idade se informada.
+    @GetMapping("/campanha")
+    public ResponseEntity<StreamingResponseBody> exportarPublicoCampanha(
+            @RequestParam(required = false) Integer mes,
+            @RequestParam(required = false) Integer dia,
+            @RequestParam(required = false) Integer idadeMinima,
+            @RequestParam(required = false) Integer idadeMaxima) {
+        
+        long[] ids;
+        try {
+            ids = clienteService.selecionarParaCampanha(mes, dia, idadeMinima, idadeMaxima);
+        } catch (DateTimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        log.info("Exportando público de campanha - mês: {}, dia: {}, idade: {} a {}, clientes: {}",
+            mes, dia, idadeMinima, idadeMaxima, ids.length);
+        
+        return ndjson(ids);
+    }
+
+    // Importação em massa: o corpo da requisição é lido em streaming (csv, ndjson ou json; gzip opcional)
+    @PostMapping("/importar")
+    public ResponseEntity<ResultadoImportacaoDTO> importarClientes(
+            InputStream corpo,
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip) throws IOException {
+        
+        FormatoExportacao formatoImportacao;
+        try {
+            formatoImportacao = FormatoExportacao.de(formato);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(importacaoClientesService.importar(corpo, formatoImportacao, gzip));
+    }
+
+    @GetMapping("/importacoes")
+    public ResponseEntity<List<ResultadoImportacaoDTO>> importacoesEmAndamento() {
+        return ResponseEntity.ok(importacaoClientesService.importacoesEmAndamento());
+    }
+
+    @GetMapping("/segmentos")
+    public ResponseEntity<Map<SegmentoRfm, Integer>> resumoSegmentos() {
+        return ResponseEntity.ok(segmentacaoClientesService.resumo());
+    }
+
+    // Clientes de um segmento RFM em NDJSON, mesma leitura em lotes do público de campanha
+    @GetMapping("/segmentos/{segmento}")
+    public ResponseEntity<StreamingResponseBody> exportarSegmento(@PathVariable SegmentoRfm segmento) {
+        long[] ids = segmentacaoClientesService.clientesDoSegmento(segmento);
+        log.info("Exportando segmento {}: {} clientes", segmento, ids.length);
+        return ndjson(ids);
+    }
+
+    @PostMapping("/segmentos/recalcular")
+    public ResponseEntity<Map<SegmentoRfm, Integer>> recalcularSegmentos() {
+        log.info("Recálculo da segmentação RFM solicitado");
+        segmentacaoClientesService.recalcular();
+        return ResponseEntity.ok(segmentacaoClientesService.resumo());
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjson(long[] ids) {
+        StreamingResponseBody corpo = saida -> {
+            try (SequenceWriter escritor = objectMapper.writerFor(ClienteDTO.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(saida)) {
+                clienteService.percorrerEmLotes(ids, TAMANHO_LOTE, clientes -> clientes.forEach(cliente -> {
+                    try {
+                        escritor.write(clienteMapper.toDTO(cliente));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        };
+        
+        return ResponseEntity.ok()
+            .header("Content-Type", "application/x-ndjson")
+            .body(corpo);
+    }
+}
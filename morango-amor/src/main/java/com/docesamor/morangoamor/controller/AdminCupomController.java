@@ -0,0 +1,51 @@
+package com.docesamor.morangoamor.controller;
+
+import com.docesamor.morangoamor.dto.CupomDTO;
+import com.docesamor.morangoamor.service.CupomService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/cupons")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminCupomController {
+
+    private final CupomService cupomService;
+
+    @GetMapping
+    public ResponseEntity<List<CupomDTO>> listarCupons() {
+        return ResponseEntity.ok(cupomService.listarCupons());
+    }
+
+    @GetMapping("/{codigo}")
+    public ResponseEntity<CupomDTO> buscarCupom(@PathVariable String codigo) {
+        return ResponseEntity.ok(cupomService.buscarCupom(codigo));
+    }
+
+    @PostMapping
+    public ResponseEntity<CupomDTO> criarCupom(@Valid @RequestBody CupomDTO cupomDTO) {
+        log.info("Criando cupom: {}", cupomDTO.getCodigo());
+        return ResponseEntity.status(HttpStatus.CREATED).body(cupomService.criarCupom(cupomDTO));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<CupomDTO> atualizarCupom(@PathVariable Long id, @Valid @RequestBody CupomDTO cupomDTO) {
+        log.info("Atualizando cupom {}", id);
+        return ResponseEntity.ok(cupomService.atualizarCupom(id, cupomDTO));
+    }
+
+    // Cupons não são apagados: o histórico de usos continua referenciando o id
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> desativarCupom(@PathVariable Long id) {
+        log.info("Desativando cupom {}", id);
+        cupomService.desativarCupom(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,7 +1,10 @@
 package com.docesamor.morangoamor.controller;
 
+import com.docesamor.morangoamor.dto.FormatoExportacao;
+import com.docesamor.morangoamor.dto.PaginaCursorDTO;
 import com.docesamor.morangoamor.dto.PedidoResponseDTO;
 import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.service.ExportacaoPedidoService;
 import com.docesamor.morangoamor.service.PedidoService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +14,7 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -22,6 +26,9 @@ import java.util.Map;
 public class AdminPedidoController {
 
     private final PedidoService pedidoService;
+    private final ExportacaoPedidoService exportacaoPedidoService;
+
+    private static final int TAMANHO_MAXIMO_CURSOR = 200;
 
     @GetMapping
     public ResponseEntity<Page<PedidoResponseDTO>> listarTodosPedidos(
@@ -43,6 +50,31 @@ public class AdminPedidoController {
         return ResponseEntity.ok(pedidos);
     }
 
+    // Listagem por cursor para páginas profundas: custo constante por página, sem COUNT
+    @GetMapping("/cursor")
+    public ResponseEntity<PaginaCursorDTO<PedidoResponseDTO>> listarPedidosPorCursor(
+            @RequestParam(required = false) StatusPedido status,
+            @RequestParam(required = false) String clienteEmail,
+            @RequestParam(required = false) String clienteNome,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataFim,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int tamanho,
+            @RequestParam(defaultValue = "false") boolean incluirTotal) {
+        
+        if (tamanho < 1 || tamanho > TAMANHO_MAXIMO_CURSOR) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("Consulta administrativa de pedidos por cursor - status: {}, email: {}, nome: {}, período: {} a {}", 
+            status, clienteEmail, clienteNome, dataInicio, dataFim);
+        
+        PaginaCursorDTO<PedidoResponseDTO> pagina = pedidoService.listarPedidosPorCursor(
+            status, clienteEmail, clienteNome, dataInicio, dataFim, cursor, tamanho, incluirTotal);
+        
+        return ResponseEntity.ok(pagina);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PedidoResponseDTO> buscarPedidoPorId(@PathVariable Long id) {
         log.info("Consulta administrativa do pedido: {}", id);
@@ -82,28 +114,32 @@ public class AdminPedidoController {
     }
 
     @GetMapping("/exportar")
-    public ResponseEntity<String> exportarPedidos(
+    public ResponseEntity<StreamingResponseBody> exportarPedidos(
             @RequestParam(required = false) StatusPedido status,
             @RequestParam(required = false) String clienteEmail,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataInicio,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dataFim,
-            @RequestParam(defaultValue = "csv") String formato) {
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip) {
         
-        log.info("Exportando pedidos - formato: {}, status: {}, email: {}, período: {} a {}", 
-            formato, status, clienteEmail, dataInicio, dataFim);
+        log.info("Exportando pedidos - formato: {}, gzip: {}, status: {}, email: {}, período: {} a {}", 
+            formato, gzip, status, clienteEmail, dataInicio, dataFim);
         
+        FormatoExportacao formatoExportacao;
         try {
-            String dadosExportacao = pedidoService.exportarPedidos(status, clienteEmail, dataInicio, dataFim, formato);
-            
-            return ResponseEntity.ok()
-                .header("Content-Type", formato.equals("csv") ? "text/csv" : "application/json")
-                .header("Content-Disposition", "attachment; filename=pedidos_doces." + formato)
-                .body(dadosExportacao);
-                
-        } catch (Exception e) {
-            log.error("Erro ao exportar pedidos: {}", e.getMessage());
-            return ResponseEntity.internalServerError().body("Erro ao exportar dados");
+            formatoExportacao = FormatoExportacao.de(formato);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+        
+        StreamingResponseBody corpo = saida -> exportacaoPedidoService.exportarPedidos(
+            status, clienteEmail, dataInicio, dataFim, formatoExportacao, gzip, saida);
+        
+        String arquivo = "pedidos_doces." + formatoExportacao.getExtensao() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+            .header("Content-Type", gzip ? "application/gzip" : formatoExportacao.getContentType())
+            .header("Content-Disposition", "attachment; filename=" + arquivo)
+            .body(corpo);
     }
 
     @PostMapping("/{id}/cancelar")
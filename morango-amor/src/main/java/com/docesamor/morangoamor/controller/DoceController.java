@@ -1,9 +1,12 @@
 package com.docesamor.morangoamor.controller;
 
+import com.docesamor.morangoamor.dto.CatalogoFacetadoDTO;
 import com.docesamor.morangoamor.dto.DoceDTO;
 import com.docesamor.morangoamor.entity.SaborMorango;
 import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.service.CatalogoColunarService;
 import com.docesamor.morangoamor.service.DoceService;
+import com.docesamor.morangoamor.service.RankingVendasService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -23,6 +26,8 @@ public class DoceController {
 
     private final DoceService doceService;
 
+    private static final int LIMITE_MAXIMO_BUSCA = 100;
+
     @GetMapping
     public ResponseEntity<Page<DoceDTO>> listarDoces(
             @RequestParam(required = false) TipoDoce tipo,
@@ -51,6 +56,64 @@ public class DoceController {
             .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/busca")
+    public ResponseEntity<List<DoceDTO>> buscarDoces(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limite) {
+        
+        log.info("Buscando doces: {}", q);
+        
+        if (limite < 1 || limite > LIMITE_MAXIMO_BUSCA) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(doceService.buscarDocesIndexados(q, limite));
+    }
+
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<String>> autocompletar(
+            @RequestParam String prefixo,
+            @RequestParam(defaultValue = "10") int limite) {
+        
+        if (limite < 1 || limite > LIMITE_MAXIMO_BUSCA) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(doceService.autocompletarNomes(prefixo, limite));
+    }
+
+    @GetMapping("/facetas")
+    public ResponseEntity<CatalogoFacetadoDTO> filtrarComFacetas(
+            @RequestParam(required = false) TipoDoce tipo,
+            @RequestParam(required = false) SaborMorango sabor,
+            @RequestParam(required = false) BigDecimal precoMinimo,
+            @RequestParam(required = false) BigDecimal precoMaximo,
+            @RequestParam(required = false) Integer caloriasMinimas,
+            @RequestParam(required = false) Integer caloriasMaximas,
+            @RequestParam(required = false) Integer pesoMinimo,
+            @RequestParam(required = false) Integer pesoMaximo,
+            @RequestParam(required = false) Integer tempoPreparoMaximo,
+            @RequestParam(required = false, defaultValue = "true") Boolean disponivel,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "20") int tamanho) {
+        
+        if (pagina < 0 || tamanho < 1 || tamanho > LIMITE_MAXIMO_BUSCA) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        CatalogoColunarService.Filtro filtro = new CatalogoColunarService.Filtro(
+            tipo, sabor, precoMinimo, precoMaximo, caloriasMinimas, caloriasMaximas,
+            pesoMinimo, pesoMaximo, tempoPreparoMaximo, disponivel);
+        
+        log.info("Filtrando catálogo com facetas: {}", filtro);
+        
+        CatalogoFacetadoDTO catalogo = doceService.filtrarCatalogo(filtro, pagina, tamanho);
+        
+        log.info("Retornando {} doces de {} total", catalogo.getDoces().size(), catalogo.getTotal());
+        
+        return ResponseEntity.ok(catalogo);
+    }
+
     @GetMapping("/tipos")
     public ResponseEntity<TipoDoce[]> listarTipos() {
         return ResponseEntity.ok(TipoDoce.values());
@@ -73,10 +136,16 @@ public class DoceController {
     }
 
     @GetMapping("/populares")
-    public ResponseEntity<List<DoceDTO>> listarPopulares() {
-        log.info("Consultando doces mais populares");
+    public ResponseEntity<List<DoceDTO>> listarPopulares(
+            @RequestParam(defaultValue = "DIA") RankingVendasService.Janela janela,
+            @RequestParam(defaultValue = "10") int limite) {
+        log.info("Consultando doces mais populares - janela: {}", janela);
+        
+        if (limite < 1 || limite > LIMITE_MAXIMO_BUSCA) {
+            return ResponseEntity.badRequest().build();
+        }
         
-        List<DoceDTO> populares = doceService.listarDocesPopulares();
+        List<DoceDTO> populares = doceService.listarDocesPopulares(janela, limite);
         
         log.info("Encontrados {} doces populares", populares.size());
         
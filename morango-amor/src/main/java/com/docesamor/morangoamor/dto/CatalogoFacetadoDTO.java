@@ -0,0 +1,25 @@
+package com.docesamor.morangoamor.dto;
+
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// Página do catálogo filtrado e contagens por tipo/sabor (cada faceta ignora o próprio filtro)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogoFacetadoDTO {
+
+    private List<DoceDTO> doces;
+
+    private long total;
+
+    private Map<TipoDoce, Long> porTipo;
+
+    private Map<SaborMorango, Long> porSabor;
+}
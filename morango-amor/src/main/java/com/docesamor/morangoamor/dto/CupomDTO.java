@@ -0,0 +1,51 @@
+package com.docesamor.morangoamor.dto;
+
+import com.docesamor.morangoamor.entity.TipoCupom;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+public class CupomDTO {
+
+    private Long id;
+
+    @NotBlank(message = "Código do cupom é obrigatório")
+    private String codigo;
+
+    private String descricao;
+
+    @NotNull(message = "Tipo do cupom é obrigatório")
+    private TipoCupom tipo;
+
+    @NotNull(message = "Valor do cupom é obrigatório")
+    @DecimalMin(value = "0.01", message = "Valor do cupom deve ser maior que zero")
+    private BigDecimal valor;
+
+    private Boolean apenasVip;
+
+    private BigDecimal valorMinimoPedido;
+
+    @Min(value = 1, message = "Limite de usos deve ser pelo menos 1")
+    private Integer limiteUsos;
+
+    @Min(value = 1, message = "Limite por cliente deve ser pelo menos 1")
+    private Integer limitePorCliente;
+
+    private Integer usosRealizados;
+
+    private LocalDateTime validoDe;
+
+    private LocalDateTime validoAte;
+
+    private Boolean ativo;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+}
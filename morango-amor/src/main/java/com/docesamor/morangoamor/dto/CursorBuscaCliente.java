@@ -0,0 +1,26 @@
+package com.docesamor.morangoamor.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Posição na busca de clientes ordenada por (pontuacao DESC, id ASC); o token é opaco para o cliente.
+// A pontuação é o float devolvido pela própria busca, reproduzido exatamente na comparação seguinte.
+public record CursorBuscaCliente(float pontuacao, long id) {
+
+    public String codificar() {
+        String bruto = Float.toString(pontuacao) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorBuscaCliente decodificar(String token) {
+        try {
+            String bruto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = bruto.indexOf('|');
+            return new CursorBuscaCliente(
+                Float.parseFloat(bruto.substring(0, separador)),
+                Long.parseLong(bruto.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + token);
+        }
+    }
+}
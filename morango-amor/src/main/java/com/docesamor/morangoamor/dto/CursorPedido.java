@@ -0,0 +1,31 @@
+package com.docesamor.morangoamor.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Posição na listagem ordenada por (createdAt DESC, id DESC); o token é opaco para o cliente
+public record CursorPedido(LocalDateTime createdAt, Long id) {
+
+    public static CursorPedido de(PedidoResponseDTO pedido) {
+        return new CursorPedido(pedido.getCreatedAt(), pedido.getId());
+    }
+
+    public String codificar() {
+        String bruto = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bruto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorPedido decodificar(String token) {
+        try {
+            String bruto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = bruto.indexOf('|');
+            return new CursorPedido(
+                LocalDateTime.parse(bruto.substring(0, separador)),
+                Long.parseLong(bruto.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + token);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.docesamor.morangoamor.dto;
+
+public enum FormatoExportacao {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson"),
+    JSON("application/json", "json");
+
+    private final String contentType;
+    private final String extensao;
+
+    FormatoExportacao(String contentType, String extensao) {
+        this.contentType = contentType;
+        this.extensao = extensao;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+
+    public static FormatoExportacao de(String formato) {
+        for (FormatoExportacao valor : values()) {
+            if (valor.extensao.equalsIgnoreCase(formato)) {
+                return valor;
+            }
+        }
+        throw new IllegalArgumentException("Formato de exportação inválido: " + formato);
+    }
+}
@@ -0,0 +1,25 @@
+package com.docesamor.morangoamor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// Uma linha do cubo de vendas: valores das dimensões pedidas e as medidas somadas
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinhaAnaliseDTO {
+
+    private Map<String, Object> dimensoes;
+
+    private long quantidade;
+
+    private BigDecimal receita;
+
+    private long itens;
+
+    private long itensPersonalizados;
+}
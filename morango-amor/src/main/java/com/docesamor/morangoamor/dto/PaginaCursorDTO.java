@@ -0,0 +1,22 @@
+package com.docesamor.morangoamor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página de uma listagem por cursor: proximoCursor nulo indica a última página.
+// totalAproximado vem dos contadores em memória e só é preenchido quando solicitado
+// e quando os filtros permitem estimar sem consultar a tabela.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCursorDTO<T> {
+
+    private List<T> itens;
+
+    private String proximoCursor;
+
+    private Long totalAproximado;
+}
@@ -0,0 +1,34 @@
+package com.docesamor.morangoamor.dto;
+
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Linha de exportação: projeção escalar, não entra no contexto de persistência
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoExportacaoDTO {
+
+    private Long id;
+
+    private String clienteNome;
+
+    private String clienteEmail;
+
+    private StatusPedido status;
+
+    private BigDecimal valorFinal;
+
+    private FormaPagamento formaPagamento;
+
+    private TipoEntrega tipoEntrega;
+
+    private LocalDateTime createdAt;
+}
@@ -24,6 +24,8 @@ public class PedidoResponseDTO {
 
     private BigDecimal descontoAplicado;
 
+    private BigDecimal taxaEntrega;
+
     private BigDecimal valorFinal;
 
     private FormaPagamento formaPagamento;
@@ -0,0 +1,38 @@
+package com.docesamor.morangoamor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Andamento ou resultado final de uma importação de clientes. gravados = inseridos ou alterados;
+// inalterados = já existiam com os mesmos dados; duplicados = mesmo email repetido dentro de um lote.
+// erro só é preenchido quando a leitura do arquivo foi interrompida (lotes anteriores ficam gravados).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacaoDTO {
+
+    private String id;
+
+    private FormatoExportacao formato;
+
+    private long lidos;
+
+    private long invalidos;
+
+    private long duplicados;
+
+    private long gravados;
+
+    private long inalterados;
+
+    private long falhas;
+
+    private long duracaoMs;
+
+    private long registrosPorSegundo;
+
+    private boolean concluida;
+
+    private String erro;
+}
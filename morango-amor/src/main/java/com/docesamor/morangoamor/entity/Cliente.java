@@ -1,5 +1,6 @@
 package com.docesamor.morangoamor.entity;
 
+import com.docesamor.morangoamor.busca.TextoBusca;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -11,12 +12,18 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "clientes")
+@Table(name = "clientes", indexes = {
+    @Index(name = "idx_clientes_aniversario", columnList = "aniversario"),
+    @Index(name = "idx_clientes_data_nascimento", columnList = "data_nascimento")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Cliente {
 
+    // Pedidos entregues a partir dos quais o cliente vira VIP
+    public static final int PEDIDOS_PARA_VIP = 10;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -36,6 +43,11 @@ public class Cliente {
     @Column(name = "data_nascimento")
     private LocalDate dataNascimento;
 
+    // Mês * 100 + dia do nascimento (ex.: 1225), derivado de dataNascimento a cada gravação;
+    // aniversariantes de um dia ou mês viram igualdade/faixa indexada em vez de MONTH()/DAY()
+    @Column(name = "aniversario")
+    private Integer aniversario;
+
     @Column(name = "endereco_entrega")
     private String enderecoEntrega;
 
@@ -54,10 +66,22 @@ public class Cliente {
     @Column(name = "alergias")
     private String alergias;
 
-    @Column(name = "cliente_vip")
+    // Cópias sem acento e em minúsculas de nome, alergias e preferências, derivadas a cada gravação;
+    // a busca administrativa usa índices de trigramas sobre elas (IndicesBancoConfig)
+    @Column(name = "nome_busca")
+    private String nomeBusca;
+
+    @Column(name = "alergias_busca")
+    private String alergiasBusca;
+
+    @Column(name = "preferencias_busca")
+    private String preferenciasBusca;
+
+    // Contador e VIP só mudam pelo UPDATE atômico de ClienteRepository.incrementarPedidos
+    @Column(name = "cliente_vip", updatable = false)
     private Boolean clienteVip = false;
 
-    @Column(name = "total_pedidos")
+    @Column(name = "total_pedidos", updatable = false)
     private Integer totalPedidos = 0;
 
     @Column(name = "created_at", nullable = false)
@@ -68,6 +92,7 @@ public class Cliente {
 
     @PrePersist
     protected void onCreate() {
+        atualizarCamposDerivados();
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
         if (clienteVip == null) {
@@ -80,14 +105,18 @@ public class Cliente {
 
     @PreUpdate
     protected void onUpdate() {
+        atualizarCamposDerivados();
         updatedAt = LocalDateTime.now();
     }
 
-    public void incrementarPedidos() {
-        this.totalPedidos++;
-        // Cliente se torna VIP após 10 pedidos
-        if (this.totalPedidos >= 10) {
-            this.clienteVip = true;
-        }
+    public void atualizarCamposDerivados() {
+        aniversario = dataNascimento != null ? aniversario(dataNascimento.getMonthValue(), dataNascimento.getDayOfMonth()) : null;
+        nomeBusca = TextoBusca.normalizar(nome);
+        alergiasBusca = TextoBusca.normalizar(alergias);
+        preferenciasBusca = TextoBusca.normalizar(preferenciasDoces);
+    }
+
+    public static int aniversario(int mes, int dia) {
+        return mes * 100 + dia;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package com.docesamor.morangoamor.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "cupons")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Cupom {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Sempre gravado em maiúsculas
+    @NotBlank(message = "Código do cupom é obrigatório")
+    @Column(nullable = false, unique = true)
+    private String codigo;
+
+    @Column(name = "descricao")
+    private String descricao;
+
+    @NotNull(message = "Tipo do cupom é obrigatório")
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoCupom tipo;
+
+    // Percentual (10.00 = 10%) ou valor em reais, conforme o tipo
+    @NotNull(message = "Valor do cupom é obrigatório")
+    @DecimalMin(value = "0.01", message = "Valor do cupom deve ser maior que zero")
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal valor;
+
+    @Column(name = "apenas_vip")
+    private Boolean apenasVip = false;
+
+    // Nulo = sem valor mínimo
+    @Column(name = "valor_minimo_pedido", precision = 10, scale = 2)
+    private BigDecimal valorMinimoPedido;
+
+    // Limites nulos = sem limite
+    @Column(name = "limite_usos")
+    private Integer limiteUsos;
+
+    @Column(name = "limite_por_cliente")
+    private Integer limitePorCliente;
+
+    // Só muda pelos UPDATEs atômicos do CupomRepository; salvar a entidade não sobrescreve o contador
+    @Column(name = "usos_realizados", nullable = false, updatable = false)
+    private Integer usosRealizados = 0;
+
+    @Column(name = "valido_de")
+    private LocalDateTime validoDe;
+
+    @Column(name = "valido_ate")
+    private LocalDateTime validoAte;
+
+    @Column(nullable = false)
+    private Boolean ativo = true;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (usosRealizados == null) {
+            usosRealizados = 0;
+        }
+        if (apenasVip == null) {
+            apenasVip = false;
+        }
+        if (ativo == null) {
+            ativo = true;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
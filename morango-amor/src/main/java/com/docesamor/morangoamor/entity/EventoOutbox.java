@@ -0,0 +1,59 @@
+package com.docesamor.morangoamor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Evento gravado na mesma transação do negócio e publicado no Kafka pelo OutboxRelayService
+@Entity
+@Table(name = "eventos_outbox", indexes = {
+    @Index(name = "idx_eventos_outbox_pendentes", columnList = "enviado_em, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topico;
+
+    // Chave da mensagem (ex.: pedidoId); define a partição e a ordem de entrega
+    private String chave;
+
+    // JSON ou formato binário, conforme app.kafka.formato-evento no momento da gravação
+    @Column(nullable = false)
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private Integer tentativas = 0;
+
+    @Column(name = "ultimo_erro", length = 500)
+    private String ultimoErro;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "enviado_em")
+    private LocalDateTime enviadoEm;
+
+    public EventoOutbox(String topico, String chave, byte[] payload) {
+        this.topico = topico;
+        this.chave = chave;
+        this.payload = payload;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (tentativas == null) {
+            tentativas = 0;
+        }
+    }
+}
@@ -9,10 +9,19 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = {
+    // Ordem das listagens administrativas e seek por cursor
+    @Index(name = "idx_pedidos_created_at_id", columnList = "created_at, id"),
+    // Leitura dos entregues agrupada por cliente (SegmentacaoClientesService)
+    @Index(name = "idx_pedidos_status_cliente", columnList = "status, cliente_id"),
+    // Pedidos ainda sem link de pagamento, pela próxima tentativa (CheckoutPagamentoService)
+    @Index(name = "idx_pedidos_link_pagamento_em", columnList = "link_pagamento_em")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -38,6 +47,10 @@ public class Pedido {
     @Column(name = "desconto_aplicado", precision = 10, scale = 2)
     private BigDecimal descontoAplicado = BigDecimal.ZERO;
 
+    @Column(name = "taxa_entrega", precision = 10, scale = 2)
+    private BigDecimal taxaEntrega = BigDecimal.ZERO;
+
+    // Calculado em centavos pelo PrecificacaoService (Orcamento.valorFinal); a entidade não refaz a conta
     @Column(name = "valor_final", nullable = false, precision = 10, scale = 2)
     private BigDecimal valorFinal;
 
@@ -67,6 +80,14 @@ public class Pedido {
     @Column(name = "payment_link")
     private String paymentLink;
 
+    // Link de pagamento pendente: quando cabe a próxima tentativa no gateway (ou até quando vale a
+    // tentativa em andamento). Fica nulo depois que o link é gravado.
+    @Column(name = "link_pagamento_em")
+    private LocalDateTime linkPagamentoEm;
+
+    @Column(name = "tentativas_link_pagamento")
+    private Integer tentativasLinkPagamento = 0;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
@@ -95,7 +116,9 @@ public class Pedido {
         if (descontoAplicado == null) {
             descontoAplicado = BigDecimal.ZERO;
         }
-        calcularValorFinal();
+        if (taxaEntrega == null) {
+            taxaEntrega = BigDecimal.ZERO;
+        }
         calcularTempoPreparoEstimado();
     }
 
@@ -113,10 +136,15 @@ public class Pedido {
         }
     }
 
-    private void calcularValorFinal() {
-        if (valorTotal != null && descontoAplicado != null) {
-            valorFinal = valorTotal.subtract(descontoAplicado);
+    // Quantidade total por doce (itens do mesmo doce somados), para devolução de estoque e ranking
+    public Map<Long, Integer> quantidadesPorDoce() {
+        Map<Long, Integer> quantidades = new HashMap<>();
+        if (itens != null) {
+            for (ItemPedido item : itens) {
+                quantidades.merge(item.getDoce().getId(), item.getQuantidade(), Integer::sum);
+            }
         }
+        return quantidades;
     }
 
     private void calcularTempoPreparoEstimado() {
@@ -137,11 +165,6 @@ public class Pedido {
         }
     }
 
-    public void aplicarDesconto(BigDecimal desconto) {
-        this.descontoAplicado = desconto;
-        calcularValorFinal();
-    }
-
     public boolean isClienteVip() {
         return cliente != null && cliente.getClienteVip();
     }
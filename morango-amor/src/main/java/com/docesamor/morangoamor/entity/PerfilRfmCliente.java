@@ -0,0 +1,40 @@
+package com.docesamor.morangoamor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Notas RFM e segmento atribuídos a um cliente com ao menos um pedido entregue.
+// Gravado em lote por upsert (SegmentacaoClientesService), só quando as notas mudam.
+@Entity
+@Table(name = "clientes_rfm", indexes = {
+    @Index(name = "idx_clientes_rfm_segmento", columnList = "segmento")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerfilRfmCliente {
+
+    @Id
+    @Column(name = "cliente_id")
+    private Long clienteId;
+
+    @Column(nullable = false)
+    private Integer recencia;
+
+    @Column(nullable = false)
+    private Integer frequencia;
+
+    @Column(nullable = false)
+    private Integer monetario;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SegmentoRfm segmento;
+
+    @Column(name = "atualizado_em", nullable = false)
+    private LocalDateTime atualizadoEm;
+}
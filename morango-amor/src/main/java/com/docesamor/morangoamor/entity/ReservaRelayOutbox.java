@@ -0,0 +1,27 @@
+package com.docesamor.morangoamor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Lease do relay da outbox: só a instância dona, enquanto a reserva não expira, drena eventos_outbox.
+// Adquirida e renovada por upsert condicional em EventoOutboxRepository, nunca pela entidade.
+@Entity
+@Table(name = "outbox_relay")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaRelayOutbox {
+
+    @Id
+    private String nome;
+
+    @Column(nullable = false)
+    private String dono;
+
+    @Column(name = "expira_em", nullable = false)
+    private LocalDateTime expiraEm;
+}
@@ -0,0 +1,43 @@
+package com.docesamor.morangoamor.entity;
+
+// Segmento de cliente a partir das notas RFM (1 a 5): recência da última compra entregue,
+// frequência de pedidos entregues e valor gasto. Frequência e valor entram juntos como média.
+public enum SegmentoRfm {
+    CAMPEOES("Compram muito, sempre e recentemente"),
+    FIEIS("Compram com regularidade"),
+    NOVOS("Primeiras compras recentes"),
+    POTENCIAIS("Compras recentes, ainda pouco frequentes"),
+    EM_RISCO("Compravam bem e sumiram"),
+    HIBERNANDO("Sem compras há algum tempo"),
+    PERDIDOS("Poucas compras, há muito tempo");
+
+    private final String descricao;
+
+    SegmentoRfm(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+
+    public static SegmentoRfm classificar(int recencia, int frequencia, int monetario) {
+        int frequenciaValor = (frequencia + monetario + 1) / 2;
+        if (recencia >= 4 && frequenciaValor >= 4) {
+            return CAMPEOES;
+        }
+        if (recencia >= 3 && frequenciaValor >= 3) {
+            return FIEIS;
+        }
+        if (recencia >= 4 && frequencia <= 1) {
+            return NOVOS;
+        }
+        if (recencia >= 3) {
+            return POTENCIAIS;
+        }
+        if (frequenciaValor >= 3) {
+            return EM_RISCO;
+        }
+        return recencia == 2 ? HIBERNANDO : PERDIDOS;
+    }
+}
@@ -0,0 +1,16 @@
+package com.docesamor.morangoamor.entity;
+
+public enum TipoCupom {
+    PERCENTUAL("Percentual sobre os itens"),
+    VALOR_FIXO("Valor fixo em reais");
+
+    private final String descricao;
+
+    TipoCupom(String descricao) {
+        this.descricao = descricao;
+    }
+
+    public String getDescricao() {
+        return descricao;
+    }
+}
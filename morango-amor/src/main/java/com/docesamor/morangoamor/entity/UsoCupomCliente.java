@@ -0,0 +1,31 @@
+package com.docesamor.morangoamor.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Contador de usos de um cupom por cliente; só existe para cupons com limite_por_cliente.
+// Incrementado por upsert condicional em CupomRepository, nunca pela entidade.
+@Entity
+@Table(name = "cupons_uso_cliente", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_cupons_uso_cliente", columnNames = {"cupom_id", "cliente_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsoCupomCliente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "cupom_id", nullable = false)
+    private Long cupomId;
+
+    @Column(name = "cliente_id", nullable = false)
+    private Long clienteId;
+
+    @Column(nullable = false)
+    private Integer usos;
+}
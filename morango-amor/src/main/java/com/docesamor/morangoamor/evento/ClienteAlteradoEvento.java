@@ -0,0 +1,18 @@
+package com.docesamor.morangoamor.evento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Publicado quando um cliente é cadastrado ou tem dados alterados; índices em memória atualizam após o commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClienteAlteradoEvento {
+
+    private Long clienteId;
+
+    private LocalDate dataNascimento;
+}
@@ -0,0 +1,14 @@
+package com.docesamor.morangoamor.evento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Publicado quando um cupom é criado ou alterado; a tabela de regras em memória é recarregada após o commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CupomAlteradoEvento {
+
+    private Long cupomId;
+}
@@ -0,0 +1,27 @@
+package com.docesamor.morangoamor.evento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Publicado quando uma linha de doces muda; o cache do catálogo invalida após o commit.
+// apenasEstoque = true quando só estoque_atual mudou (filiação por tipo/sabor/preço permanece a mesma);
+// nesse caso estoqueAtual/estoqueMinimo trazem o saldo gravado pela operação.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoceAlteradoEvento {
+
+    private Long doceId;
+
+    private boolean apenasEstoque;
+
+    private Integer estoqueAtual;
+
+    private Integer estoqueMinimo;
+
+    public static DoceAlteradoEvento estoque(Long doceId, Object[] saldo) {
+        return new DoceAlteradoEvento(doceId, true,
+            ((Number) saldo[0]).intValue(), ((Number) saldo[1]).intValue());
+    }
+}
@@ -0,0 +1,14 @@
+package com.docesamor.morangoamor.evento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Publicado dentro da transação de criação do pedido; tratado somente após o commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinkPagamentoSolicitadoEvento {
+
+    private Long pedidoId;
+}
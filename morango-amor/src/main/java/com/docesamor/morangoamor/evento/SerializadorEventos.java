@@ -0,0 +1,51 @@
+package com.docesamor.morangoamor.evento;
+
+import com.docesamor.morangoamor.evento.mensagem.EscritorBinario;
+import com.docesamor.morangoamor.evento.mensagem.MensagemEvento;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Serializa mensagens de evento direto para byte[].
+// json (padrão): ObjectWriter resolvido uma vez por tipo de mensagem.
+// binario: layout definido por MensagemEvento.escreverBinario, prefixado por MAGIA_BINARIO e VERSAO_BINARIO
+// (um payload JSON sempre começa com '{', então consumidores distinguem os formatos pelo primeiro byte).
+@Component
+@Slf4j
+public class SerializadorEventos {
+
+    public static final byte MAGIA_BINARIO = 0x00;
+    public static final byte VERSAO_BINARIO = 1;
+
+    public enum Formato { JSON, BINARIO }
+
+    private final ObjectMapper objectMapper;
+    private final Formato formato;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public SerializadorEventos(ObjectMapper objectMapper,
+                               @Value("${app.kafka.formato-evento:json}") String formato) {
+        this.objectMapper = objectMapper;
+        this.formato = Formato.valueOf(formato.trim().toUpperCase());
+        for (Class<?> tipo : MensagemEvento.class.getPermittedSubclasses()) {
+            writers.put(tipo, objectMapper.writerFor(tipo));
+        }
+        log.info("Formato de serialização de eventos: {}", this.formato);
+    }
+
+    public byte[] serializar(MensagemEvento mensagem) throws JsonProcessingException {
+        if (formato == Formato.BINARIO) {
+            EscritorBinario out = new EscritorBinario(256, objectMapper);
+            out.byteBruto(MAGIA_BINARIO).byteBruto(VERSAO_BINARIO);
+            mensagem.escreverBinario(out);
+            return out.toByteArray();
+        }
+        return writers.computeIfAbsent(mensagem.getClass(), objectMapper::writerFor).writeValueAsBytes(mensagem);
+    }
+}
@@ -0,0 +1,45 @@
+package com.docesamor.morangoamor.evento;
+
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.Pedido;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Criação (statusAnterior nulo) ou mudança de status de um pedido; alimenta as estatísticas e o ranking
+// de vendas e a segmentação de clientes em memória. quantidadesPorDoce só é preenchido na criação e no cancelamento.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicaoPedidoEvento {
+
+    private Long pedidoId;
+    private Long clienteId;
+    private LocalDate diaCriacao;
+    private StatusPedido statusAnterior;
+    private StatusPedido statusAtual;
+    private FormaPagamento formaPagamento;
+    private TipoEntrega tipoEntrega;
+    private BigDecimal valorFinal;
+    private LocalDateTime criadoEm;
+    private Map<Long, Integer> quantidadesPorDoce;
+
+    public static TransicaoPedidoEvento criacao(Pedido pedido) {
+        return transicao(pedido, null);
+    }
+
+    public static TransicaoPedidoEvento transicao(Pedido pedido, StatusPedido statusAnterior) {
+        boolean alteraVendas = statusAnterior == null
+            || (pedido.getStatus() == StatusPedido.CANCELADO && statusAnterior != StatusPedido.CANCELADO);
+        return new TransicaoPedidoEvento(pedido.getId(), pedido.getCliente().getId(), pedido.getCreatedAt().toLocalDate(), statusAnterior,
+            pedido.getStatus(), pedido.getFormaPagamento(), pedido.getTipoEntrega(), pedido.getValorFinal(),
+            pedido.getCreatedAt(), alteraVendas ? pedido.quantidadesPorDoce() : Map.of());
+    }
+}
@@ -0,0 +1,118 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Encoder do formato binário dos eventos: inteiros em varint zigzag, textos UTF-8 prefixados pelo tamanho,
+// campos opcionais precedidos de um byte de presença. Não é thread-safe; uma instância por mensagem.
+public final class EscritorBinario {
+
+    // Mapper da aplicação, para valores aninhados codificados como texto JSON (datas ISO, módulos registrados)
+    private final ObjectMapper json;
+    private byte[] buffer;
+    private int posicao;
+
+    public EscritorBinario(int capacidadeInicial, ObjectMapper json) {
+        this.json = json;
+        this.buffer = new byte[capacidadeInicial];
+    }
+
+    public EscritorBinario byteBruto(int valor) {
+        garantirCapacidade(1);
+        buffer[posicao++] = (byte) valor;
+        return this;
+    }
+
+    public EscritorBinario varLong(long valor) {
+        long zigzag = (valor << 1) ^ (valor >> 63);
+        garantirCapacidade(10);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[posicao++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[posicao++] = (byte) zigzag;
+        return this;
+    }
+
+    public EscritorBinario inteiro(Integer valor) {
+        if (presenca(valor)) {
+            varLong(valor);
+        }
+        return this;
+    }
+
+    public EscritorBinario longo(Long valor) {
+        if (presenca(valor)) {
+            varLong(valor);
+        }
+        return this;
+    }
+
+    public EscritorBinario booleano(Boolean valor) {
+        return byteBruto(valor == null ? 0 : (valor ? 2 : 1));
+    }
+
+    public EscritorBinario texto(String valor) {
+        if (presenca(valor)) {
+            byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+            varLong(bytes.length);
+            garantirCapacidade(bytes.length);
+            System.arraycopy(bytes, 0, buffer, posicao, bytes.length);
+            posicao += bytes.length;
+        }
+        return this;
+    }
+
+    public EscritorBinario textoJson(Object valor) {
+        if (valor == null) {
+            return texto(null);
+        }
+        try {
+            return texto(json.writeValueAsString(valor));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Valor não serializável: " + e.getMessage(), e);
+        }
+    }
+
+    public EscritorBinario enumeracao(Enum<?> valor) {
+        return texto(valor == null ? null : valor.name());
+    }
+
+    // Valores monetários: escala + valor não escalado (cabe em long para qualquer preço real)
+    public EscritorBinario decimal(BigDecimal valor) {
+        if (presenca(valor)) {
+            varLong(valor.scale());
+            varLong(valor.unscaledValue().longValueExact());
+        }
+        return this;
+    }
+
+    public EscritorBinario dataHora(LocalDateTime valor) {
+        if (presenca(valor)) {
+            varLong(valor.toEpochSecond(ZoneOffset.UTC));
+            varLong(valor.getNano());
+        }
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, posicao);
+    }
+
+    private boolean presenca(Object valor) {
+        byteBruto(valor == null ? 0 : 1);
+        return valor != null;
+    }
+
+    private void garantirCapacidade(int adicional) {
+        if (posicao + adicional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, posicao + adicional));
+        }
+    }
+}
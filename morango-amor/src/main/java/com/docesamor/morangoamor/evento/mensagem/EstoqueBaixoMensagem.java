@@ -0,0 +1,33 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDateTime;
+
+@JsonPropertyOrder({"eventType", "timestamp"})
+public record EstoqueBaixoMensagem(
+        LocalDateTime timestamp,
+        Long doceId,
+        String doceNome,
+        Integer estoqueAtual,
+        Integer estoqueMinimo,
+        String nivelCriticidade) implements MensagemEvento {
+
+    public static final byte TIPO = 5;
+
+    @Override
+    public String eventType() {
+        return "ESTOQUE_BAIXO";
+    }
+
+    @Override
+    public void escreverBinario(EscritorBinario out) {
+        out.byteBruto(TIPO)
+            .dataHora(timestamp)
+            .longo(doceId)
+            .texto(doceNome)
+            .inteiro(estoqueAtual)
+            .inteiro(estoqueMinimo)
+            .texto(nivelCriticidade);
+    }
+}
@@ -0,0 +1,14 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// Mensagem publicada no Kafka. O JSON mantém os nomes de campo dos eventos antigos (baseados em Map);
+// escreverBinario define o layout do formato compacto, campo a campo e sempre na mesma ordem.
+public sealed interface MensagemEvento permits PedidoCriadoMensagem, StatusAtualizadoMensagem,
+        PagamentoConfirmadoMensagem, PedidoEntregueMensagem, EstoqueBaixoMensagem, WebhookMensagem {
+
+    @JsonProperty("eventType")
+    String eventType();
+
+    void escreverBinario(EscritorBinario out);
+}
@@ -0,0 +1,46 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.Pedido;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@JsonPropertyOrder({"eventType", "timestamp"})
+public record PagamentoConfirmadoMensagem(
+        LocalDateTime timestamp,
+        Long pedidoId,
+        String clienteEmail,
+        String clienteNome,
+        BigDecimal valorPago,
+        FormaPagamento formaPagamento,
+        String abacateTransactionId,
+        LocalDateTime paidAt) implements MensagemEvento {
+
+    public static final byte TIPO = 3;
+
+    public static PagamentoConfirmadoMensagem de(Pedido pedido) {
+        return new PagamentoConfirmadoMensagem(LocalDateTime.now(), pedido.getId(),
+            pedido.getCliente().getEmail(), pedido.getCliente().getNome(), pedido.getValorFinal(),
+            pedido.getFormaPagamento(), pedido.getAbacateTransactionId(), pedido.getPaidAt());
+    }
+
+    @Override
+    public String eventType() {
+        return "PAGAMENTO_CONFIRMADO";
+    }
+
+    @Override
+    public void escreverBinario(EscritorBinario out) {
+        out.byteBruto(TIPO)
+            .dataHora(timestamp)
+            .longo(pedidoId)
+            .texto(clienteEmail)
+            .texto(clienteNome)
+            .decimal(valorPago)
+            .enumeracao(formaPagamento)
+            .texto(abacateTransactionId)
+            .dataHora(paidAt);
+    }
+}
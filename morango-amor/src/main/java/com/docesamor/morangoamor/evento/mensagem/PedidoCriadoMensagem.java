@@ -0,0 +1,72 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.ItemPedido;
+import com.docesamor.morangoamor.entity.Pedido;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@JsonPropertyOrder({"eventType", "timestamp"})
+public record PedidoCriadoMensagem(
+        LocalDateTime timestamp,
+        Long pedidoId,
+        String clienteEmail,
+        String clienteNome,
+        BigDecimal valorTotal,
+        BigDecimal valorFinal,
+        FormaPagamento formaPagamento,
+        TipoEntrega tipoEntrega,
+        StatusPedido status,
+        int quantidadeItens,
+        List<Item> itens) implements MensagemEvento {
+
+    public static final byte TIPO = 1;
+
+    public record Item(Long doceId, String doceNome, Integer quantidade, BigDecimal precoUnitario, BigDecimal precoTotal) {
+
+        static Item de(ItemPedido item) {
+            return new Item(item.getDoce().getId(), item.getDoce().getNome(), item.getQuantidade(),
+                item.getPrecoUnitario(), item.getPrecoTotal());
+        }
+    }
+
+    public static PedidoCriadoMensagem de(Pedido pedido) {
+        List<Item> itens = pedido.getItens().stream().map(Item::de).toList();
+        return new PedidoCriadoMensagem(LocalDateTime.now(), pedido.getId(),
+            pedido.getCliente().getEmail(), pedido.getCliente().getNome(),
+            pedido.getValorTotal(), pedido.getValorFinal(), pedido.getFormaPagamento(),
+            pedido.getTipoEntrega(), pedido.getStatus(), itens.size(), itens);
+    }
+
+    @Override
+    public String eventType() {
+        return "PEDIDO_CRIADO";
+    }
+
+    @Override
+    public void escreverBinario(EscritorBinario out) {
+        out.byteBruto(TIPO)
+            .dataHora(timestamp)
+            .longo(pedidoId)
+            .texto(clienteEmail)
+            .texto(clienteNome)
+            .decimal(valorTotal)
+            .decimal(valorFinal)
+            .enumeracao(formaPagamento)
+            .enumeracao(tipoEntrega)
+            .enumeracao(status)
+            .varLong(itens.size());
+        for (Item item : itens) {
+            out.longo(item.doceId())
+                .texto(item.doceNome())
+                .inteiro(item.quantidade())
+                .decimal(item.precoUnitario())
+                .decimal(item.precoTotal());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.docesamor.morangoamor.entity.Pedido;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// clienteVip e totalPedidosCliente só são enviados quando o cliente é VIP
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"eventType", "timestamp"})
+public record PedidoEntregueMensagem(
+        LocalDateTime timestamp,
+        Long pedidoId,
+        String clienteEmail,
+        String clienteNome,
+        BigDecimal valorFinal,
+        TipoEntrega tipoEntrega,
+        String enderecoEntrega,
+        LocalDateTime deliveredAt,
+        long tempoTotalPreparo,
+        Boolean clienteVip,
+        Integer totalPedidosCliente) implements MensagemEvento {
+
+    public static final byte TIPO = 4;
+
+    public static PedidoEntregueMensagem de(Pedido pedido, long tempoTotalPreparo) {
+        boolean vip = Boolean.TRUE.equals(pedido.getCliente().getClienteVip());
+        return new PedidoEntregueMensagem(LocalDateTime.now(), pedido.getId(),
+            pedido.getCliente().getEmail(), pedido.getCliente().getNome(), pedido.getValorFinal(),
+            pedido.getTipoEntrega(), pedido.getEnderecoEntrega(), pedido.getDeliveredAt(), tempoTotalPreparo,
+            vip ? Boolean.TRUE : null, vip ? pedido.getCliente().getTotalPedidos() : null);
+    }
+
+    @Override
+    public String eventType() {
+        return "PEDIDO_ENTREGUE";
+    }
+
+    @Override
+    public void escreverBinario(EscritorBinario out) {
+        out.byteBruto(TIPO)
+            .dataHora(timestamp)
+            .longo(pedidoId)
+            .texto(clienteEmail)
+            .texto(clienteNome)
+            .decimal(valorFinal)
+            .enumeracao(tipoEntrega)
+            .texto(enderecoEntrega)
+            .dataHora(deliveredAt)
+            .varLong(tempoTotalPreparo)
+            .booleano(clienteVip)
+            .inteiro(totalPedidosCliente);
+    }
+}
@@ -0,0 +1,50 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.docesamor.morangoamor.entity.Pedido;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"eventType", "timestamp"})
+public record StatusAtualizadoMensagem(
+        LocalDateTime timestamp,
+        Long pedidoId,
+        String clienteEmail,
+        StatusPedido statusAnterior,
+        StatusPedido statusAtual,
+        BigDecimal valorFinal,
+        LocalDateTime paidAt,
+        LocalDateTime preparedAt,
+        LocalDateTime deliveredAt) implements MensagemEvento {
+
+    public static final byte TIPO = 2;
+
+    public static StatusAtualizadoMensagem de(Pedido pedido, StatusPedido statusAnterior) {
+        return new StatusAtualizadoMensagem(LocalDateTime.now(), pedido.getId(),
+            pedido.getCliente().getEmail(), statusAnterior, pedido.getStatus(), pedido.getValorFinal(),
+            pedido.getPaidAt(), pedido.getPreparedAt(), pedido.getDeliveredAt());
+    }
+
+    @Override
+    public String eventType() {
+        return "STATUS_ATUALIZADO";
+    }
+
+    @Override
+    public void escreverBinario(EscritorBinario out) {
+        out.byteBruto(TIPO)
+            .dataHora(timestamp)
+            .longo(pedidoId)
+            .texto(clienteEmail)
+            .enumeracao(statusAnterior)
+            .enumeracao(statusAtual)
+            .decimal(valorFinal)
+            .dataHora(paidAt)
+            .dataHora(preparedAt)
+            .dataHora(deliveredAt);
+    }
+}
@@ -0,0 +1,68 @@
+package com.docesamor.morangoamor.evento.mensagem;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Dados do webhook são livres: no JSON vão achatados no topo (sem sobrescrever eventType/timestamp),
+// no binário como pares chave/texto, com valores aninhados (mapas, listas) codificados como texto JSON
+// pelo ObjectMapper da aplicação (o mesmo do formato json)
+@JsonPropertyOrder({"eventType", "timestamp"})
+public record WebhookMensagem(
+        @JsonIgnore String tipo,
+        LocalDateTime timestamp,
+        @JsonIgnore Map<String, Object> dados) implements MensagemEvento {
+
+    public static final byte TIPO = 6;
+
+    // Campos do envelope; uma chave igual nos dados geraria JSON com chave duplicada
+    private static final Set<String> CHAVES_RESERVADAS = Set.of("eventType", "timestamp");
+
+    public WebhookMensagem {
+        dados = semChavesReservadas(dados);
+    }
+
+    @Override
+    public String eventType() {
+        return tipo;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> dadosAchatados() {
+        return dados;
+    }
+
+    @Override
+    public void escreverBinario(EscritorBinario out) {
+        out.byteBruto(TIPO)
+            .texto(tipo)
+            .dataHora(timestamp)
+            .varLong(dados.size());
+        dados.forEach((chave, valor) -> {
+            out.texto(chave);
+            if (valor instanceof Map<?, ?> || valor instanceof Collection<?> || valor != null && valor.getClass().isArray()) {
+                out.textoJson(valor);
+            } else {
+                out.texto(valor == null ? null : valor.toString());
+            }
+        });
+    }
+
+    private static Map<String, Object> semChavesReservadas(Map<String, Object> dados) {
+        if (dados == null) {
+            return Map.of();
+        }
+        if (CHAVES_RESERVADAS.stream().noneMatch(dados::containsKey)) {
+            return dados;
+        }
+        Map<String, Object> filtrados = new LinkedHashMap<>(dados);
+        filtrados.keySet().removeAll(CHAVES_RESERVADAS);
+        return filtrados;
+    }
+}
@@ -15,5 +15,9 @@ public interface ClienteMapper {
     @Mapping(target = "totalPedidos", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "aniversario", ignore = true)
+    @Mapping(target = "nomeBusca", ignore = true)
+    @Mapping(target = "alergiasBusca", ignore = true)
+    @Mapping(target = "preferenciasBusca", ignore = true)
     Cliente toEntity(ClienteDTO clienteDTO);
 }
\ No newline at end of file
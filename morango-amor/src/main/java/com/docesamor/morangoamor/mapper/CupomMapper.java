@@ -0,0 +1,20 @@
+package com.docesamor.morangoamor.mapper;
+
+import com.docesamor.morangoamor.dto.CupomDTO;
+import com.docesamor.morangoamor.entity.Cupom;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+@Mapper(componentModel = "spring")
+public interface CupomMapper {
+
+    CupomDTO toDTO(Cupom cupom);
+
+    // Contador de usos e auditoria nunca vêm do cliente da API
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "usosRealizados", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    void atualizar(CupomDTO cupomDTO, @MappingTarget Cupom cupom);
+}
@@ -1,16 +1,23 @@
 package com.docesamor.morangoamor.repository;
 
 import com.docesamor.morangoamor.entity.Cliente;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ClienteRepository extends JpaRepository<Cliente, Long> {
@@ -18,15 +25,45 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     // Buscar cliente por email
     Optional<Cliente> findByEmailIgnoreCase(String email);
 
+    // Cliente pelo email já normalizado (minúsculas); usa o índice idx_clientes_email_lower
+    @Query(value = "SELECT * FROM clientes WHERE LOWER(email) = :email LIMIT 1", nativeQuery = true)
+    Optional<Cliente> findPorEmailNormalizado(@Param("email") String email);
+
+    // Insere o cliente ou, se o email já existe (cadastro concorrente), devolve a linha existente;
+    // a linha do RETURNING vira a entidade, sem releitura por id
+    @Transactional
+    @Query(value = "INSERT INTO clientes (nome, email, telefone, data_nascimento, endereco_entrega, cep, cidade, " +
+                   "estado, preferencias_doces, alergias, aniversario, nome_busca, alergias_busca, preferencias_busca, " +
+                   "cliente_vip, total_pedidos, created_at, updated_at) " +
+                   "VALUES (:#{#c.nome}, :#{#c.email}, :#{#c.telefone}, :#{#c.dataNascimento}, " +
+                   ":#{#c.enderecoEntrega}, :#{#c.cep}, :#{#c.cidade}, :#{#c.estado}, :#{#c.preferenciasDoces}, " +
+                   ":#{#c.alergias}, :#{#c.aniversario}, :#{#c.nomeBusca}, :#{#c.alergiasBusca}, :#{#c.preferenciasBusca}, " +
+                   "false, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (email) DO UPDATE SET updated_at = clientes.updated_at RETURNING *",
+           nativeQuery = true)
+    Cliente inserirOuObter(@Param("c") Cliente cliente);
+
+    // Soma entregas ao contador e promove a VIP no limite, numa única instrução; retorna [total_pedidos, cliente_vip]
+    @Transactional
+    @Query(value = "UPDATE clientes SET total_pedidos = COALESCE(total_pedidos, 0) + :quantidade, " +
+                   "cliente_vip = COALESCE(cliente_vip, false) OR COALESCE(total_pedidos, 0) + :quantidade >= :limiteVip, " +
+                   "updated_at = CURRENT_TIMESTAMP WHERE id = :id RETURNING total_pedidos, cliente_vip", nativeQuery = true)
+    List<Object[]> incrementarPedidos(
+        @Param("id") Long id,
+        @Param("quantidade") int quantidade,
+        @Param("limiteVip") int limiteVip
+    );
+
     // Verificar se existe cliente com email
     boolean existsByEmailIgnoreCase(String email);
 
     // Buscar cliente por telefone
     Optional<Cliente> findByTelefone(String telefone);
 
-    // Buscar clientes por nome (busca parcial)
-    @Query("SELECT c FROM Cliente c WHERE LOWER(c.nome) LIKE LOWER(CONCAT('%', :nome, '%'))")
-    List<Cliente> findByNomeContainingIgnoreCase(@Param("nome") String nome);
+    // Buscar clientes por nome (busca parcial) na coluna normalizada; recebe o padrão pronto
+    // (TextoBusca.parcial sobre TextoBusca.normalizar)
+    @Query("SELECT c FROM Cliente c WHERE c.nomeBusca LIKE :padrao ESCAPE '\\'")
+    List<Cliente> buscarPorNomeNormalizado(@Param("padrao") String padrao);
 
     // Buscar clientes VIP
     List<Cliente> findByClienteVipTrue();
@@ -40,25 +77,38 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     // Buscar clientes por CEP
     List<Cliente> findByCep(String cep);
 
-    // Buscar clientes aniversariantes do mês
-    @Query("SELECT c FROM Cliente c WHERE MONTH(c.dataNascimento) = :mes")
+    // Aniversariantes por coluna indexada (mês * 100 + dia); o dia a dia vem do CalendarioClientesService
+    @Query("SELECT c FROM Cliente c WHERE c.aniversario BETWEEN :mes * 100 + 1 AND :mes * 100 + 31")
     List<Cliente> findAniversariantesDoMes(@Param("mes") int mes);
 
-    // Buscar clientes aniversariantes de hoje
-    @Query("SELECT c FROM Cliente c WHERE MONTH(c.dataNascimento) = MONTH(CURRENT_DATE) AND DAY(c.dataNascimento) = DAY(CURRENT_DATE)")
-    List<Cliente> findAniversariantesHoje();
+    List<Cliente> findByAniversarioIn(Collection<Integer> aniversarios);
+
+    // Faixa de idade como faixa de datas de nascimento (índice em data_nascimento)
+    List<Cliente> findByDataNascimentoBetween(LocalDate inicio, LocalDate fim);
 
-    // Buscar clientes por faixa de idade
-    @Query("SELECT c FROM Cliente c WHERE YEAR(CURRENT_DATE) - YEAR(c.dataNascimento) BETWEEN :idadeMinima AND :idadeMaxima")
-    List<Cliente> findByIdadeBetween(@Param("idadeMinima") int idadeMinima, @Param("idadeMaxima") int idadeMaxima);
+    // Preenche a coluna aniversario de linhas gravadas antes dela existir
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE clientes SET aniversario = CAST(EXTRACT(MONTH FROM data_nascimento) * 100 + " +
+                   "EXTRACT(DAY FROM data_nascimento) AS INTEGER) " +
+                   "WHERE data_nascimento IS NOT NULL AND aniversario IS NULL", nativeQuery = true)
+    int preencherAniversarios();
 
-    // Buscar clientes com alergias específicas
-    @Query("SELECT c FROM Cliente c WHERE LOWER(c.alergias) LIKE LOWER(CONCAT('%', :alergia, '%'))")
-    List<Cliente> findByAlergiasContainingIgnoreCase(@Param("alergia") String alergia);
+    // Carga do calendário em memória: [id, dataNascimento], lido por cursor dentro de uma transação
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c.id, c.dataNascimento FROM Cliente c WHERE c.dataNascimento IS NOT NULL")
+    Stream<Object[]> streamDatasNascimento();
 
-    // Buscar clientes com preferências específicas
-    @Query("SELECT c FROM Cliente c WHERE LOWER(c.preferenciasDoces) LIKE LOWER(CONCAT('%', :preferencia, '%'))")
-    List<Cliente> findByPreferenciasDocesContainingIgnoreCase(@Param("preferencia") String preferencia);
+    // Buscar clientes com alergias específicas; padrão LIKE sobre a coluna normalizada
+    @Query("SELECT c FROM Cliente c WHERE c.alergiasBusca LIKE :padrao ESCAPE '\\'")
+    List<Cliente> buscarPorAlergiaNormalizada(@Param("padrao") String padrao);
+
+    // Buscar clientes com preferências específicas; padrão LIKE sobre a coluna normalizada
+    @Query("SELECT c FROM Cliente c WHERE c.preferenciasBusca LIKE :padrao ESCAPE '\\'")
+    List<Cliente> buscarPorPreferenciaNormalizada(@Param("padrao") String padrao);
 
     // Buscar clientes por número mínimo de pedidos
     List<Cliente> findByTotalPedidosGreaterThanEqual(Integer totalMinimo);
@@ -74,9 +124,10 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     @Query("SELECT c FROM Cliente c WHERE c.createdAt >= :dataLimite ORDER BY c.createdAt DESC")
     List<Cliente> findClientesNovos(@Param("dataLimite") LocalDate dataLimite);
 
-    // Buscar clientes inativos (sem pedidos há muito tempo)
-    @Query("SELECT c FROM Cliente c WHERE c.totalPedidos = 0 OR c.updatedAt < :dataLimite")
-    List<Cliente> findClientesInativos(@Param("dataLimite") LocalDate dataLimite);
+    // Buscar clientes inativos: nenhum pedido entregue criado desde a data limite (recência real de compra)
+    @Query("SELECT c FROM Cliente c WHERE NOT EXISTS (SELECT 1 FROM Pedido p WHERE p.cliente = c " +
+           "AND p.status = com.docesamor.morangoamor.entity.StatusPedido.ENTREGUE AND p.createdAt >= :dataLimite)")
+    List<Cliente> findClientesInativos(@Param("dataLimite") LocalDateTime dataLimite);
 
     // Contar clientes por cidade
     @Query("SELECT c.cidade, COUNT(c) FROM Cliente c GROUP BY c.cidade ORDER BY COUNT(c) DESC")
@@ -86,22 +137,6 @@ public interface ClienteRepository extends JpaRepository<Cliente, Long> {
     @Query("SELECT c.estado, COUNT(c) FROM Cliente c GROUP BY c.estado ORDER BY COUNT(c) DESC")
     List<Object[]> countClientesByEstado();
 
-    // Buscar clientes com filtros combinados
-    @Query("SELECT c FROM Cliente c WHERE " +
-           "(:nome IS NULL OR LOWER(c.nome) LIKE LOWER(CONCAT('%', :nome, '%'))) AND " +
-           "(:email IS NULL OR LOWER(c.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
-           "(:cidade IS NULL OR LOWER(c.cidade) = LOWER(:cidade)) AND " +
-           "(:estado IS NULL OR LOWER(c.estado) = LOWER(:estado)) AND " +
-           "(:clienteVip IS NULL OR c.clienteVip = :clienteVip)")
-    Page<Cliente> findWithFilters(
-        @Param("nome") String nome,
-        @Param("email") String email,
-        @Param("cidade") String cidade,
-        @Param("estado") String estado,
-        @Param("clienteVip") Boolean clienteVip,
-        Pageable pageable
-    );
-
     // Estatísticas de clientes
     @Query("SELECT COUNT(c) FROM Cliente c WHERE c.clienteVip = true")
     Long countClientesVip();
@@ -0,0 +1,51 @@
+package com.docesamor.morangoamor.repository;
+
+import com.docesamor.morangoamor.entity.Cupom;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CupomRepository extends JpaRepository<Cupom, Long> {
+
+    Optional<Cupom> findByCodigo(String codigo);
+
+    boolean existsByCodigo(String codigo);
+
+    List<Cupom> findByAtivoTrue();
+
+    // Consome um uso se o limite global permitir; vazio = esgotado
+    @Transactional
+    @Query(value = "UPDATE cupons SET usos_realizados = usos_realizados + 1 " +
+                   "WHERE id = :id AND (limite_usos IS NULL OR usos_realizados < limite_usos) " +
+                   "RETURNING usos_realizados", nativeQuery = true)
+    List<Integer> consumirUso(@Param("id") Long id);
+
+    // Soma usos contados em memória (cupons sem limite global), fora da transação do pedido
+    @Modifying
+    @Query(value = "UPDATE cupons SET usos_realizados = usos_realizados + :quantidade WHERE id = :id", nativeQuery = true)
+    int somarUsos(@Param("id") Long id, @Param("quantidade") long quantidade);
+
+    // Consome um uso do cliente se o limite por cliente permitir; vazio = limite atingido
+    @Transactional
+    @Query(value = "INSERT INTO cupons_uso_cliente (cupom_id, cliente_id, usos) VALUES (:cupomId, :clienteId, 1) " +
+                   "ON CONFLICT (cupom_id, cliente_id) DO UPDATE SET usos = cupons_uso_cliente.usos + 1 " +
+                   "WHERE cupons_uso_cliente.usos < :limite RETURNING usos", nativeQuery = true)
+    List<Integer> consumirUsoCliente(
+        @Param("cupomId") Long cupomId,
+        @Param("clienteId") Long clienteId,
+        @Param("limite") int limite
+    );
+
+    // Desfaz o uso do cliente quando o limite global falha depois dele
+    @Modifying
+    @Query(value = "UPDATE cupons_uso_cliente SET usos = usos - 1 " +
+                   "WHERE cupom_id = :cupomId AND cliente_id = :clienteId", nativeQuery = true)
+    int devolverUsoCliente(@Param("cupomId") Long cupomId, @Param("clienteId") Long clienteId);
+}
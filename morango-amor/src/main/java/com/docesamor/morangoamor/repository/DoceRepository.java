@@ -9,6 +9,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -91,4 +92,18 @@ public interface DoceRepository extends JpaRepository<Doce, Long> {
 
     // Buscar doces por peso
     List<Doce> findByPesoGramasBetweenAndDisponivelTrue(Integer pesoMinimo, Integer pesoMaximo);
+
+    // Reserva atômica de estoque: decrementa apenas se houver saldo suficiente.
+    // Retorna [estoque_atual, estoque_minimo] após a reserva, ou nenhuma linha se não reservou.
+    @Transactional
+    @Query(value = "UPDATE doces SET estoque_atual = estoque_atual - :quantidade, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE id = :id AND disponivel = true AND estoque_atual >= :quantidade " +
+                   "RETURNING estoque_atual, estoque_minimo", nativeQuery = true)
+    List<Object[]> reservarEstoque(@Param("id") Long id, @Param("quantidade") Integer quantidade);
+
+    // Devolução atômica de estoque; retorna [estoque_atual, estoque_minimo] após a devolução
+    @Transactional
+    @Query(value = "UPDATE doces SET estoque_atual = estoque_atual + :quantidade, updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE id = :id RETURNING estoque_atual, estoque_minimo", nativeQuery = true)
+    List<Object[]> devolverEstoque(@Param("id") Long id, @Param("quantidade") Integer quantidade);
 }
\ No newline at end of file
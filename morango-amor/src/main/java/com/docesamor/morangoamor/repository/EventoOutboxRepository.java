@@ -0,0 +1,50 @@
+package com.docesamor.morangoamor.repository;
+
+import com.docesamor.morangoamor.entity.EventoOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    // Pendentes na ordem de gravação
+    @Query("SELECT e FROM EventoOutbox e WHERE e.enviadoEm IS NULL ORDER BY e.id")
+    List<EventoOutbox> buscarPendentes(Pageable pageable);
+
+    long countByEnviadoEmIsNull();
+
+    @Query("SELECT MIN(e.createdAt) FROM EventoOutbox e WHERE e.enviadoEm IS NULL")
+    Optional<LocalDateTime> buscarPendenteMaisAntigo();
+
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.enviadoEm = :enviadoEm WHERE e.id IN :ids")
+    int marcarEnviados(@Param("ids") Collection<Long> ids, @Param("enviadoEm") LocalDateTime enviadoEm);
+
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.tentativas = e.tentativas + 1, e.ultimoErro = :erro WHERE e.id IN :ids")
+    int registrarFalha(@Param("ids") Collection<Long> ids, @Param("erro") String erro);
+
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.enviadoEm < :limite")
+    int removerEnviadosAntesDe(@Param("limite") LocalDateTime limite);
+
+    // Garante um único relay ativo entre instâncias sem segurar conexão: adquire a reserva se está livre
+    // ou expirada, ou renova se já é do mesmo dono; 0 quando outra instância detém a reserva
+    @Modifying
+    @Query(value = "INSERT INTO outbox_relay (nome, dono, expira_em) VALUES (:nome, :dono, :expiraEm) " +
+                   "ON CONFLICT (nome) DO UPDATE SET dono = EXCLUDED.dono, expira_em = EXCLUDED.expira_em " +
+                   "WHERE outbox_relay.dono = EXCLUDED.dono OR outbox_relay.expira_em < :agora", nativeQuery = true)
+    int reservarRelay(@Param("nome") String nome,
+                      @Param("dono") String dono,
+                      @Param("agora") LocalDateTime agora,
+                      @Param("expiraEm") LocalDateTime expiraEm);
+}
@@ -50,6 +50,31 @@ public interface ItemPedidoRepository extends JpaRepository<ItemPedido, Long> {
         Pageable pageable
     );
 
+    // Quantidades vendidas por doce e minuto desde inicio (pedidos não cancelados), para reconstruir o ranking
+    @Query("SELECT i.doce.id, CAST(p.createdAt AS LocalDate), HOUR(p.createdAt), MINUTE(p.createdAt), SUM(i.quantidade) " +
+           "FROM ItemPedido i JOIN i.pedido p " +
+           "WHERE p.createdAt >= :inicio AND p.status <> com.docesamor.morangoamor.entity.StatusPedido.CANCELADO " +
+           "GROUP BY i.doce.id, CAST(p.createdAt AS LocalDate), HOUR(p.createdAt), MINUTE(p.createdAt)")
+    List<Object[]> somarVendasPorMinuto(@Param("inicio") LocalDateTime inicio);
+
+    // Base do cubo de vendas: pedidos entregues agregados por doce, forma de pagamento e hora de criação
+    @Query("SELECT i.doce.id, d.tipo, d.sabor, p.formaPagamento, CAST(p.createdAt AS LocalDate), HOUR(p.createdAt), " +
+           "SUM(i.quantidade), SUM(i.precoTotal), COUNT(i), " +
+           "SUM(CASE WHEN i.personalizacao IS NOT NULL AND i.personalizacao <> '' THEN 1 ELSE 0 END) " +
+           "FROM ItemPedido i JOIN i.pedido p JOIN i.doce d " +
+           "WHERE p.status = com.docesamor.morangoamor.entity.StatusPedido.ENTREGUE " +
+           "GROUP BY i.doce.id, d.tipo, d.sabor, p.formaPagamento, CAST(p.createdAt AS LocalDate), HOUR(p.createdAt)")
+    List<Object[]> agregarParaCubo();
+
+    // Mesmo formato de agregarParaCubo, restrito a um pedido (aplicado quando ele é entregue)
+    @Query("SELECT i.doce.id, d.tipo, d.sabor, p.formaPagamento, CAST(p.createdAt AS LocalDate), HOUR(p.createdAt), " +
+           "SUM(i.quantidade), SUM(i.precoTotal), COUNT(i), " +
+           "SUM(CASE WHEN i.personalizacao IS NOT NULL AND i.personalizacao <> '' THEN 1 ELSE 0 END) " +
+           "FROM ItemPedido i JOIN i.pedido p JOIN i.doce d " +
+           "WHERE p.id = :pedidoId " +
+           "GROUP BY i.doce.id, d.tipo, d.sabor, p.formaPagamento, CAST(p.createdAt AS LocalDate), HOUR(p.createdAt)")
+    List<Object[]> agregarPedidoParaCubo(@Param("pedidoId") Long pedidoId);
+
     // Receita por doce
     @Query("SELECT i.doce, SUM(i.precoTotal) FROM ItemPedido i " +
            "WHERE i.pedido.status = com.docesamor.morangoamor.entity.StatusPedido.ENTREGUE " +
@@ -125,10 +150,10 @@ public interface ItemPedidoRepository extends JpaRepository<ItemPedido, Long> {
            "GROUP BY HOUR(i.pedido.createdAt) ORDER BY HOUR(i.pedido.createdAt)")
     List<Object[]> getVendasPorHora();
 
-    // Vendas por dia da semana
-    @Query("SELECT DAYOFWEEK(i.pedido.createdAt), SUM(i.quantidade) FROM ItemPedido i " +
+    // Vendas por dia da semana (1 = domingo ... 7 = sábado); DAYOFWEEK não existe no PostgreSQL
+    @Query("SELECT EXTRACT(DAY OF WEEK FROM i.pedido.createdAt), SUM(i.quantidade) FROM ItemPedido i " +
            "WHERE i.pedido.status = com.docesamor.morangoamor.entity.StatusPedido.ENTREGUE " +
-           "GROUP BY DAYOFWEEK(i.pedido.createdAt) ORDER BY DAYOFWEEK(i.pedido.createdAt)")
+           "GROUP BY EXTRACT(DAY OF WEEK FROM i.pedido.createdAt) ORDER BY EXTRACT(DAY OF WEEK FROM i.pedido.createdAt)")
     List<Object[]> getVendasPorDiaSemana();
 
     // Histórico de preços por doce
@@ -1,21 +1,33 @@
 package com.docesamor.morangoamor.repository;
 
+import com.docesamor.morangoamor.dto.PedidoExportacaoDTO;
 import com.docesamor.morangoamor.entity.Cliente;
 import com.docesamor.morangoamor.entity.FormaPagamento;
 import com.docesamor.morangoamor.entity.Pedido;
 import com.docesamor.morangoamor.entity.StatusPedido;
 import com.docesamor.morangoamor.entity.TipoEntrega;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PedidoRepository extends JpaRepository<Pedido, Long> {
@@ -24,6 +36,7 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     List<Pedido> findByClienteOrderByCreatedAtDesc(Cliente cliente);
 
     // Buscar pedidos por email do cliente
+    @EntityGraph(attributePaths = {"cliente", "itens", "itens.doce"})
     @Query("SELECT p FROM Pedido p WHERE p.cliente.email = :email ORDER BY p.createdAt DESC")
     List<Pedido> findByClienteEmailOrderByCreatedAtDesc(@Param("email") String email);
 
@@ -43,20 +56,32 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     List<Pedido> findByTipoEntregaOrderByCreatedAtDesc(TipoEntrega tipoEntrega);
 
     // Buscar pedidos por transaction ID do Abacate Pay
+    // Webhooks travam a linha: a expiração por falta de pagamento pode cancelar o mesmo pedido em paralelo
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Pedido> findByAbacateTransactionId(String transactionId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Pedido p WHERE p.id = :id")
+    Optional<Pedido> findByIdParaAtualizacao(@Param("id") Long id);
+
     // Buscar pedidos por faixa de valor
     List<Pedido> findByValorFinalBetweenOrderByCreatedAtDesc(BigDecimal valorMinimo, BigDecimal valorMaximo);
 
-    // Buscar pedidos com filtros combinados
-    @Query("SELECT p FROM Pedido p WHERE " +
+    // Buscar pedidos com filtros combinados (fase 1: só os ids da página; fase 2: findComItensByIdIn)
+    @Query(value = "SELECT p.id FROM Pedido p WHERE " +
            "(:status IS NULL OR p.status = :status) AND " +
            "(:clienteEmail IS NULL OR LOWER(p.cliente.email) LIKE LOWER(CONCAT('%', :clienteEmail, '%'))) AND " +
            "(:clienteNome IS NULL OR LOWER(p.cliente.nome) LIKE LOWER(CONCAT('%', :clienteNome, '%'))) AND " +
            "(:dataInicio IS NULL OR p.createdAt >= :dataInicio) AND " +
            "(:dataFim IS NULL OR p.createdAt <= :dataFim) " +
-           "ORDER BY p.createdAt DESC")
-    Page<Pedido> findWithFilters(
+           "ORDER BY p.createdAt DESC",
+           countQuery = "SELECT COUNT(p) FROM Pedido p WHERE " +
+           "(:status IS NULL OR p.status = :status) AND " +
+           "(:clienteEmail IS NULL OR LOWER(p.cliente.email) LIKE LOWER(CONCAT('%', :clienteEmail, '%'))) AND " +
+           "(:clienteNome IS NULL OR LOWER(p.cliente.nome) LIKE LOWER(CONCAT('%', :clienteNome, '%'))) AND " +
+           "(:dataInicio IS NULL OR p.createdAt >= :dataInicio) AND " +
+           "(:dataFim IS NULL OR p.createdAt <= :dataFim)")
+    Page<Long> findIdsWithFilters(
         @Param("status") StatusPedido status,
         @Param("clienteEmail") String clienteEmail,
         @Param("clienteNome") String clienteNome,
@@ -65,6 +90,62 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
         Pageable pageable
     );
 
+    // Listagem por cursor (seek): continua após (cursorData, cursorId) pelo índice (created_at, id),
+    // sem OFFSET nem COUNT; o chamador pede um registro a mais para saber se há próxima página
+    @Query("SELECT p.id FROM Pedido p WHERE " +
+           "(:status IS NULL OR p.status = :status) AND " +
+           "(:clienteEmail IS NULL OR LOWER(p.cliente.email) LIKE LOWER(CONCAT('%', :clienteEmail, '%'))) AND " +
+           "(:clienteNome IS NULL OR LOWER(p.cliente.nome) LIKE LOWER(CONCAT('%', :clienteNome, '%'))) AND " +
+           "(:dataInicio IS NULL OR p.createdAt >= :dataInicio) AND " +
+           "(:dataFim IS NULL OR p.createdAt <= :dataFim) AND " +
+           "(:cursorData IS NULL OR p.createdAt < :cursorData OR (p.createdAt = :cursorData AND p.id < :cursorId)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Long> findIdsAposCursor(
+        @Param("status") StatusPedido status,
+        @Param("clienteEmail") String clienteEmail,
+        @Param("clienteNome") String clienteNome,
+        @Param("dataInicio") LocalDateTime dataInicio,
+        @Param("dataFim") LocalDateTime dataFim,
+        @Param("cursorData") LocalDateTime cursorData,
+        @Param("cursorId") Long cursorId,
+        Limit limit
+    );
+
+    // Pedidos com cliente, itens e doces em uma única consulta (sem ordem garantida)
+    @EntityGraph(attributePaths = {"cliente", "itens", "itens.doce"})
+    @Query("SELECT p FROM Pedido p WHERE p.id IN :ids")
+    List<Pedido> findComItensByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Exportação: projeção escalar lida por cursor; deve ser consumida dentro de uma transação
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.docesamor.morangoamor.dto.PedidoExportacaoDTO(" +
+           "p.id, c.nome, c.email, p.status, p.valorFinal, p.formaPagamento, p.tipoEntrega, p.createdAt) " +
+           "FROM Pedido p JOIN p.cliente c WHERE " +
+           "(:status IS NULL OR p.status = :status) AND " +
+           "(:clienteEmail IS NULL OR LOWER(c.email) LIKE LOWER(CONCAT('%', :clienteEmail, '%'))) AND " +
+           "(:dataInicio IS NULL OR p.createdAt >= :dataInicio) AND " +
+           "(:dataFim IS NULL OR p.createdAt <= :dataFim) " +
+           "ORDER BY p.createdAt DESC")
+    Stream<PedidoExportacaoDTO> streamParaExportacao(
+        @Param("status") StatusPedido status,
+        @Param("clienteEmail") String clienteEmail,
+        @Param("dataInicio") LocalDateTime dataInicio,
+        @Param("dataFim") LocalDateTime dataFim
+    );
+
+    // Segmentação RFM: [clienteId, createdAt, valorFinal, id, updatedAt] dos pedidos entregues, agrupados por cliente;
+    // lido por cursor dentro de uma transação
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.cliente.id, p.createdAt, p.valorFinal, p.id, p.updatedAt FROM Pedido p " +
+           "WHERE p.status = com.docesamor.morangoamor.entity.StatusPedido.ENTREGUE ORDER BY p.cliente.id")
+    Stream<Object[]> streamEntreguesPorCliente();
+
     // Estatísticas de pedidos
     @Query("SELECT COUNT(p) FROM Pedido p WHERE p.status = :status")
     Long countByStatus(@Param("status") StatusPedido status);
@@ -85,6 +166,12 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     @Query("SELECT AVG(p.valorFinal) FROM Pedido p WHERE p.status = :status")
     BigDecimal avgValorFinalByStatus(@Param("status") StatusPedido status);
 
+    // Base para reconciliação das estatísticas em memória (EstatisticasPedidoService)
+    @Query("SELECT CAST(p.createdAt AS LocalDate), p.status, p.formaPagamento, p.tipoEntrega, COUNT(p), SUM(p.valorFinal) " +
+           "FROM Pedido p WHERE p.createdAt >= :inicio " +
+           "GROUP BY CAST(p.createdAt AS LocalDate), p.status, p.formaPagamento, p.tipoEntrega")
+    List<Object[]> agruparParaEstatisticas(@Param("inicio") LocalDateTime inicio);
+
     // Pedidos por forma de pagamento (estatísticas)
     @Query("SELECT p.formaPagamento, COUNT(p) FROM Pedido p GROUP BY p.formaPagamento ORDER BY COUNT(p) DESC")
     List<Object[]> countByFormaPagamento();
@@ -120,6 +207,19 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
         @Param("dataLimite") LocalDateTime dataLimite
     );
 
+    // Pedidos aguardando pagamento online, carregados pela expiração no startup
+    @Query("SELECT p.id, p.createdAt FROM Pedido p WHERE p.status = :status AND p.formaPagamento IN :formas")
+    List<Object[]> findIdsECriacaoPorStatus(
+        @Param("status") StatusPedido status,
+        @Param("formas") Collection<FormaPagamento> formas
+    );
+
+    // Cancela os pedidos que ainda aguardam pagamento; devolve só os que realmente mudaram de status
+    @Transactional
+    @Query(value = "UPDATE pedidos SET status = 'CANCELADO', updated_at = CURRENT_TIMESTAMP " +
+           "WHERE id IN (:ids) AND status = 'AGUARDANDO_PAGAMENTO' RETURNING id", nativeQuery = true)
+    List<Long> cancelarAguardandoPagamento(@Param("ids") Collection<Long> ids);
+
     // Pedidos para entrega hoje
     @Query("SELECT p FROM Pedido p WHERE DATE(p.dataEntregaPrevista) = CURRENT_DATE AND p.status IN :statusValidos")
     List<Pedido> findPedidosParaEntregaHoje(@Param("statusValidos") List<StatusPedido> statusValidos);
@@ -137,4 +237,48 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
     // Buscar últimos pedidos do cliente
     @Query("SELECT p FROM Pedido p WHERE p.cliente = :cliente ORDER BY p.createdAt DESC")
     List<Pedido> findUltimosPedidosCliente(@Param("cliente") Cliente cliente, Pageable pageable);
+
+    // Pedido com cliente e itens carregados, para uso fora da transação
+    @EntityGraph(attributePaths = {"cliente", "itens", "itens.doce"})
+    @Query("SELECT p FROM Pedido p WHERE p.id = :id")
+    Optional<Pedido> findComItensById(@Param("id") Long id);
+
+    // Pedidos com link de pagamento pendente e tentativa vencida, os mais antigos primeiro
+    @Query("SELECT p.id FROM Pedido p WHERE p.paymentLink IS NULL AND p.status = :status " +
+           "AND p.linkPagamentoEm <= :agora ORDER BY p.linkPagamentoEm")
+    List<Long> findIdsComLinkPagamentoPendente(
+        @Param("status") StatusPedido status,
+        @Param("agora") LocalDateTime agora,
+        Pageable pageable
+    );
+
+    // Reserva a tentativa para um único worker: o listener pós-commit e o job de retentativa
+    // nunca chamam o gateway para o mesmo pedido ao mesmo tempo
+    @Modifying
+    @Query("UPDATE Pedido p SET p.linkPagamentoEm = :reservadoAte WHERE p.id = :id AND p.paymentLink IS NULL " +
+           "AND p.status = :status AND p.linkPagamentoEm <= :agora")
+    int reservarLinkPagamento(
+        @Param("id") Long id,
+        @Param("status") StatusPedido status,
+        @Param("agora") LocalDateTime agora,
+        @Param("reservadoAte") LocalDateTime reservadoAte
+    );
+
+    @Modifying
+    @Query("UPDATE Pedido p SET p.tentativasLinkPagamento = COALESCE(p.tentativasLinkPagamento, 0) + 1, " +
+           "p.linkPagamentoEm = :proximaTentativa WHERE p.id = :id AND p.paymentLink IS NULL")
+    int agendarNovaTentativaLink(
+        @Param("id") Long id,
+        @Param("proximaTentativa") LocalDateTime proximaTentativa
+    );
+
+    // Grava o resultado do gateway sem recarregar o pedido
+    @Modifying
+    @Query("UPDATE Pedido p SET p.abacateTransactionId = :transactionId, p.paymentLink = :paymentLink, " +
+           "p.linkPagamentoEm = NULL, p.updatedAt = CURRENT_TIMESTAMP WHERE p.id = :id")
+    int atualizarDadosPagamento(
+        @Param("id") Long id,
+        @Param("transactionId") String transactionId,
+        @Param("paymentLink") String paymentLink
+    );
 }
\ No newline at end of file
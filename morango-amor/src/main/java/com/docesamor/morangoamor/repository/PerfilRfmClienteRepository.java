@@ -0,0 +1,23 @@
+package com.docesamor.morangoamor.repository;
+
+import com.docesamor.morangoamor.entity.PerfilRfmCliente;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface PerfilRfmClienteRepository extends JpaRepository<PerfilRfmCliente, Long> {
+
+    // Notas já gravadas [clienteId, recencia, frequencia, monetario], lidas por cursor dentro de uma transação
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.clienteId, p.recencia, p.frequencia, p.monetario FROM PerfilRfmCliente p")
+    Stream<Object[]> streamNotas();
+}
@@ -2,10 +2,12 @@ package com.docesamor.morangoamor.service;
 
 import com.docesamor.morangoamor.entity.Pedido;
 import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
 import com.docesamor.morangoamor.repository.PedidoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
@@ -25,6 +27,8 @@ public class AbacatePayService {
     private final RestTemplate restTemplate;
     private final PedidoRepository pedidoRepository;
     private final EventoService eventoService;
+    private final DoceService doceService;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Value("${app.abacate-pay.api-url:https://api.abacatepay.com}")
     private String abacatePayApiUrl;
@@ -38,6 +42,10 @@ public class AbacatePayService {
     @Value("${app.abacate-pay.mock-enabled:true}")
     private boolean mockEnabled;
 
+    // Latência artificial do gateway mock, para medir o checkout sob um gateway lento
+    @Value("${app.abacate-pay.mock-delay-ms:0}")
+    private long mockDelayMs;
+
     public String criarLinkPagamento(Pedido pedido) {
         log.info("Criando link de pagamento para pedido: {}", pedido.getId());
         
@@ -86,9 +94,8 @@ public class AbacatePayService {
                 String transactionId = (String) responseBody.get("id");
                 String paymentLink = (String) responseBody.get("payment_url");
                 
-                // Atualizar pedido com transaction ID
+                // Transaction ID é persistido por quem chamou, junto com o link
                 pedido.setAbacateTransactionId(transactionId);
-                pedidoRepository.save(pedido);
                 
                 log.info("Link de pagamento criado com sucesso para pedido {}: {}", 
                     pedido.getId(), paymentLink);
@@ -108,12 +115,17 @@ public class AbacatePayService {
     private String criarLinkPagamentoMock(Pedido pedido) {
         log.info("Criando link de pagamento MOCK para pedido: {}", pedido.getId());
         
+        if (mockDelayMs > 0) {
+            try {
+                Thread.sleep(mockDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
         // Gerar transaction ID mock
         String transactionId = "mock_" + UUID.randomUUID().toString().substring(0, 8);
-        
-        // Atualizar pedido com transaction ID mock
         pedido.setAbacateTransactionId(transactionId);
-        pedidoRepository.save(pedido);
         
         // Retornar link mock
         String mockPaymentLink = String.format(
@@ -155,7 +167,7 @@ public class AbacatePayService {
             if (pedido == null && externalId != null) {
                 try {
                     Long pedidoId = Long.parseLong(externalId);
-                    pedido = pedidoRepository.findById(pedidoId).orElse(null);
+                    pedido = pedidoRepository.findByIdParaAtualizacao(pedidoId).orElse(null);
                 } catch (NumberFormatException e) {
                     log.warn("External ID inválido: {}", externalId);
                 }
@@ -222,6 +234,8 @@ public class AbacatePayService {
             
             // Publicar evento de pagamento confirmado
             eventoService.publicarEventoPagamentoConfirmado(pedido);
+            applicationEventPublisher.publishEvent(
+                TransicaoPedidoEvento.transicao(pedido, StatusPedido.AGUARDANDO_PAGAMENTO));
         } else {
             log.warn("Tentativa de confirmar pagamento para pedido {} em status inválido: {}", 
                 pedido.getId(), pedido.getStatus());
@@ -234,11 +248,14 @@ public class AbacatePayService {
         if (pedido.getStatus() == StatusPedido.AGUARDANDO_PAGAMENTO) {
             pedido.setStatus(StatusPedido.CANCELADO);
             pedidoRepository.save(pedido);
+            doceService.devolverEstoque(pedido.quantidadesPorDoce());
             
             log.info("Pedido {} cancelado devido ao pagamento não aprovado", pedido.getId());
             
             // Publicar evento de status atualizado
             eventoService.publicarEventoStatusAtualizado(pedido, StatusPedido.AGUARDANDO_PAGAMENTO);
+            applicationEventPublisher.publishEvent(
+                TransicaoPedidoEvento.transicao(pedido, StatusPedido.AGUARDANDO_PAGAMENTO));
         } else {
             log.warn("Tentativa de cancelar pedido {} em status inválido: {}", 
                 pedido.getId(), pedido.getStatus());
@@ -250,8 +267,10 @@ public class AbacatePayService {
         
         // Lógica de estorno - pode variar dependendo do status atual
         if (pedido.getStatus() == StatusPedido.PAGO || pedido.getStatus() == StatusPedido.PREPARANDO) {
+            StatusPedido statusAnterior = pedido.getStatus();
             pedido.setStatus(StatusPedido.CANCELADO);
             pedidoRepository.save(pedido);
+            doceService.devolverEstoque(pedido.quantidadesPorDoce());
             
             log.info("Pedido {} cancelado devido ao estorno do pagamento", pedido.getId());
             
@@ -261,6 +280,7 @@ public class AbacatePayService {
                 "valorEstornado", paymentData.getOrDefault("amount", 0),
                 "motivo", paymentData.getOrDefault("reason", "Não informado")
             ));
+            applicationEventPublisher.publishEvent(TransicaoPedidoEvento.transicao(pedido, statusAnterior));
         }
     }
 
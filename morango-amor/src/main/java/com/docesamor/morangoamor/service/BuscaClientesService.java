@@ -0,0 +1,332 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.busca.TextoBusca;
+import com.docesamor.morangoamor.dto.CursorBuscaCliente;
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.evento.ClienteAlteradoEvento;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Busca administrativa de clientes por trecho de nome, email, alergia ou preferência, sem acentos e sem
+// diferenciar maiúsculas. No PostgreSQL com pg_trgm, os LIKE '%termo%' e a similaridade de palavras usam
+// índices GIN de trigramas sobre as colunas *_busca (IndicesBancoConfig); sem a extensão (H2 nos testes),
+// um índice de trigramas em memória atende as mesmas consultas. Resultados ordenados por similaridade
+// do nome com o texto (depois por id) e paginados por cursor, sem OFFSET nem COUNT.
+@Service
+@Slf4j
+public class BuscaClientesService {
+
+    // Limiar padrão do operador <% do pg_trgm, repetido no índice em memória
+    private static final float SIMILARIDADE_MINIMA = 0.6f;
+
+    // Textos normalizados como as colunas *_busca na construção; nulos ou vazios não restringem
+    public record Filtro(
+        String texto,
+        String email,
+        String alergia,
+        String preferencia,
+        String cidade,
+        String estado,
+        Boolean clienteVip) {
+
+        public Filtro {
+            texto = vazioComoNulo(TextoBusca.normalizar(texto));
+            email = vazioComoNulo(email == null ? null : email.trim().toLowerCase(Locale.ROOT));
+            alergia = vazioComoNulo(TextoBusca.normalizar(alergia));
+            preferencia = vazioComoNulo(TextoBusca.normalizar(preferencia));
+            cidade = vazioComoNulo(cidade == null ? null : cidade.trim().toLowerCase(Locale.ROOT));
+            estado = vazioComoNulo(estado == null ? null : estado.trim().toLowerCase(Locale.ROOT));
+        }
+
+        private static String vazioComoNulo(String valor) {
+            return valor == null || valor.isEmpty() ? null : valor;
+        }
+    }
+
+    public record Resultado(long id, float pontuacao) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ClienteRepository clienteRepository;
+    private final int tamanhoLote;
+
+    private volatile boolean trigramasNoBanco;
+
+    // Índice em memória, só usado sem pg_trgm
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Documento> documentos = new TreeMap<>();
+    private final Map<String, Set<Long>> trigramas = new HashMap<>();
+
+    public BuscaClientesService(NamedParameterJdbcTemplate jdbcTemplate,
+                                ClienteRepository clienteRepository,
+                                @Value("${app.clientes.busca.tamanho-lote:5000}") int tamanhoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clienteRepository = clienteRepository;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        long inicio = System.currentTimeMillis();
+        int normalizados = preencherCamposBusca();
+        trigramasNoBanco = extensaoDisponivel();
+        if (!trigramasNoBanco) {
+            construirIndice();
+        }
+        log.info("Busca de clientes iniciada ({}): {} cadastros normalizados em {} ms",
+            trigramasNoBanco ? "pg_trgm" : "índice em memória", normalizados, System.currentTimeMillis() - inicio);
+    }
+
+    // Mudanças de VIP feitas pelo contador atômico não passam por aqui; o filtro VIP do índice em memória
+    // pode ficar defasado até o próximo startup
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void atualizar(ClienteAlteradoEvento evento) {
+        if (trigramasNoBanco) {
+            return;
+        }
+        Cliente cliente = clienteRepository.findById(evento.getClienteId()).orElse(null);
+
+        lock.writeLock().lock();
+        try {
+            remover(evento.getClienteId());
+            if (cliente != null) {
+                indexar(cliente.getId(), new Documento(cliente.getNomeBusca(), minusculas(cliente.getEmail()),
+                    cliente.getAlergiasBusca(), cliente.getPreferenciasBusca(), minusculas(cliente.getCidade()),
+                    minusculas(cliente.getEstado()), Boolean.TRUE.equals(cliente.getClienteVip())));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Até `limite` resultados depois do cursor (nulo = primeira página)
+    public List<Resultado> buscar(Filtro filtro, CursorBuscaCliente apos, int limite) {
+        return trigramasNoBanco ? buscarNoBanco(filtro, apos, limite) : buscarEmMemoria(filtro, apos, limite);
+    }
+
+    private List<Resultado> buscarNoBanco(Filtro filtro, CursorBuscaCliente apos, int limite) {
+        MapSqlParameterSource parametros = new MapSqlParameterSource("limite", limite);
+        String pontuacao = filtro.texto() != null ? "word_similarity(:texto, nome_busca)" : "CAST(0 AS real)";
+        // Só entram na consulta os filtros informados, para o planejador escolher o índice de cada um
+        StringBuilder sql = new StringBuilder("SELECT id, ").append(pontuacao)
+            .append(" AS pontuacao FROM clientes WHERE TRUE");
+
+        if (filtro.texto() != null) {
+            sql.append(" AND (nome_busca LIKE :textoParcial OR :texto <% nome_busca)");
+            parametros.addValue("texto", filtro.texto())
+                .addValue("textoParcial", TextoBusca.parcial(filtro.texto()));
+        }
+        if (filtro.email() != null) {
+            sql.append(" AND LOWER(email) LIKE :email");
+            parametros.addValue("email", TextoBusca.parcial(filtro.email()));
+        }
+        if (filtro.alergia() != null) {
+            sql.append(" AND alergias_busca LIKE :alergia");
+            parametros.addValue("alergia", TextoBusca.parcial(filtro.alergia()));
+        }
+        if (filtro.preferencia() != null) {
+            sql.append(" AND preferencias_busca LIKE :preferencia");
+            parametros.addValue("preferencia", TextoBusca.parcial(filtro.preferencia()));
+        }
+        if (filtro.cidade() != null) {
+            sql.append(" AND LOWER(cidade) = :cidade");
+            parametros.addValue("cidade", filtro.cidade());
+        }
+        if (filtro.estado() != null) {
+            sql.append(" AND LOWER(estado) = :estado");
+            parametros.addValue("estado", filtro.estado());
+        }
+        if (filtro.clienteVip() != null) {
+            sql.append(" AND cliente_vip = :clienteVip");
+            parametros.addValue("clienteVip", filtro.clienteVip());
+        }
+        if (apos != null) {
+            if (filtro.texto() != null) {
+                sql.append(" AND (").append(pontuacao).append(" < :cursorPontuacao OR (")
+                    .append(pontuacao).append(" = :cursorPontuacao AND id > :cursorId))");
+                parametros.addValue("cursorPontuacao", apos.pontuacao());
+            } else {
+                sql.append(" AND id > :cursorId");
+            }
+            parametros.addValue("cursorId", apos.id());
+        }
+        sql.append(" ORDER BY pontuacao DESC, id LIMIT :limite");
+
+        return jdbcTemplate.query(sql.toString(), parametros,
+            (linha, numero) -> new Resultado(linha.getLong("id"), linha.getFloat("pontuacao")));
+    }
+
+    private List<Resultado> buscarEmMemoria(Filtro filtro, CursorBuscaCliente apos, int limite) {
+        lock.readLock().lock();
+        try {
+            List<Resultado> resultados = new ArrayList<>();
+            if (filtro.texto() == null) {
+                // Sem texto a ordem é só por id: percorre a partir do cursor e para no limite
+                Map<Long, Documento> seguintes = apos == null ? documentos : documentos.tailMap(apos.id(), false);
+                for (Map.Entry<Long, Documento> entrada : seguintes.entrySet()) {
+                    if (entrada.getValue().atende(filtro)) {
+                        resultados.add(new Resultado(entrada.getKey(), 0f));
+                        if (resultados.size() == limite) {
+                            break;
+                        }
+                    }
+                }
+                return resultados;
+            }
+
+            candidatos(filtro.texto()).forEach((id, pontuacao) -> {
+                if (documentos.get(id).atende(filtro) && (apos == null || pontuacao < apos.pontuacao()
+                        || (pontuacao == apos.pontuacao() && id > apos.id()))) {
+                    resultados.add(new Resultado(id, pontuacao));
+                }
+            });
+            return resultados.stream()
+                .sorted(Comparator.comparing(Resultado::pontuacao).reversed().thenComparingLong(Resultado::id))
+                .limit(limite)
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Clientes cujo nome contém o texto ou tem similaridade de palavras acima do limiar, com a pontuação
+    private Map<Long, Float> candidatos(String texto) {
+        Set<String> doTexto = TextoBusca.trigramas(texto);
+        Map<Long, Integer> emComum = new HashMap<>();
+        for (String trigrama : doTexto) {
+            for (Long id : trigramas.getOrDefault(trigrama, Set.of())) {
+                emComum.merge(id, 1, Integer::sum);
+            }
+        }
+
+        Map<Long, Float> resultado = new HashMap<>();
+        emComum.forEach((id, comuns) -> {
+            float pontuacao = (float) comuns / doTexto.size();
+            if (pontuacao >= SIMILARIDADE_MINIMA || documentos.get(id).nomeBusca().contains(texto)) {
+                resultado.put(id, pontuacao);
+            }
+        });
+        // Textos curtos podem não formar trigramas em comum com o trecho do nome que os contém
+        if (texto.length() < 3) {
+            documentos.forEach((id, documento) -> {
+                if (!resultado.containsKey(id) && documento.nomeBusca() != null && documento.nomeBusca().contains(texto)) {
+                    resultado.put(id, 0f);
+                }
+            });
+        }
+        return resultado;
+    }
+
+    // Cadastros gravados antes das colunas *_busca existirem
+    private int preencherCamposBusca() {
+        int total = 0;
+        while (true) {
+            List<Object[]> lote = jdbcTemplate.getJdbcTemplate().query(
+                "SELECT id, nome, alergias, preferencias_doces FROM clientes WHERE nome_busca IS NULL ORDER BY id LIMIT ?",
+                (linha, numero) -> new Object[]{TextoBusca.normalizar(linha.getString("nome")),
+                    TextoBusca.normalizar(linha.getString("alergias")),
+                    TextoBusca.normalizar(linha.getString("preferencias_doces")), linha.getLong("id")},
+                tamanhoLote);
+            if (lote.isEmpty()) {
+                return total;
+            }
+            jdbcTemplate.getJdbcTemplate().batchUpdate(
+                "UPDATE clientes SET nome_busca = ?, alergias_busca = ?, preferencias_busca = ? WHERE id = ?", lote);
+            total += lote.size();
+        }
+    }
+
+    private boolean extensaoDisponivel() {
+        try {
+            Integer instaladas = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM pg_extension WHERE extname = 'pg_trgm'", Integer.class);
+            return instaladas != null && instaladas > 0;
+        } catch (DataAccessException e) {
+            return false;
+        }
+    }
+
+    private void construirIndice() {
+        lock.writeLock().lock();
+        try {
+            documentos.clear();
+            trigramas.clear();
+            jdbcTemplate.getJdbcTemplate().query(
+                "SELECT id, nome_busca, email, alergias_busca, preferencias_busca, cidade, estado, cliente_vip FROM clientes",
+                linha -> {
+                    indexar(linha.getLong("id"), new Documento(linha.getString("nome_busca"),
+                        minusculas(linha.getString("email")), linha.getString("alergias_busca"),
+                        linha.getString("preferencias_busca"), minusculas(linha.getString("cidade")),
+                        minusculas(linha.getString("estado")), linha.getBoolean("cliente_vip")));
+                });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexar(Long id, Documento documento) {
+        documentos.put(id, documento);
+        for (String trigrama : TextoBusca.trigramas(documento.nomeBusca())) {
+            trigramas.computeIfAbsent(trigrama, t -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void remover(Long id) {
+        Documento anterior = documentos.remove(id);
+        if (anterior == null) {
+            return;
+        }
+        for (String trigrama : TextoBusca.trigramas(anterior.nomeBusca())) {
+            Set<Long> ids = trigramas.get(trigrama);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                trigramas.remove(trigrama);
+            }
+        }
+    }
+
+    private static String minusculas(String valor) {
+        return valor == null ? null : valor.toLowerCase(Locale.ROOT);
+    }
+
+    private record Documento(
+        String nomeBusca,
+        String email,
+        String alergiasBusca,
+        String preferenciasBusca,
+        String cidade,
+        String estado,
+        boolean clienteVip) {
+
+        boolean atende(Filtro filtro) {
+            return (filtro.email() == null || (email != null && email.contains(filtro.email())))
+                && (filtro.alergia() == null || (alergiasBusca != null && alergiasBusca.contains(filtro.alergia())))
+                && (filtro.preferencia() == null
+                    || (preferenciasBusca != null && preferenciasBusca.contains(filtro.preferencia())))
+                && (filtro.cidade() == null || filtro.cidade().equals(cidade))
+                && (filtro.estado() == null || filtro.estado().equals(estado))
+                && (filtro.clienteVip() == null || filtro.clienteVip() == clienteVip);
+        }
+    }
+}
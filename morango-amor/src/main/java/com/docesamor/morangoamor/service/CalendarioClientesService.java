@@ -0,0 +1,193 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.evento.ClienteAlteradoEvento;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Calendário de nascimentos dos clientes em memória: 366 baldes (um por dia do ano, 29/02 incluso)
+// com os ids de quem faz aniversário no dia, e um mapa ordenado data de nascimento -> ids para faixas de idade.
+// Seleções custam O(resultado): aniversário é leitura direta de baldes, idade é um subMap por datas.
+// Carregado no startup e mantido pelos eventos de cadastro/alteração de cliente.
+@Service
+@Slf4j
+public class CalendarioClientesService {
+
+    private static final int DIAS_NO_ANO = 366;
+    // Ano bissexto de referência para numerar os dias do ano
+    private static final int ANO_REFERENCIA = 2000;
+
+    private final ClienteRepository clienteRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Long>[] baldes = novosBaldes();
+    private final TreeMap<LocalDate, Set<Long>> porData = new TreeMap<>();
+    private final Map<Long, LocalDate> datas = new HashMap<>();
+
+    public CalendarioClientesService(ClienteRepository clienteRepository, TransactionTemplate transactionTemplate) {
+        this.clienteRepository = clienteRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        long inicio = System.currentTimeMillis();
+        int preenchidos = clienteRepository.preencherAniversarios();
+
+        lock.writeLock().lock();
+        try {
+            Arrays.stream(baldes).forEach(Set::clear);
+            porData.clear();
+            datas.clear();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> linhas = clienteRepository.streamDatasNascimento()) {
+                    linhas.forEach(linha -> adicionar((Long) linha[0], (LocalDate) linha[1]));
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Calendário de clientes carregado: {} datas de nascimento em {} ms ({} linhas com aniversário preenchido)",
+            datas.size(), System.currentTimeMillis() - inicio, preenchidos);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void atualizar(ClienteAlteradoEvento evento) {
+        lock.writeLock().lock();
+        try {
+            remover(evento.getClienteId());
+            if (evento.getDataNascimento() != null) {
+                adicionar(evento.getClienteId(), evento.getDataNascimento());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Quem faz aniversário no dia; em ano não bissexto, os nascidos em 29/02 entram em 28/02
+    public long[] aniversariantes(LocalDate dia) {
+        if (dia.getMonthValue() == 2 && dia.getDayOfMonth() == 28 && !dia.isLeapYear()) {
+            return coletar(indice(MonthDay.of(2, 28)), indice(MonthDay.of(2, 29)));
+        }
+        return coletar(indice(MonthDay.from(dia)));
+    }
+
+    public long[] aniversariantes(MonthDay dia) {
+        return coletar(indice(dia));
+    }
+
+    public long[] aniversariantesDoMes(int mes) {
+        int primeiro = indice(MonthDay.of(mes, 1));
+        int[] indices = new int[YearMonth.of(ANO_REFERENCIA, mes).lengthOfMonth()];
+        for (int dia = 0; dia < indices.length; dia++) {
+            indices[dia] = primeiro + dia;
+        }
+        return coletar(indices);
+    }
+
+    // Idade completa entre os limites (inclusivos) na data de referência
+    public long[] porIdade(int idadeMinima, int idadeMaxima, LocalDate referencia) {
+        LocalDate nascidoApos = referencia.minusYears(idadeMaxima + 1L);
+        LocalDate nascidoAte = referencia.minusYears(idadeMinima);
+
+        lock.readLock().lock();
+        try {
+            return porData.subMap(nascidoApos, false, nascidoAte, true).values().stream()
+                .flatMap(Set::stream)
+                .mapToLong(Long::longValue)
+                .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Restringe uma seleção (ex.: aniversariantes) a uma faixa de idade sem varrer o mapa de datas
+    public long[] filtrarPorIdade(long[] ids, int idadeMinima, int idadeMaxima, LocalDate referencia) {
+        LocalDate nascidoApos = referencia.minusYears(idadeMaxima + 1L);
+        LocalDate nascidoAte = referencia.minusYears(idadeMinima);
+
+        lock.readLock().lock();
+        try {
+            return Arrays.stream(ids)
+                .filter(id -> {
+                    LocalDate data = datas.get(id);
+                    return data != null && data.isAfter(nascidoApos) && !data.isAfter(nascidoAte);
+                })
+                .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] coletar(int... indices) {
+        lock.readLock().lock();
+        try {
+            int total = 0;
+            for (int indice : indices) {
+                total += baldes[indice].size();
+            }
+            long[] ids = new long[total];
+            int posicao = 0;
+            for (int indice : indices) {
+                for (Long id : baldes[indice]) {
+                    ids[posicao++] = id;
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void adicionar(Long clienteId, LocalDate dataNascimento) {
+        datas.put(clienteId, dataNascimento);
+        baldes[indice(MonthDay.from(dataNascimento))].add(clienteId);
+        porData.computeIfAbsent(dataNascimento, data -> new HashSet<>()).add(clienteId);
+    }
+
+    private void remover(Long clienteId) {
+        LocalDate anterior = datas.remove(clienteId);
+        if (anterior == null) {
+            return;
+        }
+        baldes[indice(MonthDay.from(anterior))].remove(clienteId);
+        Set<Long> ids = porData.get(anterior);
+        ids.remove(clienteId);
+        if (ids.isEmpty()) {
+            porData.remove(anterior);
+        }
+    }
+
+    private static int indice(MonthDay diaDoAno) {
+        return diaDoAno.atYear(ANO_REFERENCIA).getDayOfYear() - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Long>[] novosBaldes() {
+        Set<Long>[] baldes = new Set[DIAS_NO_ANO];
+        for (int i = 0; i < DIAS_NO_ANO; i++) {
+            baldes[i] = new HashSet<>();
+        }
+        return baldes;
+    }
+}
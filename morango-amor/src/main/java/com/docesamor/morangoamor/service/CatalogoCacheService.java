@@ -0,0 +1,140 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.DoceDTO;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.evento.DoceAlteradoEvento;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Cache em processo das listagens do catálogo: listas de DoceDTO já mapeadas e imutáveis por formato de consulta.
+// Um contador de versão global descarta cargas que começaram antes de uma alteração ser confirmada;
+// alterações só de estoque removem apenas as entradas que contêm o doce.
+@Service
+@Slf4j
+public class CatalogoCacheService {
+
+    public static final Chave DISPONIVEIS = new Chave(Formato.DISPONIVEIS, null);
+    public static final Chave PROMOCOES = new Chave(Formato.PROMOCOES, null);
+    public static final Chave POPULARES = new Chave(Formato.POPULARES, null);
+
+    private static final Map<TipoDoce, Chave> POR_TIPO = chavesPorEnum(Formato.TIPO, TipoDoce.values());
+    private static final Map<SaborMorango, Chave> POR_SABOR = chavesPorEnum(Formato.SABOR, SaborMorango.values());
+
+    private final Map<Chave, Entrada> entradas = new ConcurrentHashMap<>();
+    private final AtomicLong versao = new AtomicLong();
+    private final AtomicLong sequencia = new AtomicLong();
+    private final int tamanhoMaximo;
+
+    private final Counter acertos;
+    private final Counter faltas;
+    private final Counter remocoes;
+
+    public CatalogoCacheService(@Value("${app.catalogo.cache.tamanho-maximo:256}") int tamanhoMaximo,
+                                MeterRegistry meterRegistry) {
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.acertos = Counter.builder("catalogo.cache.requisicoes").tag("resultado", "acerto").register(meterRegistry);
+        this.faltas = Counter.builder("catalogo.cache.requisicoes").tag("resultado", "falta").register(meterRegistry);
+        this.remocoes = Counter.builder("catalogo.cache.remocoes").register(meterRegistry);
+        Gauge.builder("catalogo.cache.entradas", entradas, Map::size).register(meterRegistry);
+        Gauge.builder("catalogo.cache.versao", versao, AtomicLong::get).register(meterRegistry);
+    }
+
+    public static Chave porTipo(TipoDoce tipo) {
+        return POR_TIPO.get(tipo);
+    }
+
+    public static Chave porSabor(SaborMorango sabor) {
+        return POR_SABOR.get(sabor);
+    }
+
+    public static Chave porId(Long id) {
+        return new Chave(Formato.ID, id);
+    }
+
+    public List<DoceDTO> obter(Chave chave, Supplier<List<DoceDTO>> carregar) {
+        Entrada entrada = entradas.get(chave);
+        if (entrada != null) {
+            acertos.increment();
+            return entrada.doces;
+        }
+        faltas.increment();
+        
+        // Só guarda se nenhuma alteração foi confirmada enquanto a consulta rodava
+        long versaoAntes = versao.get();
+        List<DoceDTO> doces = List.copyOf(carregar.get());
+        if (versao.get() == versaoAntes) {
+            if (entradas.size() >= tamanhoMaximo) {
+                removerMaisAntiga();
+            }
+            Set<Long> ids = doces.stream().map(DoceDTO::getId).collect(Collectors.toUnmodifiableSet());
+            Entrada nova = new Entrada(doces, ids, sequencia.incrementAndGet());
+            entradas.put(chave, nova);
+            // Uma invalidação entre a checagem e o put pode não ter visto a entrada: confere de novo.
+            // invalidar incrementa a versão antes de remover, então uma das duas sempre descarta a entrada.
+            if (versao.get() != versaoAntes) {
+                entradas.remove(chave, nova);
+            }
+        }
+        return doces;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void invalidar(DoceAlteradoEvento evento) {
+        versao.incrementAndGet();
+        if (!evento.isApenasEstoque()) {
+            entradas.clear();
+            return;
+        }
+        // Estoque muda só o DTO do doce; as listas em cache não mudam de membros
+        entradas.values().removeIf(entrada -> entrada.ids.contains(evento.getDoceId()));
+    }
+
+    // Remoção FIFO: a entrada carregada há mais tempo sai primeiro (varredura limitada por tamanhoMaximo)
+    private void removerMaisAntiga() {
+        Chave maisAntiga = null;
+        long menorSequencia = Long.MAX_VALUE;
+        for (Map.Entry<Chave, Entrada> e : entradas.entrySet()) {
+            if (e.getValue().sequencia < menorSequencia) {
+                menorSequencia = e.getValue().sequencia;
+                maisAntiga = e.getKey();
+            }
+        }
+        if (maisAntiga != null && entradas.remove(maisAntiga) != null) {
+            remocoes.increment();
+        }
+    }
+
+    private static <E extends Enum<E>> Map<E, Chave> chavesPorEnum(Formato formato, E[] valores) {
+        Map<E, Chave> chaves = new EnumMap<>(valores[0].getDeclaringClass());
+        for (E valor : valores) {
+            chaves.put(valor, new Chave(formato, valor));
+        }
+        return chaves;
+    }
+
+    public enum Formato {
+        DISPONIVEIS, PROMOCOES, POPULARES, TIPO, SABOR, ID
+    }
+
+    public record Chave(Formato formato, Object parametro) {
+    }
+
+    private record Entrada(List<DoceDTO> doces, Set<Long> ids, long sequencia) {
+    }
+}
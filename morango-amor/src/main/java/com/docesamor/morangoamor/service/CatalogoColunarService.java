@@ -0,0 +1,257 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.Doce;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.evento.DoceAlteradoEvento;
+import com.docesamor.morangoamor.repository.DoceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// Catálogo em colunas de tipos primitivos (preço em centavos, calorias, gramas, minutos, tipo/sabor por ordinal)
+// com um bitmap por valor de tipo/sabor/disponibilidade e índices ordenados por coluna numérica.
+// Qualquer combinação de filtros vira interseção de BitSets; as facetas contam cada dimensão sem o próprio filtro.
+// O snapshot é imutável e trocado inteiro a cada alteração que não seja só de estoque.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogoColunarService {
+
+    private final DoceRepository doceRepository;
+
+    private volatile Snapshot snapshot = Snapshot.de(List.of());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        long inicio = System.currentTimeMillis();
+        snapshot = Snapshot.de(doceRepository.findAll());
+        log.info("Catálogo colunar carregado: {} doces em {} ms", snapshot.ids.length, System.currentTimeMillis() - inicio);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void atualizar(DoceAlteradoEvento evento) {
+        if (!evento.isApenasEstoque()) {
+            carregar();
+        }
+    }
+
+    public Resultado filtrar(Filtro filtro) {
+        Snapshot atual = snapshot;
+
+        BitSet base = atual.filtrarNumericos(filtro);
+        if (filtro.disponivel() != null) {
+            if (filtro.disponivel()) {
+                base.and(atual.disponiveis);
+            } else {
+                base.andNot(atual.disponiveis);
+            }
+        }
+
+        BitSet porTipo = filtro.tipo() != null ? atual.porTipo[filtro.tipo().ordinal()] : null;
+        BitSet porSabor = filtro.sabor() != null ? atual.porSabor[filtro.sabor().ordinal()] : null;
+
+        // Faceta de tipo respeita o filtro de sabor (e vice-versa), mas não o próprio
+        BitSet semTipo = base;
+        if (porSabor != null) {
+            semTipo = (BitSet) base.clone();
+            semTipo.and(porSabor);
+        }
+        BitSet semSabor = base;
+        if (porTipo != null) {
+            semSabor = (BitSet) base.clone();
+            semSabor.and(porTipo);
+        }
+        BitSet selecionados = (BitSet) semTipo.clone();
+        if (porTipo != null) {
+            selecionados.and(porTipo);
+        }
+
+        Map<TipoDoce, Long> facetaTipo = new EnumMap<>(TipoDoce.class);
+        for (TipoDoce tipo : TipoDoce.values()) {
+            facetaTipo.put(tipo, (long) contarInterseccao(semTipo, atual.porTipo[tipo.ordinal()]));
+        }
+        Map<SaborMorango, Long> facetaSabor = new EnumMap<>(SaborMorango.class);
+        for (SaborMorango sabor : SaborMorango.values()) {
+            facetaSabor.put(sabor, (long) contarInterseccao(semSabor, atual.porSabor[sabor.ordinal()]));
+        }
+
+        long[] ids = new long[selecionados.cardinality()];
+        int posicao = 0;
+        for (int linha = selecionados.nextSetBit(0); linha >= 0; linha = selecionados.nextSetBit(linha + 1)) {
+            ids[posicao++] = atual.ids[linha];
+        }
+        return new Resultado(ids, facetaTipo, facetaSabor);
+    }
+
+    private static int contarInterseccao(BitSet a, BitSet b) {
+        BitSet interseccao = (BitSet) a.clone();
+        interseccao.and(b);
+        return interseccao.cardinality();
+    }
+
+    // Filtros nulos não restringem; faixas são inclusivas e excluem doces sem valor na coluna
+    public record Filtro(
+        TipoDoce tipo,
+        SaborMorango sabor,
+        BigDecimal precoMinimo,
+        BigDecimal precoMaximo,
+        Integer caloriasMinimas,
+        Integer caloriasMaximas,
+        Integer pesoMinimo,
+        Integer pesoMaximo,
+        Integer tempoPreparoMaximo,
+        Boolean disponivel) {
+    }
+
+    // ids na ordem do catálogo (nome), com contagens por tipo e sabor
+    public record Resultado(long[] ids, Map<TipoDoce, Long> porTipo, Map<SaborMorango, Long> porSabor) {
+    }
+
+    private static final class Snapshot {
+        private static final BigDecimal MAIOR_INT = BigDecimal.valueOf(Integer.MAX_VALUE);
+        private static final BigDecimal MENOR_INT = BigDecimal.valueOf(Integer.MIN_VALUE);
+
+        private final long[] ids;
+        private final BitSet disponiveis;
+        private final BitSet[] porTipo;
+        private final BitSet[] porSabor;
+        private final IndiceOrdenado centavos;
+        private final IndiceOrdenado calorias;
+        private final IndiceOrdenado gramas;
+        private final IndiceOrdenado minutos;
+
+        private Snapshot(List<Doce> doces) {
+            int n = doces.size();
+            ids = new long[n];
+            disponiveis = new BitSet(n);
+            porTipo = bitmaps(TipoDoce.values().length, n);
+            porSabor = bitmaps(SaborMorango.values().length, n);
+            Integer[] colunaCentavos = new Integer[n];
+            Integer[] colunaCalorias = new Integer[n];
+            Integer[] colunaGramas = new Integer[n];
+            Integer[] colunaMinutos = new Integer[n];
+
+            for (int linha = 0; linha < n; linha++) {
+                Doce doce = doces.get(linha);
+                ids[linha] = doce.getId();
+                if (Boolean.TRUE.equals(doce.getDisponivel())) {
+                    disponiveis.set(linha);
+                }
+                porTipo[doce.getTipo().ordinal()].set(linha);
+                porSabor[doce.getSabor().ordinal()].set(linha);
+                colunaCentavos[linha] = emCentavos(doce.getPreco(), RoundingMode.HALF_UP);
+                colunaCalorias[linha] = doce.getCaloriasPorUnidade();
+                colunaGramas[linha] = doce.getPesoGramas();
+                colunaMinutos[linha] = doce.getTempoPreparoMinutos();
+            }
+
+            centavos = new IndiceOrdenado(colunaCentavos);
+            calorias = new IndiceOrdenado(colunaCalorias);
+            gramas = new IndiceOrdenado(colunaGramas);
+            minutos = new IndiceOrdenado(colunaMinutos);
+        }
+
+        static Snapshot de(List<Doce> doces) {
+            return new Snapshot(doces.stream()
+                .sorted(Comparator.comparing(Doce::getNome, String.CASE_INSENSITIVE_ORDER).thenComparing(Doce::getId))
+                .toList());
+        }
+
+        BitSet filtrarNumericos(Filtro filtro) {
+            BitSet resultado = new BitSet(ids.length);
+            resultado.set(0, ids.length);
+            restringir(resultado, centavos, emCentavos(filtro.precoMinimo(), RoundingMode.CEILING),
+                emCentavos(filtro.precoMaximo(), RoundingMode.FLOOR));
+            restringir(resultado, calorias, filtro.caloriasMinimas(), filtro.caloriasMaximas());
+            restringir(resultado, gramas, filtro.pesoMinimo(), filtro.pesoMaximo());
+            restringir(resultado, minutos, null, filtro.tempoPreparoMaximo());
+            return resultado;
+        }
+
+        private void restringir(BitSet resultado, IndiceOrdenado indice, Integer minimo, Integer maximo) {
+            if (minimo != null || maximo != null) {
+                resultado.and(indice.faixa(minimo != null ? minimo : Integer.MIN_VALUE,
+                    maximo != null ? maximo : Integer.MAX_VALUE, ids.length));
+            }
+        }
+
+        // Limites vêm da requisição: valores fora da faixa de int são saturados em vez de estourar
+        private static Integer emCentavos(BigDecimal valor, RoundingMode arredondamento) {
+            if (valor == null) {
+                return null;
+            }
+            BigDecimal centavos = valor.movePointRight(2).setScale(0, arredondamento);
+            if (centavos.compareTo(MAIOR_INT) > 0) {
+                return Integer.MAX_VALUE;
+            }
+            if (centavos.compareTo(MENOR_INT) < 0) {
+                return Integer.MIN_VALUE;
+            }
+            return centavos.intValue();
+        }
+
+        private static BitSet[] bitmaps(int quantidade, int linhas) {
+            BitSet[] bitmaps = new BitSet[quantidade];
+            for (int i = 0; i < quantidade; i++) {
+                bitmaps[i] = new BitSet(linhas);
+            }
+            return bitmaps;
+        }
+    }
+
+    // Valores não nulos de uma coluna ordenados, com a linha de origem de cada um;
+    // uma faixa vira duas buscas binárias e um BitSet das linhas entre elas
+    private static final class IndiceOrdenado {
+        private final int[] valores;
+        private final int[] linhas;
+
+        IndiceOrdenado(Integer[] coluna) {
+            int[] ordem = IntStream.range(0, coluna.length)
+                .filter(linha -> coluna[linha] != null)
+                .boxed()
+                .sorted(Comparator.comparingInt(linha -> coluna[linha]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+            valores = new int[ordem.length];
+            for (int i = 0; i < ordem.length; i++) {
+                valores[i] = coluna[ordem[i]];
+            }
+            linhas = ordem;
+        }
+
+        BitSet faixa(int minimo, int maximo, int tamanho) {
+            BitSet resultado = new BitSet(tamanho);
+            for (int i = primeiroMaiorOuIgual(minimo); i < valores.length && valores[i] <= maximo; i++) {
+                resultado.set(linhas[i]);
+            }
+            return resultado;
+        }
+
+        private int primeiroMaiorOuIgual(int valor) {
+            int posicao = Arrays.binarySearch(valores, valor);
+            if (posicao < 0) {
+                return -posicao - 1;
+            }
+            // binarySearch não garante a primeira ocorrência entre valores repetidos
+            while (posicao > 0 && valores[posicao - 1] == valor) {
+                posicao--;
+            }
+            return posicao;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.Pedido;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.evento.LinkPagamentoSolicitadoEvento;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Segunda etapa do checkout: cria o link de pagamento depois que pedido e estoque já foram commitados,
+// sem segurar conexão do pool durante a chamada HTTP ao Abacate Pay.
+// O link pendente fica gravado no pedido (linkPagamentoEm): falha no gateway ou reinício da aplicação
+// só atrasam a criação, que o job de retentativa refaz com backoff exponencial.
+@Service
+@Slf4j
+public class CheckoutPagamentoService {
+
+    private final PedidoRepository pedidoRepository;
+    private final AbacatePayService abacatePayService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor pagamentoExecutor;
+    private final Semaphore semaforo;
+    private final AtomicInteger aguardando = new AtomicInteger();
+    private final Timer latencia;
+    private final Counter falhas;
+    private final Duration reserva;
+    private final Duration esperaInicial;
+    private final Duration esperaMaxima;
+    private final int tamanhoLote;
+
+    public CheckoutPagamentoService(PedidoRepository pedidoRepository,
+                                    AbacatePayService abacatePayService,
+                                    TransactionTemplate transactionTemplate,
+                                    @Qualifier("pagamentoExecutor") TaskExecutor pagamentoExecutor,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.checkout.pagamento.max-concorrencia:32}") int maxConcorrencia,
+                                    @Value("${app.checkout.pagamento.reserva:2m}") Duration reserva,
+                                    @Value("${app.checkout.pagamento.espera-inicial:30s}") Duration esperaInicial,
+                                    @Value("${app.checkout.pagamento.espera-maxima:30m}") Duration esperaMaxima,
+                                    @Value("${app.checkout.pagamento.tamanho-lote:100}") int tamanhoLote) {
+        this.pedidoRepository = pedidoRepository;
+        this.abacatePayService = abacatePayService;
+        this.transactionTemplate = transactionTemplate;
+        this.pagamentoExecutor = pagamentoExecutor;
+        this.semaforo = new Semaphore(maxConcorrencia);
+        this.reserva = reserva;
+        this.esperaInicial = esperaInicial;
+        this.esperaMaxima = esperaMaxima;
+        this.tamanhoLote = tamanhoLote;
+        this.latencia = Timer.builder("checkout.pagamento.link")
+            .description("Tempo de criação do link de pagamento no gateway")
+            .register(meterRegistry);
+        this.falhas = Counter.builder("checkout.pagamento.link.falhas")
+            .register(meterRegistry);
+        Gauge.builder("checkout.pagamento.link.aguardando", aguardando, AtomicInteger::get)
+            .register(meterRegistry);
+        Gauge.builder("checkout.pagamento.link.em-andamento", semaforo, s -> maxConcorrencia - s.availablePermits())
+            .register(meterRegistry);
+    }
+
+    @Async("pagamentoExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void criarLinkPagamento(LinkPagamentoSolicitadoEvento evento) {
+        tentarCriarLink(evento.getPedidoId());
+    }
+
+    // Refaz os links cuja primeira tentativa falhou ou se perdeu (ex.: reinício da instância)
+    @Scheduled(fixedDelayString = "${app.checkout.pagamento.intervalo-retentativa-ms:30000}",
+        initialDelayString = "${app.checkout.pagamento.intervalo-retentativa-ms:30000}")
+    public void retentarPendentes() {
+        List<Long> vencidos = pedidoRepository.findIdsComLinkPagamentoPendente(
+            StatusPedido.AGUARDANDO_PAGAMENTO, LocalDateTime.now(), PageRequest.of(0, tamanhoLote));
+        if (!vencidos.isEmpty()) {
+            log.info("Retentando link de pagamento de {} pedidos", vencidos.size());
+        }
+        for (Long pedidoId : vencidos) {
+            pagamentoExecutor.execute(() -> tentarCriarLink(pedidoId));
+        }
+    }
+
+    // Uma tentativa no gateway, só se este worker conseguir a reserva; true quando o link foi gravado
+    public boolean tentarCriarLink(Long pedidoId) {
+        aguardando.incrementAndGet();
+        try {
+            semaforo.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Criação do link de pagamento do pedido {} interrompida", pedidoId);
+            return false;
+        } finally {
+            aguardando.decrementAndGet();
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            LocalDateTime agora = LocalDateTime.now();
+            Integer reservado = transactionTemplate.execute(status -> pedidoRepository.reservarLinkPagamento(
+                pedidoId, StatusPedido.AGUARDANDO_PAGAMENTO, agora, agora.plus(reserva)));
+            if (reservado == null || reservado == 0) {
+                log.debug("Link de pagamento do pedido {} já criado ou em criação", pedidoId);
+                return false;
+            }
+
+            Pedido pedido = transactionTemplate.execute(status -> pedidoRepository.findComItensById(pedidoId)
+                .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId)));
+
+            try {
+                // Chamada externa fora de qualquer transação
+                String paymentLink = abacatePayService.criarLinkPagamento(pedido);
+
+                transactionTemplate.executeWithoutResult(status -> pedidoRepository.atualizarDadosPagamento(
+                    pedidoId, pedido.getAbacateTransactionId(), paymentLink));
+            } catch (Exception e) {
+                falhas.increment();
+                LocalDateTime proximaTentativa = LocalDateTime.now().plus(espera(pedido.getTentativasLinkPagamento()));
+                transactionTemplate.executeWithoutResult(status ->
+                    pedidoRepository.agendarNovaTentativaLink(pedidoId, proximaTentativa));
+                log.error("Erro ao criar link de pagamento para pedido {} (nova tentativa às {}): {}",
+                    pedidoId, proximaTentativa, e.getMessage(), e);
+                return false;
+            }
+
+            log.info("Link de pagamento disponível para pedido {}", pedidoId);
+            return true;
+
+        } catch (Exception e) {
+            // A reserva expira sozinha e o job de retentativa pega o pedido de novo
+            falhas.increment();
+            log.error("Erro ao preparar link de pagamento do pedido {}: {}", pedidoId, e.getMessage(), e);
+            return false;
+        } finally {
+            sample.stop(latencia);
+            semaforo.release();
+        }
+    }
+
+    // esperaInicial * 2^tentativas, limitada a esperaMaxima
+    private Duration espera(Integer tentativas) {
+        int anteriores = tentativas == null ? 0 : tentativas;
+        Duration espera = esperaInicial.multipliedBy(1L << Math.min(anteriores, 20));
+        return espera.compareTo(esperaMaxima) > 0 ? esperaMaxima : espera;
+    }
+}
@@ -1,84 +1,159 @@
 package com.docesamor.morangoamor.service;
 
+import com.docesamor.morangoamor.busca.TextoBusca;
 import com.docesamor.morangoamor.dto.ClienteDTO;
+import com.docesamor.morangoamor.dto.CursorBuscaCliente;
+import com.docesamor.morangoamor.dto.PaginaCursorDTO;
 import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.evento.ClienteAlteradoEvento;
 import com.docesamor.morangoamor.mapper.ClienteMapper;
 import com.docesamor.morangoamor.repository.ClienteRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 @Transactional(readOnly = true)
 public class ClienteService {
 
+    private static final int IDADE_MAXIMA = 150;
+
     private final ClienteRepository clienteRepository;
     private final ClienteMapper clienteMapper;
+    // email normalizado -> id, limitado por app.clientes.cache.tamanho-maximo; sem trava global entre pedidos
+    private final Cache<String, Long> idsPorEmail;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CalendarioClientesService calendarioClientesService;
+    private final BuscaClientesService buscaClientesService;
+    private final boolean contadorEmLote;
+    // clienteId -> entregas confirmadas ainda não gravadas (modo em lote)
+    private final Map<Long, Integer> contadoresPendentes = new ConcurrentHashMap<>();
+
+    public ClienteService(ClienteRepository clienteRepository,
+                          ClienteMapper clienteMapper,
+                          TransactionTemplate transactionTemplate,
+                          ApplicationEventPublisher eventPublisher,
+                          CalendarioClientesService calendarioClientesService,
+                          BuscaClientesService buscaClientesService,
+                          @Value("${app.clientes.cache.tamanho-maximo:10000}") int tamanhoMaximo,
+                          @Value("${app.clientes.contador.em-lote:false}") boolean contadorEmLote) {
+        this.clienteRepository = clienteRepository;
+        this.clienteMapper = clienteMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.calendarioClientesService = calendarioClientesService;
+        this.buscaClientesService = buscaClientesService;
+        this.contadorEmLote = contadorEmLote;
+        this.idsPorEmail = Caffeine.newBuilder()
+            .maximumSize(tamanhoMaximo)
+            .build();
+    }
 
+    // Cliente recorrente: id pelo cache de email e uma leitura por chave primária; só grava se algo mudou.
+    // Cliente novo: a busca por email e um INSERT ... ON CONFLICT ... RETURNING, que também resolve dois
+    // primeiros pedidos simultâneos. O cache só recebe o id depois do commit.
     @Transactional
     public Cliente criarOuAtualizarCliente(ClienteDTO clienteDTO) {
         log.debug("Criando ou atualizando cliente: {}", clienteDTO.getEmail());
         
-        Optional<Cliente> clienteExistente = clienteRepository.findByEmailIgnoreCase(clienteDTO.getEmail());
+        String email = normalizarEmail(clienteDTO.getEmail());
+        Cliente cliente = buscarPorEmailNormalizado(email).orElse(null);
         
-        Cliente cliente;
-        if (clienteExistente.isPresent()) {
-            log.debug("Cliente existente encontrado, atualizando dados: {}", clienteDTO.getEmail());
-            cliente = clienteExistente.get();
-            
-            // Atualiza apenas campos não nulos
-            if (clienteDTO.getNome() != null) {
-                cliente.setNome(clienteDTO.getNome());
-            }
-            if (clienteDTO.getTelefone() != null) {
-                cliente.setTelefone(clienteDTO.getTelefone());
-            }
-            if (clienteDTO.getDataNascimento() != null) {
-                cliente.setDataNascimento(clienteDTO.getDataNascimento());
-            }
-            if (clienteDTO.getEnderecoEntrega() != null) {
-                cliente.setEnderecoEntrega(clienteDTO.getEnderecoEntrega());
-            }
-            if (clienteDTO.getCep() != null) {
-                cliente.setCep(clienteDTO.getCep());
-            }
-            if (clienteDTO.getCidade() != null) {
-                cliente.setCidade(clienteDTO.getCidade());
-            }
-            if (clienteDTO.getEstado() != null) {
-                cliente.setEstado(clienteDTO.getEstado());
-            }
-            if (clienteDTO.getPreferenciasDoces() != null) {
-                cliente.setPreferenciasDoces(clienteDTO.getPreferenciasDoces());
-            }
-            if (clienteDTO.getAlergias() != null) {
-                cliente.setAlergias(clienteDTO.getAlergias());
-            }
-        } else {
-            log.debug("Criando novo cliente: {}", clienteDTO.getEmail());
-            cliente = clienteMapper.toEntity(clienteDTO);
+        if (cliente == null) {
+            Cliente novo = clienteMapper.toEntity(clienteDTO);
+            novo.setEmail(email);
+            novo.atualizarCamposDerivados();
+            cliente = clienteRepository.inserirOuObter(novo);
+            log.info("Cliente {} cadastrado. ID: {}", cliente.getEmail(), cliente.getId());
+            publicarAlteracao(cliente);
         }
         
-        Cliente clienteSalvo = clienteRepository.save(cliente);
-        log.info("Cliente {} salvo com sucesso. ID: {}", clienteSalvo.getEmail(), clienteSalvo.getId());
+        // Também cobre o cadastro concorrente, em que o upsert devolveu a linha de outro pedido
+        if (aplicarAlteracoes(cliente, clienteDTO)) {
+            cliente = clienteRepository.save(cliente);
+            log.info("Cliente {} atualizado. ID: {}", cliente.getEmail(), cliente.getId());
+            publicarAlteracao(cliente);
+        }
         
-        return clienteSalvo;
+        Long id = cliente.getId();
+        aposCommit(() -> idsPorEmail.put(email, id));
+        return cliente;
     }
 
     public Optional<Cliente> buscarClientePorEmail(String email) {
         log.debug("Buscando cliente por email: {}", email);
         
-        return clienteRepository.findByEmailIgnoreCase(email);
+        return buscarPorEmailNormalizado(normalizarEmail(email));
+    }
+
+    private Optional<Cliente> buscarPorEmailNormalizado(String email) {
+        Long id = idsPorEmail.getIfPresent(email);
+        if (id != null) {
+            Optional<Cliente> cliente = clienteRepository.findById(id);
+            if (cliente.isPresent()) {
+                return cliente;
+            }
+            // Cliente removido depois de entrar no cache
+            idsPorEmail.invalidate(email);
+        }
+        return clienteRepository.findPorEmailNormalizado(email);
+    }
+
+    private static String normalizarEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Copia os campos não nulos do DTO; true se algum valor de fato mudou
+    private static boolean aplicarAlteracoes(Cliente cliente, ClienteDTO clienteDTO) {
+        boolean alterado = alterar(cliente.getNome(), clienteDTO.getNome(), cliente::setNome);
+        alterado |= alterar(cliente.getTelefone(), clienteDTO.getTelefone(), cliente::setTelefone);
+        alterado |= alterar(cliente.getDataNascimento(), clienteDTO.getDataNascimento(), cliente::setDataNascimento);
+        alterado |= alterar(cliente.getEnderecoEntrega(), clienteDTO.getEnderecoEntrega(), cliente::setEnderecoEntrega);
+        alterado |= alterar(cliente.getCep(), clienteDTO.getCep(), cliente::setCep);
+        alterado |= alterar(cliente.getCidade(), clienteDTO.getCidade(), cliente::setCidade);
+        alterado |= alterar(cliente.getEstado(), clienteDTO.getEstado(), cliente::setEstado);
+        alterado |= alterar(cliente.getPreferenciasDoces(), clienteDTO.getPreferenciasDoces(), cliente::setPreferenciasDoces);
+        alterado |= alterar(cliente.getAlergias(), clienteDTO.getAlergias(), cliente::setAlergias);
+        return alterado;
+    }
+
+    private void publicarAlteracao(Cliente cliente) {
+        eventPublisher.publishEvent(new ClienteAlteradoEvento(cliente.getId(), cliente.getDataNascimento()));
+    }
+
+    private static <T> boolean alterar(T atual, T novo, Consumer<T> setter) {
+        if (novo == null || novo.equals(atual)) {
+            return false;
+        }
+        setter.accept(novo);
+        return true;
     }
 
     public Optional<Cliente> buscarClientePorId(Long id) {
@@ -96,7 +171,7 @@ public class ClienteService {
     public List<Cliente> buscarClientesPorNome(String nome) {
         log.debug("Buscando clientes por nome: {}", nome);
         
-        return clienteRepository.findByNomeContainingIgnoreCase(nome);
+        return clienteRepository.buscarPorNomeNormalizado(TextoBusca.parcial(TextoBusca.normalizar(nome)));
     }
 
     public List<Cliente> listarClientesVip() {
@@ -126,53 +201,175 @@ public class ClienteService {
     public List<Cliente> buscarAniversariantesHoje() {
         log.debug("Buscando aniversariantes de hoje");
         
-        return clienteRepository.findAniversariantesHoje();
+        LocalDate hoje = LocalDate.now();
+        List<Integer> aniversarios = new ArrayList<>(List.of(Cliente.aniversario(hoje.getMonthValue(), hoje.getDayOfMonth())));
+        // Nascidos em 29/02 comemoram em 28/02 nos anos não bissextos
+        if (hoje.getMonthValue() == 2 && hoje.getDayOfMonth() == 28 && !hoje.isLeapYear()) {
+            aniversarios.add(Cliente.aniversario(2, 29));
+        }
+        return clienteRepository.findByAniversarioIn(aniversarios);
     }
 
+    // Idade completa por intervalo de datas de nascimento, que usa o índice de data_nascimento
     public List<Cliente> buscarClientesPorIdade(int idadeMinima, int idadeMaxima) {
         log.debug("Buscando clientes por faixa de idade: {} a {}", idadeMinima, idadeMaxima);
         
-        return clienteRepository.findByIdadeBetween(idadeMinima, idadeMaxima);
+        LocalDate hoje = LocalDate.now();
+        return clienteRepository.findByDataNascimentoBetween(
+            hoje.minusYears(idadeMaxima + 1L).plusDays(1), hoje.minusYears(idadeMinima));
+    }
+
+    // Seleção para campanhas pelo calendário em memória: aniversariantes de hoje, do mês ou de um dia,
+    // opcionalmente restritos a uma faixa de idade (ou só a faixa, sem mês). Devolve só ids; os clientes
+    // são lidos por percorrerEmLotes.
+    public long[] selecionarParaCampanha(Integer mes, Integer dia, Integer idadeMinima, Integer idadeMaxima) {
+        LocalDate hoje = LocalDate.now();
+        boolean porIdade = idadeMinima != null || idadeMaxima != null;
+        int minima = idadeMinima == null ? 0 : idadeMinima;
+        int maxima = idadeMaxima == null ? IDADE_MAXIMA : idadeMaxima;
+        
+        if (mes == null && dia == null && porIdade) {
+            return calendarioClientesService.porIdade(minima, maxima, hoje);
+        }
+        long[] ids = mes == null ? calendarioClientesService.aniversariantes(hoje)
+            : dia == null ? calendarioClientesService.aniversariantesDoMes(mes)
+            : calendarioClientesService.aniversariantes(MonthDay.of(mes, dia));
+        return porIdade ? calendarioClientesService.filtrarPorIdade(ids, minima, maxima, hoje) : ids;
+    }
+
+    // Lê os clientes em blocos de tamanhoLote, cada bloco numa transação curta e com o contexto de
+    // persistência descartado ao fim; nenhum momento guarda mais que um bloco em memória.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void percorrerEmLotes(long[] ids, int tamanhoLote, Consumer<List<Cliente>> consumidor) {
+        for (int inicio = 0; inicio < ids.length; inicio += tamanhoLote) {
+            List<Long> bloco = new ArrayList<>(Math.min(tamanhoLote, ids.length - inicio));
+            for (int i = inicio; i < Math.min(inicio + tamanhoLote, ids.length); i++) {
+                bloco.add(ids[i]);
+            }
+            List<Cliente> clientes = transactionTemplate.execute(status -> clienteRepository.findAllById(bloco));
+            if (clientes != null && !clientes.isEmpty()) {
+                consumidor.accept(clientes);
+            }
+        }
     }
 
     public List<Cliente> buscarClientesComAlergia(String alergia) {
         log.debug("Buscando clientes com alergia: {}", alergia);
         
-        return clienteRepository.findByAlergiasContainingIgnoreCase(alergia);
+        return clienteRepository.buscarPorAlergiaNormalizada(TextoBusca.parcial(TextoBusca.normalizar(alergia)));
     }
 
     public List<Cliente> buscarClientesComPreferencia(String preferencia) {
         log.debug("Buscando clientes com preferência: {}", preferencia);
         
-        return clienteRepository.findByPreferenciasDocesContainingIgnoreCase(preferencia);
+        return clienteRepository.buscarPorPreferenciaNormalizada(
+            TextoBusca.parcial(TextoBusca.normalizar(preferencia)));
     }
 
-    public Page<Cliente> filtrarClientes(
-            String nome,
-            String email,
-            String cidade,
-            String estado,
-            Boolean clienteVip,
-            Pageable pageable) {
-        
-        log.debug("Filtrando clientes - nome: {}, email: {}, cidade: {}, estado: {}, VIP: {}", 
-            nome, email, cidade, estado, clienteVip);
+    // Busca administrativa ranqueada (BuscaClientesService) paginada por cursor; um resultado a mais
+    // indica se existe próxima página, sem COUNT
+    public PaginaCursorDTO<ClienteDTO> filtrarClientes(BuscaClientesService.Filtro filtro, String cursor, int tamanho) {
+        log.debug("Filtrando clientes - {}", filtro);
+        
+        CursorBuscaCliente posicao = cursor != null && !cursor.isBlank() ? CursorBuscaCliente.decodificar(cursor) : null;
+        List<BuscaClientesService.Resultado> resultados = buscaClientesService.buscar(filtro, posicao, tamanho + 1);
+        boolean temProxima = resultados.size() > tamanho;
+        if (temProxima) {
+            resultados = resultados.subList(0, tamanho);
+        }
         
-        return clienteRepository.findWithFilters(nome, email, cidade, estado, clienteVip, pageable);
+        Map<Long, Cliente> clientes = clienteRepository.findAllById(
+                resultados.stream().map(BuscaClientesService.Resultado::id).toList()).stream()
+            .collect(Collectors.toMap(Cliente::getId, cliente -> cliente));
+        List<ClienteDTO> itens = resultados.stream()
+            .map(resultado -> clientes.get(resultado.id()))
+            .filter(Objects::nonNull)
+            .map(clienteMapper::toDTO)
+            .toList();
+        
+        BuscaClientesService.Resultado ultimo = temProxima ? resultados.get(resultados.size() - 1) : null;
+        String proximoCursor = ultimo != null ? new CursorBuscaCliente(ultimo.pontuacao(), ultimo.id()).codificar() : null;
+        return new PaginaCursorDTO<>(itens, proximoCursor, null);
     }
 
+    // Conta uma entrega para o cliente. Imediato: um UPDATE atômico que devolve os novos valores, também
+    // copiados para a entidade carregada. Em lote: a entrega é acumulada após o commit e gravada no próximo
+    // flush (várias entregas do mesmo cliente viram um UPDATE); nesse caso devolve vazio.
     @Transactional
-    public void incrementarPedidosCliente(String email) {
-        log.debug("Incrementando contador de pedidos para cliente: {}", email);
-        
-        Cliente cliente = clienteRepository.findByEmailIgnoreCase(email)
-            .orElseThrow(() -> new RuntimeException("Cliente não encontrado: " + email));
+    public Optional<ContadorPedidos> incrementarPedidosCliente(Cliente cliente) {
+        if (contadorEmLote) {
+            Long clienteId = cliente.getId();
+            aposCommit(() -> contadoresPendentes.merge(clienteId, 1, Integer::sum));
+            return Optional.empty();
+        }
         
-        cliente.incrementarPedidos();
-        clienteRepository.save(cliente);
+        ContadorPedidos contador = incrementar(cliente.getId(), 1)
+            .orElseThrow(() -> new RuntimeException("Cliente não encontrado: " + cliente.getId()));
+        cliente.setTotalPedidos(contador.totalPedidos());
+        cliente.setClienteVip(contador.clienteVip());
         
         log.info("Contador de pedidos incrementado para cliente {}. Total: {}, VIP: {}", 
-            email, cliente.getTotalPedidos(), cliente.getClienteVip());
+            cliente.getEmail(), contador.totalPedidos(), contador.clienteVip());
+        return Optional.of(contador);
+    }
+
+    // Fora do readOnly da classe: o lote abre sua própria transação de escrita pelo transactionTemplate
+    @Scheduled(fixedDelayString = "${app.clientes.contador.intervalo-flush-ms:2000}")
+    @PreDestroy
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void gravarContadoresPendentes() {
+        if (contadoresPendentes.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> lote = new HashMap<>();
+        for (Long clienteId : List.copyOf(contadoresPendentes.keySet())) {
+            Integer quantidade = contadoresPendentes.remove(clienteId);
+            if (quantidade != null) {
+                lote.put(clienteId, quantidade);
+            }
+        }
+        
+        // Ordem de id: flushes concorrentes travam as linhas na mesma sequência
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                new TreeMap<>(lote).forEach(this::incrementar));
+        } catch (RuntimeException e) {
+            // Rollback: devolve o lote para o próximo ciclo, somando ao que chegou nesse meio tempo
+            lote.forEach((clienteId, quantidade) -> contadoresPendentes.merge(clienteId, quantidade, Integer::sum));
+            log.error("Erro ao gravar contadores de pedidos de {} clientes; nova tentativa no próximo ciclo: {}",
+                lote.size(), e.getMessage(), e);
+            return;
+        }
+        log.info("Contadores de pedidos gravados para {} clientes", lote.size());
+    }
+
+    private Optional<ContadorPedidos> incrementar(Long clienteId, int quantidade) {
+        List<Object[]> linhas = clienteRepository.incrementarPedidos(clienteId, quantidade, Cliente.PEDIDOS_PARA_VIP);
+        if (linhas.isEmpty()) {
+            return Optional.empty();
+        }
+        ContadorPedidos contador = new ContadorPedidos(((Number) linhas.get(0)[0]).intValue(), (Boolean) linhas.get(0)[1]);
+        if (contador.clienteVip() && contador.totalPedidos() - quantidade < Cliente.PEDIDOS_PARA_VIP) {
+            log.info("Cliente {} promovido a VIP com {} pedidos", clienteId, contador.totalPedidos());
+        }
+        return Optional.of(contador);
+    }
+
+    // Executa a ação só se a transação atual for confirmada (imediatamente quando não há transação)
+    private static void aposCommit(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+
+    public record ContadorPedidos(int totalPedidos, boolean clienteVip) {
     }
 
     public boolean existeClientePorEmail(String email) {
@@ -198,7 +395,7 @@ public class ClienteService {
     public List<Cliente> listarClientesInativos(int diasSemAtividade) {
         log.debug("Listando clientes inativos há mais de {} dias", diasSemAtividade);
         
-        LocalDate dataLimite = LocalDate.now().minusDays(diasSemAtividade);
+        LocalDateTime dataLimite = LocalDate.now().minusDays(diasSemAtividade).atStartOfDay();
         return clienteRepository.findClientesInativos(dataLimite);
     }
 
@@ -240,37 +437,14 @@ public class ClienteService {
         Cliente cliente = clienteRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Cliente não encontrado: " + id));
         
-        // Atualiza campos não nulos
-        if (clienteDTO.getNome() != null) {
-            cliente.setNome(clienteDTO.getNome());
-        }
-        if (clienteDTO.getTelefone() != null) {
-            cliente.setTelefone(clienteDTO.getTelefone());
-        }
-        if (clienteDTO.getDataNascimento() != null) {
-            cliente.setDataNascimento(clienteDTO.getDataNascimento());
-        }
-        if (clienteDTO.getEnderecoEntrega() != null) {
-            cliente.setEnderecoEntrega(clienteDTO.getEnderecoEntrega());
-        }
-        if (clienteDTO.getCep() != null) {
-            cliente.setCep(clienteDTO.getCep());
-        }
-        if (clienteDTO.getCidade() != null) {
-            cliente.setCidade(clienteDTO.getCidade());
-        }
-        if (clienteDTO.getEstado() != null) {
-            cliente.setEstado(clienteDTO.getEstado());
-        }
-        if (clienteDTO.getPreferenciasDoces() != null) {
-            cliente.setPreferenciasDoces(clienteDTO.getPreferenciasDoces());
-        }
-        if (clienteDTO.getAlergias() != null) {
-            cliente.setAlergias(clienteDTO.getAlergias());
+        if (!aplicarAlteracoes(cliente, clienteDTO)) {
+            log.debug("Cliente {} sem alterações", id);
+            return cliente;
         }
         
         Cliente clienteAtualizado = clienteRepository.save(cliente);
         log.info("Cliente {} atualizado com sucesso", clienteAtualizado.getEmail());
+        publicarAlteracao(clienteAtualizado);
         
         return clienteAtualizado;
     }
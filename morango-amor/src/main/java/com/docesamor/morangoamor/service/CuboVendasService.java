@@ -0,0 +1,291 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.LinhaAnaliseDTO;
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
+import com.docesamor.morangoamor.repository.ItemPedidoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Cubo de vendas pré-agregado (pedidos entregues, como nas consultas do ItemPedidoRepository):
+// célula = período × doce × tipo × sabor × forma de pagamento; medidas = quantidade, receita em centavos,
+// itens e itens personalizados. As últimas horas ficam em células horárias; a compactação move as mais
+// antigas para células diárias e para um perfil por hora do dia (sem data), que atende HORA_DO_DIA.
+@Service
+@Slf4j
+public class CuboVendasService {
+
+    public enum Dimensao {
+        DIA, DIA_SEMANA, HORA_DO_DIA, DOCE, TIPO, SABOR, FORMA_PAGAMENTO
+    }
+
+    // Filtros nulos não restringem; inicio/fim valem por hora nas células horárias e por dia nas diárias
+    public record Consulta(
+        List<Dimensao> dimensoes,
+        LocalDateTime inicio,
+        LocalDateTime fim,
+        Long doceId,
+        TipoDoce tipo,
+        SaborMorango sabor,
+        FormaPagamento formaPagamento,
+        int limite) {
+    }
+
+    private final ItemPedidoRepository itemPedidoRepository;
+    private final long horasDetalhe;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // período = hora desde a época
+    private final Map<Celula, Medidas> horarias = new HashMap<>();
+    // período = dia desde a época
+    private final Map<Celula, Medidas> diarias = new HashMap<>();
+    // período = hora do dia (0-23), acumulado de todas as células compactadas
+    private final Map<Celula, Medidas> perfilHorario = new HashMap<>();
+
+    public CuboVendasService(ItemPedidoRepository itemPedidoRepository,
+                             @Value("${app.analises.horas-detalhe:48}") long horasDetalhe) {
+        this.itemPedidoRepository = itemPedidoRepository;
+        this.horasDetalhe = horasDetalhe;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        long comeco = System.currentTimeMillis();
+        List<Object[]> linhas = itemPedidoRepository.agregarParaCubo();
+
+        lock.writeLock().lock();
+        try {
+            horarias.clear();
+            diarias.clear();
+            perfilHorario.clear();
+            linhas.forEach(this::somarLinha);
+            compactarAte(limiteDetalhe());
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Cubo de vendas reconstruído: {} linhas agregadas em {} ms", linhas.size(), System.currentTimeMillis() - comeco);
+    }
+
+    // ENTREGUE é final, então cada pedido entra no cubo uma única vez
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void registrar(TransicaoPedidoEvento evento) {
+        if (evento.getStatusAtual() != StatusPedido.ENTREGUE || evento.getStatusAnterior() == StatusPedido.ENTREGUE) {
+            return;
+        }
+        List<Object[]> linhas = itemPedidoRepository.agregarPedidoParaCubo(evento.getPedidoId());
+
+        lock.writeLock().lock();
+        try {
+            linhas.forEach(this::somarLinha);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.analises.intervalo-compactacao-ms:3600000}",
+               initialDelayString = "${app.analises.intervalo-compactacao-ms:3600000}")
+    public void compactar() {
+        lock.writeLock().lock();
+        try {
+            int antes = horarias.size();
+            compactarAte(limiteDetalhe());
+            log.debug("Cubo de vendas compactado: {} células horárias movidas", antes - horarias.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<LinhaAnaliseDTO> consultar(Consulta consulta) {
+        boolean porHoraDoDia = consulta.dimensoes().contains(Dimensao.HORA_DO_DIA);
+        boolean porData = consulta.dimensoes().contains(Dimensao.DIA) || consulta.dimensoes().contains(Dimensao.DIA_SEMANA);
+
+        lock.readLock().lock();
+        try {
+            long limite = limiteDetalhe();
+            // O perfil por hora do dia não guarda a data: com período ou dimensões de data, só o detalhe horário serve
+            if (porHoraDoDia && (porData || consulta.inicio() != null || consulta.fim() != null)) {
+                if (consulta.inicio() == null || horaDesdeEpoca(consulta.inicio()) < limite) {
+                    throw new IllegalArgumentException(
+                        "HORA_DO_DIA com período ou data só está disponível para as últimas " + horasDetalhe + " horas");
+                }
+            }
+
+            Map<List<Object>, Medidas> grupos = new HashMap<>();
+            agrupar(horarias, Granularidade.HORA, consulta, grupos);
+            if (porHoraDoDia) {
+                if (!porData && consulta.inicio() == null && consulta.fim() == null) {
+                    agrupar(perfilHorario, Granularidade.HORA_DO_DIA, consulta, grupos);
+                }
+            } else {
+                agrupar(diarias, Granularidade.DIA, consulta, grupos);
+            }
+
+            return grupos.entrySet().stream()
+                .sorted(Map.Entry.<List<Object>, Medidas>comparingByValue(
+                    Comparator.comparingLong((Medidas medidas) -> medidas.quantidade).reversed()))
+                .limit(consulta.limite())
+                .map(grupo -> paraLinha(consulta.dimensoes(), grupo.getKey(), grupo.getValue()))
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void agrupar(Map<Celula, Medidas> celulas, Granularidade granularidade, Consulta consulta,
+                         Map<List<Object>, Medidas> grupos) {
+        for (Map.Entry<Celula, Medidas> entrada : celulas.entrySet()) {
+            Celula celula = entrada.getKey();
+            if (!atende(celula, granularidade, consulta)) {
+                continue;
+            }
+            List<Object> chave = new ArrayList<>(consulta.dimensoes().size());
+            for (Dimensao dimensao : consulta.dimensoes()) {
+                chave.add(valor(dimensao, celula, granularidade));
+            }
+            grupos.computeIfAbsent(chave, c -> new Medidas()).somar(entrada.getValue());
+        }
+    }
+
+    private boolean atende(Celula celula, Granularidade granularidade, Consulta consulta) {
+        if ((consulta.doceId() != null && celula.doceId() != consulta.doceId())
+                || (consulta.tipo() != null && celula.tipo() != consulta.tipo())
+                || (consulta.sabor() != null && celula.sabor() != consulta.sabor())
+                || (consulta.formaPagamento() != null && celula.forma() != consulta.formaPagamento())) {
+            return false;
+        }
+        return switch (granularidade) {
+            case HORA -> (consulta.inicio() == null || celula.periodo() >= horaDesdeEpoca(consulta.inicio()))
+                && (consulta.fim() == null || celula.periodo() <= horaDesdeEpoca(consulta.fim()));
+            case DIA -> (consulta.inicio() == null || celula.periodo() >= consulta.inicio().toLocalDate().toEpochDay())
+                && (consulta.fim() == null || celula.periodo() <= consulta.fim().toLocalDate().toEpochDay());
+            case HORA_DO_DIA -> true;
+        };
+    }
+
+    private static Object valor(Dimensao dimensao, Celula celula, Granularidade granularidade) {
+        return switch (dimensao) {
+            case DOCE -> celula.doceId();
+            case TIPO -> celula.tipo();
+            case SABOR -> celula.sabor();
+            case FORMA_PAGAMENTO -> celula.forma();
+            case DIA -> dia(celula, granularidade);
+            case DIA_SEMANA -> dia(celula, granularidade).getDayOfWeek();
+            case HORA_DO_DIA -> granularidade == Granularidade.HORA
+                ? (int) Math.floorMod(celula.periodo(), 24L) : (int) celula.periodo();
+        };
+    }
+
+    private static LocalDate dia(Celula celula, Granularidade granularidade) {
+        return LocalDate.ofEpochDay(granularidade == Granularidade.HORA
+            ? Math.floorDiv(celula.periodo(), 24L) : celula.periodo());
+    }
+
+    private static LinhaAnaliseDTO paraLinha(List<Dimensao> dimensoes, List<Object> chave, Medidas medidas) {
+        Map<String, Object> valores = new LinkedHashMap<>();
+        for (int i = 0; i < dimensoes.size(); i++) {
+            valores.put(dimensoes.get(i).name(), chave.get(i));
+        }
+        return new LinhaAnaliseDTO(valores, medidas.quantidade, BigDecimal.valueOf(medidas.receitaCentavos, 2),
+            medidas.itens, medidas.itensPersonalizados);
+    }
+
+    // Linha no formato de agregarParaCubo: doce, tipo, sabor, forma, dia, hora, quantidade, receita, itens, personalizados
+    private void somarLinha(Object[] linha) {
+        long hora = paraLocalDate(linha[4]).toEpochDay() * 24 + ((Number) linha[5]).intValue();
+        Celula celula = new Celula(hora, (Long) linha[0], (TipoDoce) linha[1], (SaborMorango) linha[2], (FormaPagamento) linha[3]);
+
+        Medidas medidas = new Medidas();
+        medidas.quantidade = ((Number) linha[6]).longValue();
+        medidas.receitaCentavos = emCentavos((BigDecimal) linha[7]);
+        medidas.itens = ((Number) linha[8]).longValue();
+        medidas.itensPersonalizados = ((Number) linha[9]).longValue();
+
+        horarias.computeIfAbsent(celula, c -> new Medidas()).somar(medidas);
+    }
+
+    private void compactarAte(long limite) {
+        Iterator<Map.Entry<Celula, Medidas>> iterator = horarias.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Celula, Medidas> entrada = iterator.next();
+            Celula celula = entrada.getKey();
+            if (celula.periodo() >= limite) {
+                continue;
+            }
+            diarias.computeIfAbsent(celula.comPeriodo(Math.floorDiv(celula.periodo(), 24L)), c -> new Medidas())
+                .somar(entrada.getValue());
+            perfilHorario.computeIfAbsent(celula.comPeriodo(Math.floorMod(celula.periodo(), 24L)), c -> new Medidas())
+                .somar(entrada.getValue());
+            iterator.remove();
+        }
+    }
+
+    private long limiteDetalhe() {
+        return horaDesdeEpoca(LocalDateTime.now()) - horasDetalhe;
+    }
+
+    private static long horaDesdeEpoca(LocalDateTime instante) {
+        return Math.floorDiv(instante.toEpochSecond(ZoneOffset.UTC), 3600L);
+    }
+
+    private static long emCentavos(BigDecimal valor) {
+        return valor == null ? 0 : valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static LocalDate paraLocalDate(Object valor) {
+        if (valor instanceof LocalDate data) {
+            return data;
+        }
+        return ((Date) valor).toLocalDate();
+    }
+
+    private enum Granularidade {
+        HORA, DIA, HORA_DO_DIA
+    }
+
+    private record Celula(long periodo, long doceId, TipoDoce tipo, SaborMorango sabor, FormaPagamento forma) {
+
+        Celula comPeriodo(long novoPeriodo) {
+            return new Celula(novoPeriodo, doceId, tipo, sabor, forma);
+        }
+    }
+
+    private static final class Medidas {
+        private long quantidade;
+        private long receitaCentavos;
+        private long itens;
+        private long itensPersonalizados;
+
+        void somar(Medidas outras) {
+            quantidade += outras.quantidade;
+            receitaCentavos += outras.receitaCentavos;
+            itens += outras.itens;
+            itensPersonalizados += outras.itensPersonalizados;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.CupomDTO;
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.entity.Cupom;
+import com.docesamor.morangoamor.entity.TipoCupom;
+import com.docesamor.morangoamor.evento.CupomAlteradoEvento;
+import com.docesamor.morangoamor.mapper.CupomMapper;
+import com.docesamor.morangoamor.repository.CupomRepository;
+import com.docesamor.morangoamor.service.PrecificacaoService.Desconto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Cupons de desconto guardados no banco e compilados numa tabela imutável em memória (código -> regra),
+// trocada inteira quando um cupom muda e periodicamente (alterações feitas por outras instâncias).
+// Validade, VIP e valor mínimo são checados só em memória; o banco só é tocado para consumir o uso,
+// com UPDATE/upsert condicionais que nunca deixam passar do limite global nem do limite por cliente.
+// Cupons sem limite global não travam a linha do cupom: o uso é contado em memória após o commit do pedido
+// (LongAdder por cupom) e somado a usos_realizados em lote, fora da transação do pedido.
+@Service
+@Slf4j
+public class CupomService {
+
+    private final CupomRepository cupomRepository;
+    private final CupomMapper cupomMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Map<String, Regra> regras = Map.of();
+    // Cupons cujo limite global já foi atingido; evita ir ao banco até a próxima recarga
+    private final Set<Long> esgotados = ConcurrentHashMap.newKeySet();
+    // Usos confirmados de cupons sem limite global ainda não somados no banco
+    private final Map<Long, LongAdder> usosNaoGravados = new ConcurrentHashMap<>();
+
+    public CupomService(CupomRepository cupomRepository,
+                        CupomMapper cupomMapper,
+                        ApplicationEventPublisher eventPublisher,
+                        TransactionTemplate transactionTemplate,
+                        MeterRegistry meterRegistry) {
+        this.cupomRepository = cupomRepository;
+        this.cupomMapper = cupomMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        Gauge.builder("cupons.ativos", this, servico -> servico.regras.size()).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.cupons.intervalo-recarga-ms:60000}",
+        initialDelayString = "${app.cupons.intervalo-recarga-ms:60000}")
+    public void recarregar() {
+        Map<String, Regra> novas = cupomRepository.findByAtivoTrue().stream()
+            .map(this::compilar)
+            .collect(Collectors.toUnmodifiableMap(Regra::codigo, Function.identity()));
+        esgotados.clear();
+        novas.values().stream()
+            .filter(regra -> regra.limiteUsos() != null && regra.usosNaCarga() >= regra.limiteUsos())
+            .forEach(regra -> esgotados.add(regra.id()));
+        regras = novas;
+        log.debug("Tabela de cupons recarregada: {} cupons ativos", novas.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoAlterarCupom(CupomAlteradoEvento evento) {
+        recarregar();
+    }
+
+    // Desconto do cupom para este cliente e total de itens, já consumindo um uso dentro da transação do pedido.
+    // Cupom inválido, fora da validade ou esgotado não impede o pedido: apenas não há desconto.
+    // Com limite global, o UPDATE trava a linha do cupom até o commit: chame por último na transação.
+    @Transactional
+    public Desconto aplicar(String codigo, Cliente cliente, long totalItensCentavos) {
+        Regra regra = regras.get(normalizar(codigo));
+        if (regra == null) {
+            log.warn("Cupom de desconto inválido: {}", codigo);
+            return Desconto.NENHUM;
+        }
+
+        String motivo = regra.motivoRecusa(cliente, totalItensCentavos, LocalDateTime.now());
+        if (motivo == null && esgotados.contains(regra.id())) {
+            motivo = "limite de usos atingido";
+        }
+        if (motivo == null) {
+            motivo = consumir(regra, cliente.getId());
+        }
+        if (motivo != null) {
+            log.info("Cupom {} não aplicado ao cliente {}: {}", regra.codigo(), cliente.getEmail(), motivo);
+            return Desconto.NENHUM;
+        }
+        return regra.desconto();
+    }
+
+    private String consumir(Regra regra, Long clienteId) {
+        if (regra.limitePorCliente() != null
+                && cupomRepository.consumirUsoCliente(regra.id(), clienteId, regra.limitePorCliente()).isEmpty()) {
+            return "limite por cliente atingido";
+        }
+        if (regra.limiteUsos() == null) {
+            contarUsoAposCommit(regra.id());
+            return null;
+        }
+        if (cupomRepository.consumirUso(regra.id()).isEmpty()) {
+            esgotados.add(regra.id());
+            if (regra.limitePorCliente() != null) {
+                cupomRepository.devolverUsoCliente(regra.id(), clienteId);
+            }
+            return "limite de usos atingido";
+        }
+        return null;
+    }
+
+    // Soma os usos contados em memória; em caso de falha eles voltam ao contador para o próximo ciclo
+    @Scheduled(fixedDelayString = "${app.cupons.intervalo-gravacao-usos-ms:5000}")
+    @PreDestroy
+    public void gravarUsos() {
+        Map<Long, Long> lote = new TreeMap<>();
+        usosNaoGravados.forEach((cupomId, usos) -> {
+            long quantidade = usos.sum();
+            if (quantidade > 0) {
+                // Subtrai só o que foi lido: usos somados em paralelo continuam no contador
+                usos.add(-quantidade);
+                lote.put(cupomId, quantidade);
+            }
+        });
+        if (lote.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> lote.forEach(cupomRepository::somarUsos));
+        } catch (RuntimeException e) {
+            lote.forEach((cupomId, quantidade) ->
+                usosNaoGravados.computeIfAbsent(cupomId, id -> new LongAdder()).add(quantidade));
+            log.error("Erro ao gravar usos de {} cupons; nova tentativa no próximo ciclo: {}",
+                lote.size(), e.getMessage(), e);
+            return;
+        }
+        log.debug("Usos gravados para {} cupons sem limite global", lote.size());
+    }
+
+    private void contarUsoAposCommit(Long cupomId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            usosNaoGravados.computeIfAbsent(cupomId, id -> new LongAdder()).increment();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                usosNaoGravados.computeIfAbsent(cupomId, id -> new LongAdder()).increment();
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<CupomDTO> listarCupons() {
+        return cupomRepository.findAll().stream()
+            .map(cupomMapper::toDTO)
+            .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public CupomDTO buscarCupom(String codigo) {
+        return cupomRepository.findByCodigo(normalizar(codigo))
+            .map(cupomMapper::toDTO)
+            .orElseThrow(() -> new RuntimeException("Cupom não encontrado: " + codigo));
+    }
+
+    @Transactional
+    public CupomDTO criarCupom(CupomDTO cupomDTO) {
+        String codigo = normalizar(cupomDTO.getCodigo());
+        if (cupomRepository.existsByCodigo(codigo)) {
+            throw new IllegalArgumentException("Já existe um cupom com o código " + codigo);
+        }
+        Cupom cupom = new Cupom();
+        cupomMapper.atualizar(cupomDTO, cupom);
+        cupom.setCodigo(codigo);
+        return salvar(cupom);
+    }
+
+    @Transactional
+    public CupomDTO atualizarCupom(Long id, CupomDTO cupomDTO) {
+        Cupom cupom = cupomRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Cupom não encontrado: " + id));
+        String codigo = normalizar(cupomDTO.getCodigo());
+        if (!codigo.equals(cupom.getCodigo()) && cupomRepository.existsByCodigo(codigo)) {
+            throw new IllegalArgumentException("Já existe um cupom com o código " + codigo);
+        }
+        cupomMapper.atualizar(cupomDTO, cupom);
+        cupom.setCodigo(codigo);
+        return salvar(cupom);
+    }
+
+    @Transactional
+    public void desativarCupom(Long id) {
+        Cupom cupom = cupomRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Cupom não encontrado: " + id));
+        cupom.setAtivo(false);
+        salvar(cupom);
+    }
+
+    private CupomDTO salvar(Cupom cupom) {
+        if (cupom.getAtivo() == null) {
+            cupom.setAtivo(true);
+        }
+        if (cupom.getApenasVip() == null) {
+            cupom.setApenasVip(false);
+        }
+        validar(cupom);
+        Cupom salvo = cupomRepository.save(cupom);
+        eventPublisher.publishEvent(new CupomAlteradoEvento(salvo.getId()));
+        log.info("Cupom {} salvo (ativo: {})", salvo.getCodigo(), salvo.getAtivo());
+        return cupomMapper.toDTO(salvo);
+    }
+
+    private void validar(Cupom cupom) {
+        if (cupom.getTipo() == TipoCupom.PERCENTUAL && cupom.getValor().compareTo(BigDecimal.valueOf(100)) > 0) {
+            throw new IllegalArgumentException("Percentual de desconto não pode passar de 100");
+        }
+        if (cupom.getValidoDe() != null && cupom.getValidoAte() != null
+                && cupom.getValidoAte().isBefore(cupom.getValidoDe())) {
+            throw new IllegalArgumentException("Fim da validade anterior ao início");
+        }
+    }
+
+    private Regra compilar(Cupom cupom) {
+        Desconto desconto = cupom.getTipo() == TipoCupom.PERCENTUAL
+            ? Desconto.percentual(cupom.getValor().movePointRight(2).intValue())
+            : Desconto.fixo(PrecificacaoService.emCentavos(cupom.getValor()));
+        // Sem valor mínimo cadastrado o cupom vale para qualquer total, como os cupons fixos de antes
+        long minimo = cupom.getValorMinimoPedido() != null
+            ? PrecificacaoService.emCentavos(cupom.getValorMinimoPedido()) : 0;
+        return new Regra(cupom.getId(), cupom.getCodigo(), desconto, Boolean.TRUE.equals(cupom.getApenasVip()),
+            minimo, cupom.getLimiteUsos(), cupom.getLimitePorCliente(), cupom.getUsosRealizados(),
+            cupom.getValidoDe(), cupom.getValidoAte());
+    }
+
+    private static String normalizar(String codigo) {
+        return codigo == null ? "" : codigo.trim().toUpperCase();
+    }
+
+    private record Regra(
+        Long id,
+        String codigo,
+        Desconto desconto,
+        boolean apenasVip,
+        long valorMinimoCentavos,
+        Integer limiteUsos,
+        Integer limitePorCliente,
+        int usosNaCarga,
+        LocalDateTime validoDe,
+        LocalDateTime validoAte) {
+
+        String motivoRecusa(Cliente cliente, long totalItensCentavos, LocalDateTime agora) {
+            if (validoDe != null && agora.isBefore(validoDe)) {
+                return "cupom ainda não vigente";
+            }
+            if (validoAte != null && agora.isAfter(validoAte)) {
+                return "cupom expirado";
+            }
+            if (apenasVip && !Boolean.TRUE.equals(cliente.getClienteVip())) {
+                return "cupom exclusivo para clientes VIP";
+            }
+            if (totalItensCentavos < valorMinimoCentavos) {
+                return "valor mínimo do pedido não atingido";
+            }
+            return null;
+        }
+    }
+}
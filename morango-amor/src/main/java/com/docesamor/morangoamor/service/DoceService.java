@@ -1,13 +1,16 @@
 package com.docesamor.morangoamor.service;
 
+import com.docesamor.morangoamor.dto.CatalogoFacetadoDTO;
 import com.docesamor.morangoamor.dto.DoceDTO;
 import com.docesamor.morangoamor.entity.Doce;
 import com.docesamor.morangoamor.entity.SaborMorango;
 import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.evento.DoceAlteradoEvento;
 import com.docesamor.morangoamor.mapper.DoceMapper;
 import com.docesamor.morangoamor.repository.DoceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -15,10 +18,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+// Listagens fixas do catálogo (disponíveis, tipo, sabor, promoções, populares, estoque baixo, por id)
+// passam pelo CatalogoCacheService; buscas livres e faixas continuam indo ao banco
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -27,6 +37,12 @@ public class DoceService {
 
     private final DoceRepository doceRepository;
     private final DoceMapper doceMapper;
+    private final CatalogoCacheService cache;
+    private final IndiceBuscaDoceService indiceBusca;
+    private final CatalogoColunarService catalogoColunar;
+    private final RankingVendasService rankingVendas;
+    private final MonitorEstoqueService monitorEstoque;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Page<DoceDTO> listarDoces(
             TipoDoce tipo,
@@ -48,35 +64,39 @@ public class DoceService {
     public Optional<DoceDTO> buscarDocePorId(Long id) {
         log.debug("Buscando doce por ID: {}", id);
         
-        return doceRepository.findById(id)
-            .map(doceMapper::toDTO);
+        return cache.obter(CatalogoCacheService.porId(id), () -> doceRepository.findById(id)
+                .map(doceMapper::toDTO)
+                .map(List::of)
+                .orElse(List.of()))
+            .stream()
+            .findFirst();
     }
 
     public List<DoceDTO> listarDocesDisponiveis() {
         log.debug("Listando doces disponíveis");
         
-        return doceRepository.findByDisponivelTrue()
+        return cache.obter(CatalogoCacheService.DISPONIVEIS, () -> doceRepository.findByDisponivelTrue()
             .stream()
             .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
 
     public List<DoceDTO> listarDocesPorTipo(TipoDoce tipo) {
         log.debug("Listando doces por tipo: {}", tipo);
         
-        return doceRepository.findByTipoAndDisponivelTrue(tipo)
+        return cache.obter(CatalogoCacheService.porTipo(tipo), () -> doceRepository.findByTipoAndDisponivelTrue(tipo)
             .stream()
             .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
 
     public List<DoceDTO> listarDocesPorSabor(SaborMorango sabor) {
         log.debug("Listando doces por sabor: {}", sabor);
         
-        return doceRepository.findBySaborAndDisponivelTrue(sabor)
+        return cache.obter(CatalogoCacheService.porSabor(sabor), () -> doceRepository.findBySaborAndDisponivelTrue(sabor)
             .stream()
             .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
 
     public List<DoceDTO> listarDocesPromocao() {
@@ -85,32 +105,46 @@ public class DoceService {
         // Considera doces com preço abaixo de R$ 15,00 como promoção
         BigDecimal precoPromocao = new BigDecimal("15.00");
         
-        return doceRepository.findDocesEmPromocao(precoPromocao)
+        return cache.obter(CatalogoCacheService.PROMOCOES, () -> doceRepository.findDocesEmPromocao(precoPromocao)
             .stream()
             .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
 
-    public List<DoceDTO> listarDocesPopulares() {
-        log.debug("Listando doces populares");
+    public List<DoceDTO> listarDocesPopulares(RankingVendasService.Janela janela, int limite) {
+        log.debug("Listando doces populares - janela: {}", janela);
+        
+        // Mais vendidos vêm do ranking em memória; cada doce sai do cache do catálogo
+        long[] ids = rankingVendas.maisVendidos(janela, limite);
+        if (ids.length > 0) {
+            List<DoceDTO> populares = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                buscarDocePorId(id)
+                    .filter(doce -> Boolean.TRUE.equals(doce.getDisponivel()))
+                    .ifPresent(populares::add);
+            }
+            return populares;
+        }
         
-        // Retorna os 10 doces mais recentes como "populares"
-        // Em uma implementação real, seria baseado em vendas
+        // Sem vendas na janela: mostra os lançamentos mais recentes
         Pageable pageable = PageRequest.of(0, 10);
-        
-        return doceRepository.findDocesPopulares(pageable)
+        return cache.obter(CatalogoCacheService.POPULARES, () -> doceRepository.findDocesPopulares(pageable)
             .stream()
             .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
 
     public List<DoceDTO> listarDocesEstoqueBaixo() {
         log.debug("Listando doces com estoque baixo");
         
-        return doceRepository.findDocesComEstoqueBaixo()
-            .stream()
-            .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+        // Conjunto mantido pelo monitor a cada reserva/devolução; cada doce sai do cache do catálogo
+        List<DoceDTO> doces = new ArrayList<>();
+        for (Long id : monitorEstoque.docesComEstoqueBaixo()) {
+            buscarDocePorId(id)
+                .filter(doce -> Boolean.TRUE.equals(doce.getDisponivel()))
+                .ifPresent(doces::add);
+        }
+        return doces;
     }
 
     public List<DoceDTO> buscarDocesPorNome(String nome) {
@@ -131,38 +165,82 @@ public class DoceService {
             .collect(Collectors.toList());
     }
 
-    public List<DoceDTO> listarDocesPorFaixaPreco(BigDecimal precoMinimo, BigDecimal precoMaximo) {
-        log.debug("Listando doces por faixa de preço: {} a {}", precoMinimo, precoMaximo);
+    // Busca ranqueada pelo índice em memória (sem acentos, tolerante a erros); ordem do ranking preservada
+    public List<DoceDTO> buscarDocesIndexados(String consulta, int limite) {
+        log.debug("Buscando doces no índice: {}", consulta);
         
-        return doceRepository.findByPrecoBetweenAndDisponivelTrue(precoMinimo, precoMaximo)
-            .stream()
+        List<Long> ids = indiceBusca.buscar(consulta, limite);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<Long, Doce> doces = doceRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Doce::getId, doce -> doce));
+        return ids.stream()
+            .map(doces::get)
+            .filter(Objects::nonNull)
             .map(doceMapper::toDTO)
             .collect(Collectors.toList());
     }
 
+    public List<String> autocompletarNomes(String prefixo, int limite) {
+        return indiceBusca.autocompletar(prefixo, limite);
+    }
+
+    public List<DoceDTO> listarDocesPorFaixaPreco(BigDecimal precoMinimo, BigDecimal precoMaximo) {
+        log.debug("Listando doces por faixa de preço: {} a {}", precoMinimo, precoMaximo);
+        
+        return carregarNaOrdem(catalogoColunar.filtrar(new CatalogoColunarService.Filtro(
+            null, null, precoMinimo, precoMaximo, null, null, null, null, null, true)).ids());
+    }
+
     public List<DoceDTO> listarDocesPorTempoPreparoMaximo(Integer tempoMaximo) {
         log.debug("Listando doces com tempo de preparo máximo: {} minutos", tempoMaximo);
         
-        return doceRepository.findByTempoPreparoMinutosLessThanEqualAndDisponivelTrue(tempoMaximo)
-            .stream()
-            .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+        return carregarNaOrdem(catalogoColunar.filtrar(new CatalogoColunarService.Filtro(
+            null, null, null, null, null, null, null, null, tempoMaximo, true)).ids());
     }
 
     public List<DoceDTO> listarDocesPorFaixaCalorias(Integer caloriaMinima, Integer caloriaMaxima) {
         log.debug("Listando doces por faixa de calorias: {} a {}", caloriaMinima, caloriaMaxima);
         
-        return doceRepository.findByCaloriasPorUnidadeBetweenAndDisponivelTrue(caloriaMinima, caloriaMaxima)
-            .stream()
-            .map(doceMapper::toDTO)
-            .collect(Collectors.toList());
+        return carregarNaOrdem(catalogoColunar.filtrar(new CatalogoColunarService.Filtro(
+            null, null, null, null, caloriaMinima, caloriaMaxima, null, null, null, true)).ids());
     }
 
     public List<DoceDTO> listarDocesPorFaixaPeso(Integer pesoMinimo, Integer pesoMaximo) {
         log.debug("Listando doces por faixa de peso: {}g a {}g", pesoMinimo, pesoMaximo);
         
-        return doceRepository.findByPesoGramasBetweenAndDisponivelTrue(pesoMinimo, pesoMaximo)
-            .stream()
+        return carregarNaOrdem(catalogoColunar.filtrar(new CatalogoColunarService.Filtro(
+            null, null, null, null, null, null, pesoMinimo, pesoMaximo, null, true)).ids());
+    }
+
+    // Filtros combinados respondidos pelo catálogo colunar; só a página pedida vai ao banco
+    public CatalogoFacetadoDTO filtrarCatalogo(CatalogoColunarService.Filtro filtro, int pagina, int tamanho) {
+        log.debug("Filtrando catálogo: {}", filtro);
+        
+        CatalogoColunarService.Resultado resultado = catalogoColunar.filtrar(filtro);
+        long[] ids = resultado.ids();
+        int inicio = (int) Math.min((long) pagina * tamanho, ids.length);
+        int fim = Math.min(inicio + tamanho, ids.length);
+        
+        return new CatalogoFacetadoDTO(
+            carregarNaOrdem(Arrays.copyOfRange(ids, inicio, fim)),
+            ids.length,
+            resultado.porTipo(),
+            resultado.porSabor());
+    }
+
+    private List<DoceDTO> carregarNaOrdem(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        List<Long> ordem = Arrays.stream(ids).boxed().toList();
+        Map<Long, Doce> doces = doceRepository.findAllById(ordem).stream()
+            .collect(Collectors.toMap(Doce::getId, doce -> doce));
+        return ordem.stream()
+            .map(doces::get)
+            .filter(Objects::nonNull)
             .map(doceMapper::toDTO)
             .collect(Collectors.toList());
     }
@@ -193,36 +271,60 @@ public class DoceService {
         return true;
     }
 
+    // Reserva atômica: um único UPDATE condicional (estoque_atual >= quantidade), sem leitura prévia.
+    // Retorna a quantidade reservada, ou 0 se o doce não existe, está indisponível ou sem saldo.
+    @Transactional
+    public int reservarEstoque(Long doceId, Integer quantidade) {
+        log.debug("Reservando {} unidades do doce {}", quantidade, doceId);
+        
+        if (quantidade == null || quantidade <= 0) {
+            throw new IllegalArgumentException("Quantidade deve ser maior que zero");
+        }
+        
+        List<Object[]> saldo = doceRepository.reservarEstoque(doceId, quantidade);
+        if (saldo.isEmpty()) {
+            return 0;
+        }
+        
+        // O saldo resultante segue no evento para o cache e para o monitor de estoque baixo
+        eventPublisher.publishEvent(DoceAlteradoEvento.estoque(doceId, saldo.get(0)));
+        return quantidade;
+    }
+
     @Transactional
     public void reduzirEstoque(Long doceId, Integer quantidade) {
         log.debug("Reduzindo estoque do doce {} em {} unidades", doceId, quantidade);
         
-        Doce doce = doceRepository.findById(doceId)
-            .orElseThrow(() -> new RuntimeException("Doce não encontrado: " + doceId));
+        int reservado = reservarEstoque(doceId, quantidade);
         
-        if (!verificarDisponibilidade(doceId, quantidade)) {
+        if (reservado == 0) {
+            // Caminho de falha: só aqui vale a pena ler a linha para montar a mensagem
+            Doce doce = doceRepository.findById(doceId)
+                .orElseThrow(() -> new RuntimeException("Doce não encontrado: " + doceId));
             throw new RuntimeException("Estoque insuficiente para o doce: " + doce.getNome());
         }
         
-        doce.setEstoqueAtual(doce.getEstoqueAtual() - quantidade);
-        doceRepository.save(doce);
-        
-        log.info("Estoque do doce {} reduzido em {} unidades. Estoque atual: {}", 
-            doce.getNome(), quantidade, doce.getEstoqueAtual());
+        log.info("Estoque do doce {} reduzido em {} unidades", doceId, reservado);
     }
 
     @Transactional
     public void aumentarEstoque(Long doceId, Integer quantidade) {
         log.debug("Aumentando estoque do doce {} em {} unidades", doceId, quantidade);
         
-        Doce doce = doceRepository.findById(doceId)
-            .orElseThrow(() -> new RuntimeException("Doce não encontrado: " + doceId));
-        
-        doce.setEstoqueAtual(doce.getEstoqueAtual() + quantidade);
-        doceRepository.save(doce);
+        List<Object[]> saldo = doceRepository.devolverEstoque(doceId, quantidade);
+        if (saldo.isEmpty()) {
+            throw new RuntimeException("Doce não encontrado: " + doceId);
+        }
+        eventPublisher.publishEvent(DoceAlteradoEvento.estoque(doceId, saldo.get(0)));
         
-        log.info("Estoque do doce {} aumentado em {} unidades. Estoque atual: {}", 
-            doce.getNome(), quantidade, doce.getEstoqueAtual());
+        log.info("Estoque do doce {} aumentado em {} unidades", doceId, quantidade);
+    }
+
+    // Devolve ao estoque as quantidades de um ou mais pedidos cancelados: uma atualização por doce,
+    // em ordem de id para que transações concorrentes travem as linhas na mesma sequência
+    @Transactional
+    public void devolverEstoque(Map<Long, Integer> quantidadesPorDoce) {
+        new TreeMap<>(quantidadesPorDoce).forEach(this::aumentarEstoque);
     }
 
     public Optional<DoceDTO> buscarDocePorNomeExato(String nome) {
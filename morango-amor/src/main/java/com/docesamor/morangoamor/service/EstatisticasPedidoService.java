@@ -0,0 +1,251 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Contadores de pedidos mantidos incrementalmente por dia de criação: quantidade por status,
+// forma de pagamento e tipo de entrega, e receita (em centavos) por status.
+// Atualizados após o commit de cada criação/transição; leituras custam O(dias do período),
+// sem tocar na tabela. Uma reconciliação periódica com o banco corrige qualquer desvio
+// (ex.: eventos perdidos em restart ou alterações feitas direto no banco).
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class EstatisticasPedidoService {
+
+    private static final int QTD_STATUS = StatusPedido.values().length;
+    // Forma de pagamento e tipo de entrega são colunas opcionais: nulos contam na última posição
+    private static final int QTD_FORMAS = FormaPagamento.values().length + 1;
+    private static final int QTD_TIPOS = TipoEntrega.values().length + 1;
+    private static final String DESCONHECIDO = "DESCONHECIDO";
+
+    private final PedidoRepository pedidoRepository;
+
+    private final ConcurrentMap<LocalDate, ContadoresDia> porDia = new ConcurrentHashMap<>();
+
+    @Value("${app.estatisticas.dias-reconciliacao:90}")
+    private int diasReconciliacao;
+
+    // Só memória; o @Transactional(readOnly) da classe não é aceito em ouvintes pós-commit
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void registrar(TransicaoPedidoEvento evento) {
+        ContadoresDia dia = porDia.computeIfAbsent(evento.getDiaCriacao(), d -> new ContadoresDia());
+        long centavos = emCentavos(evento.getValorFinal());
+        
+        if (evento.getStatusAnterior() == null) {
+            dia.total.increment();
+            dia.porForma[indice(evento.getFormaPagamento(), QTD_FORMAS)].increment();
+            dia.porTipo[indice(evento.getTipoEntrega(), QTD_TIPOS)].increment();
+        } else {
+            dia.porStatus[evento.getStatusAnterior().ordinal()].decrement();
+            dia.receitaPorStatus[evento.getStatusAnterior().ordinal()].add(-centavos);
+        }
+        dia.porStatus[evento.getStatusAtual().ordinal()].increment();
+        dia.receitaPorStatus[evento.getStatusAtual().ordinal()].add(centavos);
+    }
+
+    public Resumo resumir(LocalDate inicio, LocalDate fim) {
+        Resumo resumo = new Resumo();
+        for (LocalDate dia = inicio; !dia.isAfter(fim); dia = dia.plusDays(1)) {
+            ContadoresDia contadores = porDia.get(dia);
+            if (contadores != null) {
+                resumo.somar(contadores);
+            }
+        }
+        return resumo;
+    }
+
+    // Total atual por status em todos os dias (para pendências do dashboard)
+    public long contarPorStatus(StatusPedido status) {
+        long total = 0;
+        for (ContadoresDia contadores : porDia.values()) {
+            total += contadores.porStatus[status.ordinal()].sum();
+        }
+        return total;
+    }
+
+    // Estimativa para listagens: granularidade de dia, então limites com hora contam o dia inteiro
+    public long estimarTotal(StatusPedido status, LocalDate inicio, LocalDate fim) {
+        long total = 0;
+        for (Map.Entry<LocalDate, ContadoresDia> entrada : porDia.entrySet()) {
+            LocalDate dia = entrada.getKey();
+            if ((inicio != null && dia.isBefore(inicio)) || (fim != null && dia.isAfter(fim))) {
+                continue;
+            }
+            ContadoresDia contadores = entrada.getValue();
+            total += status == null ? contadores.total.sum() : contadores.porStatus[status.ordinal()].sum();
+        }
+        return total;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarInicial() {
+        reconstruir(LocalDate.EPOCH);
+    }
+
+    @Scheduled(fixedDelayString = "${app.estatisticas.intervalo-reconciliacao-ms:900000}",
+               initialDelayString = "${app.estatisticas.intervalo-reconciliacao-ms:900000}")
+    public void reconciliar() {
+        reconstruir(LocalDate.now().minusDays(diasReconciliacao));
+    }
+
+    // Recalcula os dias a partir de inicio com um único GROUP BY e substitui os contadores desses dias
+    private void reconstruir(LocalDate inicio) {
+        long comeco = System.currentTimeMillis();
+        List<Object[]> linhas = pedidoRepository.agruparParaEstatisticas(inicio.atStartOfDay());
+        
+        Map<LocalDate, ContadoresDia> recalculado = new HashMap<>();
+        for (Object[] linha : linhas) {
+            LocalDate dia = paraLocalDate(linha[0]);
+            StatusPedido status = (StatusPedido) linha[1];
+            FormaPagamento forma = (FormaPagamento) linha[2];
+            TipoEntrega tipo = (TipoEntrega) linha[3];
+            long quantidade = (Long) linha[4];
+            long centavos = emCentavos((BigDecimal) linha[5]);
+            
+            ContadoresDia contadores = recalculado.computeIfAbsent(dia, d -> new ContadoresDia());
+            contadores.total.add(quantidade);
+            contadores.porStatus[status.ordinal()].add(quantidade);
+            contadores.porForma[indice(forma, QTD_FORMAS)].add(quantidade);
+            contadores.porTipo[indice(tipo, QTD_TIPOS)].add(quantidade);
+            contadores.receitaPorStatus[status.ordinal()].add(centavos);
+        }
+        
+        // Transições aplicadas entre a consulta e a troca podem se perder; a próxima reconciliação corrige
+        porDia.keySet().removeIf(dia -> !dia.isBefore(inicio) && !recalculado.containsKey(dia));
+        porDia.putAll(recalculado);
+        
+        log.info("Estatísticas de pedidos reconciliadas: {} dias em {} ms",
+            recalculado.size(), System.currentTimeMillis() - comeco);
+    }
+
+    private static long emCentavos(BigDecimal valor) {
+        return valor == null ? 0 : valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static int indice(Enum<?> valor, int quantidade) {
+        return valor == null ? quantidade - 1 : valor.ordinal();
+    }
+
+    private static LocalDate paraLocalDate(Object valor) {
+        if (valor instanceof LocalDate data) {
+            return data;
+        }
+        if (valor instanceof LocalDateTime dataHora) {
+            return dataHora.toLocalDate();
+        }
+        return ((Date) valor).toLocalDate();
+    }
+
+    private static LongAdder[] contadores(int quantidade) {
+        LongAdder[] contadores = new LongAdder[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            contadores[i] = new LongAdder();
+        }
+        return contadores;
+    }
+
+    private static final class ContadoresDia {
+        private final LongAdder total = new LongAdder();
+        private final LongAdder[] porStatus = contadores(QTD_STATUS);
+        private final LongAdder[] porForma = contadores(QTD_FORMAS);
+        private final LongAdder[] porTipo = contadores(QTD_TIPOS);
+        private final LongAdder[] receitaPorStatus = contadores(QTD_STATUS);
+    }
+
+    public static final class Resumo {
+        private long total;
+        private final long[] porStatus = new long[QTD_STATUS];
+        private final long[] porForma = new long[QTD_FORMAS];
+        private final long[] porTipo = new long[QTD_TIPOS];
+        private final long[] receitaPorStatus = new long[QTD_STATUS];
+
+        private void somar(ContadoresDia dia) {
+            total += dia.total.sum();
+            for (int i = 0; i < QTD_STATUS; i++) {
+                porStatus[i] += dia.porStatus[i].sum();
+                receitaPorStatus[i] += dia.receitaPorStatus[i].sum();
+            }
+            for (int i = 0; i < QTD_FORMAS; i++) {
+                porForma[i] += dia.porForma[i].sum();
+            }
+            for (int i = 0; i < QTD_TIPOS; i++) {
+                porTipo[i] += dia.porTipo[i].sum();
+            }
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public long quantidade(StatusPedido status) {
+            return porStatus[status.ordinal()];
+        }
+
+        public BigDecimal receita(StatusPedido status) {
+            return BigDecimal.valueOf(receitaPorStatus[status.ordinal()], 2);
+        }
+
+        public Map<String, Long> porStatus() {
+            Map<String, Long> mapa = new HashMap<>();
+            for (StatusPedido status : StatusPedido.values()) {
+                mapa.put(status.name(), porStatus[status.ordinal()]);
+            }
+            return mapa;
+        }
+
+        public Map<String, Long> porFormaPagamento() {
+            Map<String, Long> mapa = new HashMap<>();
+            for (FormaPagamento forma : FormaPagamento.values()) {
+                if (porForma[forma.ordinal()] > 0) {
+                    mapa.put(forma.name(), porForma[forma.ordinal()]);
+                }
+            }
+            if (porForma[QTD_FORMAS - 1] > 0) {
+                mapa.put(DESCONHECIDO, porForma[QTD_FORMAS - 1]);
+            }
+            return mapa;
+        }
+
+        public Map<String, Long> porTipoEntrega() {
+            Map<String, Long> mapa = new HashMap<>();
+            for (TipoEntrega tipo : TipoEntrega.values()) {
+                if (porTipo[tipo.ordinal()] > 0) {
+                    mapa.put(tipo.name(), porTipo[tipo.ordinal()]);
+                }
+            }
+            if (porTipo[QTD_TIPOS - 1] > 0) {
+                mapa.put(DESCONHECIDO, porTipo[QTD_TIPOS - 1]);
+            }
+            return mapa;
+        }
+    }
+}
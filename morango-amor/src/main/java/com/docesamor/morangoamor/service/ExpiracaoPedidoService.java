@@ -0,0 +1,186 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.Pedido;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// Cancela pedidos com pagamento online que não foram pagos dentro do prazo e devolve os itens ao estoque.
+// Cada pedido pendente entra numa DelayQueue com o instante de expiração; pagamento ou cancelamento só
+// tiram o id do mapa de pendentes e a entrada antiga na fila é descartada quando vence.
+// Os vencidos são cancelados em lote: um UPDATE condicional (só quem ainda aguarda pagamento) e uma
+// devolução de estoque por doce somando todos os pedidos do lote, tudo numa transação.
+@Service
+@Slf4j
+public class ExpiracaoPedidoService {
+
+    // Mesmas formas que geram link de pagamento; dinheiro/PIX na entrega não expiram
+    private static final Set<FormaPagamento> FORMAS_ONLINE =
+        EnumSet.of(FormaPagamento.PIX, FormaPagamento.CARTAO_CREDITO, FormaPagamento.CARTAO_DEBITO);
+
+    private final PedidoRepository pedidoRepository;
+    private final DoceService doceService;
+    private final EventoService eventoService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter pedidosExpirados;
+    private final ZoneId zona = ZoneId.systemDefault();
+
+    private final DelayQueue<Expiracao> fila = new DelayQueue<>();
+    // pedidoId -> instante de expiração (epoch ms) dos pedidos ainda aguardando pagamento
+    private final Map<Long, Long> pendentes = new ConcurrentHashMap<>();
+
+    @Value("${app.pedidos.expiracao.ttl:30m}")
+    private Duration ttl;
+
+    @Value("${app.pedidos.expiracao.tamanho-lote:200}")
+    private int tamanhoLote;
+
+    // Espera antes de tentar de novo um lote cujo cancelamento falhou (deadlock, lock de webhook, banco fora)
+    @Value("${app.pedidos.expiracao.espera-retentativa:30s}")
+    private Duration esperaRetentativa;
+
+    public ExpiracaoPedidoService(PedidoRepository pedidoRepository,
+                                  DoceService doceService,
+                                  EventoService eventoService,
+                                  ApplicationEventPublisher applicationEventPublisher,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry) {
+        this.pedidoRepository = pedidoRepository;
+        this.doceService = doceService;
+        this.eventoService = eventoService;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.pedidosExpirados = Counter.builder("pedidos.expirados").register(meterRegistry);
+        Gauge.builder("pedidos.aguardando.pagamento", pendentes, Map::size).register(meterRegistry);
+    }
+
+    // Pedidos que já aguardavam pagamento antes do restart; os vencidos saem no primeiro ciclo
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarPendentes() {
+        for (Object[] linha : pedidoRepository.findIdsECriacaoPorStatus(StatusPedido.AGUARDANDO_PAGAMENTO, FORMAS_ONLINE)) {
+            agendar((Long) linha[0], (LocalDateTime) linha[1]);
+        }
+        log.info("Expiração de pedidos iniciada com {} pedidos aguardando pagamento", pendentes.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void registrar(TransicaoPedidoEvento evento) {
+        if (evento.getStatusAnterior() == null) {
+            if (evento.getStatusAtual() == StatusPedido.AGUARDANDO_PAGAMENTO
+                    && FORMAS_ONLINE.contains(evento.getFormaPagamento())) {
+                agendar(evento.getPedidoId(), evento.getCriadoEm());
+            }
+        } else if (evento.getStatusAnterior() == StatusPedido.AGUARDANDO_PAGAMENTO) {
+            pendentes.remove(evento.getPedidoId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.pedidos.expiracao.intervalo-ms:10000}")
+    public void expirar() {
+        List<Expiracao> vencidas = new ArrayList<>();
+        while (fila.drainTo(vencidas, tamanhoLote) > 0) {
+            // Descarta entradas de pedidos já pagos/cancelados ou reagendados
+            List<Long> ids = vencidas.stream()
+                .filter(expiracao -> pendentes.remove(expiracao.pedidoId(), expiracao.expiraEm()))
+                .map(Expiracao::pedidoId)
+                .toList();
+            vencidas.clear();
+            if (ids.isEmpty()) {
+                continue;
+            }
+            try {
+                cancelarLote(ids);
+            } catch (RuntimeException e) {
+                // Os ids já saíram de pendentes: voltam para a fila, senão só expirariam após um restart.
+                // O resto da fila continua lá e é processado no próximo ciclo.
+                long novaTentativa = System.currentTimeMillis() + esperaRetentativa.toMillis();
+                ids.forEach(pedidoId -> reagendar(pedidoId, novaTentativa));
+                log.error("Erro ao cancelar {} pedidos expirados; nova tentativa em {}: {}",
+                    ids.size(), esperaRetentativa, e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    private void cancelarLote(List<Long> ids) {
+        Integer cancelados = transactionTemplate.execute(status -> {
+            List<Long> expirados = pedidoRepository.cancelarAguardandoPagamento(ids);
+            if (expirados.isEmpty()) {
+                return 0;
+            }
+            List<Pedido> pedidos = pedidoRepository.findComItensByIdIn(expirados);
+
+            Map<Long, Integer> quantidades = new HashMap<>();
+            pedidos.forEach(pedido -> pedido.quantidadesPorDoce().forEach((doceId, quantidade) ->
+                quantidades.merge(doceId, quantidade, Integer::sum)));
+            doceService.devolverEstoque(quantidades);
+
+            for (Pedido pedido : pedidos) {
+                eventoService.publicarEventoStatusAtualizado(pedido, StatusPedido.AGUARDANDO_PAGAMENTO);
+                applicationEventPublisher.publishEvent(
+                    TransicaoPedidoEvento.transicao(pedido, StatusPedido.AGUARDANDO_PAGAMENTO));
+            }
+            return pedidos.size();
+        });
+
+        if (cancelados != null && cancelados > 0) {
+            pedidosExpirados.increment(cancelados);
+            log.info("Cancelados {} pedidos por falta de pagamento em {}", cancelados, ttl);
+        }
+    }
+
+    private void agendar(Long pedidoId, LocalDateTime criadoEm) {
+        long expiraEm = criadoEm.atZone(zona).toInstant().plus(ttl).toEpochMilli();
+        pendentes.put(pedidoId, expiraEm);
+        fila.put(new Expiracao(pedidoId, expiraEm));
+    }
+
+    // Pago ou cancelado nesse meio-tempo não é problema: o UPDATE só cancela quem ainda aguarda pagamento
+    private void reagendar(Long pedidoId, long expiraEm) {
+        if (pendentes.putIfAbsent(pedidoId, expiraEm) == null) {
+            fila.put(new Expiracao(pedidoId, expiraEm));
+        }
+    }
+
+    private record Expiracao(Long pedidoId, long expiraEm) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiraEm - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed outro) {
+            return Long.compare(expiraEm, ((Expiracao) outro).expiraEm);
+        }
+    }
+}
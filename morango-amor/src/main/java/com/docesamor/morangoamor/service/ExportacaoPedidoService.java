@@ -0,0 +1,166 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.FormatoExportacao;
+import com.docesamor.morangoamor.dto.PedidoExportacaoDTO;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Exportação de pedidos em streaming: linhas lidas por cursor (fetch size no repositório)
+// e escritas direto no OutputStream da resposta, com memória constante independente do volume.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class ExportacaoPedidoService {
+
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final String CABECALHO_CSV =
+        "ID,Cliente,Email,Status,Valor Total,Forma Pagamento,Tipo Entrega,Data Criação\n";
+
+    private final PedidoRepository pedidoRepository;
+    private final ObjectMapper objectMapper;
+
+    public void exportarPedidos(
+            StatusPedido status,
+            String clienteEmail,
+            LocalDateTime dataInicio,
+            LocalDateTime dataFim,
+            FormatoExportacao formato,
+            boolean gzip,
+            OutputStream saida) throws IOException {
+        
+        long inicio = System.nanoTime();
+        long linhas;
+        
+        OutputStream destino = gzip ? new GZIPOutputStream(saida, TAMANHO_BUFFER) : saida;
+        try (Stream<PedidoExportacaoDTO> pedidos = pedidoRepository.streamParaExportacao(
+                status, clienteEmail, dataInicio, dataFim)) {
+            
+            linhas = switch (formato) {
+                case CSV -> escreverCsv(pedidos.iterator(), destino);
+                case NDJSON -> escreverJson(pedidos.iterator(), destino, false);
+                case JSON -> escreverJson(pedidos.iterator(), destino, true);
+            };
+        }
+        
+        if (destino instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        destino.flush();
+        
+        long duracaoMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        log.info("Exportação {} concluída: {} pedidos em {} ms ({} linhas/s)",
+            formato, linhas, duracaoMs, linhas * 1000 / duracaoMs);
+    }
+
+    private long escreverCsv(Iterator<PedidoExportacaoDTO> pedidos, OutputStream destino) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), TAMANHO_BUFFER);
+        writer.write(CABECALHO_CSV);
+        
+        long linhas = 0;
+        while (pedidos.hasNext()) {
+            PedidoExportacaoDTO pedido = pedidos.next();
+            writer.write(String.valueOf(pedido.getId()));
+            writer.write(',');
+            escreverCampoCsv(writer, pedido.getClienteNome());
+            writer.write(',');
+            escreverCampoCsv(writer, pedido.getClienteEmail());
+            writer.write(',');
+            writer.write(String.valueOf(pedido.getStatus()));
+            writer.write(',');
+            writer.write(formatarValor(pedido.getValorFinal()));
+            writer.write(',');
+            writer.write(String.valueOf(pedido.getFormaPagamento()));
+            writer.write(',');
+            writer.write(String.valueOf(pedido.getTipoEntrega()));
+            writer.write(',');
+            writer.write(String.valueOf(pedido.getCreatedAt()));
+            writer.write('\n');
+            linhas++;
+        }
+        
+        writer.flush();
+        return linhas;
+    }
+
+    // ndjson: um objeto por linha; json: array único
+    private long escreverJson(Iterator<PedidoExportacaoDTO> pedidos, OutputStream destino, boolean array) throws IOException {
+        JsonGenerator gerador = objectMapper.getFactory().createGenerator(destino, JsonEncoding.UTF8);
+        gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        
+        if (array) {
+            gerador.writeStartArray();
+        }
+        
+        long linhas = 0;
+        while (pedidos.hasNext()) {
+            PedidoExportacaoDTO pedido = pedidos.next();
+            gerador.writeStartObject();
+            gerador.writeNumberField("id", pedido.getId());
+            gerador.writeStringField("clienteNome", pedido.getClienteNome());
+            gerador.writeStringField("clienteEmail", pedido.getClienteEmail());
+            gerador.writeStringField("status", nome(pedido.getStatus()));
+            if (pedido.getValorFinal() != null) {
+                gerador.writeNumberField("valorFinal", pedido.getValorFinal());
+            } else {
+                gerador.writeNullField("valorFinal");
+            }
+            gerador.writeStringField("formaPagamento", nome(pedido.getFormaPagamento()));
+            gerador.writeStringField("tipoEntrega", nome(pedido.getTipoEntrega()));
+            gerador.writeStringField("createdAt",
+                pedido.getCreatedAt() != null ? pedido.getCreatedAt().toString() : null);
+            gerador.writeEndObject();
+            if (!array) {
+                gerador.writeRaw('\n');
+            }
+            linhas++;
+        }
+        
+        if (array) {
+            gerador.writeEndArray();
+        }
+        gerador.close();
+        return linhas;
+    }
+
+    private void escreverCampoCsv(Writer writer, String valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            writer.write(valor);
+            return;
+        }
+        writer.write('"');
+        writer.write(valor.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private String formatarValor(BigDecimal valor) {
+        return valor == null ? "" : valor.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private String nome(Enum<?> valor) {
+        return valor == null ? null : valor.name();
+    }
+}
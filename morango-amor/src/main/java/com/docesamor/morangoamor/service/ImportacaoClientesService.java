@@ -0,0 +1,483 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.busca.TextoBusca;
+import com.docesamor.morangoamor.dto.ClienteDTO;
+import com.docesamor.morangoamor.dto.FormatoExportacao;
+import com.docesamor.morangoamor.dto.ResultadoImportacaoDTO;
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.evento.ClienteAlteradoEvento;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+// Importação em massa de clientes vindos das lojas parceiras (CSV, NDJSON ou array JSON).
+// O arquivo é lido em streaming, registro a registro; emails são normalizados como no cadastro e
+// deduplicados dentro do lote (o último registro vence). Cada lote roda numa transação própria: os ids
+// já cadastrados são resolvidos por LOWER(email) (a coluna pode ter emails antigos com maiúsculas), esses
+// clientes recebem um batch de UPDATE por id e só os emails novos viram INSERT, sem queimar valores da
+// IDENTITY com conflitos. Campos ausentes não apagam os existentes e linhas sem mudança não são regravadas.
+// Memória proporcional ao lote, não ao arquivo.
+@Service
+@Slf4j
+public class ImportacaoClientesService {
+
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final DateTimeFormatter DATA_BRASILEIRA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // Colunas que o upsert só sobrescreve quando o registro importado traz valor
+    private static final List<String> COLUNAS_OPCIONAIS = List.of("telefone", "data_nascimento", "endereco_entrega",
+        "cep", "cidade", "estado", "preferencias_doces", "alergias", "aniversario", "alergias_busca", "preferencias_busca");
+    private static final String INSERIR_CLIENTE = montarInsercao();
+    private static final String ATUALIZAR_CLIENTE = montarAtualizacao();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter clientesImportados;
+    private final int tamanhoLote;
+    private final int intervaloProgresso;
+
+    private final Map<String, Progresso> emAndamento = new ConcurrentHashMap<>();
+
+    public ImportacaoClientesService(JdbcTemplate jdbcTemplate,
+                                     TransactionTemplate transactionTemplate,
+                                     ObjectMapper objectMapper,
+                                     Validator validator,
+                                     ApplicationEventPublisher eventPublisher,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.clientes.importacao.tamanho-lote:1000}") int tamanhoLote,
+                                     @Value("${app.clientes.importacao.intervalo-progresso:50000}") int intervaloProgresso) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.clientesImportados = Counter.builder("clientes.importados").register(meterRegistry);
+        this.tamanhoLote = tamanhoLote;
+        this.intervaloProgresso = intervaloProgresso;
+    }
+
+    public ResultadoImportacaoDTO importar(InputStream entrada, FormatoExportacao formato, boolean gzip) throws IOException {
+        Progresso progresso = new Progresso(UUID.randomUUID().toString(), formato, System.nanoTime());
+        emAndamento.put(progresso.id, progresso);
+        log.info("Importação de clientes {} iniciada ({}{})", progresso.id, formato, gzip ? ", gzip" : "");
+
+        InputStream origem = gzip ? new GZIPInputStream(entrada, TAMANHO_BUFFER) : entrada;
+        Map<String, ClienteDTO> lote = new LinkedHashMap<>();
+        try (Leitor leitor = abrir(origem, formato)) {
+            while (true) {
+                ClienteDTO registro;
+                try {
+                    registro = leitor.proximo();
+                } catch (IllegalArgumentException e) {
+                    progresso.lidos++;
+                    progresso.invalidos++;
+                    log.debug("Registro {} inválido na importação {}: {}", progresso.lidos, progresso.id, e.getMessage());
+                    continue;
+                }
+                if (registro == null) {
+                    break;
+                }
+                progresso.lidos++;
+                if (!normalizar(registro)) {
+                    progresso.invalidos++;
+                } else if (lote.put(registro.getEmail(), registro) != null) {
+                    progresso.duplicados++;
+                }
+                if (lote.size() == tamanhoLote) {
+                    gravarLote(lote, progresso);
+                }
+                if (progresso.lidos % intervaloProgresso == 0) {
+                    log.info("Importação {}: {} registros lidos, {} gravados ({} registros/s)",
+                        progresso.id, progresso.lidos, progresso.gravados, progresso.registrosPorSegundo());
+                }
+            }
+        } catch (IOException e) {
+            progresso.erro = e.getMessage();
+            log.warn("Importação de clientes {} interrompida após {} registros: {}", progresso.id, progresso.lidos, e.getMessage());
+        } finally {
+            // Registros válidos lidos antes de uma interrupção também são gravados
+            gravarLote(lote, progresso);
+            emAndamento.remove(progresso.id);
+        }
+
+        ResultadoImportacaoDTO resultado = progresso.paraDTO(progresso.erro == null);
+        log.info("Importação de clientes {} concluída: {} lidos, {} gravados, {} inalterados, {} inválidos, " +
+                "{} duplicados, {} falhas em {} ms ({} registros/s)", resultado.getId(), resultado.getLidos(),
+            resultado.getGravados(), resultado.getInalterados(), resultado.getInvalidos(), resultado.getDuplicados(),
+            resultado.getFalhas(), resultado.getDuracaoMs(), resultado.getRegistrosPorSegundo());
+        return resultado;
+    }
+
+    public List<ResultadoImportacaoDTO> importacoesEmAndamento() {
+        return emAndamento.values().stream()
+            .map(progresso -> progresso.paraDTO(false))
+            .toList();
+    }
+
+    // Email normalizado como em ClienteService; false se o registro não passa na validação do cadastro
+    private boolean normalizar(ClienteDTO registro) {
+        if (registro.getEmail() != null) {
+            registro.setEmail(registro.getEmail().trim().toLowerCase(Locale.ROOT));
+        }
+        return validator.validate(registro).isEmpty();
+    }
+
+    private void gravarLote(Map<String, ClienteDTO> lote, Progresso progresso) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        List<ClienteDTO> registros = new ArrayList<>(lote.values());
+        lote.clear();
+
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Long> existentes = idsPorEmail(registros);
+                List<ClienteDTO> novos = new ArrayList<>();
+                List<Object[]> insercoes = new ArrayList<>();
+                List<ClienteDTO> atualizados = new ArrayList<>();
+                List<Object[]> atualizacoes = new ArrayList<>();
+                for (ClienteDTO registro : registros) {
+                    Long id = existentes.get(registro.getEmail());
+                    if (id == null) {
+                        novos.add(registro);
+                        insercoes.add(parametrosInsercao(registro, agora));
+                    } else {
+                        atualizados.add(registro);
+                        atualizacoes.add(parametrosAtualizacao(registro, id, agora));
+                    }
+                }
+
+                List<String> alterados = new ArrayList<>();
+                contar(jdbcTemplate.batchUpdate(INSERIR_CLIENTE, insercoes), novos, alterados, progresso);
+                contar(jdbcTemplate.batchUpdate(ATUALIZAR_CLIENTE, atualizacoes), atualizados, alterados, progresso);
+                publicarAlteracoes(alterados);
+            });
+            clientesImportados.increment(registros.size());
+        } catch (DataAccessException e) {
+            progresso.falhas += registros.size();
+            log.warn("Lote de {} clientes rejeitado na importação {}: {}", registros.size(), progresso.id, e.getMessage());
+        }
+    }
+
+    // Emails do lote já estão em minúsculas; havendo linhas antigas que só diferem na caixa, vale a de menor id
+    private Map<String, Long> idsPorEmail(List<ClienteDTO> registros) {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, LOWER(email) AS email FROM clientes WHERE LOWER(email) = ANY (?) ORDER BY id",
+            linha -> {
+                ids.putIfAbsent(linha.getString("email"), linha.getLong("id"));
+            },
+            (Object) registros.stream().map(ClienteDTO::getEmail).toArray(String[]::new));
+        return ids;
+    }
+
+    private static void contar(int[] afetadas, List<ClienteDTO> registros, List<String> alterados, Progresso progresso) {
+        for (int i = 0; i < afetadas.length; i++) {
+            // Sem contagem do driver (SUCCESS_NO_INFO) o registro conta como gravado
+            if (afetadas[i] == 0) {
+                progresso.inalterados++;
+            } else {
+                progresso.gravados++;
+                alterados.add(registros.get(i).getEmail());
+            }
+        }
+    }
+
+    // Índices em memória (calendário, busca) se atualizam após o commit do lote, como no cadastro unitário
+    private void publicarAlteracoes(List<String> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query("SELECT id, data_nascimento FROM clientes WHERE LOWER(email) = ANY (?)",
+            linha -> {
+                Date dataNascimento = linha.getDate("data_nascimento");
+                eventPublisher.publishEvent(new ClienteAlteradoEvento(linha.getLong("id"),
+                    dataNascimento != null ? dataNascimento.toLocalDate() : null));
+            },
+            (Object) emails.toArray(String[]::new));
+    }
+
+    // nome, email, opcionais, nome_busca, created_at, updated_at
+    private static Object[] parametrosInsercao(ClienteDTO registro, Timestamp agora) {
+        List<Object> valores = new ArrayList<>();
+        valores.add(registro.getNome().trim());
+        valores.add(registro.getEmail());
+        valores.addAll(Arrays.asList(opcionais(registro)));
+        valores.add(TextoBusca.normalizar(registro.getNome()));
+        valores.add(agora);
+        valores.add(agora);
+        return valores.toArray();
+    }
+
+    // SET nome, nome_busca, opcionais, updated_at; WHERE id e comparação com nome e opcionais
+    private static Object[] parametrosAtualizacao(ClienteDTO registro, Long id, Timestamp agora) {
+        Object[] opcionais = opcionais(registro);
+        List<Object> valores = new ArrayList<>();
+        valores.add(registro.getNome().trim());
+        valores.add(TextoBusca.normalizar(registro.getNome()));
+        valores.addAll(Arrays.asList(opcionais));
+        valores.add(agora);
+        valores.add(id);
+        valores.add(registro.getNome().trim());
+        valores.addAll(Arrays.asList(opcionais));
+        return valores.toArray();
+    }
+
+    // Na ordem de COLUNAS_OPCIONAIS
+    private static Object[] opcionais(ClienteDTO registro) {
+        LocalDate nascimento = registro.getDataNascimento();
+        return new Object[]{
+            registro.getTelefone(),
+            nascimento != null ? Date.valueOf(nascimento) : null,
+            registro.getEnderecoEntrega(),
+            registro.getCep(),
+            registro.getCidade(),
+            registro.getEstado(),
+            registro.getPreferenciasDoces(),
+            registro.getAlergias(),
+            nascimento != null ? Cliente.aniversario(nascimento.getMonthValue(), nascimento.getDayOfMonth()) : null,
+            TextoBusca.normalizar(registro.getAlergias()),
+            TextoBusca.normalizar(registro.getPreferenciasDoces())
+        };
+    }
+
+    // Só para emails que não existiam na leitura do lote; o ON CONFLICT cobre um cadastro concorrente
+    // com o mesmo email entre a leitura e o INSERT
+    private static String montarInsercao() {
+        String opcionais = String.join(", ", COLUNAS_OPCIONAIS);
+        String marcadores = COLUNAS_OPCIONAIS.stream().map(coluna -> "?").collect(Collectors.joining(", "));
+        String atualizacoes = COLUNAS_OPCIONAIS.stream()
+            .map(coluna -> coluna + " = COALESCE(EXCLUDED." + coluna + ", clientes." + coluna + ")")
+            .collect(Collectors.joining(", "));
+        String atuais = COLUNAS_OPCIONAIS.stream()
+            .map(coluna -> "clientes." + coluna)
+            .collect(Collectors.joining(", "));
+        String novos = COLUNAS_OPCIONAIS.stream()
+            .map(coluna -> "COALESCE(EXCLUDED." + coluna + ", clientes." + coluna + ")")
+            .collect(Collectors.joining(", "));
+        return "INSERT INTO clientes (nome, email, " + opcionais + ", nome_busca, " +
+            "cliente_vip, total_pedidos, created_at, updated_at) " +
+            "VALUES (?, ?, " + marcadores + ", ?, false, 0, ?, ?) " +
+            "ON CONFLICT (email) DO UPDATE SET nome = EXCLUDED.nome, nome_busca = EXCLUDED.nome_busca, " +
+            atualizacoes + ", updated_at = EXCLUDED.updated_at " +
+            "WHERE (clientes.nome, " + atuais + ") IS DISTINCT FROM (EXCLUDED.nome, " + novos + ")";
+    }
+
+    // Clientes já cadastrados, por id (o email gravado, com a caixa original, é mantido). Opcionais ausentes
+    // mantêm o valor gravado; o WHERE evita regravar (e contar) linhas sem mudança
+    private static String montarAtualizacao() {
+        String atualizacoes = COLUNAS_OPCIONAIS.stream()
+            .map(coluna -> coluna + " = COALESCE(?, " + coluna + ")")
+            .collect(Collectors.joining(", "));
+        String novos = COLUNAS_OPCIONAIS.stream()
+            .map(coluna -> "COALESCE(?, " + coluna + ")")
+            .collect(Collectors.joining(", "));
+        return "UPDATE clientes SET nome = ?, nome_busca = ?, " + atualizacoes + ", updated_at = ? " +
+            "WHERE id = ? AND (nome, " + String.join(", ", COLUNAS_OPCIONAIS) + ") IS DISTINCT FROM (?, " + novos + ")";
+    }
+
+    private Leitor abrir(InputStream origem, FormatoExportacao formato) throws IOException {
+        if (formato == FormatoExportacao.CSV) {
+            return new LeitorCsv(new BufferedReader(new InputStreamReader(origem, StandardCharsets.UTF_8), TAMANHO_BUFFER));
+        }
+        // NDJSON ou array JSON: o MappingIterator percorre os valores da raiz ou os elementos do array
+        MappingIterator<ClienteDTO> valores = objectMapper.readerFor(ClienteDTO.class).readValues(origem);
+        return new Leitor() {
+            @Override
+            public ClienteDTO proximo() throws IOException {
+                try {
+                    return valores.hasNextValue() ? valores.nextValue() : null;
+                } catch (JsonMappingException e) {
+                    // Valor com tipo errado: o iterador descarta o objeto e segue para o próximo
+                    throw new IllegalArgumentException(e.getOriginalMessage());
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                valores.close();
+            }
+        };
+    }
+
+    // Próximo registro, null no fim; IllegalArgumentException para um registro inválido que pode ser pulado
+    private interface Leitor extends Closeable {
+        ClienteDTO proximo() throws IOException;
+    }
+
+    // CSV com cabeçalho (nomes das colunas em snake_case ou camelCase), separador ',' ou ';' detectado
+    // no cabeçalho e campos entre aspas com aspas duplicadas e quebras de linha
+    private static final class LeitorCsv implements Leitor {
+        private final BufferedReader reader;
+        private final char separador;
+        private final String[] colunas;
+
+        LeitorCsv(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            String cabecalho = reader.readLine();
+            if (cabecalho == null) {
+                throw new IOException("Arquivo CSV vazio");
+            }
+            cabecalho = cabecalho.replace("\uFEFF", "");
+            this.separador = cabecalho.indexOf(';') >= 0 && cabecalho.indexOf(',') < 0 ? ';' : ',';
+            this.colunas = Arrays.stream(cabecalho.split(String.valueOf(separador), -1))
+                .map(coluna -> coluna.trim().replace("_", "").replace("\"", "").toLowerCase(Locale.ROOT))
+                .toArray(String[]::new);
+        }
+
+        @Override
+        public ClienteDTO proximo() throws IOException {
+            List<String> campos = lerCampos();
+            while (campos != null && campos.size() == 1 && campos.get(0).isBlank()) {
+                campos = lerCampos();
+            }
+            if (campos == null) {
+                return null;
+            }
+
+            Map<String, String> valores = new HashMap<>();
+            for (int i = 0; i < colunas.length && i < campos.size(); i++) {
+                String valor = campos.get(i).trim();
+                if (!valor.isEmpty()) {
+                    valores.put(colunas[i], valor);
+                }
+            }
+            ClienteDTO registro = new ClienteDTO();
+            registro.setNome(valores.get("nome"));
+            registro.setEmail(valores.get("email"));
+            registro.setTelefone(valores.get("telefone"));
+            registro.setDataNascimento(data(valores.get("datanascimento")));
+            registro.setEnderecoEntrega(valores.get("enderecoentrega"));
+            registro.setCep(valores.get("cep"));
+            registro.setCidade(valores.get("cidade"));
+            registro.setEstado(valores.get("estado"));
+            registro.setPreferenciasDoces(valores.get("preferenciasdoces"));
+            registro.setAlergias(valores.get("alergias"));
+            return registro;
+        }
+
+        // Campos de um registro, que pode ocupar várias linhas físicas; null no fim do arquivo
+        private List<String> lerCampos() throws IOException {
+            int caractere = reader.read();
+            if (caractere < 0) {
+                return null;
+            }
+            List<String> campos = new ArrayList<>(colunas.length);
+            StringBuilder campo = new StringBuilder();
+            boolean entreAspas = false;
+            for (; caractere >= 0; caractere = reader.read()) {
+                char c = (char) caractere;
+                if (entreAspas) {
+                    if (c != '"') {
+                        campo.append(c);
+                    } else {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            campo.append('"');
+                        } else {
+                            reader.reset();
+                            entreAspas = false;
+                        }
+                    }
+                } else if (c == '"') {
+                    entreAspas = true;
+                } else if (c == separador) {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    campo.append(c);
+                }
+            }
+            campos.add(campo.toString());
+            return campos;
+        }
+
+        private static LocalDate data(String valor) {
+            if (valor == null) {
+                return null;
+            }
+            try {
+                return valor.indexOf('/') >= 0 ? LocalDate.parse(valor, DATA_BRASILEIRA) : LocalDate.parse(valor);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Data de nascimento inválida: " + valor);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // Contadores de uma importação; escritos só pela thread da requisição, lidos pela consulta de andamento
+    private static final class Progresso {
+        private final String id;
+        private final FormatoExportacao formato;
+        private final long inicio;
+        private volatile long lidos;
+        private volatile long invalidos;
+        private volatile long duplicados;
+        private volatile long gravados;
+        private volatile long inalterados;
+        private volatile long falhas;
+        private volatile String erro;
+
+        Progresso(String id, FormatoExportacao formato, long inicio) {
+            this.id = id;
+            this.formato = formato;
+            this.inicio = inicio;
+        }
+
+        long duracaoMs() {
+            return Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        }
+
+        long registrosPorSegundo() {
+            return lidos * 1000 / duracaoMs();
+        }
+
+        ResultadoImportacaoDTO paraDTO(boolean concluida) {
+            return new ResultadoImportacaoDTO(id, formato, lidos, invalidos, duplicados, gravados, inalterados,
+                falhas, duracaoMs(), registrosPorSegundo(), concluida, erro);
+        }
+    }
+}
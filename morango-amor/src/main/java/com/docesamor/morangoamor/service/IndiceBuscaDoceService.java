@@ -0,0 +1,234 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.busca.TextoBusca;
+import com.docesamor.morangoamor.entity.Doce;
+import com.docesamor.morangoamor.evento.DoceAlteradoEvento;
+import com.docesamor.morangoamor.repository.DoceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Índice de busca em memória sobre nome, descrição e ingredientes especiais dos doces.
+// Texto normalizado (minúsculas, sem acentos) e quebrado em palavras; cada palavra do vocabulário
+// é indexada por trigramas (tolerância a erros de digitação) e mantida ordenada (busca por prefixo).
+// Construído no startup e atualizado por doce a cada alteração que não seja só de estoque.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndiceBuscaDoceService {
+
+
+    private static final int PESO_NOME = 3;
+    private static final int PESO_INGREDIENTES = 2;
+    private static final int PESO_DESCRICAO = 1;
+
+    private static final double SIMILARIDADE_EXATA = 1.0;
+    private static final double SIMILARIDADE_PREFIXO = 0.9;
+
+    private final DoceRepository doceRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Documento> documentos = new HashMap<>();
+    // palavra -> (doceId -> maior peso de campo em que a palavra aparece)
+    private final TreeMap<String, Map<Long, Integer>> ocorrencias = new TreeMap<>();
+    // trigrama -> palavras do vocabulário que o contêm
+    private final Map<String, Set<String>> trigramas = new HashMap<>();
+
+    @Value("${app.catalogo.busca.similaridade-minima:0.3}")
+    private double similaridadeMinima;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        long inicio = System.currentTimeMillis();
+        List<Doce> doces = doceRepository.findAll();
+
+        int vocabulario;
+        lock.writeLock().lock();
+        try {
+            documentos.clear();
+            ocorrencias.clear();
+            trigramas.clear();
+            doces.forEach(this::indexar);
+            vocabulario = ocorrencias.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Índice de busca de doces construído: {} doces, {} palavras em {} ms",
+            doces.size(), vocabulario, System.currentTimeMillis() - inicio);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void atualizar(DoceAlteradoEvento evento) {
+        if (evento.isApenasEstoque()) {
+            return;
+        }
+        Doce doce = doceRepository.findById(evento.getDoceId()).orElse(null);
+
+        lock.writeLock().lock();
+        try {
+            remover(evento.getDoceId());
+            if (doce != null) {
+                indexar(doce);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Busca ranqueada: todos os termos precisam casar (exato, prefixo ou por trigramas) com algum campo;
+    // a pontuação soma, por termo, a melhor similaridade ponderada pelo campo
+    public List<Long> buscar(String consulta, int limite) {
+        List<String> termos = TextoBusca.palavras(consulta);
+        if (termos.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return ranquear(termos, false, limite).stream()
+                .map(Map.Entry::getKey)
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Autocomplete sobre os nomes: o último termo casa só por prefixo, os anteriores como na busca
+    public List<String> autocompletar(String prefixo, int limite) {
+        List<String> termos = TextoBusca.palavras(prefixo);
+        if (termos.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return ranquear(termos, true, limite).stream()
+                .map(entrada -> documentos.get(entrada.getKey()).nome())
+                .distinct()
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Map.Entry<Long, Double>> ranquear(List<String> termos, boolean autocomplete, int limite) {
+        Map<Long, Double> pontuacao = null;
+
+        for (int i = 0; i < termos.size(); i++) {
+            boolean somentePrefixo = autocomplete && i == termos.size() - 1;
+            Map<Long, Double> doTermo = new HashMap<>();
+
+            similares(termos.get(i), somentePrefixo).forEach((palavra, similaridade) ->
+                ocorrencias.get(palavra).forEach((doceId, peso) -> {
+                    if (autocomplete && peso != PESO_NOME) {
+                        return;
+                    }
+                    doTermo.merge(doceId, similaridade * peso, Math::max);
+                }));
+
+            if (pontuacao == null) {
+                pontuacao = doTermo;
+            } else {
+                pontuacao.keySet().retainAll(doTermo.keySet());
+                pontuacao.replaceAll((doceId, total) -> total + doTermo.get(doceId));
+            }
+            if (pontuacao.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        return pontuacao.entrySet().stream()
+            .filter(entrada -> documentos.get(entrada.getKey()).disponivel())
+            .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(entrada -> documentos.get(entrada.getKey()).nome()))
+            .limit(limite)
+            .toList();
+    }
+
+    // Palavras do vocabulário parecidas com o termo, com a respectiva similaridade
+    private Map<String, Double> similares(String termo, boolean somentePrefixo) {
+        Map<String, Double> resultado = new HashMap<>();
+
+        for (String palavra : ocorrencias.subMap(termo, true, termo + Character.MAX_VALUE, false).keySet()) {
+            resultado.put(palavra, palavra.length() == termo.length() ? SIMILARIDADE_EXATA : SIMILARIDADE_PREFIXO);
+        }
+        if (somentePrefixo) {
+            return resultado;
+        }
+
+        // Similaridade de Jaccard entre os conjuntos de trigramas (como pg_trgm)
+        Set<String> doTermo = TextoBusca.trigramas(termo);
+        Map<String, Integer> emComum = new HashMap<>();
+        for (String trigrama : doTermo) {
+            for (String palavra : trigramas.getOrDefault(trigrama, Set.of())) {
+                emComum.merge(palavra, 1, Integer::sum);
+            }
+        }
+        emComum.forEach((palavra, comuns) -> {
+            double similaridade = (double) comuns / (doTermo.size() + TextoBusca.trigramas(palavra).size() - comuns);
+            if (similaridade >= similaridadeMinima) {
+                resultado.merge(palavra, similaridade, Math::max);
+            }
+        });
+        return resultado;
+    }
+
+    private void indexar(Doce doce) {
+        Map<String, Integer> pesos = new HashMap<>();
+        TextoBusca.palavras(doce.getNome()).forEach(palavra -> pesos.merge(palavra, PESO_NOME, Math::max));
+        TextoBusca.palavras(doce.getIngredientesEspeciais()).forEach(palavra -> pesos.merge(palavra, PESO_INGREDIENTES, Math::max));
+        TextoBusca.palavras(doce.getDescricao()).forEach(palavra -> pesos.merge(palavra, PESO_DESCRICAO, Math::max));
+
+        documentos.put(doce.getId(), new Documento(doce.getNome(), Boolean.TRUE.equals(doce.getDisponivel()), pesos.keySet()));
+        pesos.forEach((palavra, peso) -> {
+            Map<Long, Integer> porDoce = ocorrencias.get(palavra);
+            if (porDoce == null) {
+                porDoce = new HashMap<>();
+                ocorrencias.put(palavra, porDoce);
+                for (String trigrama : TextoBusca.trigramas(palavra)) {
+                    trigramas.computeIfAbsent(trigrama, t -> new HashSet<>()).add(palavra);
+                }
+            }
+            porDoce.put(doce.getId(), peso);
+        });
+    }
+
+    private void remover(Long doceId) {
+        Documento anterior = documentos.remove(doceId);
+        if (anterior == null) {
+            return;
+        }
+        for (String palavra : anterior.palavras()) {
+            Map<Long, Integer> porDoce = ocorrencias.get(palavra);
+            porDoce.remove(doceId);
+            if (porDoce.isEmpty()) {
+                ocorrencias.remove(palavra);
+                for (String trigrama : TextoBusca.trigramas(palavra)) {
+                    Set<String> palavras = trigramas.get(trigrama);
+                    palavras.remove(palavra);
+                    if (palavras.isEmpty()) {
+                        trigramas.remove(trigrama);
+                    }
+                }
+            }
+        }
+    }
+
+    private record Documento(String nome, boolean disponivel, Set<String> palavras) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.Doce;
+import com.docesamor.morangoamor.evento.DoceAlteradoEvento;
+import com.docesamor.morangoamor.repository.DoceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Detecta quando o estoque de um doce cruza o mínimo para baixo, a partir do saldo devolvido por cada
+// reserva/devolução confirmada. Um doce alertado só volta a alertar depois de subir acima do mínimo
+// mais a margem de histerese. Alertas são acumulados e publicados em lote (um por doce) a cada janela.
+// Mantém também o conjunto vivo de doces com estoque <= mínimo, usado por /doces/estoque-baixo.
+@Service
+@Slf4j
+public class MonitorEstoqueService {
+
+    private final DoceRepository doceRepository;
+    private final EventoService eventoService;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter alertasEmitidos;
+
+    // doceId -> saldo atual dos doces abaixo do mínimo
+    private final Map<Long, Saldo> estoqueBaixo = new ConcurrentHashMap<>();
+    // doces já alertados aguardando recuperação acima do mínimo + margem
+    private final Set<Long> desarmados = ConcurrentHashMap.newKeySet();
+    // alertas da janela corrente, um por doce (o saldo mais recente prevalece)
+    private final Map<Long, Saldo> pendentes = new ConcurrentHashMap<>();
+
+    @Value("${app.estoque.histerese-percentual:20}")
+    private int histeresePercentual;
+
+    public MonitorEstoqueService(DoceRepository doceRepository,
+                                 EventoService eventoService,
+                                 TransactionTemplate transactionTemplate,
+                                 MeterRegistry meterRegistry) {
+        this.doceRepository = doceRepository;
+        this.eventoService = eventoService;
+        this.transactionTemplate = transactionTemplate;
+        this.alertasEmitidos = Counter.builder("estoque.alertas.emitidos").register(meterRegistry);
+        Gauge.builder("estoque.baixo.doces", estoqueBaixo, Map::size).register(meterRegistry);
+    }
+
+    // Doces que já começam abaixo do mínimo entram no conjunto sem gerar alerta novo
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarInicial() {
+        for (Doce doce : doceRepository.findDocesComEstoqueBaixo()) {
+            estoqueBaixo.put(doce.getId(), new Saldo(doce.getEstoqueAtual(), doce.getEstoqueMinimo()));
+            desarmados.add(doce.getId());
+        }
+        log.info("Monitor de estoque iniciado com {} doces abaixo do mínimo", estoqueBaixo.size());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void registrar(DoceAlteradoEvento evento) {
+        if (!evento.isApenasEstoque() || evento.getEstoqueAtual() == null) {
+            return;
+        }
+        Long doceId = evento.getDoceId();
+        Saldo saldo = new Saldo(evento.getEstoqueAtual(), evento.getEstoqueMinimo());
+
+        if (saldo.atual() <= saldo.minimo()) {
+            estoqueBaixo.put(doceId, saldo);
+            // add devolve true só para o primeiro cruzamento desde o último rearme
+            if (desarmados.add(doceId)) {
+                pendentes.put(doceId, saldo);
+            }
+        } else {
+            estoqueBaixo.remove(doceId);
+            if (saldo.atual() > saldo.minimo() + margem(saldo.minimo())) {
+                desarmados.remove(doceId);
+            }
+        }
+    }
+
+    public List<Long> docesComEstoqueBaixo() {
+        return List.copyOf(estoqueBaixo.keySet());
+    }
+
+    @Scheduled(fixedDelayString = "${app.estoque.janela-alerta-ms:5000}")
+    public void publicarAlertas() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Saldo>> lote = new ArrayList<>();
+        for (Long doceId : List.copyOf(pendentes.keySet())) {
+            Saldo saldo = pendentes.remove(doceId);
+            if (saldo != null) {
+                lote.add(Map.entry(doceId, saldo));
+            }
+        }
+
+        try {
+            Map<Long, String> nomes = doceRepository.findAllById(lote.stream().map(Map.Entry::getKey).toList()).stream()
+                .collect(Collectors.toMap(Doce::getId, Doce::getNome));
+
+            // Um único commit para o lote inteiro no outbox
+            transactionTemplate.executeWithoutResult(status -> lote.forEach(alerta ->
+                eventoService.publicarEventoEstoqueBaixo(alerta.getKey(), nomes.getOrDefault(alerta.getKey(), ""),
+                    alerta.getValue().atual(), alerta.getValue().minimo())));
+        } catch (RuntimeException e) {
+            // O doce continua desarmado e não alertaria de novo: o lote volta para a próxima janela,
+            // sem sobrescrever saldos mais novos nem reviver alertas de doces que já se recuperaram
+            lote.stream()
+                .filter(alerta -> desarmados.contains(alerta.getKey()))
+                .forEach(alerta -> pendentes.putIfAbsent(alerta.getKey(), alerta.getValue()));
+            log.error("Erro ao publicar {} alertas de estoque baixo; nova tentativa na próxima janela: {}",
+                lote.size(), e.getMessage(), e);
+            return;
+        }
+        alertasEmitidos.increment(lote.size());
+
+        log.info("Publicados {} alertas de estoque baixo", lote.size());
+    }
+
+    private int margem(int minimo) {
+        return Math.max(1, minimo * histeresePercentual / 100);
+    }
+
+    private record Saldo(int atual, int minimo) {
+    }
+}
@@ -0,0 +1,225 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.EventoOutbox;
+import com.docesamor.morangoamor.repository.EventoOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drena a tabela eventos_outbox para o Kafka em lotes.
+// Ordem por chave: os eventos de uma chave são enviados na ordem do id, um de cada vez (o próximo só
+// depois da confirmação do anterior); a partir da primeira falha, os eventos daquela chave não são enviados
+// e ficam pendentes para o próximo ciclo (entrega at-least-once, consumidores deduplicam pelo header evento-id).
+// Nenhuma conexão fica presa esperando o broker: o lote é lido numa transação curta (que também renova
+// o lease do relay), enviado e aguardado fora dela, e marcado como enviado numa segunda transação curta.
+@Service
+@Slf4j
+public class OutboxRelayService {
+
+    private static final String NOME_RELAY = "outbox";
+    private static final String HEADER_EVENTO_ID = "evento-id";
+
+    private final EventoOutboxRepository outboxRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter publicados;
+    private final Counter falhas;
+    private final DistributionSummary tamanhoLotes;
+    private final AtomicLong pendentes = new AtomicLong();
+    private final AtomicLong lagSegundos = new AtomicLong();
+    private final String instancia = UUID.randomUUID().toString();
+
+    @Value("${app.outbox.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    @Value("${app.outbox.timeout-envio-ms:30000}")
+    private long timeoutEnvioMs;
+
+    // Maior que timeout-envio-ms: o lease precisa cobrir um lote inteiro
+    @Value("${app.outbox.reserva-relay-ms:60000}")
+    private long reservaRelayMs;
+
+    @Value("${app.outbox.retencao-horas:24}")
+    private long retencaoHoras;
+
+    public OutboxRelayService(EventoOutboxRepository outboxRepository,
+                              KafkaTemplate<String, byte[]> kafkaTemplate,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.publicados = Counter.builder("outbox.eventos.publicados").register(meterRegistry);
+        this.falhas = Counter.builder("outbox.eventos.falhas").register(meterRegistry);
+        this.tamanhoLotes = DistributionSummary.builder("outbox.lote.tamanho").register(meterRegistry);
+        Gauge.builder("outbox.eventos.pendentes", pendentes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("outbox.lag.segundos", lagSegundos, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.intervalo-ms:200}")
+    public void drenar() {
+        try {
+            Integer enviados;
+            do {
+                enviados = drenarLote();
+            } while (enviados != null && enviados == tamanhoLote);
+            
+            atualizarLag();
+            
+        } catch (Exception e) {
+            log.error("Erro ao drenar outbox: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${app.outbox.limpeza-cron:0 15 * * * *}")
+    public void limparEnviados() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(retencaoHoras);
+        Integer removidos = transactionTemplate.execute(status -> outboxRepository.removerEnviadosAntesDe(limite));
+        log.info("Outbox: {} eventos enviados removidos", removidos);
+    }
+
+    // Retorna quantos eventos foram confirmados; menos que um lote cheio encerra o ciclo
+    private int drenarLote() {
+        LocalDateTime agora = LocalDateTime.now();
+        List<EventoOutbox> lote = transactionTemplate.execute(status ->
+            outboxRepository.reservarRelay(NOME_RELAY, instancia, agora, agora.plus(reservaRelayMs, ChronoUnit.MILLIS)) > 0
+                ? outboxRepository.buscarPendentes(PageRequest.of(0, tamanhoLote))
+                : List.of());
+        if (lote == null || lote.isEmpty()) {
+            return 0;
+        }
+        
+        // Fila de cada chave na ordem do id; eventos sem chave não têm ordem a preservar e vão na primeira onda
+        Map<String, Deque<EventoOutbox>> filasPorChave = new LinkedHashMap<>();
+        List<EventoOutbox> onda = new ArrayList<>();
+        for (EventoOutbox evento : lote) {
+            if (evento.getChave() == null) {
+                onda.add(evento);
+            } else {
+                filasPorChave.computeIfAbsent(evento.getChave(), chave -> new ArrayDeque<>()).add(evento);
+            }
+        }
+        
+        List<Long> confirmados = new ArrayList<>(lote.size());
+        List<Long> comFalha = new ArrayList<>();
+        String ultimoErro = null;
+        // Prazo único para o lote: com o broker fora, a espera total é timeout-envio-ms, não um timeout por evento
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutEnvioMs);
+        
+        // Em ondas: cada onda leva o próximo evento de cada chave, e o seguinte só sai depois que o anterior
+        // foi confirmado. Uma chave tem no máximo um evento em voo, então uma falha nunca deixa um evento
+        // posterior da mesma chave chegar antes do reenvio (B, A, B); a chave para na primeira falha e o
+        // restante fica pendente para o próximo ciclo. Dentro da onda o produtor ainda agrupa por partição.
+        ondas:
+        while (System.nanoTime() < prazo) {
+            Iterator<Deque<EventoOutbox>> filas = filasPorChave.values().iterator();
+            while (filas.hasNext()) {
+                Deque<EventoOutbox> fila = filas.next();
+                onda.add(fila.poll());
+                if (fila.isEmpty()) {
+                    filas.remove();
+                }
+            }
+            if (onda.isEmpty()) {
+                break;
+            }
+            
+            List<CompletableFuture<SendResult<String, byte[]>>> envios = new ArrayList<>(onda.size());
+            for (EventoOutbox evento : onda) {
+                envios.add(enviar(evento));
+            }
+            
+            for (int i = 0; i < onda.size(); i++) {
+                EventoOutbox evento = onda.get(i);
+                try {
+                    envios.get(i).get(Math.max(0, prazo - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    confirmados.add(evento.getId());
+                } catch (ExecutionException | TimeoutException e) {
+                    comFalha.add(evento.getId());
+                    if (evento.getChave() != null) {
+                        // Os eventos seguintes da chave não são enviados neste ciclo
+                        filasPorChave.remove(evento.getChave());
+                    }
+                    ultimoErro = e.getMessage();
+                    log.warn("Falha ao publicar evento {} no tópico {}: {}", evento.getId(), evento.getTopico(), e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break ondas;
+                }
+            }
+            onda.clear();
+        }
+        
+        String erro = truncar(ultimoErro);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!confirmados.isEmpty()) {
+                outboxRepository.marcarEnviados(confirmados, LocalDateTime.now());
+            }
+            if (!comFalha.isEmpty()) {
+                outboxRepository.registrarFalha(comFalha, erro);
+            }
+        });
+        
+        publicados.increment(confirmados.size());
+        falhas.increment(comFalha.size());
+        tamanhoLotes.record(lote.size());
+        
+        // Com falhas, espera o próximo ciclo em vez de insistir imediatamente
+        return comFalha.isEmpty() ? confirmados.size() : 0;
+    }
+
+    // Recusa imediata do produtor (ex.: mensagem maior que max.request.size) vira um envio com falha como os
+    // outros, em vez de abortar o lote com eventos já enviados e não marcados
+    private CompletableFuture<SendResult<String, byte[]>> enviar(EventoOutbox evento) {
+        ProducerRecord<String, byte[]> record = new ProducerRecord<>(
+            evento.getTopico(), evento.getChave(), evento.getPayload());
+        record.headers().add(HEADER_EVENTO_ID, evento.getId().toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            return kafkaTemplate.send(record);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void atualizarLag() {
+        pendentes.set(outboxRepository.countByEnviadoEmIsNull());
+        lagSegundos.set(outboxRepository.buscarPendenteMaisAntigo()
+            .map(maisAntigo -> Duration.between(maisAntigo, LocalDateTime.now()).getSeconds())
+            .orElse(0L));
+    }
+
+    private String truncar(String erro) {
+        if (erro == null || erro.length() <= 500) {
+            return erro;
+        }
+        return erro.substring(0, 500);
+    }
+}
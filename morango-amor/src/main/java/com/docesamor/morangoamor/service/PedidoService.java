@@ -1,21 +1,32 @@
 package com.docesamor.morangoamor.service;
 
 import com.docesamor.morangoamor.dto.CriarPedidoRequestDTO;
+import com.docesamor.morangoamor.dto.CursorPedido;
 import com.docesamor.morangoamor.dto.ItemPedidoDTO;
+import com.docesamor.morangoamor.dto.PaginaCursorDTO;
 import com.docesamor.morangoamor.dto.PedidoResponseDTO;
 import com.docesamor.morangoamor.entity.*;
+import com.docesamor.morangoamor.evento.LinkPagamentoSolicitadoEvento;
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
 import com.docesamor.morangoamor.mapper.PedidoMapper;
 import com.docesamor.morangoamor.repository.DoceRepository;
 import com.docesamor.morangoamor.repository.PedidoRepository;
+import com.docesamor.morangoamor.service.PrecificacaoService.Desconto;
+import com.docesamor.morangoamor.service.PrecificacaoService.Orcamento;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,7 +43,10 @@ public class PedidoService {
     private final DoceService doceService;
     private final PedidoMapper pedidoMapper;
     private final EventoService eventoService;
-    private final AbacatePayService abacatePayService;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final EstatisticasPedidoService estatisticasPedidoService;
+    private final PrecificacaoService precificacaoService;
+    private final CupomService cupomService;
 
     @Transactional
     public PedidoResponseDTO criarPedido(CriarPedidoRequestDTO request) {
@@ -42,8 +56,9 @@ public class PedidoService {
             // 1. Criar ou atualizar cliente
             Cliente cliente = clienteService.criarOuAtualizarCliente(request.getCliente());
             
-            // 2. Validar disponibilidade dos doces
-            validarDisponibilidadeDoces(request.getItens());
+            // 2. Carregar os doces do pedido em uma única consulta e validar disponibilidade
+            Map<Long, Doce> catalogo = carregarCatalogo(request.getItens());
+            validarDisponibilidadeDoces(request.getItens(), catalogo);
             
             // 3. Criar pedido
             Pedido pedido = new Pedido();
@@ -52,31 +67,34 @@ public class PedidoService {
             pedido.setTipoEntrega(request.getTipoEntrega());
             pedido.setEnderecoEntrega(request.getEnderecoEntrega());
             pedido.setObservacoes(request.getObservacoes());
+            if (precisaLinkPagamento(request.getFormaPagamento())) {
+                // Link pendente gravado junto com o pedido: falha ou reinício só atrasam a criação
+                pedido.setLinkPagamentoEm(LocalDateTime.now());
+            }
             
             // 4. Criar itens do pedido
-            List<ItemPedido> itens = criarItensPedido(request.getItens(), pedido);
+            List<ItemPedido> itens = criarItensPedido(request.getItens(), pedido, catalogo);
             pedido.setItens(itens);
             
-            // 5. Aplicar desconto se houver cupom
-            if (request.getCupomDesconto() != null && !request.getCupomDesconto().trim().isEmpty()) {
-                aplicarDesconto(pedido, request.getCupomDesconto());
-            }
+            // 5. Reduzir estoque dos doces
+            reduzirEstoqueDoces(request.getItens());
             
-            // 6. Salvar pedido
-            Pedido pedidoSalvo = pedidoRepository.save(pedido);
+            // 6. Calcular totais, desconto do cupom e taxa de entrega; o uso do cupom é consumido por último,
+            //    assim a linha de um cupom com limite fica travada só pelos INSERTs até o commit
+            precificar(pedido, itens, cliente, request.getCupomDesconto());
             
-            // 7. Reduzir estoque dos doces
-            reduzirEstoqueDoces(request.getItens());
+            // 7. Salvar pedido
+            Pedido pedidoSalvo = pedidoRepository.save(pedido);
             
-            // 8. Criar link de pagamento se necessário
+            // 8. Solicitar link de pagamento; é criado de forma assíncrona após o commit
+            //    e fica disponível em GET /pedidos/{id} (paymentLink)
             if (precisaLinkPagamento(request.getFormaPagamento())) {
-                String paymentLink = abacatePayService.criarLinkPagamento(pedidoSalvo);
-                pedidoSalvo.setPaymentLink(paymentLink);
-                pedidoSalvo = pedidoRepository.save(pedidoSalvo);
+                applicationEventPublisher.publishEvent(new LinkPagamentoSolicitadoEvento(pedidoSalvo.getId()));
             }
             
             // 9. Publicar evento de pedido criado
             eventoService.publicarEventoPedidoCriado(pedidoSalvo);
+            applicationEventPublisher.publishEvent(TransicaoPedidoEvento.criacao(pedidoSalvo));
             
             log.info("Pedido {} criado com sucesso para cliente {}", 
                 pedidoSalvo.getId(), cliente.getEmail());
@@ -90,22 +108,36 @@ public class PedidoService {
         }
     }
 
-    private void validarDisponibilidadeDoces(List<ItemPedidoDTO> itens) {
+    private Map<Long, Doce> carregarCatalogo(List<ItemPedidoDTO> itens) {
+        Set<Long> doceIds = itens.stream()
+            .map(ItemPedidoDTO::getDoceId)
+            .collect(Collectors.toSet());
+        
+        log.debug("Carregando {} doces distintos para o pedido", doceIds.size());
+        
+        return doceRepository.findAllById(doceIds)
+            .stream()
+            .collect(Collectors.toMap(Doce::getId, doce -> doce));
+    }
+
+    private void validarDisponibilidadeDoces(List<ItemPedidoDTO> itens, Map<Long, Doce> catalogo) {
         log.debug("Validando disponibilidade de {} itens", itens.size());
         
-        for (ItemPedidoDTO item : itens) {
-            if (!doceService.verificarDisponibilidade(item.getDoceId(), item.getQuantidade())) {
-                throw new RuntimeException("Doce indisponível ou estoque insuficiente: " + item.getNomeDoce());
+        for (Map.Entry<Long, Integer> entry : somarQuantidadesPorDoce(itens).entrySet()) {
+            Doce doce = catalogo.get(entry.getKey());
+            
+            if (doce == null || !doce.getDisponivel() || doce.getEstoqueAtual() < entry.getValue()) {
+                throw new RuntimeException("Doce indisponível ou estoque insuficiente: " + 
+                    (doce != null ? doce.getNome() : entry.getKey()));
             }
         }
     }
 
-    private List<ItemPedido> criarItensPedido(List<ItemPedidoDTO> itensDTO, Pedido pedido) {
+    private List<ItemPedido> criarItensPedido(List<ItemPedidoDTO> itensDTO, Pedido pedido, Map<Long, Doce> catalogo) {
         log.debug("Criando {} itens do pedido", itensDTO.size());
         
         return itensDTO.stream().map(itemDTO -> {
-            Doce doce = doceRepository.findById(itemDTO.getDoceId())
-                .orElseThrow(() -> new RuntimeException("Doce não encontrado: " + itemDTO.getDoceId()));
+            Doce doce = catalogo.get(itemDTO.getDoceId());
             
             ItemPedido item = new ItemPedido();
             item.setPedido(pedido);
@@ -119,41 +151,51 @@ public class PedidoService {
         }).collect(Collectors.toList());
     }
 
-    private void aplicarDesconto(Pedido pedido, String cupomDesconto) {
-        log.debug("Aplicando cupom de desconto: {}", cupomDesconto);
+    // Itens repetidos do mesmo doce viram uma única reserva
+    private Map<Long, Integer> somarQuantidadesPorDoce(List<ItemPedidoDTO> itens) {
+        return itens.stream()
+            .collect(Collectors.toMap(
+                ItemPedidoDTO::getDoceId,
+                ItemPedidoDTO::getQuantidade,
+                Integer::sum,
+                LinkedHashMap::new
+            ));
+    }
+
+    // Cálculo em centavos; os valores só voltam a BigDecimal ao serem gravados no pedido e nos itens
+    private void precificar(Pedido pedido, List<ItemPedido> itens, Cliente cliente, String cupomDesconto) {
+        long[] precos = new long[itens.size()];
+        int[] quantidades = new int[itens.size()];
+        long totalItens = 0;
+        for (int i = 0; i < itens.size(); i++) {
+            precos[i] = PrecificacaoService.emCentavos(itens.get(i).getPrecoUnitario());
+            quantidades[i] = itens.get(i).getQuantidade();
+            totalItens = Math.addExact(totalItens, Math.multiplyExact(precos[i], quantidades[i]));
+        }
         
-        // Lógica simples de desconto - em produção seria mais complexa
-        BigDecimal desconto = BigDecimal.ZERO;
+        // Regras do cupom vêm da tabela em memória; o uso é consumido na transação do pedido
+        Desconto desconto = cupomDesconto != null && !cupomDesconto.trim().isEmpty()
+            ? cupomService.aplicar(cupomDesconto, cliente, totalItens) : Desconto.NENHUM;
+        Orcamento orcamento = precificacaoService.calcular(precos, quantidades, desconto, pedido.getTipoEntrega());
         
-        switch (cupomDesconto.toUpperCase()) {
-            case "PRIMEIRA_COMPRA":
-                desconto = pedido.getValorTotal().multiply(new BigDecimal("0.10")); // 10%
-                break;
-            case "CLIENTE_VIP":
-                if (pedido.getCliente().getClienteVip()) {
-                    desconto = pedido.getValorTotal().multiply(new BigDecimal("0.15")); // 15%
-                }
-                break;
-            case "DOCE_AMOR":
-                desconto = new BigDecimal("5.00"); // R$ 5,00 fixo
-                break;
-            default:
-                log.warn("Cupom de desconto inválido: {}", cupomDesconto);
-                return;
+        for (int i = 0; i < itens.size(); i++) {
+            itens.get(i).setPrecoTotal(PrecificacaoService.emReais(orcamento.subtotais()[i]));
         }
+        pedido.setValorTotal(PrecificacaoService.emReais(orcamento.totalItens()));
+        pedido.setTaxaEntrega(PrecificacaoService.emReais(orcamento.taxaEntrega()));
+        pedido.setDescontoAplicado(PrecificacaoService.emReais(orcamento.desconto()));
+        pedido.setValorFinal(PrecificacaoService.emReais(orcamento.valorFinal()));
         
-        if (desconto.compareTo(BigDecimal.ZERO) > 0) {
-            pedido.aplicarDesconto(desconto);
-            log.info("Desconto de R$ {} aplicado com cupom: {}", desconto, cupomDesconto);
+        if (orcamento.desconto() > 0) {
+            log.info("Desconto de R$ {} aplicado com cupom: {}", pedido.getDescontoAplicado(), cupomDesconto);
         }
     }
 
     private void reduzirEstoqueDoces(List<ItemPedidoDTO> itens) {
-        log.debug("Reduzindo estoque de {} tipos de doces", itens.size());
+        Map<Long, Integer> quantidades = somarQuantidadesPorDoce(itens);
+        log.debug("Reduzindo estoque de {} tipos de doces", quantidades.size());
         
-        for (ItemPedidoDTO item : itens) {
-            doceService.reduzirEstoque(item.getDoceId(), item.getQuantidade());
-        }
+        quantidades.forEach(doceService::reduzirEstoque);
     }
 
     private boolean precisaLinkPagamento(FormaPagamento formaPagamento) {
@@ -189,17 +231,69 @@ public class PedidoService {
         log.debug("Filtrando pedidos - status: {}, email: {}, nome: {}, período: {} a {}", 
             status, clienteEmail, clienteNome, dataInicio, dataFim);
         
-        Page<Pedido> pedidos = pedidoRepository.findWithFilters(
+        // Duas fases: ids paginados no banco, depois a página inteira com cliente/itens/doces em uma consulta
+        Page<Long> ids = pedidoRepository.findIdsWithFilters(
             status, clienteEmail, clienteNome, dataInicio, dataFim, pageable);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, ids.getTotalElements());
+        }
         
-        return pedidos.map(pedidoMapper::toResponseDTO);
+        Map<Long, Pedido> pedidos = pedidoRepository.findComItensByIdIn(ids.getContent()).stream()
+            .collect(Collectors.toMap(Pedido::getId, pedido -> pedido));
+        
+        return ids.map(id -> pedidoMapper.toResponseDTO(pedidos.get(id)));
+    }
+
+    public PaginaCursorDTO<PedidoResponseDTO> listarPedidosPorCursor(
+            StatusPedido status,
+            String clienteEmail,
+            String clienteNome,
+            LocalDateTime dataInicio,
+            LocalDateTime dataFim,
+            String cursor,
+            int tamanho,
+            boolean incluirTotal) {
+        
+        CursorPedido posicao = cursor != null && !cursor.isBlank() ? CursorPedido.decodificar(cursor) : null;
+        
+        // Um registro a mais indica se existe próxima página sem precisar de COUNT
+        List<Long> ids = pedidoRepository.findIdsAposCursor(
+            status, clienteEmail, clienteNome, dataInicio, dataFim,
+            posicao != null ? posicao.createdAt() : null,
+            posicao != null ? posicao.id() : null,
+            Limit.of(tamanho + 1));
+        boolean temProxima = ids.size() > tamanho;
+        if (temProxima) {
+            ids = ids.subList(0, tamanho);
+        }
+        
+        List<PedidoResponseDTO> itens = List.of();
+        if (!ids.isEmpty()) {
+            Map<Long, Pedido> pedidos = pedidoRepository.findComItensByIdIn(ids).stream()
+                .collect(Collectors.toMap(Pedido::getId, pedido -> pedido));
+            itens = ids.stream()
+                .map(id -> pedidoMapper.toResponseDTO(pedidos.get(id)))
+                .toList();
+        }
+        
+        String proximoCursor = temProxima ? CursorPedido.de(itens.get(itens.size() - 1)).codificar() : null;
+        
+        // Filtros por cliente não têm contadores; nesses casos o total fica em aberto
+        Long totalAproximado = null;
+        if (incluirTotal && clienteEmail == null && clienteNome == null) {
+            totalAproximado = estatisticasPedidoService.estimarTotal(status,
+                dataInicio != null ? dataInicio.toLocalDate() : null,
+                dataFim != null ? dataFim.toLocalDate() : null);
+        }
+        
+        return new PaginaCursorDTO<>(itens, proximoCursor, totalAproximado);
     }
 
     @Transactional
     public PedidoResponseDTO atualizarStatusPedido(Long pedidoId, StatusPedido novoStatus) {
         log.info("Atualizando status do pedido {} para: {}", pedidoId, novoStatus);
         
-        Pedido pedido = pedidoRepository.findById(pedidoId)
+        Pedido pedido = pedidoRepository.findByIdParaAtualizacao(pedidoId)
             .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + pedidoId));
         
         StatusPedido statusAnterior = pedido.getStatus();
@@ -213,13 +307,19 @@ public class PedidoService {
         
         Pedido pedidoAtualizado = pedidoRepository.save(pedido);
         
+        // Cancelamento devolve os itens ao estoque na mesma transação
+        if (novoStatus == StatusPedido.CANCELADO) {
+            doceService.devolverEstoque(pedidoAtualizado.quantidadesPorDoce());
+        }
+        
         // Incrementar contador de pedidos do cliente se entregue
         if (novoStatus == StatusPedido.ENTREGUE && statusAnterior != StatusPedido.ENTREGUE) {
-            clienteService.incrementarPedidosCliente(pedido.getCliente().getEmail());
+            clienteService.incrementarPedidosCliente(pedido.getCliente());
         }
         
         // Publicar evento de status atualizado
         eventoService.publicarEventoStatusAtualizado(pedidoAtualizado, statusAnterior);
+        applicationEventPublisher.publishEvent(TransicaoPedidoEvento.transicao(pedidoAtualizado, statusAnterior));
         
         log.info("Status do pedido {} atualizado de {} para {}", 
             pedidoId, statusAnterior, novoStatus);
@@ -273,41 +373,20 @@ public class PedidoService {
             dataFim = LocalDateTime.now();
         }
         
-        // Estatísticas básicas
-        Long totalPedidos = pedidoRepository.countByPeriodo(dataInicio, dataFim);
-        BigDecimal receitaTotal = pedidoRepository.sumValorFinalByPeriodoAndStatus(
-            dataInicio, dataFim, StatusPedido.ENTREGUE) ?? BigDecimal.ZERO;
+        // Contadores em memória, agregados por dia de criação do pedido
+        EstatisticasPedidoService.Resumo resumo = estatisticasPedidoService.resumir(
+            dataInicio.toLocalDate(), dataFim.toLocalDate());
+        
+        long totalPedidos = resumo.getTotal();
+        BigDecimal receitaTotal = resumo.receita(StatusPedido.ENTREGUE);
         
         estatisticas.put("totalPedidos", totalPedidos);
         estatisticas.put("receitaTotal", receitaTotal);
         estatisticas.put("ticketMedio", totalPedidos > 0 ? 
-            receitaTotal.divide(BigDecimal.valueOf(totalPedidos), 2, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO);
-        
-        // Estatísticas por status
-        Map<String, Long> pedidosPorStatus = new HashMap<>();
-        for (StatusPedido status : StatusPedido.values()) {
-            Long count = pedidoRepository.countByStatus(status);
-            pedidosPorStatus.put(status.name(), count);
-        }
-        estatisticas.put("pedidosPorStatus", pedidosPorStatus);
-        
-        // Estatísticas por forma de pagamento
-        List<Object[]> pagamentos = pedidoRepository.countByFormaPagamento();
-        Map<String, Long> pedidosPorPagamento = pagamentos.stream()
-            .collect(Collectors.toMap(
-                arr -> ((FormaPagamento) arr[0]).name(),
-                arr -> (Long) arr[1]
-            ));
-        estatisticas.put("pedidosPorFormaPagamento", pedidosPorPagamento);
-        
-        // Estatísticas por tipo de entrega
-        List<Object[]> entregas = pedidoRepository.countByTipoEntrega();
-        Map<String, Long> pedidosPorEntrega = entregas.stream()
-            .collect(Collectors.toMap(
-                arr -> ((TipoEntrega) arr[0]).name(),
-                arr -> (Long) arr[1]
-            ));
-        estatisticas.put("pedidosPorTipoEntrega", pedidosPorEntrega);
+            receitaTotal.divide(BigDecimal.valueOf(totalPedidos), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO);
+        estatisticas.put("pedidosPorStatus", resumo.porStatus());
+        estatisticas.put("pedidosPorFormaPagamento", resumo.porFormaPagamento());
+        estatisticas.put("pedidosPorTipoEntrega", resumo.porTipoEntrega());
         
         return estatisticas;
     }
@@ -318,22 +397,15 @@ public class PedidoService {
         Map<String, Object> dashboard = new HashMap<>();
         
         // Pedidos de hoje
-        LocalDateTime inicioHoje = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime fimHoje = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
-        
-        Long pedidosHoje = pedidoRepository.countByPeriodo(inicioHoje, fimHoje);
-        BigDecimal receitaHoje = pedidoRepository.sumValorFinalByPeriodoAndStatus(
-            inicioHoje, fimHoje, StatusPedido.ENTREGUE) ?? BigDecimal.ZERO;
+        LocalDate hoje = LocalDate.now();
+        EstatisticasPedidoService.Resumo resumoHoje = estatisticasPedidoService.resumir(hoje, hoje);
         
-        dashboard.put("pedidosHoje", pedidosHoje);
-        dashboard.put("receitaHoje", receitaHoje);
+        dashboard.put("pedidosHoje", resumoHoje.getTotal());
+        dashboard.put("receitaHoje", resumoHoje.receita(StatusPedido.ENTREGUE));
         
         // Pedidos pendentes
-        Long pedidosPendentes = pedidoRepository.countByStatus(StatusPedido.AGUARDANDO_PAGAMENTO);
-        Long pedidosPreparando = pedidoRepository.countByStatus(StatusPedido.PREPARANDO);
-        
-        dashboard.put("pedidosPendentes", pedidosPendentes);
-        dashboard.put("pedidosPreparando", pedidosPreparando);
+        dashboard.put("pedidosPendentes", estatisticasPedidoService.contarPorStatus(StatusPedido.AGUARDANDO_PAGAMENTO));
+        dashboard.put("pedidosPreparando", estatisticasPedidoService.contarPorStatus(StatusPedido.PREPARANDO));
         
         // Top clientes
         List<Object[]> topClientes = pedidoRepository.getTopClientesPorValor(
@@ -342,51 +414,4 @@ public class PedidoService {
         
         return dashboard;
     }
-
-    public String exportarPedidos(
-            StatusPedido status,
-            String clienteEmail,
-            LocalDateTime dataInicio,
-            LocalDateTime dataFim,
-            String formato) {
-        
-        log.debug("Exportando pedidos - formato: {}", formato);
-        
-        Page<Pedido> pedidos = pedidoRepository.findWithFilters(
-            status, clienteEmail, null, dataInicio, dataFim, 
-            PageRequest.of(0, 1000)); // Limite de 1000 registros
-        
-        if ("csv".equalsIgnoreCase(formato)) {
-            return exportarCSV(pedidos.getContent());
-        } else {
-            return exportarJSON(pedidos.getContent());
-        }
-    }
-
-    private String exportarCSV(List<Pedido> pedidos) {
-        StringBuilder csv = new StringBuilder();
-        csv.append("ID,Cliente,Email,Status,Valor Total,Forma Pagamento,Tipo Entrega,Data Criação\n");
-        
-        for (Pedido pedido : pedidos) {
-            csv.append(String.format("%d,%s,%s,%s,%.2f,%s,%s,%s\n",
-                pedido.getId(),
-                pedido.getCliente().getNome(),
-                pedido.getCliente().getEmail(),
-                pedido.getStatus(),
-                pedido.getValorFinal(),
-                pedido.getFormaPagamento(),
-                pedido.getTipoEntrega(),
-                pedido.getCreatedAt()
-            ));
-        }
-        
-        return csv.toString();
-    }
-
-    private String exportarJSON(List<Pedido> pedidos) {
-        return pedidos.stream()
-            .map(pedidoMapper::toResponseDTO)
-            .collect(Collectors.toList())
-            .toString(); // Simplificado - em produção usaria Jackson
-    }
-}
\ No newline at end of file
+}
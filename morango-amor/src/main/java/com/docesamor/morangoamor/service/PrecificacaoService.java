@@ -0,0 +1,74 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Cálculo de preço do pedido em centavos (long): subtotais por item, total, desconto percentual ou fixo
+// e taxa de entrega. BigDecimal só aparece na conversão de entrada (preço do doce) e de saída (entidade/DTO).
+// Percentuais são em pontos-base (1000 = 10%) e arredondados meio-para-cima no centavo; overflow lança
+// ArithmeticException em vez de estourar silenciosamente.
+@Service
+public class PrecificacaoService {
+
+    private static final long PONTOS_BASE = 10_000;
+
+    private final long taxaEntregaCentavos;
+
+    public PrecificacaoService(@Value("${app.business.taxa-entrega-default:5.00}") BigDecimal taxaEntregaDefault) {
+        this.taxaEntregaCentavos = emCentavos(taxaEntregaDefault);
+    }
+
+    // precosCentavos[i] * quantidades[i] para cada item; desconto limitado ao total dos itens
+    public Orcamento calcular(long[] precosCentavos, int[] quantidades, Desconto desconto, TipoEntrega tipoEntrega) {
+        if (precosCentavos.length != quantidades.length) {
+            throw new IllegalArgumentException("Preços e quantidades com tamanhos diferentes");
+        }
+
+        long[] subtotais = new long[precosCentavos.length];
+        long totalItens = 0;
+        for (int i = 0; i < precosCentavos.length; i++) {
+            subtotais[i] = Math.multiplyExact(precosCentavos[i], quantidades[i]);
+            totalItens = Math.addExact(totalItens, subtotais[i]);
+        }
+
+        long valorDesconto = Math.min(desconto.calcular(totalItens), totalItens);
+        long taxaEntrega = tipoEntrega == TipoEntrega.ENTREGA_DOMICILIO ? taxaEntregaCentavos : 0;
+
+        return new Orcamento(subtotais, totalItens, valorDesconto, taxaEntrega,
+            Math.addExact(totalItens - valorDesconto, taxaEntrega));
+    }
+
+    public static long emCentavos(BigDecimal valor) {
+        return valor.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal emReais(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    // Valores em centavos; subtotais na mesma ordem dos itens recebidos
+    public record Orcamento(long[] subtotais, long totalItens, long desconto, long taxaEntrega, long valorFinal) {
+    }
+
+    public record Desconto(int pontosBase, long centavosFixos) {
+
+        public static final Desconto NENHUM = new Desconto(0, 0);
+
+        public static Desconto percentual(int pontosBase) {
+            return new Desconto(pontosBase, 0);
+        }
+
+        public static Desconto fixo(long centavos) {
+            return new Desconto(0, centavos);
+        }
+
+        long calcular(long totalItens) {
+            long percentual = Math.multiplyExact(totalItens, pontosBase);
+            return (percentual + PONTOS_BASE / 2) / PONTOS_BASE + centavosFixos;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
+import com.docesamor.morangoamor.repository.ItemPedidoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Ranking de mais vendidos por janela deslizante (última hora, dia e semana).
+// Cada doce tem um buffer circular de int com baldes de 10 minutos cobrindo a semana;
+// criação de pedido soma, cancelamento subtrai no balde do horário de criação.
+// O top-K de cada janela é recalculado periodicamente e publicado como array, então a leitura é O(K).
+@Service
+@Slf4j
+public class RankingVendasService {
+
+    private static final long MINUTOS_POR_BALDE = 10;
+    private static final int BALDES = (int) (7 * 24 * 60 / MINUTOS_POR_BALDE);
+
+    public enum Janela {
+        HORA(6), DIA(144), SEMANA(BALDES);
+
+        private final int baldes;
+
+        Janela(int baldes) {
+            this.baldes = baldes;
+        }
+    }
+
+    private final ItemPedidoRepository itemPedidoRepository;
+    private final ZoneId zona = ZoneId.systemDefault();
+    private final int tamanhoTopo;
+
+    private volatile ConcurrentMap<Long, VendasDoce> porDoce = new ConcurrentHashMap<>();
+    private volatile Map<Janela, long[]> topo = topoVazio();
+
+    public RankingVendasService(ItemPedidoRepository itemPedidoRepository,
+                                @Value("${app.populares.tamanho-topo:50}") int tamanhoTopo) {
+        this.itemPedidoRepository = itemPedidoRepository;
+        this.tamanhoTopo = tamanhoTopo;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void registrar(TransicaoPedidoEvento evento) {
+        if (evento.getQuantidadesPorDoce() == null || evento.getQuantidadesPorDoce().isEmpty()) {
+            return;
+        }
+        int sinal = evento.getStatusAnterior() == null ? 1 : -1;
+        long balde = balde(evento.getCriadoEm());
+        long agora = baldeAtual();
+        
+        evento.getQuantidadesPorDoce().forEach((doceId, quantidade) ->
+            porDoce.computeIfAbsent(doceId, id -> new VendasDoce()).somar(balde, sinal * quantidade, agora));
+    }
+
+    // Reconstrói a semana a partir do banco (um GROUP BY por doce e minuto) e troca o estado inteiro;
+    // pedidos confirmados durante a reconstrução podem ficar de fora até a próxima reconstrução
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        long comeco = System.currentTimeMillis();
+        long agora = baldeAtual();
+        LocalDateTime inicio = LocalDateTime.now().minusMinutes(BALDES * MINUTOS_POR_BALDE);
+        
+        ConcurrentMap<Long, VendasDoce> reconstruido = new ConcurrentHashMap<>();
+        for (Object[] linha : itemPedidoRepository.somarVendasPorMinuto(inicio)) {
+            Long doceId = (Long) linha[0];
+            LocalDateTime minuto = paraLocalDate(linha[1]).atTime(((Number) linha[2]).intValue(), ((Number) linha[3]).intValue());
+            int quantidade = ((Number) linha[4]).intValue();
+            reconstruido.computeIfAbsent(doceId, id -> new VendasDoce()).somar(balde(minuto), quantidade, agora);
+        }
+        porDoce = reconstruido;
+        recalcularTopo();
+        
+        log.info("Ranking de vendas reconstruído: {} doces em {} ms", reconstruido.size(), System.currentTimeMillis() - comeco);
+    }
+
+    @Scheduled(fixedDelayString = "${app.populares.intervalo-ms:5000}")
+    public void recalcularTopo() {
+        long agora = baldeAtual();
+        Map<Janela, long[]> novo = new EnumMap<>(Janela.class);
+        for (Janela janela : Janela.values()) {
+            novo.put(janela, topoDaJanela(janela, agora));
+        }
+        topo = novo;
+    }
+
+    // Ids dos mais vendidos na janela, do maior para o menor
+    public long[] maisVendidos(Janela janela, int limite) {
+        long[] ids = topo.get(janela);
+        return ids.length <= limite ? ids : Arrays.copyOf(ids, limite);
+    }
+
+    private long[] topoDaJanela(Janela janela, long agora) {
+        // Min-heap de tamanho K: (quantidade, doceId)
+        PriorityQueue<long[]> heap = new PriorityQueue<>((a, b) ->
+            a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]));
+        porDoce.forEach((doceId, vendas) -> {
+            long quantidade = vendas.somaUltimos(janela.baldes, agora);
+            if (quantidade <= 0) {
+                return;
+            }
+            heap.add(new long[]{quantidade, doceId});
+            if (heap.size() > tamanhoTopo) {
+                heap.poll();
+            }
+        });
+        
+        long[] ids = new long[heap.size()];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            ids[i] = heap.poll()[1];
+        }
+        return ids;
+    }
+
+    private long balde(LocalDateTime instante) {
+        return instante.atZone(zona).toEpochSecond() / 60 / MINUTOS_POR_BALDE;
+    }
+
+    private long baldeAtual() {
+        return System.currentTimeMillis() / 60_000 / MINUTOS_POR_BALDE;
+    }
+
+    private static LocalDate paraLocalDate(Object valor) {
+        if (valor instanceof LocalDate data) {
+            return data;
+        }
+        return ((Date) valor).toLocalDate();
+    }
+
+    private static Map<Janela, long[]> topoVazio() {
+        Map<Janela, long[]> vazio = new EnumMap<>(Janela.class);
+        for (Janela janela : Janela.values()) {
+            vazio.put(janela, new long[0]);
+        }
+        return vazio;
+    }
+
+    // Buffer circular de uma semana; o índice absoluto do balde mais recente define quais posições expiraram
+    private static final class VendasDoce {
+        private final int[] quantidades = new int[BALDES];
+        private long ultimoBalde = Long.MIN_VALUE;
+
+        synchronized void somar(long balde, int quantidade, long agora) {
+            avancar(agora);
+            if (balde <= agora && balde > agora - BALDES) {
+                quantidades[(int) Math.floorMod(balde, (long) BALDES)] += quantidade;
+            }
+        }
+
+        synchronized long somaUltimos(int baldes, long agora) {
+            avancar(agora);
+            long total = 0;
+            for (long balde = agora - baldes + 1; balde <= agora; balde++) {
+                total += quantidades[(int) Math.floorMod(balde, (long) BALDES)];
+            }
+            return total;
+        }
+
+        // Zera as posições que passaram a representar baldes novos desde a última escrita
+        private void avancar(long agora) {
+            if (ultimoBalde == Long.MIN_VALUE || agora - ultimoBalde >= BALDES) {
+                Arrays.fill(quantidades, 0);
+            } else {
+                for (long balde = ultimoBalde + 1; balde <= agora; balde++) {
+                    quantidades[(int) Math.floorMod(balde, (long) BALDES)] = 0;
+                }
+            }
+            if (agora > ultimoBalde) {
+                ultimoBalde = agora;
+            }
+        }
+    }
+}
@@ -0,0 +1,660 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.SegmentoRfm;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import com.docesamor.morangoamor.repository.PerfilRfmClienteRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Segmentação RFM (recência, frequência, valor) de todos os clientes a partir dos pedidos entregues.
+// Recálculo completo: os pedidos são lidos por cursor em blocos de arrays primitivos e agregados com
+// fork/join (o bloco é dividido em fronteiras de cliente, então cada tarefa escreve em clientes distintos);
+// as notas 1-5 saem dos quintis de cada medida, calculados com parallelSort. Entre recálculos, cada entrega
+// confirmada atualiza só o seu cliente usando os cortes vigentes. Estado em arrays indexados por um índice
+// denso por cliente (tabela id -> índice, então memória cresce com o número de clientes e não com o maior id):
+// segmento de um cliente e tamanho de um segmento em O(1), membros de um segmento em O(resultado).
+// Só notas que mudaram são gravadas em clientes_rfm, por upsert em lote.
+@Service
+@Slf4j
+public class SegmentacaoClientesService {
+
+    private static final int SEM_SEGMENTO = -1;
+    // Blocos menores que isso são agregados numa única tarefa
+    private static final int LIMIAR_PARALELO = 8_192;
+    // Folga entre o fim da transação que entregou o pedido e o início da leitura do recálculo
+    private static final long MARGEM_RECALCULO_MINUTOS = 5;
+    private static final String UPSERT_PERFIL =
+        "INSERT INTO clientes_rfm (cliente_id, recencia, frequencia, monetario, segmento, atualizado_em) " +
+        "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (cliente_id) DO UPDATE SET recencia = EXCLUDED.recencia, " +
+        "frequencia = EXCLUDED.frequencia, monetario = EXCLUDED.monetario, segmento = EXCLUDED.segmento, " +
+        "atualizado_em = EXCLUDED.atualizado_em";
+
+    private final PedidoRepository pedidoRepository;
+    private final PerfilRfmClienteRepository perfilRfmClienteRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanhoLote;
+
+    // Recálculo completo e aplicação de entregas nunca rodam juntos
+    private final ReentrantLock recalculo = new ReentrantLock();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Queue<Entrega> entregasPendentes = new ConcurrentLinkedQueue<>();
+
+    // Protegidos por lock; índice = posição do cliente em `indices`. Só o dono de `recalculo` altera
+    // `indices`, e sempre numa cópia publicada sob o write lock ou já segurando o write lock
+    private Indices indices = new Indices(16);
+    private Medidas medidas = new Medidas(0);
+    private int[] notas = new int[0];
+    private Segmentos segmentos = new Segmentos(0);
+    private Cortes cortes = Cortes.VAZIO;
+    // Notas já gravadas em clientes_rfm (0 = nenhuma); só o dono de `recalculo` acessa
+    private int[] notasGravadas = new int[0];
+
+    public SegmentacaoClientesService(PedidoRepository pedidoRepository,
+                                      PerfilRfmClienteRepository perfilRfmClienteRepository,
+                                      JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.clientes.rfm.tamanho-lote:50000}") int tamanhoLote) {
+        this.pedidoRepository = pedidoRepository;
+        this.perfilRfmClienteRepository = perfilRfmClienteRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanhoLote = tamanhoLote;
+        for (SegmentoRfm segmento : SegmentoRfm.values()) {
+            Gauge.builder("clientes.rfm.segmento", this, servico -> servico.contar(segmento))
+                .tag("segmento", segmento.name())
+                .register(meterRegistry);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        recalculo.lock();
+        try {
+            Indices novos = indices.copia();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> linhas = perfilRfmClienteRepository.streamNotas()) {
+                    linhas.forEach(linha -> {
+                        int cliente = novos.indiceOuNovo((Long) linha[0]);
+                        notasGravadas = garantirCapacidade(notasGravadas, cliente);
+                        notasGravadas[cliente] = nota((Integer) linha[1], (Integer) linha[2], (Integer) linha[3]);
+                    });
+                }
+            });
+            publicar(novos);
+        } finally {
+            recalculo.unlock();
+        }
+        recalcular();
+    }
+
+    // Recência muda com o calendário: o recálculo diário reposiciona os cortes para todos
+    @Scheduled(cron = "${app.clientes.rfm.cron-recalculo:0 30 3 * * *}")
+    public void recalcular() {
+        recalculo.lock();
+        try {
+            long comeco = System.currentTimeMillis();
+            LocalDateTime inicioLeitura = LocalDateTime.now();
+            Indices novosIndices = indices.copia();
+            Medidas novas = new Medidas(novosIndices.tamanho());
+            Set<Long> pedidosRecentes = new HashSet<>();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> linhas = pedidoRepository.streamEntreguesPorCliente()) {
+                    agregar(linhas, novosIndices, novas, inicioLeitura.minusMinutes(MARGEM_RECALCULO_MINUTOS),
+                        pedidosRecentes);
+                }
+            });
+            long lidos = novas.totalPedidos();
+
+            // Entregas que chegaram durante a leitura e ainda não foram vistas por ela
+            List<Entrega> posteriores = new ArrayList<>();
+            for (Entrega entrega; (entrega = entregasPendentes.poll()) != null; ) {
+                if (!entrega.registradaEm().isBefore(inicioLeitura) && !pedidosRecentes.contains(entrega.pedidoId())) {
+                    posteriores.add(entrega);
+                }
+            }
+            posteriores.forEach(entrega -> novas.somar(novosIndices.indiceOuNovo(entrega.clienteId()), entrega));
+
+            Cortes novosCortes = Cortes.calcular(novas);
+            int[] novasNotas = new int[novas.capacidade()];
+            Arrays.parallelSetAll(novasNotas, cliente -> novosCortes.nota(novas, cliente));
+            Segmentos novosSegmentos = Segmentos.de(novasNotas);
+
+            lock.writeLock().lock();
+            try {
+                indices = novosIndices;
+                medidas = novas;
+                notas = novasNotas;
+                segmentos = novosSegmentos;
+                cortes = novosCortes;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            int gravados = gravarAlteradas(novosIndices, novasNotas, clientesComNota(novasNotas));
+            log.info("Segmentação RFM recalculada: {} pedidos entregues, {} clientes, {} notas gravadas em {} ms",
+                lidos + posteriores.size(), novosSegmentos.total(), gravados, System.currentTimeMillis() - comeco);
+        } finally {
+            recalculo.unlock();
+        }
+    }
+
+    // ENTREGUE é final: cada pedido entra uma única vez
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void registrar(TransicaoPedidoEvento evento) {
+        if (evento.getStatusAtual() != StatusPedido.ENTREGUE || evento.getStatusAnterior() == StatusPedido.ENTREGUE
+                || evento.getClienteId() == null) {
+            return;
+        }
+        entregasPendentes.add(new Entrega(evento.getPedidoId(), evento.getClienteId(),
+            evento.getCriadoEm().toLocalDate().toEpochDay(), emCentavos(evento.getValorFinal()), LocalDateTime.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.clientes.rfm.intervalo-ms:5000}")
+    public void aplicarEntregas() {
+        if (entregasPendentes.isEmpty() || !recalculo.tryLock()) {
+            return;
+        }
+        try {
+            List<Integer> alterados = new ArrayList<>();
+            Indices atuaisIndices;
+            int[] atuais;
+            lock.writeLock().lock();
+            try {
+                for (Entrega entrega; (entrega = entregasPendentes.poll()) != null; ) {
+                    int cliente = indices.indiceOuNovo(entrega.clienteId());
+                    notas = garantirCapacidade(notas, cliente);
+                    segmentos.garantirCapacidade(cliente);
+
+                    medidas.somar(cliente, entrega);
+                    int nota = cortes.nota(medidas, cliente);
+                    if (nota != notas[cliente]) {
+                        segmentos.mover(cliente, notas[cliente], nota);
+                        notas[cliente] = nota;
+                        alterados.add(cliente);
+                    }
+                }
+                atuaisIndices = indices;
+                atuais = notas;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            int gravados = gravarAlteradas(atuaisIndices, atuais,
+                alterados.stream().mapToInt(Integer::intValue).distinct().toArray());
+            log.debug("Segmentação RFM: {} clientes com notas novas após entregas", gravados);
+        } finally {
+            recalculo.unlock();
+        }
+    }
+
+    public Optional<SegmentoRfm> segmentoDe(Long clienteId) {
+        lock.readLock().lock();
+        try {
+            int cliente = indices.indice(clienteId);
+            if (cliente < 0 || cliente >= notas.length) {
+                return Optional.empty();
+            }
+            int segmento = segmentoDaNota(notas[cliente]);
+            return segmento == SEM_SEGMENTO ? Optional.empty() : Optional.of(SegmentoRfm.values()[segmento]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int contar(SegmentoRfm segmento) {
+        lock.readLock().lock();
+        try {
+            return segmentos.tamanho(segmento.ordinal());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<SegmentoRfm, Integer> resumo() {
+        Map<SegmentoRfm, Integer> resumo = new EnumMap<>(SegmentoRfm.class);
+        lock.readLock().lock();
+        try {
+            for (SegmentoRfm segmento : SegmentoRfm.values()) {
+                resumo.put(segmento, segmentos.tamanho(segmento.ordinal()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return resumo;
+    }
+
+    public long[] clientesDoSegmento(SegmentoRfm segmento) {
+        lock.readLock().lock();
+        try {
+            return segmentos.membros(segmento.ordinal(), indices);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Linhas ordenadas por cliente viram blocos de arrays primitivos, agregados um de cada vez
+    private void agregar(Stream<Object[]> linhas, Indices indicesDestino, Medidas destino, LocalDateTime recentesDesde,
+                         Set<Long> pedidosRecentes) {
+        int[] clientes = new int[tamanhoLote];
+        long[] dias = new long[tamanhoLote];
+        long[] centavos = new long[tamanhoLote];
+        int[] preenchidos = {0};
+
+        linhas.forEach(linha -> {
+            int posicao = preenchidos[0]++;
+            clientes[posicao] = indicesDestino.indiceOuNovo((Long) linha[0]);
+            dias[posicao] = ((LocalDateTime) linha[1]).toLocalDate().toEpochDay();
+            centavos[posicao] = emCentavos((BigDecimal) linha[2]);
+            LocalDateTime atualizadoEm = (LocalDateTime) linha[4];
+            if (atualizadoEm != null && !atualizadoEm.isBefore(recentesDesde)) {
+                pedidosRecentes.add((Long) linha[3]);
+            }
+            if (preenchidos[0] == tamanhoLote) {
+                agregarBloco(destino, indicesDestino, clientes, dias, centavos, tamanhoLote);
+                preenchidos[0] = 0;
+            }
+        });
+        if (preenchidos[0] > 0) {
+            agregarBloco(destino, indicesDestino, clientes, dias, centavos, preenchidos[0]);
+        }
+    }
+
+    private static void agregarBloco(Medidas destino, Indices indicesDestino, int[] clientes, long[] dias,
+                                     long[] centavos, int tamanho) {
+        // Todo índice do bloco já foi atribuído; linhas do mesmo cliente continuam contíguas
+        destino.garantirCapacidade(indicesDestino.tamanho() - 1);
+        ForkJoinPool.commonPool().invoke(new AgregacaoBloco(destino, clientes, dias, centavos, 0, tamanho));
+    }
+
+    private int gravarAlteradas(Indices indicesAtuais, int[] notasAtuais, int[] clientes) {
+        List<Object[]> lote = new ArrayList<>(Math.min(clientes.length, tamanhoLote));
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        int gravados = 0;
+        for (int cliente : clientes) {
+            int nota = notasAtuais[cliente];
+            if (cliente < notasGravadas.length && notasGravadas[cliente] == nota) {
+                continue;
+            }
+            lote.add(new Object[]{indicesAtuais.id(cliente), nota / 100, nota / 10 % 10, nota % 10,
+                SegmentoRfm.values()[segmentoDaNota(nota)].name(), agora});
+            notasGravadas = garantirCapacidade(notasGravadas, cliente);
+            notasGravadas[cliente] = nota;
+            if (lote.size() == tamanhoLote) {
+                gravados += gravar(lote);
+            }
+        }
+        return gravados + gravar(lote);
+    }
+
+    private void publicar(Indices novos) {
+        lock.writeLock().lock();
+        try {
+            indices = novos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int gravar(List<Object[]> lote) {
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        int tamanho = lote.size();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_PERFIL, lote));
+        lote.clear();
+        return tamanho;
+    }
+
+    private static int[] clientesComNota(int[] notas) {
+        return IntStream.range(0, notas.length).filter(cliente -> notas[cliente] != 0).toArray();
+    }
+
+    // Notas empacotadas em um int: recência * 100 + frequência * 10 + valor; 0 = cliente sem compras
+    private static int nota(int recencia, int frequencia, int monetario) {
+        return recencia * 100 + frequencia * 10 + monetario;
+    }
+
+    private static int segmentoDaNota(int nota) {
+        return nota == 0 ? SEM_SEGMENTO : SegmentoRfm.classificar(nota / 100, nota / 10 % 10, nota % 10).ordinal();
+    }
+
+    private static int[] garantirCapacidade(int[] valores, int indice) {
+        return indice < valores.length ? valores : Arrays.copyOf(valores, Math.max(indice + 1, valores.length * 3 / 2));
+    }
+
+    private static long emCentavos(BigDecimal valor) {
+        return valor == null ? 0 : PrecificacaoService.emCentavos(valor);
+    }
+
+    private record Entrega(Long pedidoId, long clienteId, long dia, long centavos, LocalDateTime registradaEm) {
+    }
+
+    // Ids de cliente mapeados para índices densos 0..n-1 na ordem em que aparecem, com endereçamento aberto
+    // e sondagem linear sobre arrays primitivos. Índices nunca mudam nem são removidos, então notas já
+    // gravadas continuam válidas entre recálculos
+    private static final class Indices {
+        private long[] chaves;
+        // Índice + 1 de cada chave; 0 = posição vazia
+        private int[] posicoes;
+        private long[] ids;
+        private int tamanho;
+
+        Indices(int capacidade) {
+            int slots = Integer.highestOneBit(Math.max(capacidade, 8) * 2 - 1) << 1;
+            chaves = new long[slots];
+            posicoes = new int[slots];
+            ids = new long[Math.max(capacidade, 8)];
+        }
+
+        private Indices(Indices origem) {
+            chaves = origem.chaves.clone();
+            posicoes = origem.posicoes.clone();
+            ids = origem.ids.clone();
+            tamanho = origem.tamanho;
+        }
+
+        Indices copia() {
+            return new Indices(this);
+        }
+
+        int tamanho() {
+            return tamanho;
+        }
+
+        long id(int indice) {
+            return ids[indice];
+        }
+
+        // -1 quando o cliente ainda não tem índice
+        int indice(long id) {
+            int mascara = chaves.length - 1;
+            for (int slot = espalhar(id) & mascara; posicoes[slot] != 0; slot = (slot + 1) & mascara) {
+                if (chaves[slot] == id) {
+                    return posicoes[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        int indiceOuNovo(long id) {
+            int mascara = chaves.length - 1;
+            int slot = espalhar(id) & mascara;
+            for (; posicoes[slot] != 0; slot = (slot + 1) & mascara) {
+                if (chaves[slot] == id) {
+                    return posicoes[slot] - 1;
+                }
+            }
+            int indice = tamanho++;
+            if (indice == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[indice] = id;
+            chaves[slot] = id;
+            posicoes[slot] = indice + 1;
+            // Ocupação máxima de 50%: sondagens continuam curtas
+            if (tamanho * 2 > chaves.length) {
+                redistribuir(chaves.length * 2);
+            }
+            return indice;
+        }
+
+        private void redistribuir(int slots) {
+            long[] antigasChaves = chaves;
+            int[] antigasPosicoes = posicoes;
+            chaves = new long[slots];
+            posicoes = new int[slots];
+            int mascara = slots - 1;
+            for (int i = 0; i < antigasChaves.length; i++) {
+                if (antigasPosicoes[i] != 0) {
+                    int slot = espalhar(antigasChaves[i]) & mascara;
+                    while (posicoes[slot] != 0) {
+                        slot = (slot + 1) & mascara;
+                    }
+                    chaves[slot] = antigasChaves[i];
+                    posicoes[slot] = antigasPosicoes[i];
+                }
+            }
+        }
+
+        // Ids sequenciais caem em slots vizinhos sem mistura; multiplicação de Fibonacci espalha os bits altos
+        private static int espalhar(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // Medidas por cliente em arrays paralelos indexados pelo índice denso
+    private static final class Medidas {
+        private long[] ultimaCompra;
+        private int[] pedidos;
+        private long[] valor;
+
+        Medidas(int capacidade) {
+            ultimaCompra = new long[capacidade];
+            pedidos = new int[capacidade];
+            valor = new long[capacidade];
+        }
+
+        int capacidade() {
+            return pedidos.length;
+        }
+
+        void garantirCapacidade(int cliente) {
+            if (cliente < pedidos.length) {
+                return;
+            }
+            int capacidade = Math.max(cliente + 1, pedidos.length * 3 / 2);
+            ultimaCompra = Arrays.copyOf(ultimaCompra, capacidade);
+            pedidos = Arrays.copyOf(pedidos, capacidade);
+            valor = Arrays.copyOf(valor, capacidade);
+        }
+
+        void somar(int cliente, Entrega entrega) {
+            garantirCapacidade(cliente);
+            somar(cliente, entrega.dia(), entrega.centavos());
+        }
+
+        void somar(int cliente, long dia, long centavos) {
+            ultimaCompra[cliente] = pedidos[cliente] == 0 ? dia : Math.max(ultimaCompra[cliente], dia);
+            pedidos[cliente]++;
+            valor[cliente] += centavos;
+        }
+
+        long totalPedidos() {
+            return Arrays.stream(pedidos).parallel().asLongStream().sum();
+        }
+    }
+
+    // Divide o bloco ao meio, avançando o ponto de corte até a troca de cliente
+    private static final class AgregacaoBloco extends RecursiveAction {
+        private final Medidas destino;
+        private final int[] clientes;
+        private final long[] dias;
+        private final long[] centavos;
+        private final int inicio;
+        private final int fim;
+
+        AgregacaoBloco(Medidas destino, int[] clientes, long[] dias, long[] centavos, int inicio, int fim) {
+            this.destino = destino;
+            this.clientes = clientes;
+            this.dias = dias;
+            this.centavos = centavos;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected void compute() {
+            if (fim - inicio > LIMIAR_PARALELO) {
+                int meio = (inicio + fim) >>> 1;
+                while (meio < fim && clientes[meio] == clientes[meio - 1]) {
+                    meio++;
+                }
+                if (meio < fim) {
+                    invokeAll(new AgregacaoBloco(destino, clientes, dias, centavos, inicio, meio),
+                        new AgregacaoBloco(destino, clientes, dias, centavos, meio, fim));
+                    return;
+                }
+            }
+            for (int i = inicio; i < fim; i++) {
+                destino.somar(clientes[i], dias[i], centavos[i]);
+            }
+        }
+    }
+
+    // Quatro cortes por medida (quintis); nota = 1 + quantos cortes o valor supera. Estrito para que a
+    // massa empatada no mínimo (ex.: clientes de um pedido só) fique com a nota mais baixa
+    private record Cortes(long[] recencia, long[] frequencia, long[] valor) {
+
+        static final Cortes VAZIO = new Cortes(new long[4], new long[4], new long[4]);
+
+        static Cortes calcular(Medidas medidas) {
+            int[] ativos = IntStream.range(0, medidas.capacidade()).parallel()
+                .filter(cliente -> medidas.pedidos[cliente] > 0)
+                .toArray();
+            if (ativos.length == 0) {
+                return VAZIO;
+            }
+            return new Cortes(
+                quintis(Arrays.stream(ativos).parallel().mapToLong(cliente -> medidas.ultimaCompra[cliente]).toArray()),
+                quintis(Arrays.stream(ativos).parallel().mapToLong(cliente -> medidas.pedidos[cliente]).toArray()),
+                quintis(Arrays.stream(ativos).parallel().mapToLong(cliente -> medidas.valor[cliente]).toArray()));
+        }
+
+        private static long[] quintis(long[] valores) {
+            Arrays.parallelSort(valores);
+            long[] cortes = new long[4];
+            for (int i = 0; i < 4; i++) {
+                cortes[i] = valores[(int) ((long) valores.length * (i + 1) / 5)];
+            }
+            return cortes;
+        }
+
+        int nota(Medidas medidas, int cliente) {
+            if (cliente >= medidas.capacidade() || medidas.pedidos[cliente] == 0) {
+                return 0;
+            }
+            return SegmentacaoClientesService.nota(nota(recencia, medidas.ultimaCompra[cliente]),
+                nota(frequencia, medidas.pedidos[cliente]), nota(valor, medidas.valor[cliente]));
+        }
+
+        private static int nota(long[] cortes, long valor) {
+            int nota = 1;
+            for (long corte : cortes) {
+                if (valor > corte) {
+                    nota++;
+                }
+            }
+            return nota;
+        }
+    }
+
+    // Membros (índices densos) de cada segmento em arrays com remoção por troca com o último;
+    // posicao[cliente] localiza o cliente
+    private static final class Segmentos {
+        private final int[][] membros = new int[SegmentoRfm.values().length][];
+        private final int[] tamanhos = new int[SegmentoRfm.values().length];
+        private int[] posicao;
+
+        Segmentos(int capacidade) {
+            posicao = new int[capacidade];
+            for (int i = 0; i < membros.length; i++) {
+                membros[i] = new int[16];
+            }
+        }
+
+        static Segmentos de(int[] notas) {
+            Segmentos segmentos = new Segmentos(notas.length);
+            for (int cliente = 0; cliente < notas.length; cliente++) {
+                int segmento = segmentoDaNota(notas[cliente]);
+                if (segmento != SEM_SEGMENTO) {
+                    segmentos.adicionar(cliente, segmento);
+                }
+            }
+            return segmentos;
+        }
+
+        void garantirCapacidade(int cliente) {
+            posicao = SegmentacaoClientesService.garantirCapacidade(posicao, cliente);
+        }
+
+        void mover(int cliente, int notaAnterior, int notaNova) {
+            int anterior = segmentoDaNota(notaAnterior);
+            int novo = segmentoDaNota(notaNova);
+            if (anterior == novo) {
+                return;
+            }
+            if (anterior != SEM_SEGMENTO) {
+                remover(cliente, anterior);
+            }
+            adicionar(cliente, novo);
+        }
+
+        int tamanho(int segmento) {
+            return tamanhos[segmento];
+        }
+
+        int total() {
+            return Arrays.stream(tamanhos).sum();
+        }
+
+        long[] membros(int segmento, Indices indices) {
+            long[] ids = new long[tamanhos[segmento]];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = indices.id(membros[segmento][i]);
+            }
+            return ids;
+        }
+
+        private void adicionar(int cliente, int segmento) {
+            if (tamanhos[segmento] == membros[segmento].length) {
+                membros[segmento] = Arrays.copyOf(membros[segmento], membros[segmento].length * 2);
+            }
+            posicao[cliente] = tamanhos[segmento];
+            membros[segmento][tamanhos[segmento]++] = cliente;
+        }
+
+        private void remover(int cliente, int segmento) {
+            int ultimo = --tamanhos[segmento];
+            int movido = membros[segmento][ultimo];
+            membros[segmento][posicao[cliente]] = movido;
+            posicao[movido] = posicao[cliente];
+        }
+    }
+}
@@ -50,4 +50,9 @@ UPDATE doces SET estoque_atual = estoque_atual - 1 WHERE id = 9; -- Morango com
 UPDATE clientes SET total_pedidos = 1 WHERE id IN (1, 2, 3);
 
 -- Inserir alguns doces com estoque baixo para teste
-UPDATE doces SET estoque_atual = 2 WHERE id IN (6, 8); -- Morango Especial e Fitness com estoque baixo
\ No newline at end of file
+UPDATE doces SET estoque_atual = 2 WHERE id IN (6, 8); -- Morango Especial e Fitness com estoque baixo
+-- Cupons que antes eram fixos no código
+INSERT INTO cupons (codigo, descricao, tipo, valor, apenas_vip, valor_minimo_pedido, limite_usos, limite_por_cliente, usos_realizados, valido_de, valido_ate, ativo, created_at, updated_at) VALUES
+('PRIMEIRA_COMPRA', '10% de desconto na primeira compra', 'PERCENTUAL', 10.00, false, NULL, NULL, 1, 0, NULL, NULL, true, NOW(), NOW()),
+('CLIENTE_VIP', '15% de desconto para clientes VIP', 'PERCENTUAL', 15.00, true, NULL, NULL, NULL, 0, NULL, NULL, true, NOW(), NOW()),
+('DOCE_AMOR', 'R$ 5,00 de desconto', 'VALOR_FIXO', 5.00, false, NULL, NULL, NULL, 0, NULL, NULL, true, NOW(), NOW());
@@ -0,0 +1,61 @@
+package com.docesamor.morangoamor.evento;
+
+import com.docesamor.morangoamor.evento.mensagem.WebhookMensagem;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ObjectMapper configurado pelo Spring (spring.jackson.* de application.yml), como em produção
+@JsonTest
+class SerializadorEventosTest {
+
+    private static final LocalDateTime PAGO_EM = LocalDateTime.of(2025, 3, 14, 15, 9, 26);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // datas dentro de mapas e listas saem como texto ISO no binário, sem InvalidDefinitionException
+    @Test
+    void binarioCodificaDatasAninhadasComOMapperDaAplicacao() throws Exception {
+        SerializadorEventos serializador = new SerializadorEventos(objectMapper, "binario");
+
+        byte[] payload = serializador.serializar(webhook());
+
+        String texto = new String(payload, StandardCharsets.UTF_8);
+        assertThat(payload[0]).isEqualTo(SerializadorEventos.MAGIA_BINARIO);
+        assertThat(texto).contains("\"pagoEm\":\"2025-03-14T15:09:26\"");
+        assertThat(texto).contains("\"2025-03-14T18:09:26Z\"");
+    }
+
+    // no JSON os dados vão achatados no topo, sem sobrescrever o envelope
+    @Test
+    void jsonAchataDadosSemDuplicarChavesReservadas() throws Exception {
+        SerializadorEventos serializador = new SerializadorEventos(objectMapper, "json");
+
+        JsonNode json = objectMapper.readTree(serializador.serializar(webhook()));
+
+        assertThat(json.get("eventType").asText()).isEqualTo("pagamento.confirmado");
+        assertThat(json.get("cobranca").get("pagoEm").asText()).isEqualTo("2025-03-14T15:09:26");
+        assertThat(json.get("eventos").get(0).asText()).isEqualTo("2025-03-14T18:09:26Z");
+    }
+
+    private static WebhookMensagem webhook() {
+        Map<String, Object> dados = new LinkedHashMap<>();
+        dados.put("eventType", "sobrescrito");
+        dados.put("cobranca", Map.of("pagoEm", PAGO_EM));
+        dados.put("eventos", List.of(Instant.parse("2025-03-14T18:09:26Z")));
+        dados.put("valor", 42);
+        return new WebhookMensagem("pagamento.confirmado", PAGO_EM, dados);
+    }
+}
@@ -0,0 +1,151 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.ClienteDTO;
+import com.docesamor.morangoamor.dto.CriarPedidoRequestDTO;
+import com.docesamor.morangoamor.dto.ItemPedidoDTO;
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.entity.Doce;
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import com.docesamor.morangoamor.repository.DoceRepository;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Latência do checkout (PedidoService.criarPedido) de cliente recorrente, comparada com a de cliente novo.
+// Os tempos só são registrados no log; o teste afirma o custo do cliente por pedido, que não depende da máquina.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Slf4j
+class CheckoutClienteRecorrenteBenchmarkTest {
+
+    private static final int AQUECIMENTO = 50;
+    private static final int MEDICOES = 300;
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private DoceRepository doceRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long doceId;
+    private final String prefixo = "checkout" + System.nanoTime() + "-";
+    private final List<Long> pedidos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Doce doce = new Doce();
+        doce.setNome("Morango do Amor Benchmark " + System.nanoTime());
+        doce.setPreco(new BigDecimal("12.00"));
+        doce.setTipo(TipoDoce.MORANGO_AMOR_TRADICIONAL);
+        doce.setSabor(SaborMorango.MORANGO_NATURAL);
+        doce.setEstoqueAtual(10 * (AQUECIMENTO + 2 * MEDICOES));
+        doce.setEstoqueMinimo(0);
+        doce.setTempoPreparoMinutos(30);
+        doceId = doceRepository.save(doce).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoRepository.deleteAllById(pedidos);
+        clienteRepository.findAll().stream()
+            .filter(cliente -> cliente.getEmail().startsWith(prefixo))
+            .forEach(clienteRepository::delete);
+        doceRepository.deleteById(doceId);
+    }
+
+    @Test
+    void checkoutDeClienteRecorrente() {
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            checkout(prefixo + "aquecimento" + i + "@example.com");
+        }
+
+        long[] novos = new long[MEDICOES];
+        for (int i = 0; i < MEDICOES; i++) {
+            novos[i] = checkout(prefixo + "novo" + i + "@example.com");
+        }
+
+        String recorrente = prefixo + "recorrente@example.com";
+        checkout(recorrente);
+        statistics.clear();
+        long[] recorrentes = new long[MEDICOES];
+        for (int i = 0; i < MEDICOES; i++) {
+            recorrentes[i] = checkout(recorrente);
+        }
+
+        log.info("Checkout de cliente recorrente: {}", percentis(recorrentes));
+        log.info("Checkout de cliente novo:       {}", percentis(novos));
+
+        // Cliente recorrente: uma leitura por chave primária por pedido, nenhum cadastro nem atualização
+        EntityStatistics clientes = statistics.getEntityStatistics(Cliente.class.getName());
+        assertThat(clientes.getLoadCount()).isEqualTo(MEDICOES);
+        assertThat(clientes.getInsertCount()).isZero();
+        assertThat(clientes.getUpdateCount()).isZero();
+    }
+
+    // Tempo de um pedido, em microssegundos
+    private long checkout(String email) {
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setNome("Cliente Benchmark");
+        cliente.setEmail(email);
+        cliente.setTelefone("11999990000");
+
+        ItemPedidoDTO item = new ItemPedidoDTO();
+        item.setDoceId(doceId);
+        item.setQuantidade(1);
+
+        CriarPedidoRequestDTO request = new CriarPedidoRequestDTO();
+        request.setCliente(cliente);
+        request.setItens(List.of(item));
+        request.setFormaPagamento(FormaPagamento.DINHEIRO);
+        request.setTipoEntrega(TipoEntrega.RETIRADA_LOJA);
+
+        long inicio = System.nanoTime();
+        pedidos.add(pedidoService.criarPedido(request).getId());
+        return (System.nanoTime() - inicio) / 1_000;
+    }
+
+    private static String percentis(long[] tempos) {
+        long[] ordenados = tempos.clone();
+        Arrays.sort(ordenados);
+        return String.format(Locale.ROOT, "p50=%.1f ms, p95=%.1f ms, p99=%.1f ms, max=%.1f ms (%d pedidos)",
+            percentil(ordenados, 50) / 1000.0, percentil(ordenados, 95) / 1000.0, percentil(ordenados, 99) / 1000.0,
+            ordenados[ordenados.length - 1] / 1000.0, ordenados.length);
+    }
+
+    private static long percentil(long[] ordenados, int p) {
+        return ordenados[Math.min(ordenados.length - 1, (int) Math.ceil(p / 100.0 * ordenados.length) - 1)];
+    }
+}
@@ -0,0 +1,115 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import com.docesamor.morangoamor.service.ClienteService.ContadorPedidos;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Contador imediato (app.clientes.contador.em-lote=false): cada entrega é um UPDATE ... RETURNING no PostgreSQL
+@SpringBootTest
+@ActiveProfiles("test")
+class ClienteServiceContadorConcorrenciaTest {
+
+    private static final int ENTREGAS_SIMULTANEAS = 40;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    private Long clienteId;
+
+    @AfterEach
+    void tearDown() {
+        if (clienteId != null) {
+            clienteRepository.deleteById(clienteId);
+        }
+    }
+
+    // entregas simultâneas do mesmo cliente: nenhuma se perde e cada uma vê um total diferente
+    @Test
+    void entregasSimultaneasNaoPerdemIncrementos() throws Exception {
+        clienteId = criarCliente().getId();
+
+        List<ContadorPedidos> contadores = entregarEmParalelo(ENTREGAS_SIMULTANEAS);
+
+        assertThat(contadores).extracting(ContadorPedidos::totalPedidos)
+            .containsExactlyInAnyOrderElementsOf(IntStream.rangeClosed(1, ENTREGAS_SIMULTANEAS).boxed().toList());
+        assertThat(contadores).allSatisfy(contador ->
+            assertThat(contador.clienteVip()).isEqualTo(contador.totalPedidos() >= Cliente.PEDIDOS_PARA_VIP));
+
+        Cliente gravado = clienteRepository.findById(clienteId).orElseThrow();
+        assertThat(gravado.getTotalPedidos()).isEqualTo(ENTREGAS_SIMULTANEAS);
+        assertThat(gravado.getClienteVip()).isTrue();
+    }
+
+    // a promoção acontece exatamente na entrega de número PEDIDOS_PARA_VIP, nem uma antes
+    @Test
+    void viraVipExatamenteNoLimite() {
+        clienteId = criarCliente().getId();
+
+        for (int i = 1; i < Cliente.PEDIDOS_PARA_VIP; i++) {
+            ContadorPedidos contador = clienteService.incrementarPedidosCliente(carregar()).orElseThrow();
+            assertThat(contador.totalPedidos()).isEqualTo(i);
+            assertThat(contador.clienteVip()).isFalse();
+        }
+
+        Cliente cliente = carregar();
+        ContadorPedidos contador = clienteService.incrementarPedidosCliente(cliente).orElseThrow();
+        assertThat(contador).isEqualTo(new ContadorPedidos(Cliente.PEDIDOS_PARA_VIP, true));
+        assertThat(cliente.getClienteVip()).isTrue();
+        assertThat(clienteRepository.findById(clienteId).orElseThrow().getClienteVip()).isTrue();
+    }
+
+    // cada entrega com sua própria cópia do cliente, todas liberadas ao mesmo tempo
+    private List<ContadorPedidos> entregarEmParalelo(int entregas) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(entregas);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<ContadorPedidos>> futuros = new ArrayList<>();
+            for (int i = 0; i < entregas; i++) {
+                Cliente cliente = carregar();
+                Callable<ContadorPedidos> entrega = () -> {
+                    largada.await();
+                    return clienteService.incrementarPedidosCliente(cliente).orElseThrow();
+                };
+                futuros.add(executor.submit(entrega));
+            }
+            largada.countDown();
+            List<ContadorPedidos> contadores = new ArrayList<>();
+            for (Future<ContadorPedidos> futuro : futuros) {
+                contadores.add(futuro.get());
+            }
+            return contadores;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Cliente carregar() {
+        return clienteRepository.findById(clienteId).orElseThrow();
+    }
+
+    private Cliente criarCliente() {
+        Cliente cliente = new Cliente();
+        cliente.setNome("Cliente Contador");
+        cliente.setEmail("contador" + System.nanoTime() + "@example.com");
+        return clienteRepository.save(cliente);
+    }
+}
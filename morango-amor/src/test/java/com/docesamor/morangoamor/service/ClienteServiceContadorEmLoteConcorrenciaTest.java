@@ -0,0 +1,133 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Contador em lote: as entregas se acumulam após o commit e só chegam ao banco em gravarContadoresPendentes()
+// (o flush agendado do perfil test roda de hora em hora, então o teste chama o flush na mão)
+@SpringBootTest(properties = "app.clientes.contador.em-lote=true")
+@ActiveProfiles("test")
+class ClienteServiceContadorEmLoteConcorrenciaTest {
+
+    private static final int ENTREGAS_SIMULTANEAS = 40;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Long clienteId;
+
+    @AfterEach
+    void tearDown() {
+        clienteService.gravarContadoresPendentes();
+        if (clienteId != null) {
+            clienteRepository.deleteById(clienteId);
+        }
+    }
+
+    // entregas simultâneas com flushes acontecendo no meio: nenhum incremento se perde entre o mapa e o banco
+    @Test
+    void entregasSimultaneasComFlushConcorrenteNaoPerdemIncrementos() throws Exception {
+        clienteId = criarCliente().getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(ENTREGAS_SIMULTANEAS + 1);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicBoolean entregando = new AtomicBoolean(true);
+        try {
+            List<Future<?>> entregas = new ArrayList<>();
+            for (int i = 0; i < ENTREGAS_SIMULTANEAS; i++) {
+                Cliente cliente = carregar();
+                entregas.add(executor.submit(() -> {
+                    largada.await();
+                    assertThat(clienteService.incrementarPedidosCliente(cliente)).isEmpty();
+                    return null;
+                }));
+            }
+            Future<?> flusher = executor.submit(() -> {
+                largada.await();
+                while (entregando.get()) {
+                    clienteService.gravarContadoresPendentes();
+                }
+                return null;
+            });
+            largada.countDown();
+            for (Future<?> entrega : entregas) {
+                entrega.get();
+            }
+            entregando.set(false);
+            flusher.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        clienteService.gravarContadoresPendentes();
+
+        Cliente gravado = carregar();
+        assertThat(gravado.getTotalPedidos()).isEqualTo(ENTREGAS_SIMULTANEAS);
+        assertThat(gravado.getClienteVip()).isTrue();
+    }
+
+    // um lote que cruza o limite promove a VIP; um que para uma entrega antes não promove
+    @Test
+    void viraVipExatamenteNoLimite() {
+        clienteId = criarCliente().getId();
+
+        for (int i = 1; i < Cliente.PEDIDOS_PARA_VIP; i++) {
+            clienteService.incrementarPedidosCliente(carregar());
+        }
+        clienteService.gravarContadoresPendentes();
+        assertThat(carregar().getTotalPedidos()).isEqualTo(Cliente.PEDIDOS_PARA_VIP - 1);
+        assertThat(carregar().getClienteVip()).isFalse();
+
+        clienteService.incrementarPedidosCliente(carregar());
+        clienteService.gravarContadoresPendentes();
+        assertThat(carregar().getTotalPedidos()).isEqualTo(Cliente.PEDIDOS_PARA_VIP);
+        assertThat(carregar().getClienteVip()).isTrue();
+    }
+
+    // entrega cuja transação sofre rollback não é contada
+    @Test
+    void entregaComRollbackNaoEhContada() {
+        clienteId = criarCliente().getId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            clienteService.incrementarPedidosCliente(carregar());
+            status.setRollbackOnly();
+        });
+        clienteService.incrementarPedidosCliente(carregar());
+        clienteService.gravarContadoresPendentes();
+
+        assertThat(carregar().getTotalPedidos()).isEqualTo(1);
+    }
+
+    private Cliente carregar() {
+        return clienteRepository.findById(clienteId).orElseThrow();
+    }
+
+    private Cliente criarCliente() {
+        Cliente cliente = new Cliente();
+        cliente.setNome("Cliente Contador em Lote");
+        cliente.setEmail("contador-lote" + System.nanoTime() + "@example.com");
+        return clienteRepository.save(cliente);
+    }
+}
@@ -0,0 +1,151 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.ClienteDTO;
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Banco do perfil test (application-test.yml): o cadastro é um INSERT ... ON CONFLICT ... RETURNING do PostgreSQL
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class ClienteServiceTest {
+
+    private static final int PRIMEIROS_PEDIDOS_SIMULTANEOS = 16;
+
+    @Autowired
+    private ClienteService clienteService;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String email;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        email = "cliente" + System.nanoTime() + "@example.com";
+    }
+
+    @AfterEach
+    void tearDown() {
+        clienteRepository.findPorEmailNormalizado(email).ifPresent(clienteRepository::delete);
+    }
+
+    // cliente novo: busca por email e o upsert, cuja linha devolvida já é a entidade (sem releitura por id)
+    @Test
+    void clienteNovoCustaBuscaEUpsert() {
+        statistics.clear();
+
+        Cliente cliente = clienteService.criarOuAtualizarCliente(dto("Ana", "11999990000"));
+
+        assertThat(cliente.getId()).isNotNull();
+        assertThat(cliente.getEmail()).isEqualTo(email);
+        assertThat(cliente.getTelefone()).isEqualTo("11999990000");
+        assertThat(cliente.getCreatedAt()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+    }
+
+    // cliente recorrente sem mudanças: uma leitura por chave primária e nenhuma escrita
+    @Test
+    void clienteRecorrenteCustaUmaLeitura() {
+        Long id = clienteService.criarOuAtualizarCliente(dto("Ana", "11999990000")).getId();
+        statistics.clear();
+
+        Cliente cliente = clienteService.criarOuAtualizarCliente(dto("Ana", "11999990000"));
+
+        assertThat(cliente.getId()).isEqualTo(id);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+    }
+
+    // email com outra caixa e espaços é o mesmo cliente; só a mudança de telefone é gravada
+    @Test
+    void clienteRecorrenteComAlteracaoGravaSoUmaVez() {
+        Long id = clienteService.criarOuAtualizarCliente(dto("Ana", "11999990000")).getId();
+        statistics.clear();
+
+        ClienteDTO alterado = dto("Ana", "11888880000");
+        alterado.setEmail("  " + email.toUpperCase() + " ");
+        Cliente cliente = clienteService.criarOuAtualizarCliente(alterado);
+
+        assertThat(cliente.getId()).isEqualTo(id);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(clienteRepository.findById(id).orElseThrow().getTelefone()).isEqualTo("11888880000");
+    }
+
+    // cadastro desfeito por rollback não entra no cache: o pedido seguinte não procura um id que não existe
+    @Test
+    void cadastroComRollbackNaoEntraNoCache() {
+        transactionTemplate.executeWithoutResult(status -> {
+            clienteService.criarOuAtualizarCliente(dto("Ana", "11999990000"));
+            status.setRollbackOnly();
+        });
+        assertThat(clienteRepository.findPorEmailNormalizado(email)).isEmpty();
+        statistics.clear();
+
+        Cliente cliente = clienteService.criarOuAtualizarCliente(dto("Ana", "11999990000"));
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(clienteRepository.findById(cliente.getId())).isPresent();
+    }
+
+    // primeiros pedidos simultâneos do mesmo email resolvem para um único cliente
+    @Test
+    void primeirosPedidosSimultaneosCriamUmCliente() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PRIMEIROS_PEDIDOS_SIMULTANEOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futuros = new ArrayList<>();
+            for (int i = 0; i < PRIMEIROS_PEDIDOS_SIMULTANEOS; i++) {
+                Callable<Long> pedido = () -> {
+                    largada.await();
+                    return clienteService.criarOuAtualizarCliente(dto("Ana", "11999990000")).getId();
+                };
+                futuros.add(executor.submit(pedido));
+            }
+            largada.countDown();
+            List<Long> ids = new ArrayList<>();
+            for (Future<Long> futuro : futuros) {
+                ids.add(futuro.get());
+            }
+            assertThat(ids).containsOnly(ids.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ClienteDTO dto(String nome, String telefone) {
+        ClienteDTO dto = new ClienteDTO();
+        dto.setNome(nome);
+        dto.setEmail(email);
+        dto.setTelefone(telefone);
+        return dto;
+    }
+}
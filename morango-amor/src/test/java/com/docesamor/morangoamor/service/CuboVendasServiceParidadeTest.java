@@ -0,0 +1,251 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.LinhaAnaliseDTO;
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.entity.Doce;
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.ItemPedido;
+import com.docesamor.morangoamor.entity.Pedido;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.StatusPedido;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import com.docesamor.morangoamor.evento.TransicaoPedidoEvento;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import com.docesamor.morangoamor.repository.DoceRepository;
+import com.docesamor.morangoamor.repository.ItemPedidoRepository;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import com.docesamor.morangoamor.service.CuboVendasService.Consulta;
+import com.docesamor.morangoamor.service.CuboVendasService.Dimensao;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// O cubo responde o mesmo que as consultas SQL do ItemPedidoRepository sobre os mesmos pedidos:
+// pedidos de dias atrás (já compactados em células diárias e no perfil por hora do dia), das últimas horas
+// (células horárias) e pedidos não entregues, que os dois lados ignoram
+@SpringBootTest
+@ActiveProfiles("test")
+class CuboVendasServiceParidadeTest {
+
+    private static final StatusPedido[] NAO_ENTREGUES = {StatusPedido.CANCELADO, StatusPedido.PREPARANDO};
+
+    @Autowired
+    private CuboVendasService cuboVendasService;
+
+    @Autowired
+    private ItemPedidoRepository itemPedidoRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private DoceRepository doceRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Cliente cliente;
+    private final List<Doce> doces = new ArrayList<>();
+    private final List<Long> pedidos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Cliente novo = new Cliente();
+        novo.setNome("Cliente Cubo");
+        novo.setEmail("cubo" + System.nanoTime() + "@example.com");
+        cliente = clienteRepository.save(novo);
+
+        doces.add(criarDoce(TipoDoce.MORANGO_AMOR_TRADICIONAL, SaborMorango.MORANGO_NATURAL, "10.00"));
+        doces.add(criarDoce(TipoDoce.MORANGO_AMOR_CHOCOLATE_BRANCO, SaborMorango.MORANGO_NATURAL, "12.50"));
+        doces.add(criarDoce(TipoDoce.MORANGO_AMOR_NUTELLA, SaborMorango.MORANGO_PREMIUM, "15.90"));
+
+        LocalDateTime agora = LocalDateTime.now();
+        int n = 0;
+        for (int dias : new int[]{10, 6, 3}) {
+            for (int hora : new int[]{9, 14, 20}) {
+                criarPedido(agora.toLocalDate().minusDays(dias).atTime(hora, 15), n++);
+            }
+        }
+        for (int horas : new int[]{1, 5, 30}) {
+            criarPedido(agora.minusHours(horas), n++);
+        }
+
+        cuboVendasService.reconstruir();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoRepository.deleteAllById(pedidos);
+        doceRepository.deleteAll(doces);
+        clienteRepository.delete(cliente);
+        cuboVendasService.reconstruir();
+    }
+
+    // quantidade e receita por doce, como nas estatísticas e na receita por doce
+    @Test
+    void porDoceIgualAsConsultasDeEstatisticaEReceita() {
+        assertThat(quantidadesDoCubo(Dimensao.DOCE, null, null))
+            .isEqualTo(quantidades(itemPedidoRepository.getEstatisticasVendasPorDoce()));
+        assertThat(receitasDoCubo(Dimensao.DOCE, null, null))
+            .isEqualTo(receitas(itemPedidoRepository.getReceitaPorDoce()));
+    }
+
+    // período com início à meia-noite: o cubo mistura células diárias e horárias e bate com o BETWEEN do SQL
+    @Test
+    void porDoceNoPeriodoIgualAsConsultasPorPeriodo() {
+        LocalDateTime inicio = LocalDate.now().minusDays(6).atStartOfDay();
+        LocalDateTime fim = LocalDateTime.now();
+
+        assertThat(quantidadesDoCubo(Dimensao.DOCE, inicio, fim))
+            .isEqualTo(quantidades(itemPedidoRepository.getDocesMaisVendidosPorPeriodo(inicio, fim, null)));
+        assertThat(receitasDoCubo(Dimensao.DOCE, inicio, fim))
+            .isEqualTo(receitas(itemPedidoRepository.getReceitaPorDocePorPeriodo(inicio, fim)));
+    }
+
+    @Test
+    void porTipoESaborIgualAsConsultasPorTipoESabor() {
+        assertThat(quantidadesDoCubo(Dimensao.TIPO, null, null))
+            .isEqualTo(quantidades(itemPedidoRepository.getVendasPorTipoDoce()));
+        assertThat(quantidadesDoCubo(Dimensao.SABOR, null, null))
+            .isEqualTo(quantidades(itemPedidoRepository.getVendasPorSaborMorango()));
+    }
+
+    // hora do dia soma o perfil compactado com as células horárias recentes
+    @Test
+    void porHoraDoDiaIgualAVendasPorHora() {
+        assertThat(quantidadesDoCubo(Dimensao.HORA_DO_DIA, null, null))
+            .isEqualTo(quantidades(itemPedidoRepository.getVendasPorHora()));
+    }
+
+    // o dia da semana do SQL vai de domingo (1) a sábado (7)
+    @Test
+    void porDiaDaSemanaIgualAVendasPorDiaSemana() {
+        Map<Object, Long> cubo = new HashMap<>();
+        quantidadesDoCubo(Dimensao.DIA_SEMANA, null, null).forEach((dia, quantidade) ->
+            cubo.put(((DayOfWeek) dia).getValue() % 7 + 1, quantidade));
+
+        assertThat(cubo).isEqualTo(quantidades(itemPedidoRepository.getVendasPorDiaSemana()));
+    }
+
+    // pedido entregue depois da reconstrução entra pelo evento e o cubo continua batendo com o SQL
+    @Test
+    void entregaRegistradaPorEventoMantemParidade() {
+        Pedido pedido = criarPedido(LocalDateTime.now().minusMinutes(10), 0);
+        pedido.setStatus(StatusPedido.ENTREGUE);
+        cuboVendasService.registrar(TransicaoPedidoEvento.transicao(pedido, StatusPedido.SAIU_ENTREGA));
+
+        assertThat(quantidadesDoCubo(Dimensao.DOCE, null, null))
+            .isEqualTo(quantidades(itemPedidoRepository.getEstatisticasVendasPorDoce()));
+        assertThat(receitasDoCubo(Dimensao.DOCE, null, null))
+            .isEqualTo(receitas(itemPedidoRepository.getReceitaPorDoce()));
+    }
+
+    private Map<Object, Long> quantidadesDoCubo(Dimensao dimensao, LocalDateTime inicio, LocalDateTime fim) {
+        return doCubo(dimensao, inicio, fim, LinhaAnaliseDTO::getQuantidade);
+    }
+
+    private Map<Object, BigDecimal> receitasDoCubo(Dimensao dimensao, LocalDateTime inicio, LocalDateTime fim) {
+        return doCubo(dimensao, inicio, fim, linha -> linha.getReceita().setScale(2));
+    }
+
+    private <T> Map<Object, T> doCubo(Dimensao dimensao, LocalDateTime inicio, LocalDateTime fim,
+                                      Function<LinhaAnaliseDTO, T> medida) {
+        Map<Object, T> valores = new HashMap<>();
+        cuboVendasService.consultar(new Consulta(List.of(dimensao), inicio, fim, null, null, null, null, Integer.MAX_VALUE))
+            .forEach(linha -> valores.put(linha.getDimensoes().get(dimensao.name()), medida.apply(linha)));
+        return valores;
+    }
+
+    // [chave, soma, ...] das consultas do repositório; doces viram id, como no cubo
+    private static Map<Object, Long> quantidades(List<Object[]> linhas) {
+        Map<Object, Long> valores = new HashMap<>();
+        linhas.forEach(linha -> valores.put(chave(linha[0]), ((Number) linha[1]).longValue()));
+        return valores;
+    }
+
+    private static Map<Object, BigDecimal> receitas(List<Object[]> linhas) {
+        Map<Object, BigDecimal> valores = new HashMap<>();
+        linhas.forEach(linha -> valores.put(chave(linha[0]), ((BigDecimal) linha[1]).setScale(2)));
+        return valores;
+    }
+
+    private static Object chave(Object valor) {
+        return valor instanceof Doce doce ? doce.getId() : valor;
+    }
+
+    // Pedido n: 1 a 3 itens de doces e quantidades variados; um a cada quatro não foi entregue
+    private Pedido criarPedido(LocalDateTime criadoEm, int n) {
+        Pedido pedido = new Pedido();
+        pedido.setCliente(cliente);
+        pedido.setStatus(n % 4 == 3 ? NAO_ENTREGUES[(n / 4) % NAO_ENTREGUES.length] : StatusPedido.ENTREGUE);
+        pedido.setFormaPagamento(FormaPagamento.values()[n % FormaPagamento.values().length]);
+        pedido.setTipoEntrega(TipoEntrega.RETIRADA_LOJA);
+
+        List<ItemPedido> itens = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i <= n % 3; i++) {
+            Doce doce = doces.get((n + i) % doces.size());
+            ItemPedido item = new ItemPedido();
+            item.setPedido(pedido);
+            item.setDoce(doce);
+            item.setQuantidade(1 + (n * 7 + i) % 4);
+            item.setPrecoUnitario(doce.getPreco());
+            item.setPrecoTotal(doce.getPreco().multiply(BigDecimal.valueOf(item.getQuantidade())));
+            if ((n + i) % 5 == 0) {
+                item.setPersonalizacao("Extra chocolate");
+            }
+            total = total.add(item.getPrecoTotal());
+            itens.add(item);
+        }
+        pedido.setItens(itens);
+        pedido.setValorTotal(total);
+        pedido.setValorFinal(total);
+
+        Pedido salvo = pedidoRepository.save(pedido);
+        pedidos.add(salvo.getId());
+        // created_at é preenchido pelo @PrePersist; o teste precisa de datas no passado, gravadas pelo Hibernate
+        // como a aplicação grava (hibernate.jdbc.time_zone)
+        transactionTemplate.executeWithoutResult(status -> entityManager
+            .createQuery("UPDATE Pedido p SET p.createdAt = :criadoEm WHERE p.id = :id")
+            .setParameter("criadoEm", criadoEm)
+            .setParameter("id", salvo.getId())
+            .executeUpdate());
+        salvo.setCreatedAt(criadoEm);
+        return salvo;
+    }
+
+    private Doce criarDoce(TipoDoce tipo, SaborMorango sabor, String preco) {
+        Doce doce = new Doce();
+        doce.setNome("Morango do Amor Cubo " + tipo + " " + System.nanoTime());
+        doce.setPreco(new BigDecimal(preco));
+        doce.setTipo(tipo);
+        doce.setSabor(sabor);
+        doce.setEstoqueAtual(100);
+        doce.setTempoPreparoMinutos(30);
+        return doceRepository.save(doce);
+    }
+}
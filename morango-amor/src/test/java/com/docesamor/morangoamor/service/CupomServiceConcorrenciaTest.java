@@ -0,0 +1,122 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.Cliente;
+import com.docesamor.morangoamor.entity.Cupom;
+import com.docesamor.morangoamor.entity.TipoCupom;
+import com.docesamor.morangoamor.repository.CupomRepository;
+import com.docesamor.morangoamor.service.PrecificacaoService.Desconto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Banco do perfil test (application-test.yml): UPDATE ... RETURNING e upsert precisam de PostgreSQL
+@SpringBootTest
+@ActiveProfiles("test")
+class CupomServiceConcorrenciaTest {
+
+    private static final int PEDIDOS_SIMULTANEOS = 20;
+
+    @Autowired
+    private CupomService cupomService;
+
+    @Autowired
+    private CupomRepository cupomRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> criados = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        cupomRepository.deleteAllById(criados);
+        cupomService.recarregar();
+    }
+
+    // pedidos simultâneos nunca passam do limite global: só os primeiros 5 levam desconto
+    @Test
+    void limiteGlobalNaoEhExcedidoComPedidosSimultaneos() throws Exception {
+        Cupom cupom = criarCupom("TESTE_LIMITE_5", 5);
+
+        List<Desconto> descontos = aplicarEmParalelo(cupom.getCodigo());
+
+        assertThat(descontos.stream().filter(d -> d != Desconto.NENHUM)).hasSize(5);
+        assertThat(usosRealizados(cupom)).isEqualTo(5);
+    }
+
+    // sem limite global todos levam desconto e os usos contados em memória chegam ao banco
+    @Test
+    void semLimiteGlobalTodosOsUsosSaoGravados() throws Exception {
+        Cupom cupom = criarCupom("TESTE_SEM_LIMITE", null);
+
+        List<Desconto> descontos = aplicarEmParalelo(cupom.getCodigo());
+        assertThat(descontos).doesNotContain(Desconto.NENHUM);
+        assertThat(usosRealizados(cupom)).isZero();
+
+        cupomService.gravarUsos();
+        assertThat(usosRealizados(cupom)).isEqualTo(PEDIDOS_SIMULTANEOS);
+    }
+
+    private Cupom criarCupom(String codigo, Integer limiteUsos) {
+        Cupom cupom = new Cupom();
+        cupom.setCodigo(codigo);
+        cupom.setTipo(TipoCupom.VALOR_FIXO);
+        cupom.setValor(new BigDecimal("5.00"));
+        cupom.setLimiteUsos(limiteUsos);
+        Cupom salvo = cupomRepository.save(cupom);
+        criados.add(salvo.getId());
+        cupomService.recarregar();
+        return salvo;
+    }
+
+    // cada uso em sua própria transação, todos liberados ao mesmo tempo
+    private List<Desconto> aplicarEmParalelo(String codigo) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PEDIDOS_SIMULTANEOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Desconto>> futuros = new ArrayList<>();
+            for (int i = 0; i < PEDIDOS_SIMULTANEOS; i++) {
+                Cliente cliente = cliente(i);
+                Callable<Desconto> uso = () -> {
+                    largada.await();
+                    return transactionTemplate.execute(status -> cupomService.aplicar(codigo, cliente, 10_000));
+                };
+                futuros.add(executor.submit(uso));
+            }
+            largada.countDown();
+            List<Desconto> descontos = new ArrayList<>();
+            for (Future<Desconto> futuro : futuros) {
+                descontos.add(futuro.get());
+            }
+            return descontos;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Cliente cliente(int i) {
+        Cliente cliente = new Cliente();
+        cliente.setId(1_000_000L + i);
+        cliente.setNome("Cliente " + i);
+        cliente.setEmail("cupom" + i + "@example.com");
+        return cliente;
+    }
+
+    private int usosRealizados(Cupom cupom) {
+        return cupomRepository.findById(cupom.getId()).orElseThrow().getUsosRealizados();
+    }
+}
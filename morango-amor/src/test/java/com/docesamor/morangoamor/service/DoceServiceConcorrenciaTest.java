@@ -0,0 +1,117 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.Doce;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.repository.DoceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Banco do perfil test (application-test.yml): a reserva é um UPDATE ... RETURNING do PostgreSQL
+@SpringBootTest
+@ActiveProfiles("test")
+class DoceServiceConcorrenciaTest {
+
+    private static final int COMPRADORES = 64;
+    private static final int ESTOQUE_INICIAL = 500;
+
+    @Autowired
+    private DoceService doceService;
+
+    @Autowired
+    private DoceRepository doceRepository;
+
+    private Long doceId;
+
+    @AfterEach
+    void tearDown() {
+        if (doceId != null) {
+            doceRepository.deleteById(doceId);
+        }
+    }
+
+    // 64 compradores disputam o mesmo doce até esgotá-lo: nada é vendido além do estoque
+    @Test
+    void reservasSimultaneasNuncaVendemAlemDoEstoque() throws Exception {
+        doceId = criarDoce(ESTOQUE_INICIAL).getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(COMPRADORES);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Integer>> compradores = new ArrayList<>();
+        try {
+            for (int i = 0; i < COMPRADORES; i++) {
+                Callable<Integer> comprador = () -> {
+                    largada.await();
+                    return comprarAteEsgotar();
+                };
+                compradores.add(executor.submit(comprador));
+            }
+            largada.countDown();
+
+            int totalReservado = 0;
+            for (Future<Integer> comprador : compradores) {
+                totalReservado += comprador.get();
+            }
+
+            int estoqueFinal = doceRepository.findById(doceId).orElseThrow().getEstoqueAtual();
+            assertThat(estoqueFinal).isGreaterThanOrEqualTo(0);
+            assertThat(totalReservado).isEqualTo(ESTOQUE_INICIAL);
+            assertThat(estoqueFinal).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // pedido sem saldo não reserva nada nem mexe no estoque
+    @Test
+    void reservaMaiorQueOSaldoNaoReservaNada() {
+        doceId = criarDoce(2).getId();
+
+        assertThat(doceService.reservarEstoque(doceId, 3)).isZero();
+        assertThat(doceService.reservarEstoque(doceId, 2)).isEqualTo(2);
+        assertThat(doceRepository.findById(doceId).orElseThrow().getEstoqueAtual()).isZero();
+    }
+
+    // Compra de 1 a 3 unidades por vez; quando o lote não cabe mais, tenta uma unidade até não sobrar nada
+    private int comprarAteEsgotar() {
+        int reservado = 0;
+        while (true) {
+            int quantidade = ThreadLocalRandom.current().nextInt(1, 4);
+            int obtido = doceService.reservarEstoque(doceId, quantidade);
+            if (obtido == 0 && quantidade > 1) {
+                obtido = doceService.reservarEstoque(doceId, 1);
+            }
+            if (obtido == 0) {
+                return reservado;
+            }
+            assertThat(obtido).isIn(1, quantidade);
+            reservado += obtido;
+        }
+    }
+
+    private Doce criarDoce(int estoque) {
+        Doce doce = new Doce();
+        doce.setNome("Morango do Amor Relâmpago " + System.nanoTime());
+        doce.setPreco(new BigDecimal("12.00"));
+        doce.setTipo(TipoDoce.MORANGO_AMOR_TRADICIONAL);
+        doce.setSabor(SaborMorango.MORANGO_NATURAL);
+        doce.setEstoqueAtual(estoque);
+        doce.setEstoqueMinimo(0);
+        return doceRepository.save(doce);
+    }
+}
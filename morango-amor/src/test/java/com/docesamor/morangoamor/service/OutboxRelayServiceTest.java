@@ -0,0 +1,154 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.entity.EventoOutbox;
+import com.docesamor.morangoamor.repository.EventoOutboxRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Relay do outbox contra um broker Kafka embutido (o perfil test aponta spring.kafka.bootstrap-servers para ele)
+@SpringBootTest
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 3, topics = {OutboxRelayServiceTest.TOPICO_ORDEM, OutboxRelayServiceTest.TOPICO_FALHA})
+class OutboxRelayServiceTest {
+
+    static final String TOPICO_ORDEM = "outbox-teste-ordem";
+    static final String TOPICO_FALHA = "outbox-teste-falha";
+
+    // Acima do max.request.size padrão do produtor (1 MB): o envio falha na hora, sem chegar ao broker
+    private static final int PAYLOAD_RECUSADO = 2 * 1024 * 1024;
+
+    @Autowired
+    private OutboxRelayService outboxRelayService;
+
+    @Autowired
+    private EventoOutboxRepository outboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    private Consumer<String, byte[]> consumer;
+
+    @BeforeEach
+    void setUp() {
+        // Outros contextos de teste no mesmo banco podem estar com o lease do relay
+        jdbcTemplate.update("DELETE FROM outbox_relay");
+        // Pendências deixadas por outros testes saem agora, antes dos eventos deste teste
+        outboxRelayService.drenar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (consumer != null) {
+            consumer.close();
+        }
+    }
+
+    // lote com várias chaves intercaladas: cada chave chega na ordem em que os eventos foram gravados
+    @Test
+    void eventosDeCadaChaveChegamNaOrdemDoOutbox() {
+        consumer = consumidor(TOPICO_ORDEM);
+        Map<String, List<Long>> gravados = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            for (int chave = 0; chave < 4; chave++) {
+                EventoOutbox evento = gravar(TOPICO_ORDEM, "pedido-" + chave, 16);
+                gravados.computeIfAbsent(evento.getChave(), c -> new ArrayList<>()).add(evento.getId());
+            }
+        }
+
+        outboxRelayService.drenar();
+
+        assertThat(porChave(consumir(20))).isEqualTo(gravados);
+        assertThat(outboxRepository.countByEnviadoEmIsNull()).isZero();
+    }
+
+    // falha no meio de uma chave: os eventos seguintes dela esperam o reenvio, as outras chaves seguem;
+    // o consumidor nunca vê um evento posterior antes do que falhou (B, A, B)
+    @Test
+    void falhaSeguraOsEventosSeguintesDaMesmaChave() {
+        consumer = consumidor(TOPICO_FALHA);
+        EventoOutbox a1 = gravar(TOPICO_FALHA, "pedido-a", 16);
+        EventoOutbox a2 = gravar(TOPICO_FALHA, "pedido-a", PAYLOAD_RECUSADO);
+        EventoOutbox a3 = gravar(TOPICO_FALHA, "pedido-a", 16);
+        EventoOutbox b1 = gravar(TOPICO_FALHA, "pedido-b", 16);
+        EventoOutbox b2 = gravar(TOPICO_FALHA, "pedido-b", 16);
+
+        outboxRelayService.drenar();
+
+        assertThat(porChave(consumir(3))).isEqualTo(Map.of(
+            "pedido-a", List.of(a1.getId()),
+            "pedido-b", List.of(b1.getId(), b2.getId())));
+        EventoOutbox falhou = outboxRepository.findById(a2.getId()).orElseThrow();
+        assertThat(falhou.getEnviadoEm()).isNull();
+        assertThat(falhou.getTentativas()).isEqualTo(1);
+        assertThat(falhou.getUltimoErro()).isNotBlank();
+        EventoOutbox seguinte = outboxRepository.findById(a3.getId()).orElseThrow();
+        assertThat(seguinte.getEnviadoEm()).isNull();
+        assertThat(seguinte.getTentativas()).isZero();
+
+        // a causa da falha desaparece: o próximo ciclo entrega o evento que falhou e depois o seguinte
+        falhou.setPayload("ok".getBytes(StandardCharsets.UTF_8));
+        outboxRepository.save(falhou);
+        outboxRelayService.drenar();
+
+        assertThat(porChave(consumir(2))).isEqualTo(Map.of("pedido-a", List.of(a2.getId(), a3.getId())));
+        assertThat(outboxRepository.countByEnviadoEmIsNull()).isZero();
+    }
+
+    private EventoOutbox gravar(String topico, String chave, int tamanhoPayload) {
+        return outboxRepository.save(new EventoOutbox(topico, chave, new byte[tamanhoPayload]));
+    }
+
+    private Consumer<String, byte[]> consumidor(String topico) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-teste-" + UUID.randomUUID(), "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        Consumer<String, byte[]> novo = new DefaultKafkaConsumerFactory<>(props,
+            new StringDeserializer(), new ByteArrayDeserializer()).createConsumer();
+        embeddedKafka.consumeFromAnEmbeddedTopic(novo, topico);
+        return novo;
+    }
+
+    // Lê pelo menos `quantidade` mensagens e mais o que chegar em seguida, para pegar envios que não deviam existir
+    private List<ConsumerRecord<String, byte[]>> consumir(int quantidade) {
+        List<ConsumerRecord<String, byte[]>> recebidos = new ArrayList<>();
+        KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(10), quantidade).forEach(recebidos::add);
+        consumer.poll(Duration.ofSeconds(1)).forEach(recebidos::add);
+        return recebidos;
+    }
+
+    // chave -> ids do outbox (header evento-id) na ordem de chegada
+    private static Map<String, List<Long>> porChave(List<ConsumerRecord<String, byte[]>> recebidos) {
+        Map<String, List<Long>> ids = new LinkedHashMap<>();
+        for (ConsumerRecord<String, byte[]> recebido : recebidos) {
+            String eventoId = new String(recebido.headers().lastHeader("evento-id").value(), StandardCharsets.UTF_8);
+            ids.computeIfAbsent(recebido.key(), chave -> new ArrayList<>()).add(Long.valueOf(eventoId));
+        }
+        return ids;
+    }
+}
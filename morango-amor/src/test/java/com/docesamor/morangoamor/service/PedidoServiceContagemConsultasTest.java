@@ -0,0 +1,144 @@
+package com.docesamor.morangoamor.service;
+
+import com.docesamor.morangoamor.dto.ClienteDTO;
+import com.docesamor.morangoamor.dto.CriarPedidoRequestDTO;
+import com.docesamor.morangoamor.dto.ItemPedidoDTO;
+import com.docesamor.morangoamor.dto.PedidoResponseDTO;
+import com.docesamor.morangoamor.entity.Doce;
+import com.docesamor.morangoamor.entity.FormaPagamento;
+import com.docesamor.morangoamor.entity.SaborMorango;
+import com.docesamor.morangoamor.entity.TipoDoce;
+import com.docesamor.morangoamor.entity.TipoEntrega;
+import com.docesamor.morangoamor.repository.ClienteRepository;
+import com.docesamor.morangoamor.repository.DoceRepository;
+import com.docesamor.morangoamor.repository.PedidoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Os doces do pedido são carregados numa única consulta, seja qual for o número de itens
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class PedidoServiceContagemConsultasTest {
+
+    private static final int DOCES = 20;
+    private static final Pattern LEITURA_DE_DOCES =
+        Pattern.compile("^(\\[CRITERIA\\] )?select\\b.*\\bfrom (doces|Doce)\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @Autowired
+    private PedidoService pedidoService;
+
+    @Autowired
+    private DoceRepository doceRepository;
+
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @Autowired
+    private PedidoRepository pedidoRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final List<Long> doceIds = new ArrayList<>();
+    private final List<Long> pedidos = new ArrayList<>();
+    private final String email = "consultas" + System.nanoTime() + "@example.com";
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < DOCES; i++) {
+            Doce doce = new Doce();
+            doce.setNome("Morango do Amor Consultas " + i + " " + System.nanoTime());
+            doce.setPreco(new BigDecimal("12.00"));
+            doce.setTipo(TipoDoce.MORANGO_AMOR_TRADICIONAL);
+            doce.setSabor(SaborMorango.MORANGO_NATURAL);
+            doce.setEstoqueAtual(100);
+            doce.setEstoqueMinimo(0);
+            doce.setTempoPreparoMinutos(30);
+            doceIds.add(doceRepository.save(doce).getId());
+        }
+        // Primeiro pedido cadastra o cliente; os medidos são de cliente recorrente
+        pedidos.add(pedidoService.criarPedido(pedido(doceIds.subList(0, 1))).getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pedidoRepository.deleteAllById(pedidos);
+        clienteRepository.findPorEmailNormalizado(email).ifPresent(clienteRepository::delete);
+        doceRepository.deleteAllById(doceIds);
+    }
+
+    // 1, 5 ou 20 doces distintos: um SELECT de doces por pedido, nenhuma leitura por id
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 20})
+    void umaConsultaDeDocesPorPedido(int itens) {
+        statistics.clear();
+
+        PedidoResponseDTO pedido = pedidoService.criarPedido(pedido(doceIds.subList(0, itens)));
+        pedidos.add(pedido.getId());
+
+        EntityStatistics doces = statistics.getEntityStatistics(Doce.class.getName());
+        assertThat(consultasDeDoces()).isEqualTo(1);
+        assertThat(doces.getFetchCount()).isZero();
+        assertThat(doces.getLoadCount()).isEqualTo(itens);
+    }
+
+    // o mesmo doce repetido em várias linhas do pedido continua custando uma consulta
+    @Test
+    void doceRepetidoNoPedidoNaoGeraConsultaExtra() {
+        Long doceId = doceIds.get(0);
+        statistics.clear();
+
+        pedidos.add(pedidoService.criarPedido(pedido(List.of(doceId, doceId, doceId))).getId());
+
+        assertThat(consultasDeDoces()).isEqualTo(1);
+        assertThat(statistics.getEntityStatistics(Doce.class.getName()).getLoadCount()).isEqualTo(1);
+        assertThat(doceRepository.findById(doceId).orElseThrow().getEstoqueAtual()).isEqualTo(100 - 1 - 3);
+    }
+
+    // Execuções de SELECT em doces; consultas por Criteria (findAllById) ficam registradas pelo SQL gerado
+    private long consultasDeDoces() {
+        return Arrays.stream(statistics.getQueries())
+            .filter(consulta -> LEITURA_DE_DOCES.matcher(consulta).find())
+            .mapToLong(consulta -> statistics.getQueryStatistics(consulta).getExecutionCount())
+            .sum();
+    }
+
+    private CriarPedidoRequestDTO pedido(List<Long> doces) {
+        ClienteDTO cliente = new ClienteDTO();
+        cliente.setNome("Cliente Consultas");
+        cliente.setEmail(email);
+
+        CriarPedidoRequestDTO request = new CriarPedidoRequestDTO();
+        request.setCliente(cliente);
+        request.setItens(doces.stream().map(doceId -> {
+            ItemPedidoDTO item = new ItemPedidoDTO();
+            item.setDoceId(doceId);
+            item.setQuantidade(1);
+            return item;
+        }).toList());
+        request.setFormaPagamento(FormaPagamento.DINHEIRO);
+        request.setTipoEntrega(TipoEntrega.RETIRADA_LOJA);
+        return request;
+    }
+}
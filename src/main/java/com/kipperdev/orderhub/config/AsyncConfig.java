@@ -0,0 +1,21 @@
+package com.kipperdev.orderhub.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Virtual threads so slow gateway calls don't pin platform threads;
+    // concurrency is bounded in PaymentLinkService so submitters never block
+    @Bean
+    public TaskExecutor paymentExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("payment-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
@@ -1,7 +1,10 @@
 package com.kipperdev.orderhub.controller;
 
+import com.kipperdev.orderhub.dto.CursorPageDTO;
+import com.kipperdev.orderhub.dto.ExportFormat;
 import com.kipperdev.orderhub.dto.OrderResponseDTO;
 import com.kipperdev.orderhub.entity.OrderStatus;
+import com.kipperdev.orderhub.service.OrderExportService;
 import com.kipperdev.orderhub.service.OrderService;
 import com.kipperdev.orderhub.specification.OrderSpecification;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +15,7 @@ import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -23,6 +27,9 @@ import java.util.Map;
 public class AdminOrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 200;
 
     @GetMapping
     public ResponseEntity<Page<OrderResponseDTO>> getAllOrders(
@@ -49,6 +56,47 @@ public class AdminOrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Cursor listing for deep pages: constant cost per page and no COUNT
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDTO<OrderResponseDTO>> getOrdersByCursor(
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) String customerEmail,
+            @RequestParam(required = false) String customerName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("Consulta administrativa de pedidos por cursor - status: {}, email: {}, nome: {}, período: {} a {}", 
+            status, customerEmail, customerName, startDate, endDate);
+        
+        var specification = OrderSpecification.withFilters(status, customerEmail, startDate, endDate);
+        
+        if (customerName != null && !customerName.trim().isEmpty()) {
+            specification = specification.and(OrderSpecification.byCustomerName(customerName));
+        }
+        
+        CursorPageDTO<OrderResponseDTO> page;
+        try {
+            page = orderService.filterOrdersByCursor(specification, cursor, size);
+        } catch (IllegalArgumentException e) {
+            log.warn("Cursor inválido recebido: {}", cursor);
+            return ResponseEntity.badRequest().build();
+        }
+        
+        if (includeTotal) {
+            page.setApproximateTotal(orderService.approximateOrderCount(
+                status, customerEmail, customerName, startDate, endDate));
+        }
+        
+        return ResponseEntity.ok(page);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponseDTO> getOrderById(@PathVariable Long id) {
         log.info("Consulta administrativa do pedido: {}", id);
@@ -88,28 +136,32 @@ public class AdminOrderController {
     }
 
     @GetMapping("/export")
-    public ResponseEntity<String> exportOrders(
+    public ResponseEntity<StreamingResponseBody> exportOrders(
             @RequestParam(required = false) OrderStatus status,
             @RequestParam(required = false) String customerEmail,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(defaultValue = "csv") String format) {
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
         
-        log.info("Exportando pedidos - formato: {}, status: {}, email: {}, período: {} a {}", 
-            format, status, customerEmail, startDate, endDate);
+        log.info("Exportando pedidos - formato: {}, gzip: {}, status: {}, email: {}, período: {} a {}", 
+            format, gzip, status, customerEmail, startDate, endDate);
         
+        ExportFormat exportFormat;
         try {
-            String exportData = orderService.exportOrders(status, customerEmail, startDate, endDate, format);
-            
-            return ResponseEntity.ok()
-                .header("Content-Type", format.equals("csv") ? "text/csv" : "application/json")
-                .header("Content-Disposition", "attachment; filename=orders." + format)
-                .body(exportData);
-                
-        } catch (Exception e) {
-            log.error("Erro ao exportar pedidos: {}", e.getMessage());
-            return ResponseEntity.internalServerError().body("Erro ao exportar dados");
+            exportFormat = ExportFormat.from(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+        
+        var specification = OrderSpecification.withFilters(status, customerEmail, startDate, endDate);
+        StreamingResponseBody body = output -> orderExportService.exportOrders(specification, exportFormat, gzip, output);
+        
+        String filename = "orders." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+            .header("Content-Type", gzip ? "application/gzip" : exportFormat.getContentType())
+            .header("Content-Disposition", "attachment; filename=" + filename)
+            .body(body);
     }
 
     @PostMapping("/{id}/cancel")
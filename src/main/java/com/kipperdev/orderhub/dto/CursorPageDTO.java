@@ -0,0 +1,20 @@
+package com.kipperdev.orderhub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// One page of a cursor listing; a null nextCursor marks the last page.
+// approximateTotal comes from the order statistics and is only set when requested
+// and when the filters can be answered from them.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    private List<T> content;
+    private String nextCursor;
+    private Long approximateTotal;
+}
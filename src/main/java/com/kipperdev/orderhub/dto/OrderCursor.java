@@ -0,0 +1,31 @@
+package com.kipperdev.orderhub.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in a listing ordered by (createdAt DESC, id DESC), exchanged with clients as an opaque token
+public record OrderCursor(LocalDateTime createdAt, Long id) {
+
+    public static OrderCursor of(OrderResponseDTO order) {
+        return new OrderCursor(order.getCreatedAt(), order.getId());
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new OrderCursor(
+                LocalDateTime.parse(raw.substring(0, separator)),
+                Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido: " + token);
+        }
+    }
+}
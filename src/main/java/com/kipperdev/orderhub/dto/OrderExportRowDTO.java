@@ -0,0 +1,24 @@
+package com.kipperdev.orderhub.dto;
+
+import com.kipperdev.orderhub.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Scalar projection used by the export; never enters the persistence context
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderExportRowDTO {
+
+    private Long id;
+    private String customerName;
+    private String customerEmail;
+    private OrderStatus status;
+    private BigDecimal totalAmount;
+    private String paymentMethod;
+    private LocalDateTime createdAt;
+}
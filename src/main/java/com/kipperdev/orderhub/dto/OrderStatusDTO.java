@@ -21,4 +21,5 @@ public class OrderStatusDTO {
     private LocalDateTime updatedAt;
     private LocalDateTime paidAt;
     private String customerEmail;
+    private String paymentLink;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.kipperdev.orderhub.dto;
+
+import com.kipperdev.orderhub.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusTotalsDTO {
+
+    private OrderStatus status;
+    private Long count;
+    private BigDecimal totalAmount;
+}
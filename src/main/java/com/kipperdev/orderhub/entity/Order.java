@@ -6,13 +6,19 @@ import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    // Admin listing order and cursor seek
+    @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"),
+    // Payment link retry job: orders still waiting for a link, by due time
+    @Index(name = "idx_orders_payment_link_retry_at", columnList = "payment_link_retry_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -44,6 +50,14 @@ public class Order {
     @Column(name = "payment_link")
     private String paymentLink;
 
+    // Set while the payment link is still pending: when the next gateway attempt is due (or until when the
+    // current attempt holds its lease). Cleared once the link is stored.
+    @Column(name = "payment_link_retry_at")
+    private LocalDateTime paymentLinkRetryAt;
+
+    @Column(name = "payment_link_attempts")
+    private Integer paymentLinkAttempts;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
@@ -53,13 +67,18 @@ public class Order {
     @Column(name = "paid_at")
     private LocalDateTime paidAt;
 
+    // Items of a page of orders are initialized together in one IN query instead of one query per order
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     private List<OrderItem> items;
 
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        if (paymentLinkAttempts == null) {
+            paymentLinkAttempts = 0;
+        }
         if (status == null) {
             status = OrderStatus.PENDING_PAYMENT;
         }
@@ -0,0 +1,17 @@
+package com.kipperdev.orderhub.event;
+
+import com.kipperdev.orderhub.entity.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Internal application event: an order was created (oldStatus null) or changed status
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusChangedEvent {
+
+    private Long orderId;
+    private OrderStatus oldStatus;
+    private OrderStatus newStatus;
+}
@@ -0,0 +1,14 @@
+package com.kipperdev.orderhub.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Internal application event: published inside the order transaction, handled after commit
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentLinkRequestedEvent {
+
+    private Long orderId;
+}
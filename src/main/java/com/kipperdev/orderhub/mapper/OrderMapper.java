@@ -35,6 +35,8 @@ public interface OrderMapper {
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "paidAt", ignore = true)
+    @Mapping(target = "paymentLinkRetryAt", ignore = true)
+    @Mapping(target = "paymentLinkAttempts", ignore = true)
     Order toOrderEntity(CreateOrderRequestDTO createOrderRequestDTO);
 
     @Mapping(target = "statusDescription", source = "status", qualifiedByName = "getStatusDescription")
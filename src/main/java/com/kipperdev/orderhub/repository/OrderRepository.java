@@ -1,11 +1,15 @@
 package com.kipperdev.orderhub.repository;
 
+import com.kipperdev.orderhub.dto.OrderStatusTotalsDTO;
 import com.kipperdev.orderhub.entity.Order;
 import com.kipperdev.orderhub.entity.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,8 +23,14 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
 
     Optional<Order> findByAbacateTransactionId(String abacateTransactionId);
     
+    @EntityGraph(attributePaths = {"customer"})
     List<Order> findByCustomerEmail(String email);
     
+    // Page query joins the customer; items are batch-loaded (see Order.items)
+    @Override
+    @EntityGraph(attributePaths = {"customer"})
+    Page<Order> findAll(Specification<Order> spec, Pageable pageable);
+    
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
     
     @Query("SELECT o FROM Order o WHERE o.customer.email = :email AND o.createdAt BETWEEN :startDate AND :endDate")
@@ -32,4 +42,54 @@ public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecific
     
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     Long countByStatus(@Param("status") OrderStatus status);
+
+    @Query("SELECT new com.kipperdev.orderhub.dto.OrderStatusTotalsDTO(o.status, COUNT(o), SUM(o.totalAmount)) " +
+           "FROM Order o WHERE (:startDate IS NULL OR o.createdAt >= :startDate) " +
+           "AND (:endDate IS NULL OR o.createdAt <= :endDate) GROUP BY o.status")
+    List<OrderStatusTotalsDTO> sumByStatus(
+        @Param("startDate") LocalDateTime startDate,
+        @Param("endDate") LocalDateTime endDate
+    );
+    
+    @EntityGraph(attributePaths = {"customer"})
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findWithCustomerById(@Param("id") Long id);
+    
+    // Orders whose payment link is still pending and due for a gateway attempt, oldest first
+    @Query("SELECT o.id FROM Order o WHERE o.paymentLink IS NULL AND o.status = :status " +
+           "AND o.paymentLinkRetryAt <= :now ORDER BY o.paymentLinkRetryAt")
+    List<Long> findPendingPaymentLinkIds(
+        @Param("status") OrderStatus status,
+        @Param("now") LocalDateTime now,
+        Pageable pageable
+    );
+    
+    // Leases a due payment link to a single worker: the after-commit handler and the retry job
+    // never call the gateway for the same order at the same time
+    @Modifying
+    @Query("UPDATE Order o SET o.paymentLinkRetryAt = :leaseUntil WHERE o.id = :id AND o.paymentLink IS NULL " +
+           "AND o.status = :status AND o.paymentLinkRetryAt <= :now")
+    int claimPaymentLink(
+        @Param("id") Long id,
+        @Param("status") OrderStatus status,
+        @Param("now") LocalDateTime now,
+        @Param("leaseUntil") LocalDateTime leaseUntil
+    );
+    
+    @Modifying
+    @Query("UPDATE Order o SET o.paymentLinkAttempts = COALESCE(o.paymentLinkAttempts, 0) + 1, " +
+           "o.paymentLinkRetryAt = :retryAt WHERE o.id = :id AND o.paymentLink IS NULL")
+    int schedulePaymentLinkRetry(
+        @Param("id") Long id,
+        @Param("retryAt") LocalDateTime retryAt
+    );
+    
+    @Modifying
+    @Query("UPDATE Order o SET o.abacateTransactionId = :transactionId, o.paymentLink = :paymentLink, " +
+           "o.paymentLinkRetryAt = NULL, o.updatedAt = CURRENT_TIMESTAMP WHERE o.id = :id")
+    int updatePaymentData(
+        @Param("id") Long id,
+        @Param("transactionId") String transactionId,
+        @Param("paymentLink") String paymentLink
+    );
 }
\ No newline at end of file
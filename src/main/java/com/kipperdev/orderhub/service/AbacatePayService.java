@@ -8,6 +8,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.kipperdev.orderhub.client.AbacatePayClient;
@@ -17,6 +18,7 @@ import com.kipperdev.orderhub.dto.abacate.AbacateCustomerDTO;
 import com.kipperdev.orderhub.dto.abacate.AbacateCustomerResponseDTO;
 import com.kipperdev.orderhub.entity.Order;
 import com.kipperdev.orderhub.entity.OrderStatus;
+import com.kipperdev.orderhub.event.OrderStatusChangedEvent;
 import com.kipperdev.orderhub.repository.OrderRepository;
 
 import lombok.RequiredArgsConstructor;
@@ -29,10 +31,15 @@ public class AbacatePayService {
 
     private final AbacatePayClient abacatePayClient;
     private final OrderRepository orderRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Value("${abacate.api.mock-enabled:true}")
     private boolean mockEnabled;
     
+    // Artificial gateway latency for the mock, to exercise checkout against a slow gateway
+    @Value("${abacate.api.mock-delay-ms:0}")
+    private long mockDelayMs;
+    
     @Value("${app.base-url:http://localhost:8080}")
     private String baseUrl;
 
@@ -117,6 +124,14 @@ public class AbacatePayService {
     }
 
     private AbacateChargeResponseDTO.AbacateChargeDataDTO createMockBilling(AbacateChargeRequestDTO request) {
+        if (mockDelayMs > 0) {
+            try {
+                Thread.sleep(mockDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
         AbacateChargeResponseDTO.AbacateChargeDataDTO response = new AbacateChargeResponseDTO.AbacateChargeDataDTO();
         response.setId("bill_" + UUID.randomUUID().toString().substring(0, 8));
         response.setAmount(request.getProducts().get(0).getPrice());
@@ -167,11 +182,13 @@ public class AbacatePayService {
                 OrderStatus newStatus = mapAbacateStatusToOrderStatus(status, event);
                 
                 if (!newStatus.equals(order.getStatus())) {
+                    OrderStatus oldStatus = order.getStatus();
                     order.setStatus(newStatus);
                     if (newStatus == OrderStatus.PAID) {
                         order.setPaidAt(LocalDateTime.now());
                     }
                     orderRepository.save(order);
+                    eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), oldStatus, newStatus));
                     
                     log.info("Pedido {} atualizado via webhook do Abacate Pay para status: {}", order.getId(), newStatus);
                 }
@@ -4,51 +4,109 @@ import com.kipperdev.orderhub.dto.CustomerDTO;
 import com.kipperdev.orderhub.entity.Customer;
 import com.kipperdev.orderhub.mapper.OrderMapper;
 import com.kipperdev.orderhub.repository.CustomerRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
+/**
+ * Customers are resolved through a bounded LRU cache of email -> id, so a repeat customer costs one
+ * primary-key lookup and no write unless name, phone or document actually changed. New customers are
+ * inserted in their own transaction; a concurrent insert of the same email surfaces as a constraint
+ * violation and is resolved by reading the winner's row.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
     private final OrderMapper orderMapper;
+    private final TransactionTemplate newTransaction;
+    private final Map<String, Long> idsByEmail;
+
+    public CustomerService(CustomerRepository customerRepository,
+                           OrderMapper orderMapper,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.customers.cache-size:10000}") int cacheSize) {
+        this.customerRepository = customerRepository;
+        this.orderMapper = orderMapper;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.idsByEmail = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
 
     @Transactional
     public Customer getOrCreateCustomer(CustomerDTO customerDTO) {
-        Optional<Customer> existingCustomer = customerRepository.findByEmail(customerDTO.getEmail());
-        
-        if (existingCustomer.isPresent()) {
-            Customer customer = existingCustomer.get();
-            if (!customer.getName().equals(customerDTO.getName()) || 
-                !customer.getPhone().equals(customerDTO.getPhone()) ||
-                !customer.getDocument().equals(customerDTO.getDocument())) {
-                customer.setName(customerDTO.getName());
-                customer.setPhone(customerDTO.getPhone());
-                customer.setDocument(customerDTO.getDocument());
-                customer = customerRepository.save(customer);
-                log.info("Cliente atualizado: {}", customer.getEmail());
+        Customer customer = findExisting(customerDTO.getEmail()).orElse(null);
+
+        if (customer == null) {
+            customer = create(customerDTO);
+        } else if (!Objects.equals(customer.getName(), customerDTO.getName()) ||
+                   !Objects.equals(customer.getPhone(), customerDTO.getPhone()) ||
+                   !Objects.equals(customer.getDocument(), customerDTO.getDocument())) {
+            customer.setName(customerDTO.getName());
+            customer.setPhone(customerDTO.getPhone());
+            customer.setDocument(customerDTO.getDocument());
+            customer = customerRepository.save(customer);
+            log.info("Cliente atualizado: {}", customer.getEmail());
+        }
+
+        idsByEmail.put(customer.getEmail(), customer.getId());
+        return customer;
+    }
+
+    private Optional<Customer> findExisting(String email) {
+        Long cachedId = idsByEmail.get(email);
+        if (cachedId != null) {
+            Optional<Customer> cached = customerRepository.findById(cachedId);
+            if (cached.isPresent()) {
+                return cached;
             }
-            return customer;
-        } else {
-            Customer newCustomer = orderMapper.toCustomerEntity(customerDTO);
-            newCustomer = customerRepository.save(newCustomer);
-            log.info("Novo cliente criado: {}", newCustomer.getEmail());
-            return newCustomer;
+            idsByEmail.remove(email);
+        }
+        return customerRepository.findByEmail(email);
+    }
+
+    private Customer create(CustomerDTO customerDTO) {
+        try {
+            Long id = newTransaction.execute(status -> {
+                Customer newCustomer = customerRepository.save(orderMapper.toCustomerEntity(customerDTO));
+                log.info("Novo cliente criado: {}", newCustomer.getEmail());
+                return newCustomer.getId();
+            });
+            return customerRepository.findById(id).orElseThrow();
+        } catch (DataIntegrityViolationException e) {
+            // Another request created the same customer between our lookup and insert
+            log.info("Cliente {} criado em paralelo, reutilizando o registro existente", customerDTO.getEmail());
+            Customer existing = customerRepository.findByEmail(customerDTO.getEmail()).orElseThrow(() -> e);
+            existing.setName(customerDTO.getName());
+            existing.setPhone(customerDTO.getPhone());
+            existing.setDocument(customerDTO.getDocument());
+            return existing;
         }
     }
-    
+
     public Optional<CustomerDTO> findByEmail(String email) {
         return customerRepository.findByEmail(email)
             .map(orderMapper::toCustomerDTO);
     }
-    
+
     public boolean existsByEmail(String email) {
         return customerRepository.existsByEmail(email);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,174 @@
+package com.kipperdev.orderhub.service;
+
+import com.kipperdev.orderhub.dto.ExportFormat;
+import com.kipperdev.orderhub.dto.OrderExportRowDTO;
+import com.kipperdev.orderhub.entity.Order;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Streams the filtered orders straight to the response: rows are read through a cursor
+// (fetch size hint) as scalar projections, so memory stays flat regardless of the row count
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int FETCH_SIZE = 1000;
+    private static final String CSV_HEADER = "ID,Cliente,Email,Status,Valor Total,Data Criação\n";
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void exportOrders(Specification<Order> specification, ExportFormat format, boolean gzip,
+                             OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        long rows;
+        
+        OutputStream target = gzip ? new GZIPOutputStream(output, BUFFER_SIZE) : output;
+        try (Stream<OrderExportRowDTO> orders = streamRows(specification)) {
+            rows = switch (format) {
+                case CSV -> writeCsv(orders.iterator(), target);
+                case NDJSON -> writeJson(orders.iterator(), target, false);
+                case JSON -> writeJson(orders.iterator(), target, true);
+            };
+        }
+        
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        target.flush();
+        
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Exportação {} concluída: {} pedidos em {} ms ({} linhas/s)",
+            format, rows, elapsedMs, rows * 1000 / elapsedMs);
+    }
+
+    private Stream<OrderExportRowDTO> streamRows(Specification<Order> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderExportRowDTO> query = cb.createQuery(OrderExportRowDTO.class);
+        Root<Order> root = query.from(Order.class);
+        Path<Object> customer = root.get("customer");
+        
+        query.select(cb.construct(OrderExportRowDTO.class,
+            root.get("id"),
+            customer.get("name"),
+            customer.get("email"),
+            root.get("status"),
+            root.get("totalAmount"),
+            root.get("paymentMethod"),
+            root.get("createdAt")));
+        
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.desc(root.get("createdAt")));
+        
+        return entityManager.createQuery(query)
+            .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+            .setHint(HibernateHints.HINT_READ_ONLY, true)
+            .getResultStream();
+    }
+
+    private long writeCsv(Iterator<OrderExportRowDTO> orders, OutputStream target) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        
+        long rows = 0;
+        while (orders.hasNext()) {
+            OrderExportRowDTO order = orders.next();
+            writer.write(String.valueOf(order.getId()));
+            writer.write(',');
+            writeCsvField(writer, order.getCustomerName());
+            writer.write(',');
+            writeCsvField(writer, order.getCustomerEmail());
+            writer.write(',');
+            writer.write(String.valueOf(order.getStatus()));
+            writer.write(',');
+            writer.write(order.getTotalAmount() != null ? order.getTotalAmount().toPlainString() : "");
+            writer.write(',');
+            writer.write(String.valueOf(order.getCreatedAt()));
+            writer.write('\n');
+            rows++;
+        }
+        
+        writer.flush();
+        return rows;
+    }
+
+    // ndjson: one object per line; json: a single array
+    private long writeJson(Iterator<OrderExportRowDTO> orders, OutputStream target, boolean array) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(target, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        
+        if (array) {
+            generator.writeStartArray();
+        }
+        
+        long rows = 0;
+        while (orders.hasNext()) {
+            OrderExportRowDTO order = orders.next();
+            generator.writeStartObject();
+            generator.writeNumberField("id", order.getId());
+            generator.writeStringField("customerName", order.getCustomerName());
+            generator.writeStringField("customerEmail", order.getCustomerEmail());
+            generator.writeStringField("status", order.getStatus() != null ? order.getStatus().name() : null);
+            if (order.getTotalAmount() != null) {
+                generator.writeNumberField("totalAmount", order.getTotalAmount());
+            } else {
+                generator.writeNullField("totalAmount");
+            }
+            generator.writeStringField("paymentMethod", order.getPaymentMethod());
+            generator.writeStringField("createdAt", order.getCreatedAt() != null ? order.getCreatedAt().toString() : null);
+            generator.writeEndObject();
+            if (!array) {
+                generator.writeRaw('\n');
+            }
+            rows++;
+        }
+        
+        if (array) {
+            generator.writeEndArray();
+        }
+        generator.close();
+        return rows;
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,40 @@
+package com.kipperdev.orderhub.service;
+
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Order totals computed in long cents. BigDecimal is only used to convert item prices on the way in
+ * and totals on the way out to the entities; overflow raises ArithmeticException.
+ */
+@Service
+public class OrderPricingService {
+
+    public PricedOrder price(long[] unitPricesCents, int[] quantities) {
+        if (unitPricesCents.length != quantities.length) {
+            throw new IllegalArgumentException("Prices and quantities must have the same length");
+        }
+
+        long[] lineTotals = new long[unitPricesCents.length];
+        long total = 0;
+        for (int i = 0; i < unitPricesCents.length; i++) {
+            lineTotals[i] = Math.multiplyExact(unitPricesCents[i], quantities[i]);
+            total = Math.addExact(total, lineTotals[i]);
+        }
+        return new PricedOrder(lineTotals, total);
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /** Line totals in item order, plus the order total, all in cents. */
+    public record PricedOrder(long[] lineTotals, long total) {
+    }
+}
@@ -6,18 +6,22 @@ import com.kipperdev.orderhub.entity.Order;
 import com.kipperdev.orderhub.entity.OrderItem;
 import com.kipperdev.orderhub.entity.OrderStatus;
 import com.kipperdev.orderhub.event.OrderCreatedEvent;
+import com.kipperdev.orderhub.event.OrderStatusChangedEvent;
+import com.kipperdev.orderhub.event.PaymentLinkRequestedEvent;
 import com.kipperdev.orderhub.mapper.OrderMapper;
 import com.kipperdev.orderhub.repository.CustomerRepository;
 import com.kipperdev.orderhub.repository.OrderRepository;
+import com.kipperdev.orderhub.specification.OrderSpecification;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -33,21 +37,27 @@ public class OrderService {
     private final CustomerRepository customerRepository;
     private final OrderMapper orderMapper;
     private final CustomerService customerService;
-    private final AbacatePayService abacatePayService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderStatisticsService orderStatisticsService;
     private final KafkaProducerService kafkaProducerService;
+    private final OrderPricingService orderPricingService;
     
     public OrderService(OrderRepository orderRepository,
                        CustomerRepository customerRepository,
                        OrderMapper orderMapper,
                        CustomerService customerService,
-                       AbacatePayService abacatePayService,
+                       ApplicationEventPublisher eventPublisher,
+                       OrderStatisticsService orderStatisticsService,
+                       OrderPricingService orderPricingService,
                        @Autowired(required = false) KafkaProducerService kafkaProducerService) {
         this.orderRepository = orderRepository;
         this.customerRepository = customerRepository;
         this.orderMapper = orderMapper;
         this.customerService = customerService;
-        this.abacatePayService = abacatePayService;
+        this.eventPublisher = eventPublisher;
+        this.orderStatisticsService = orderStatisticsService;
         this.kafkaProducerService = kafkaProducerService;
+        this.orderPricingService = orderPricingService;
     }
 
     @Transactional
@@ -60,47 +70,58 @@ public class OrderService {
         order.setCustomer(customer);
         order.setPaymentMethod(request.getPaymentMethod());
         order.setStatus(OrderStatus.PENDING_PAYMENT);
+        // Pending link is persisted with the order, so a failed or lost attempt is re-driven by the retry job
+        order.setPaymentLinkRetryAt(LocalDateTime.now());
         
         List<OrderItem> orderItems = request.getItems().stream()
             .map(itemDTO -> {
                 OrderItem item = orderMapper.toOrderItemEntity(itemDTO);
                 item.setOrder(order);
-                // Calcular totalPrice manualmente antes de usar
-                if (item.getUnitPrice() != null && item.getQuantity() != null) {
-                    item.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
-                }
                 return item;
             })
             .collect(Collectors.toList());
         
         order.setItems(orderItems);
-        
-        BigDecimal totalAmount = orderItems.stream()
-            .map(OrderItem::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        order.setTotalAmount(totalAmount);
+        applyPricing(order, orderItems);
         
         Order savedOrder = orderRepository.save(order);
         log.info("Pedido criado com ID: {}", savedOrder.getId());
         
-        try {
-            String paymentLink = abacatePayService.createPayment(savedOrder);
-            savedOrder.setPaymentLink(paymentLink);
-            savedOrder = orderRepository.save(savedOrder);
-        } catch (Exception e) {
-            log.error("Erro ao criar pagamento no Abacate Pay para pedido {}: {}", savedOrder.getId(), e.getMessage());
-        }
+        // Payment link is created after commit; clients poll /public/orders/{id}/status for it
+        eventPublisher.publishEvent(new PaymentLinkRequestedEvent(savedOrder.getId()));
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(savedOrder.getId(), null, savedOrder.getStatus()));
         
         publishOrderCreatedEvent(savedOrder);
         
         return orderMapper.toOrderResponseDTO(savedOrder);
     }
     
+    // Totals are computed in cents and converted back to BigDecimal only when stored on the entities
+    private void applyPricing(Order order, List<OrderItem> orderItems) {
+        long[] unitPrices = new long[orderItems.size()];
+        int[] quantities = new int[orderItems.size()];
+        for (int i = 0; i < orderItems.size(); i++) {
+            OrderItem item = orderItems.get(i);
+            if (item.getUnitPrice() == null || item.getQuantity() == null) {
+                throw new IllegalArgumentException("Item sem preço ou quantidade: " + item.getProductSku());
+            }
+            unitPrices[i] = OrderPricingService.toCents(item.getUnitPrice());
+            quantities[i] = item.getQuantity();
+        }
+        
+        OrderPricingService.PricedOrder priced = orderPricingService.price(unitPrices, quantities);
+        for (int i = 0; i < orderItems.size(); i++) {
+            orderItems.get(i).setTotalPrice(OrderPricingService.fromCents(priced.lineTotals()[i]));
+        }
+        order.setTotalAmount(OrderPricingService.fromCents(priced.total()));
+    }
+    
     public Optional<OrderStatusDTO> getOrderStatus(Long orderId) {
         return orderRepository.findById(orderId)
             .map(orderMapper::toOrderStatusDTO);
     }
     
+    @Transactional(readOnly = true)
     public List<OrderStatusDTO> getOrdersByCustomerEmail(String email) {
         List<Order> orders = orderRepository.findByCustomerEmail(email);
         return orders.stream()
@@ -108,60 +129,55 @@ public class OrderService {
             .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public Page<OrderResponseDTO> filterOrders(Specification<Order> spec, Pageable pageable) {
         Page<Order> orders = orderRepository.findAll(spec, pageable);
         return orders.map(orderMapper::toOrderResponseDTO);
     }
     
-    public Optional<OrderResponseDTO> getOrderById(Long orderId) {
-        return orderRepository.findById(orderId)
-            .map(orderMapper::toOrderResponseDTO);
-    }
-    
-    public Map<String, Object> getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
-        Map<String, Object> stats = new HashMap<>();
-        
-        long totalOrders = orderRepository.count();
-        stats.put("totalOrders", totalOrders);
-        
-        for (OrderStatus status : OrderStatus.values()) {
-            long count = orderRepository.countByStatus(status);
-            stats.put("orders" + status.name(), count);
+    // Keyset listing: one query for the page (plus one batch for items), no OFFSET and no COUNT;
+    // fetches one extra row to know whether another page exists
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderResponseDTO> filterOrdersByCursor(Specification<Order> spec, String cursor, int size) {
+        if (cursor != null && !cursor.isBlank()) {
+            OrderCursor position = OrderCursor.decode(cursor);
+            spec = spec.and(OrderSpecification.seekAfter(position.createdAt(), position.id()));
         }
         
-        List<Order> paidOrders = orderRepository.findByStatus(OrderStatus.PAID, Pageable.unpaged()).getContent();
-        BigDecimal totalRevenue = paidOrders.stream()
-            .map(Order::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        stats.put("totalRevenue", totalRevenue);
+        List<Order> orders = orderRepository.findBy(spec, query -> query
+            .sortBy(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+            .project("customer")
+            .limit(size + 1)
+            .all());
         
-        return stats;
+        boolean hasNext = orders.size() > size;
+        List<OrderResponseDTO> content = orders.stream()
+            .limit(size)
+            .map(orderMapper::toOrderResponseDTO)
+            .toList();
+        String nextCursor = hasNext ? OrderCursor.of(content.get(content.size() - 1)).encode() : null;
+        
+        return new CursorPageDTO<>(content, nextCursor, null);
     }
     
-    public String exportOrders(OrderStatus status, String customerEmail, 
-                              LocalDateTime startDate, LocalDateTime endDate, String format) {
-        List<Order> orders = orderRepository.findAll();
-        
-        if ("csv".equalsIgnoreCase(format)) {
-            StringBuilder csv = new StringBuilder();
-            csv.append("ID,Cliente,Email,Status,Valor Total,Data Criação\n");
-            
-            for (Order order : orders) {
-                csv.append(order.getId()).append(",")
-                   .append(order.getCustomer().getName()).append(",")
-                   .append(order.getCustomer().getEmail()).append(",")
-                   .append(order.getStatus()).append(",")
-                   .append(order.getTotalAmount()).append(",")
-                   .append(order.getCreatedAt()).append("\n");
-            }
-            
-            return csv.toString();
-        } else {
-            return orders.stream()
-                .map(orderMapper::toOrderResponseDTO)
-                .collect(Collectors.toList())
-                .toString();
+    // Estimate from the (cached) grouped statistics; customer filters have no statistics behind them
+    public Long approximateOrderCount(OrderStatus status, String customerEmail, String customerName,
+                                      LocalDateTime startDate, LocalDateTime endDate) {
+        if ((customerEmail != null && !customerEmail.trim().isEmpty())
+                || (customerName != null && !customerName.trim().isEmpty())) {
+            return null;
         }
+        Map<String, Object> stats = orderStatisticsService.getOrderStatistics(startDate, endDate);
+        return (Long) stats.get(status == null ? "totalOrders" : "orders" + status.name());
+    }
+    
+    public Optional<OrderResponseDTO> getOrderById(Long orderId) {
+        return orderRepository.findById(orderId)
+            .map(orderMapper::toOrderResponseDTO);
+    }
+    
+    public Map<String, Object> getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
+        return orderStatisticsService.getOrderStatistics(startDate, endDate);
     }
     
     @Transactional
@@ -174,6 +190,7 @@ public class OrderService {
         
         Order updatedOrder = orderRepository.save(order);
         log.info("Status do pedido {} alterado de {} para {}", orderId, oldStatus, newStatus);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId, oldStatus, newStatus));
         
         return orderMapper.toOrderResponseDTO(updatedOrder);
     }
@@ -187,11 +204,13 @@ public class OrderService {
             OrderStatus newStatus = mapAbacateStatusToOrderStatus(status);
             
             if (newStatus != null && !newStatus.equals(order.getStatus())) {
+                OrderStatus oldStatus = order.getStatus();
                 order.setStatus(newStatus);
                 if (newStatus == OrderStatus.PAID) {
                     order.setPaidAt(LocalDateTime.now());
                 }
                 orderRepository.save(order);
+                eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), oldStatus, newStatus));
                 
                 log.info("Pedido {} atualizado via webhook do Abacate Pay para status: {}", order.getId(), newStatus);
                 
@@ -0,0 +1,100 @@
+package com.kipperdev.orderhub.service;
+
+import com.kipperdev.orderhub.dto.OrderStatusTotalsDTO;
+import com.kipperdev.orderhub.entity.OrderStatus;
+import com.kipperdev.orderhub.event.OrderStatusChangedEvent;
+import com.kipperdev.orderhub.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Order statistics from a single grouped query (status -> count, sum) over the requested range,
+// optionally cached per range for app.statistics.cache-ttl and dropped whenever an order changes status
+@Service
+@Slf4j
+public class OrderStatisticsService {
+
+    private static final int MAX_CACHED_RANGES = 256;
+
+    private final OrderRepository orderRepository;
+    private final Duration cacheTtl;
+    private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public OrderStatisticsService(OrderRepository orderRepository,
+                                  @Value("${app.statistics.cache-ttl:30s}") Duration cacheTtl) {
+        this.orderRepository = orderRepository;
+        this.cacheTtl = cacheTtl;
+    }
+
+    public Map<String, Object> getOrderStatistics(LocalDateTime startDate, LocalDateTime endDate) {
+        if (cacheTtl.isZero()) {
+            return computeStatistics(startDate, endDate);
+        }
+        
+        CacheKey key = new CacheKey(startDate, endDate);
+        long now = System.nanoTime();
+        CacheEntry cached = cache.get(key);
+        if (cached != null && cached.expiresAt - now > 0) {
+            return cached.stats;
+        }
+        
+        // Only store the result if no status change happened while it was computed
+        long generationBefore = generation.get();
+        Map<String, Object> stats = computeStatistics(startDate, endDate);
+        if (generation.get() == generationBefore) {
+            if (cache.size() >= MAX_CACHED_RANGES) {
+                cache.clear();
+            }
+            cache.put(key, new CacheEntry(stats, now + cacheTtl.toNanos()));
+        }
+        return stats;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private Map<String, Object> computeStatistics(LocalDateTime startDate, LocalDateTime endDate) {
+        List<OrderStatusTotalsDTO> totals = orderRepository.sumByStatus(startDate, endDate);
+        
+        Map<String, Object> stats = new HashMap<>();
+        long totalOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        
+        for (OrderStatus status : OrderStatus.values()) {
+            stats.put("orders" + status.name(), 0L);
+        }
+        for (OrderStatusTotalsDTO row : totals) {
+            stats.put("orders" + row.getStatus().name(), row.getCount());
+            totalOrders += row.getCount();
+            if (row.getStatus() == OrderStatus.PAID && row.getTotalAmount() != null) {
+                totalRevenue = row.getTotalAmount();
+            }
+        }
+        
+        stats.put("totalOrders", totalOrders);
+        stats.put("totalRevenue", totalRevenue);
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private record CacheKey(LocalDateTime startDate, LocalDateTime endDate) {
+    }
+
+    private record CacheEntry(Map<String, Object> stats, long expiresAt) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.kipperdev.orderhub.service;
+
+import com.kipperdev.orderhub.entity.Order;
+import com.kipperdev.orderhub.entity.OrderStatus;
+import com.kipperdev.orderhub.event.PaymentLinkRequestedEvent;
+import com.kipperdev.orderhub.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Second checkout step: creates the Abacate Pay billing once the order is committed,
+// without holding a pooled connection during the HTTP call.
+// The pending link lives on the order row (paymentLinkRetryAt), so a gateway failure or a restart
+// only delays the link: the retry job re-drives due orders with exponential backoff.
+@Service
+@Slf4j
+public class PaymentLinkService {
+
+    private final OrderRepository orderRepository;
+    private final AbacatePayService abacatePayService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor paymentExecutor;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer latency;
+    private final Counter failures;
+    private final Duration lease;
+    private final Duration retryBackoff;
+    private final Duration retryMaxBackoff;
+    private final int retryBatchSize;
+
+    public PaymentLinkService(OrderRepository orderRepository,
+                              AbacatePayService abacatePayService,
+                              TransactionTemplate transactionTemplate,
+                              @Qualifier("paymentExecutor") TaskExecutor paymentExecutor,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.checkout.payment.max-concurrency:32}") int maxConcurrency,
+                              @Value("${app.checkout.payment.lease:2m}") Duration lease,
+                              @Value("${app.checkout.payment.retry-backoff:30s}") Duration retryBackoff,
+                              @Value("${app.checkout.payment.retry-max-backoff:30m}") Duration retryMaxBackoff,
+                              @Value("${app.checkout.payment.retry-batch-size:100}") int retryBatchSize) {
+        this.orderRepository = orderRepository;
+        this.abacatePayService = abacatePayService;
+        this.transactionTemplate = transactionTemplate;
+        this.paymentExecutor = paymentExecutor;
+        this.permits = new Semaphore(maxConcurrency);
+        this.lease = lease;
+        this.retryBackoff = retryBackoff;
+        this.retryMaxBackoff = retryMaxBackoff;
+        this.retryBatchSize = retryBatchSize;
+        this.latency = Timer.builder("checkout.payment.link")
+            .description("Time to create a payment link at the gateway")
+            .register(meterRegistry);
+        this.failures = Counter.builder("checkout.payment.link.failures")
+            .register(meterRegistry);
+        Gauge.builder("checkout.payment.link.waiting", waiting, AtomicInteger::get)
+            .register(meterRegistry);
+        Gauge.builder("checkout.payment.link.in-flight", permits, p -> maxConcurrency - p.availablePermits())
+            .register(meterRegistry);
+    }
+
+    @Async("paymentExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void createPaymentLink(PaymentLinkRequestedEvent event) {
+        attempt(event.getOrderId());
+    }
+
+    // Re-drives pending links whose first attempt failed or was lost (e.g. the instance restarted)
+    @Scheduled(fixedDelayString = "${app.checkout.payment.retry-interval-ms:30000}",
+        initialDelayString = "${app.checkout.payment.retry-interval-ms:30000}")
+    public void retryPending() {
+        List<Long> due = orderRepository.findPendingPaymentLinkIds(
+            OrderStatus.PENDING_PAYMENT, LocalDateTime.now(), PageRequest.of(0, retryBatchSize));
+        if (!due.isEmpty()) {
+            log.info("Retrying payment link for {} orders", due.size());
+        }
+        for (Long orderId : due) {
+            paymentExecutor.execute(() -> attempt(orderId));
+        }
+    }
+
+    // One gateway attempt; returns true when the link was stored. Runs only if this worker wins the lease.
+    public boolean attempt(Long orderId) {
+        waiting.incrementAndGet();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Payment link creation for order {} interrupted", orderId);
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Integer claimed = transactionTemplate.execute(status -> orderRepository.claimPaymentLink(
+                orderId, OrderStatus.PENDING_PAYMENT, now, now.plus(lease)));
+            if (claimed == null || claimed == 0) {
+                log.debug("Payment link for order {} already created or being created", orderId);
+                return false;
+            }
+
+            Order order = transactionTemplate.execute(status -> orderRepository.findWithCustomerById(orderId)
+                .orElseThrow(() -> new RuntimeException("Pedido não encontrado: " + orderId)));
+
+            try {
+                // External call outside of any transaction
+                String paymentLink = abacatePayService.createPayment(order);
+
+                transactionTemplate.executeWithoutResult(status -> orderRepository.updatePaymentData(
+                    orderId, order.getAbacateTransactionId(), paymentLink));
+            } catch (Exception e) {
+                failures.increment();
+                LocalDateTime retryAt = LocalDateTime.now().plus(backoff(order.getPaymentLinkAttempts()));
+                transactionTemplate.executeWithoutResult(status ->
+                    orderRepository.schedulePaymentLinkRetry(orderId, retryAt));
+                log.error("Erro ao criar pagamento no Abacate Pay para pedido {} (nova tentativa às {}): {}",
+                    orderId, retryAt, e.getMessage());
+                return false;
+            }
+
+            log.info("Link de pagamento disponível para pedido {}", orderId);
+            return true;
+
+        } catch (Exception e) {
+            // Lease expires on its own, so the retry job picks the order up again
+            failures.increment();
+            log.error("Erro ao preparar pagamento do pedido {}: {}", orderId, e.getMessage());
+            return false;
+        } finally {
+            sample.stop(latency);
+            permits.release();
+        }
+    }
+
+    // retryBackoff * 2^attempts, capped at retryMaxBackoff
+    private Duration backoff(Integer attempts) {
+        int previous = attempts == null ? 0 : attempts;
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(previous, 20));
+        return delay.compareTo(retryMaxBackoff) > 0 ? retryMaxBackoff : delay;
+    }
+}
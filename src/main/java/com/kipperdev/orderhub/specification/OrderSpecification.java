@@ -80,6 +80,17 @@ public class OrderSpecification {
         };
     }
     
+    // Keyset predicate: rows strictly after the cursor in (createdAt DESC, id DESC) order
+    public static Specification<Order> seekAfter(LocalDateTime createdAt, Long id) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.or(
+            criteriaBuilder.lessThan(root.get("createdAt"), createdAt),
+            criteriaBuilder.and(
+                criteriaBuilder.equal(root.get("createdAt"), createdAt),
+                criteriaBuilder.lessThan(root.get("id"), id)
+            )
+        );
+    }
+    
     public static Specification<Order> byCustomerName(String customerName) {
         return (root, query, criteriaBuilder) -> 
             criteriaBuilder.like(
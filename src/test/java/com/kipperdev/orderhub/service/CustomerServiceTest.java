@@ -0,0 +1,112 @@
+package com.kipperdev.orderhub.service;
+
+import com.kipperdev.orderhub.dto.CustomerDTO;
+import com.kipperdev.orderhub.entity.Customer;
+import com.kipperdev.orderhub.repository.CustomerRepository;
+import com.kipperdev.orderhub.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.show-sql=false"
+})
+class CustomerServiceTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    // cached id -> one primary-key select, no update when nothing changed
+    @Test
+    void repeatCustomerIsResolvedWithASingleLookupAndNoWrite() {
+        CustomerDTO dto = new CustomerDTO(null, "Cliente Recorrente", "11122233344", "recorrente@example.com", "11988887777");
+        Customer created = customerService.getOrCreateCustomer(dto);
+        
+        statistics.clear();
+        Customer again = customerService.getOrCreateCustomer(dto);
+        
+        assertThat(again.getId()).isEqualTo(created.getId());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+    }
+
+    @Test
+    void changedDetailsAreWrittenOnce() {
+        customerService.getOrCreateCustomer(
+            new CustomerDTO(null, "Nome Antigo", "55566677788", "mudou@example.com", "11911112222"));
+        
+        statistics.clear();
+        Customer updated = customerService.getOrCreateCustomer(
+            new CustomerDTO(null, "Nome Novo", "55566677788", "mudou@example.com", "11911112222"));
+        
+        assertThat(updated.getName()).isEqualTo("Nome Novo");
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(customerRepository.findByEmail("mudou@example.com")).get()
+            .extracting(Customer::getName).isEqualTo("Nome Novo");
+    }
+
+    // first orders racing for the same email end up on one customer row
+    @Test
+    void concurrentFirstOrdersCreateASingleCustomer() throws Exception {
+        int threads = 4;
+        CustomerDTO dto = new CustomerDTO(null, "Cliente Paralelo", "99988877766", "paralelo@example.com", "11955554444");
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return customerService.getOrCreateCustomer(dto).getId();
+                }));
+            }
+            start.countDown();
+            
+            List<Long> ids = new ArrayList<>();
+            for (Future<Long> result : results) {
+                ids.add(result.get());
+            }
+            assertThat(ids).containsOnly(ids.get(0));
+            assertThat(customerRepository.count()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
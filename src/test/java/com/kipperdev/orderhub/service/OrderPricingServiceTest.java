@@ -0,0 +1,35 @@
+package com.kipperdev.orderhub.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderPricingServiceTest {
+
+    private final OrderPricingService pricingService = new OrderPricingService();
+
+    @Test
+    void pricesLinesAndTotalInCents() {
+        OrderPricingService.PricedOrder priced = pricingService.price(new long[] {1999, 250, 1}, new int[] {3, 4, 7});
+
+        assertThat(priced.lineTotals()).containsExactly(5997, 1000, 7);
+        assertThat(priced.total()).isEqualTo(7004);
+        assertThat(OrderPricingService.fromCents(priced.total())).isEqualByComparingTo("70.04");
+    }
+
+    @Test
+    void convertsAmountsRoundingHalfUp() {
+        assertThat(OrderPricingService.toCents(new BigDecimal("10.005"))).isEqualTo(1001);
+        assertThat(OrderPricingService.toCents(new BigDecimal("10.004"))).isEqualTo(1000);
+        assertThat(OrderPricingService.toCents(new BigDecimal("7"))).isEqualTo(700);
+    }
+
+    @Test
+    void failsOnOverflowInsteadOfWrapping() {
+        assertThatThrownBy(() -> pricingService.price(new long[] {Long.MAX_VALUE / 2}, new int[] {3}))
+            .isInstanceOf(ArithmeticException.class);
+    }
+}
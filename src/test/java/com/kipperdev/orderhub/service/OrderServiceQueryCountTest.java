@@ -0,0 +1,180 @@
+package com.kipperdev.orderhub.service;
+
+import com.kipperdev.orderhub.dto.CursorPageDTO;
+import com.kipperdev.orderhub.dto.OrderResponseDTO;
+import com.kipperdev.orderhub.dto.OrderStatusDTO;
+import com.kipperdev.orderhub.entity.Customer;
+import com.kipperdev.orderhub.entity.Order;
+import com.kipperdev.orderhub.entity.OrderItem;
+import com.kipperdev.orderhub.entity.OrderStatus;
+import com.kipperdev.orderhub.repository.CustomerRepository;
+import com.kipperdev.orderhub.repository.OrderRepository;
+import com.kipperdev.orderhub.specification.OrderSpecification;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.show-sql=false"
+})
+class OrderServiceQueryCountTest {
+
+    private static final int CUSTOMERS = 5;
+    private static final int ORDERS_PER_CUSTOMER = 12;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        
+        for (int c = 0; c < CUSTOMERS; c++) {
+            Customer customer = new Customer();
+            customer.setName("Cliente " + c);
+            customer.setEmail("cliente" + c + "@example.com");
+            customer.setDocument("doc-" + c);
+            customer.setPhone("1190000000" + c);
+            customer = customerRepository.save(customer);
+            
+            List<Order> orders = new ArrayList<>();
+            for (int o = 0; o < ORDERS_PER_CUSTOMER; o++) {
+                Order order = new Order();
+                order.setCustomer(customer);
+                order.setStatus(OrderStatus.PENDING_PAYMENT);
+                order.setPaymentMethod("PIX");
+                order.setTotalAmount(new BigDecimal("30.00"));
+                
+                List<OrderItem> items = new ArrayList<>();
+                for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                    OrderItem item = new OrderItem();
+                    item.setOrder(order);
+                    item.setProductName("Produto " + i);
+                    item.setProductSku("SKU-" + i);
+                    item.setQuantity(1);
+                    item.setUnitPrice(new BigDecimal("10.00"));
+                    item.setTotalPrice(new BigDecimal("10.00"));
+                    items.add(item);
+                }
+                order.setItems(items);
+                orders.add(order);
+            }
+            orderRepository.saveAll(orders);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    // page + count + one batched items query, whatever the page size
+    @ParameterizedTest
+    @ValueSource(ints = {5, 20, 50})
+    void filterOrdersUsesABoundedNumberOfStatements(int pageSize) {
+        statistics.clear();
+        
+        Page<OrderResponseDTO> page = orderService.filterOrders(
+            OrderSpecification.withFilters(null, null, null, null), PageRequest.of(0, pageSize));
+        
+        assertThat(page.getContent()).hasSize(pageSize);
+        assertThat(page.getContent()).allSatisfy(order -> {
+            assertThat(order.getCustomer().getEmail()).isNotNull();
+            assertThat(order.getItems()).hasSize(ITEMS_PER_ORDER);
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void ordersByCustomerEmailLoadCustomerInTheSameQuery() {
+        statistics.clear();
+        
+        List<OrderStatusDTO> orders = orderService.getOrdersByCustomerEmail("cliente1@example.com");
+        
+        assertThat(orders).hasSize(ORDERS_PER_CUSTOMER);
+        assertThat(orders).allSatisfy(order -> assertThat(order.getCustomerEmail()).isEqualTo("cliente1@example.com"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    // walks every page: no duplicates or gaps, newest first, page + one batched items query each
+    @Test
+    void cursorListingVisitsEveryOrderOnceWithTwoStatementsPerPage() {
+        List<OrderResponseDTO> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            CursorPageDTO<OrderResponseDTO> page = orderService.filterOrdersByCursor(
+                OrderSpecification.withFilters(null, null, null, null), cursor, 7);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+            assertThat(page.getContent()).allSatisfy(order -> {
+                assertThat(order.getCustomer().getEmail()).isNotNull();
+                assertThat(order.getItems()).hasSize(ITEMS_PER_ORDER);
+            });
+            seen.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        assertThat(seen).extracting(OrderResponseDTO::getId)
+            .doesNotHaveDuplicates()
+            .hasSize(CUSTOMERS * ORDERS_PER_CUSTOMER);
+        assertThat(seen).isSortedAccordingTo(Comparator
+            .comparing(OrderResponseDTO::getCreatedAt)
+            .thenComparing(OrderResponseDTO::getId)
+            .reversed());
+    }
+
+    @Test
+    void cursorListingAppliesFilters() {
+        var spec = OrderSpecification.withFilters(OrderStatus.PENDING_PAYMENT, "cliente2@", null, null);
+        
+        CursorPageDTO<OrderResponseDTO> first = orderService.filterOrdersByCursor(spec, null, 10);
+        CursorPageDTO<OrderResponseDTO> second = orderService.filterOrdersByCursor(spec, first.getNextCursor(), 10);
+        
+        assertThat(first.getContent()).hasSize(10);
+        assertThat(second.getContent()).hasSize(ORDERS_PER_CUSTOMER - 10);
+        assertThat(second.getNextCursor()).isNull();
+        assertThat(first.getContent()).extracting(order -> order.getCustomer().getEmail())
+            .containsOnly("cliente2@example.com");
+        assertThat(orderService.approximateOrderCount(OrderStatus.PENDING_PAYMENT, null, null, null, null))
+            .isEqualTo(CUSTOMERS * ORDERS_PER_CUSTOMER);
+        assertThat(orderService.approximateOrderCount(null, "cliente2@", null, null, null)).isNull();
+    }
+
+    @Test
+    void cursorListingRejectsMalformedCursor() {
+        assertThatThrownBy(() -> orderService.filterOrdersByCursor(
+            OrderSpecification.withFilters(null, null, null, null), "not-a-cursor", 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
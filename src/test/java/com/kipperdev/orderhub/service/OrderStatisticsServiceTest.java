@@ -0,0 +1,145 @@
+package com.kipperdev.orderhub.service;
+
+import com.kipperdev.orderhub.entity.Customer;
+import com.kipperdev.orderhub.entity.Order;
+import com.kipperdev.orderhub.entity.OrderStatus;
+import com.kipperdev.orderhub.event.OrderStatusChangedEvent;
+import com.kipperdev.orderhub.repository.CustomerRepository;
+import com.kipperdev.orderhub.repository.OrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.show-sql=false",
+    "app.statistics.cache-ttl=1h"
+})
+class OrderStatisticsServiceTest {
+
+    @Autowired
+    private OrderStatisticsService orderStatisticsService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        
+        Customer newCustomer = new Customer();
+        newCustomer.setName("Cliente Estatísticas");
+        newCustomer.setEmail("stats@example.com");
+        newCustomer.setDocument("00000000191");
+        newCustomer.setPhone("11999999999");
+        customer = customerRepository.save(newCustomer);
+        
+        invalidateCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+        invalidateCache();
+    }
+
+    @Test
+    void aggregatesWithOneQueryAndNoEntityLoadsRegardlessOfOrderCount() {
+        createOrders(20, OrderStatus.PAID, "10.00");
+        assertSingleQueryWithoutEntityLoads();
+        
+        createOrders(500, OrderStatus.PAID, "10.00");
+        invalidateCache();
+        Map<String, Object> stats = assertSingleQueryWithoutEntityLoads();
+        
+        assertThat(stats.get("totalOrders")).isEqualTo(520L);
+        assertThat((BigDecimal) stats.get("totalRevenue")).isEqualByComparingTo("5200.00");
+    }
+
+    @Test
+    void restrictsCountsAndRevenueToTheDateRange() {
+        createOrders(3, OrderStatus.PAID, "25.50");
+        createOrders(2, OrderStatus.PENDING_PAYMENT, "99.00");
+        
+        Map<String, Object> current = orderStatisticsService.getOrderStatistics(
+            LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+        assertThat(current.get("totalOrders")).isEqualTo(5L);
+        assertThat(current.get("ordersPAID")).isEqualTo(3L);
+        assertThat(current.get("ordersPENDING_PAYMENT")).isEqualTo(2L);
+        assertThat(current.get("ordersCANCELLED")).isEqualTo(0L);
+        assertThat((BigDecimal) current.get("totalRevenue")).isEqualByComparingTo("76.50");
+        
+        Map<String, Object> past = orderStatisticsService.getOrderStatistics(
+            LocalDateTime.now().minusDays(30), LocalDateTime.now().minusDays(10));
+        assertThat(past.get("totalOrders")).isEqualTo(0L);
+        assertThat((BigDecimal) past.get("totalRevenue")).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void servesFromCacheUntilAnOrderChangesStatus() {
+        List<Order> orders = createOrders(2, OrderStatus.PENDING_PAYMENT, "10.00");
+        
+        orderStatisticsService.getOrderStatistics(null, null);
+        statistics.clear();
+        Map<String, Object> cached = orderStatisticsService.getOrderStatistics(null, null);
+        assertThat(statistics.getQueryExecutionCount()).isZero();
+        assertThat(cached.get("ordersPAID")).isEqualTo(0L);
+        
+        orderService.updateOrderStatus(orders.get(0).getId(), OrderStatus.PAID);
+        
+        Map<String, Object> refreshed = orderStatisticsService.getOrderStatistics(null, null);
+        assertThat(refreshed.get("ordersPAID")).isEqualTo(1L);
+        assertThat(refreshed.get("ordersPENDING_PAYMENT")).isEqualTo(1L);
+    }
+
+    private Map<String, Object> assertSingleQueryWithoutEntityLoads() {
+        statistics.clear();
+        Map<String, Object> stats = orderStatisticsService.getOrderStatistics(null, null);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        return stats;
+    }
+
+    private List<Order> createOrders(int count, OrderStatus status, String amount) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            order.setCustomer(customer);
+            order.setStatus(status);
+            order.setPaymentMethod("PIX");
+            order.setTotalAmount(new BigDecimal(amount));
+            orders.add(order);
+        }
+        return orderRepository.saveAll(orders);
+    }
+
+    private void invalidateCache() {
+        orderStatisticsService.onOrderStatusChanged(new OrderStatusChangedEvent());
+    }
+}
@@ -0,0 +1,113 @@
+package com.kipperdev.orderhub.service;
+
+import com.kipperdev.orderhub.dto.CreateOrderRequestDTO;
+import com.kipperdev.orderhub.dto.CustomerDTO;
+import com.kipperdev.orderhub.dto.OrderItemDTO;
+import com.kipperdev.orderhub.entity.Order;
+import com.kipperdev.orderhub.repository.CustomerRepository;
+import com.kipperdev.orderhub.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+    "app.checkout.payment.retry-interval-ms=3600000",
+    "spring.jpa.show-sql=false"
+})
+class PaymentLinkServiceTest {
+
+    @MockitoSpyBean
+    private AbacatePayService abacatePayService;
+
+    @Autowired
+    private PaymentLinkService paymentLinkService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    // gateway down at checkout: the order keeps a pending link that the retry job creates once it is due
+    @Test
+    void failedLinkIsDeferredAndCreatedByTheRetryJob() throws Exception {
+        doThrow(new RuntimeException("gateway indisponível")).doCallRealMethod()
+            .when(abacatePayService).createPayment(any(Order.class));
+
+        Long orderId = orderService.createOrder(request("adiado@example.com")).getId();
+        Order pending = awaitOrder(orderId, order -> order.getPaymentLinkAttempts() == 1);
+
+        assertThat(pending.getPaymentLink()).isNull();
+        assertThat(pending.getPaymentLinkRetryAt()).isAfter(LocalDateTime.now());
+
+        // not due yet: nothing is sent to the gateway
+        paymentLinkService.retryPending();
+        verify(abacatePayService, times(1)).createPayment(any(Order.class));
+
+        transactionTemplate.executeWithoutResult(status ->
+            orderRepository.schedulePaymentLinkRetry(orderId, LocalDateTime.now().minusSeconds(1)));
+        paymentLinkService.retryPending();
+
+        Order linked = awaitOrder(orderId, order -> order.getPaymentLink() != null);
+        assertThat(linked.getPaymentLinkRetryAt()).isNull();
+        assertThat(linked.getAbacateTransactionId()).isNotNull();
+        verify(abacatePayService, times(2)).createPayment(any(Order.class));
+    }
+
+    // once the link exists neither the handler nor the retry job calls the gateway again
+    @Test
+    void createdLinkIsNotRequestedAgain() throws Exception {
+        Long orderId = orderService.createOrder(request("imediato@example.com")).getId();
+        awaitOrder(orderId, order -> order.getPaymentLink() != null);
+
+        assertThat(paymentLinkService.attempt(orderId)).isFalse();
+        paymentLinkService.retryPending();
+
+        verify(abacatePayService, times(1)).createPayment(any(Order.class));
+    }
+
+    private CreateOrderRequestDTO request(String email) {
+        CustomerDTO customer = new CustomerDTO(null, "Cliente Link", "12345678900", email, "11977776666");
+        OrderItemDTO item = new OrderItemDTO(null, "Produto", "SKU-1", 2, new BigDecimal("15.00"), null);
+        return new CreateOrderRequestDTO(customer, List.of(item), "PIX");
+    }
+
+    // the payment link is created after commit on another thread
+    private Order awaitOrder(Long orderId, Predicate<Order> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            Order order = orderRepository.findById(orderId).orElseThrow();
+            if (condition.test(order) || System.currentTimeMillis() > deadline) {
+                assertThat(condition.test(order)).as("order %d did not reach the expected state", orderId).isTrue();
+                return order;
+            }
+            Thread.sleep(50);
+        }
+    }
+}